@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.jwt.signer.service.JWTSigningAndValidationService;
+import org.mitre.jwt.signer.service.impl.DefaultJWTSigningAndValidationService;
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.mitre.openid.connect.model.UserInfo;
+import org.mitre.openid.connect.service.impl.DefaultScopeClaimTranslationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import com.google.common.collect.Maps;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import it.infn.mw.iam.config.IamProperties;
+import it.infn.mw.iam.core.oauth.profile.JWTAccessTokenBuilder;
+import it.infn.mw.iam.core.oauth.profile.iam.ClaimValueHelper;
+import it.infn.mw.iam.core.oauth.profile.iam.IamJWTProfileAccessTokenBuilder;
+import it.infn.mw.iam.core.oauth.profile.wlcg.WLCGGroupHelper;
+import it.infn.mw.iam.core.oauth.profile.wlcg.WLCGProfileAccessTokenBuilder;
+import it.infn.mw.iam.persistence.repository.UserInfoAdapter;
+
+/**
+ * Access token claims building for the IAM and WLCG JWT profiles, and claims signing as done by
+ * the IamTokenEnhancer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenBuilderBenchmark {
+
+  public static final String KEY_ID = "rsa1";
+
+  @Param({"iam", "wlcg"})
+  String profile;
+
+  @Param({"10", "100"})
+  int groupCount;
+
+  JWTAccessTokenBuilder builder;
+  JWTSigningAndValidationService jwtService;
+
+  OAuth2AccessTokenEntity token;
+  OAuth2Authentication authentication;
+  UserInfo userInfo;
+
+  @Setup
+  public void setup() throws Exception {
+    IamProperties properties = new IamProperties();
+    properties.setIssuer(Fixtures.ISSUER);
+
+    if ("wlcg".equals(profile)) {
+      builder = new WLCGProfileAccessTokenBuilder(properties, new WLCGGroupHelper());
+    } else {
+      builder = new IamJWTProfileAccessTokenBuilder(properties,
+          new DefaultScopeClaimTranslationService(), new ClaimValueHelper());
+    }
+
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+
+    RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+      .privateKey((RSAPrivateKey) keyPair.getPrivate())
+      .keyID(KEY_ID)
+      .build();
+
+    Map<String, JWK> keys = Maps.newHashMap();
+    keys.put(KEY_ID, key);
+
+    DefaultJWTSigningAndValidationService service = new DefaultJWTSigningAndValidationService(keys);
+    service.setDefaultSignerKeyId(KEY_ID);
+    service.setDefaultSigningAlgorithmName(JWSAlgorithm.RS256.getName());
+    jwtService = service;
+
+    Set<String> scopes = Fixtures.requestedScopes(5);
+    scopes.add(WLCGGroupHelper.WLCG_GROUPS_SCOPE);
+
+    token = Fixtures.accessToken(scopes);
+    authentication = Fixtures.authentication(scopes);
+    userInfo = UserInfoAdapter.forIamUserInfo(Fixtures.account(groupCount, 0).getUserInfo());
+  }
+
+  private SignedJWT signClaims(JWTClaimsSet claims) {
+    JWSHeader header = new JWSHeader(jwtService.getDefaultSigningAlgorithm(), null, null, null,
+        null, null, null, null, null, null, jwtService.getDefaultSignerKeyId(), null, null);
+    SignedJWT signedJWT = new SignedJWT(header, claims);
+
+    jwtService.signJwt(signedJWT);
+    return signedJWT;
+  }
+
+  @Benchmark
+  public JWTClaimsSet buildAccessToken() {
+    return builder.buildAccessToken(token, authentication, userInfo, Instant.now());
+  }
+
+  @Benchmark
+  public String buildAndSignAccessToken() {
+    return signClaims(builder.buildAccessToken(token, authentication, userInfo, Instant.now()))
+      .serialize();
+  }
+}
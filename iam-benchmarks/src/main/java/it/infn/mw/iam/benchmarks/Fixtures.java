@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import static it.infn.mw.iam.core.oauth.scope.matchers.RegexpScopeMatcher.regexpMatcher;
+import static it.infn.mw.iam.core.oauth.scope.matchers.StructuredPathScopeMatcher.structuredPathMatcher;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.mitre.oauth2.model.ClientDetailsEntity;
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import it.infn.mw.iam.core.oauth.profile.wlcg.WLCGGroupHelper;
+import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcher;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.model.IamScopePolicy;
+import it.infn.mw.iam.persistence.model.IamScopePolicy.MatchingPolicy;
+import it.infn.mw.iam.persistence.model.PolicyRule;
+import it.infn.mw.iam.persistence.repository.IamScopePolicyRepository;
+
+/**
+ * Synthetic fixture generators for the benchmarks.
+ *
+ * Fixtures are deterministic, so that results from different runs can be compared.
+ */
+public class Fixtures {
+
+  public static final String ISSUER = "https://iam.example/";
+  public static final String CLIENT_ID = "benchmark-client";
+  public static final String USERNAME = "benchmark-user";
+
+  public static final String[] STORAGE_SCOPES =
+      {"storage.read", "storage.write", "storage.modify", "storage.create"};
+
+  private Fixtures() {
+    // prevent instantiation
+  }
+
+  /**
+   * The custom scope matchers defined in the wlcg-scopes profile.
+   */
+  public static Set<ScopeMatcher> wlcgScopeMatchers() {
+    Set<ScopeMatcher> matchers = Sets.newHashSet();
+    for (String s : STORAGE_SCOPES) {
+      matchers.add(structuredPathMatcher(s, "/"));
+    }
+    matchers.add(regexpMatcher(WLCGGroupHelper.WLCG_GROUP_REGEXP_STR));
+    return matchers;
+  }
+
+  public static String groupName(int index) {
+    return String.format("group-%04d", index);
+  }
+
+  public static IamGroup group(int index) {
+    IamGroup group = new IamGroup();
+    group.setId((long) index);
+    group.setUuid(String.format("00000000-0000-0000-0000-%012d", index));
+    group.setName(groupName(index));
+    group.setDescription("Benchmark group " + index);
+    group.setCreationTime(new Date(0));
+    group.setLastUpdateTime(new Date(0));
+
+    if (index % 5 == 0) {
+      group.getLabels().add(WLCGGroupHelper.OPTIONAL_GROUP_LABEL);
+    }
+    return group;
+  }
+
+  public static IamScopePolicy scopePolicy(long id, PolicyRule rule, MatchingPolicy matching,
+      String... scopes) {
+    IamScopePolicy policy = new IamScopePolicy();
+    policy.setId(id);
+    policy.setDescription("Benchmark policy " + id);
+    policy.setRule(rule);
+    policy.setMatchingPolicy(matching);
+    policy.setScopes(Sets.newHashSet(scopes));
+    policy.setCreationTime(new Date(0));
+    policy.setLastUpdateTime(new Date(0));
+    return policy;
+  }
+
+  /**
+   * Builds an account that is member of the given number of groups, where each group and the
+   * account itself are linked to the given number of scope policies.
+   */
+  public static IamAccount account(int groupCount, int policiesPerEntity) {
+    IamAccount account = IamAccount.newAccount();
+    account.setId(1L);
+    account.setUuid("00000000-0000-0000-0000-000000000001");
+    account.setUsername(USERNAME);
+    account.setActive(true);
+    account.setCreationTime(new Date(0));
+    account.setLastUpdateTime(new Date(0));
+    account.getUserInfo().setGivenName("Benchmark");
+    account.getUserInfo().setFamilyName("User");
+    account.getUserInfo().setEmail(USERNAME + "@example.org");
+
+    long policyId = 0;
+
+    for (int i = 0; i < groupCount; i++) {
+      IamGroup g = group(i);
+      for (int j = 0; j < policiesPerEntity; j++) {
+        IamScopePolicy p = policy(++policyId, j);
+        p.linkGroup(g);
+      }
+      account.getGroups().add(g);
+    }
+
+    for (int j = 0; j < policiesPerEntity; j++) {
+      IamScopePolicy p = policy(++policyId, j);
+      p.linkAccount(account);
+    }
+
+    return account;
+  }
+
+  private static IamScopePolicy policy(long id, int index) {
+    switch (index % 3) {
+      case 0:
+        return scopePolicy(id, PolicyRule.PERMIT, MatchingPolicy.EQ, "openid", "profile");
+      case 1:
+        return scopePolicy(id, PolicyRule.DENY, MatchingPolicy.PATH,
+            "storage.write:/protected-" + id);
+      default:
+        return scopePolicy(id, PolicyRule.PERMIT, MatchingPolicy.REGEXP, "^storage\\.read:/.*$");
+    }
+  }
+
+  /**
+   * A typical WLCG scope request: OpenID scopes, storage scopes and group scopes.
+   */
+  public static Set<String> requestedScopes(int groupScopes) {
+    Set<String> scopes = Sets.newLinkedHashSet();
+    scopes.add("openid");
+    scopes.add("profile");
+    for (String s : STORAGE_SCOPES) {
+      scopes.add(s + ":/data/benchmark");
+    }
+    IntStream.range(0, groupScopes)
+      .forEach(i -> scopes.add(WLCGGroupHelper.QUALIFIED_WLCG_GROUPS_SCOPE + groupName(i)));
+    return scopes;
+  }
+
+  public static ClientDetailsEntity client() {
+    ClientDetailsEntity client = new ClientDetailsEntity();
+    client.setClientId(CLIENT_ID);
+    return client;
+  }
+
+  public static OAuth2AccessTokenEntity accessToken(Set<String> scopes) {
+    OAuth2AccessTokenEntity token = new OAuth2AccessTokenEntity();
+    token.setClient(client());
+    token.setScope(scopes);
+    token.setExpiration(new Date(System.currentTimeMillis() + 3600 * 1000L));
+    return token;
+  }
+
+  public static OAuth2Authentication authentication(Set<String> scopes) {
+    Map<String, String> params = Maps.newHashMap();
+    params.put("scope", scopes.stream().collect(Collectors.joining(" ")));
+
+    Map<String, Serializable> extensions = Collections.emptyMap();
+
+    OAuth2Request request = new OAuth2Request(params, CLIENT_ID,
+        AuthorityUtils.createAuthorityList("ROLE_CLIENT"), true, scopes, null, null, null,
+        extensions);
+
+    UsernamePasswordAuthenticationToken userAuth = new UsernamePasswordAuthenticationToken(
+        USERNAME, null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    return new OAuth2Authentication(request, userAuth);
+  }
+
+  /**
+   * A scope policy repository that only serves the given default policies.
+   */
+  public static IamScopePolicyRepository scopePolicyRepository(
+      List<IamScopePolicy> defaultPolicies) {
+    return (IamScopePolicyRepository) Proxy.newProxyInstance(
+        IamScopePolicyRepository.class.getClassLoader(),
+        new Class<?>[] {IamScopePolicyRepository.class}, (proxy, method, args) -> {
+          if ("findDefaultPolicies".equals(method.getName())) {
+            return defaultPolicies;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}
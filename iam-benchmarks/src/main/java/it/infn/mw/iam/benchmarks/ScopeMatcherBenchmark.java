@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import static it.infn.mw.iam.core.oauth.scope.matchers.RegexpScopeMatcher.regexpMatcher;
+import static it.infn.mw.iam.core.oauth.scope.matchers.StructuredPathScopeMatcher.structuredPathMatcher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.infn.mw.iam.core.oauth.profile.wlcg.WLCGGroupHelper;
+import it.infn.mw.iam.core.oauth.scope.matchers.DefaultScopeMatcherRegistry;
+import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcher;
+import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcherRegistry;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScopeMatcherBenchmark {
+
+  @Param({"storage.read:/data/benchmark/file", "wlcg.groups:/group-0001", "openid"})
+  String scope;
+
+  ScopeMatcher pathMatcher;
+  ScopeMatcher regexpMatcher;
+  ScopeMatcherRegistry registry;
+
+  @Setup
+  public void setup() {
+    pathMatcher = structuredPathMatcher("storage.read", "/");
+    regexpMatcher = regexpMatcher(WLCGGroupHelper.WLCG_GROUP_REGEXP_STR);
+    registry = new DefaultScopeMatcherRegistry(Fixtures.wlcgScopeMatchers(), 20);
+  }
+
+  @Benchmark
+  public boolean structuredPathMatch() {
+    return pathMatcher.matches(scope);
+  }
+
+  @Benchmark
+  public boolean regexpMatch() {
+    return regexpMatcher.matches(scope);
+  }
+
+  @Benchmark
+  public ScopeMatcher registryLookup() {
+    return registry.findMatcherForScope(scope);
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.core.oauth.scope.pdp.DefaultScopePolicyPDP;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamScopePolicy.MatchingPolicy;
+import it.infn.mw.iam.persistence.model.PolicyRule;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScopePolicyPdpBenchmark {
+
+  @Param({"1", "10", "50"})
+  int groupCount;
+
+  @Param({"1", "5"})
+  int policiesPerEntity;
+
+  DefaultScopePolicyPDP pdp;
+  IamAccount account;
+  Set<String> requestedScopes;
+
+  @Setup
+  public void setup() {
+    pdp = new DefaultScopePolicyPDP(Fixtures.scopePolicyRepository(
+        Lists.newArrayList(Fixtures.scopePolicy(0, PolicyRule.PERMIT, MatchingPolicy.EQ))));
+    account = Fixtures.account(groupCount, policiesPerEntity);
+    requestedScopes = Fixtures.requestedScopes(2);
+  }
+
+  @Benchmark
+  public Set<String> filterScopes() {
+    return pdp.filterScopes(requestedScopes, account);
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.infn.mw.iam.api.scim.converter.AddressConverter;
+import it.infn.mw.iam.api.scim.converter.OidcIdConverter;
+import it.infn.mw.iam.api.scim.converter.SamlIdConverter;
+import it.infn.mw.iam.api.scim.converter.ScimResourceLocationProvider;
+import it.infn.mw.iam.api.scim.converter.SshKeyConverter;
+import it.infn.mw.iam.api.scim.converter.UserConverter;
+import it.infn.mw.iam.api.scim.converter.X509CertificateConverter;
+import it.infn.mw.iam.api.scim.model.ScimUser;
+import it.infn.mw.iam.authn.x509.PEMX509CertificateChainParser;
+import it.infn.mw.iam.persistence.model.IamAccount;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserConverterBenchmark {
+
+  @Param({"0", "10", "100"})
+  int groupCount;
+
+  UserConverter converter;
+  IamAccount account;
+
+  @Setup
+  public void setup() {
+    ScimResourceLocationProvider locationProvider = new ScimResourceLocationProvider() {
+
+      @Override
+      public String userLocation(String userId) {
+        return String.format("%sscim/Users/%s", Fixtures.ISSUER, userId);
+      }
+
+      @Override
+      public String groupLocation(String groupId) {
+        return String.format("%sscim/Groups/%s", Fixtures.ISSUER, groupId);
+      }
+    };
+
+    converter = new UserConverter(locationProvider, new AddressConverter(), new OidcIdConverter(),
+        new SshKeyConverter(), new SamlIdConverter(),
+        new X509CertificateConverter(new PEMX509CertificateChainParser()));
+
+    account = Fixtures.account(groupCount, 0);
+  }
+
+  @Benchmark
+  public ScimUser dtoFromEntity() {
+    return converter.dtoFromEntity(account);
+  }
+}
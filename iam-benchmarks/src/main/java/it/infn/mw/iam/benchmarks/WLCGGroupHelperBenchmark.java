@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.infn.mw.iam.core.oauth.profile.wlcg.WLCGGroupHelper;
+import it.infn.mw.iam.persistence.model.IamUserInfo;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WLCGGroupHelperBenchmark {
+
+  @Param({"10", "100", "1000"})
+  int groupCount;
+
+  @Param({"0", "5"})
+  int requestedGroupScopes;
+
+  WLCGGroupHelper helper;
+  OAuth2AccessTokenEntity token;
+  IamUserInfo userInfo;
+
+  @Setup
+  public void setup() {
+    helper = new WLCGGroupHelper();
+
+    Set<String> scopes = Fixtures.requestedScopes(requestedGroupScopes);
+    scopes.add(WLCGGroupHelper.WLCG_GROUPS_SCOPE);
+
+    token = Fixtures.accessToken(scopes);
+    userInfo = Fixtures.account(groupCount, 0).getUserInfo();
+  }
+
+  @Benchmark
+  public Set<String> resolveGroupNames() {
+    return helper.resolveGroupNames(token, userInfo);
+  }
+}
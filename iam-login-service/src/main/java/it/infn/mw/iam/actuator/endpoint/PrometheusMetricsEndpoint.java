@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.actuator.endpoint;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer.StageKey;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer.StageStats;
+
+/**
+ * Renders the application metrics in the Prometheus text exposition format.
+ *
+ * Token issuance stage timings are exported as summaries labeled by stage, grant type, client and
+ * JWT profile; all other public metrics are exported as gauges.
+ */
+@Component
+@ConfigurationProperties(prefix = "metrics.prometheus")
+public class PrometheusMetricsEndpoint extends AbstractEndpoint<String> {
+
+  public static final String ENDPOINT_ID = "prometheusMetrics";
+
+  public static final String TOKEN_ISSUANCE_METRIC = "iam_token_issuance_stage_seconds";
+
+  private static final Pattern INVALID_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9_:]");
+  private static final double NANOS_PER_SEC = 1_000_000_000.0;
+
+  private final TokenIssuanceTimer timer;
+  private final List<PublicMetrics> publicMetrics;
+
+  @Autowired
+  public PrometheusMetricsEndpoint(TokenIssuanceTimer timer, List<PublicMetrics> publicMetrics) {
+    super(ENDPOINT_ID, true);
+    this.timer = timer;
+    this.publicMetrics = publicMetrics;
+  }
+
+  static String sanitizeName(String name) {
+    return INVALID_NAME_CHARS.matcher(name).replaceAll("_");
+  }
+
+  static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String labels(StageKey key) {
+    return String.format("{stage=\"%s\",grant_type=\"%s\",client_id=\"%s\",profile=\"%s\"}",
+        key.getStage().getStageName(), escapeLabelValue(key.getGrantType()),
+        escapeLabelValue(key.getClientId()), escapeLabelValue(key.getProfile()));
+  }
+
+  private void appendTokenIssuanceMetrics(StringBuilder out) {
+    Map<StageKey, StageStats> stats = timer.getStats();
+
+    out.append("# TYPE ").append(TOKEN_ISSUANCE_METRIC).append(" summary\n");
+    stats.forEach((key, s) -> {
+      out.append(TOKEN_ISSUANCE_METRIC).append("_count").append(labels(key)).append(' ')
+        .append(s.getCount()).append('\n');
+      out.append(TOKEN_ISSUANCE_METRIC).append("_sum").append(labels(key)).append(' ')
+        .append(s.getTotalNanos() / NANOS_PER_SEC).append('\n');
+    });
+
+    out.append("# TYPE ").append(TOKEN_ISSUANCE_METRIC).append("_max gauge\n");
+    stats.forEach((key, s) -> out.append(TOKEN_ISSUANCE_METRIC)
+      .append("_max")
+      .append(labels(key))
+      .append(' ')
+      .append(s.getMaxNanos() / NANOS_PER_SEC)
+      .append('\n'));
+  }
+
+  private void appendPublicMetrics(StringBuilder out) {
+    for (PublicMetrics pm : publicMetrics) {
+      if (pm == timer) {
+        continue;
+      }
+
+      for (Metric<?> m : pm.metrics()) {
+        String name = sanitizeName(m.getName());
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(m.getValue().doubleValue()).append('\n');
+      }
+    }
+  }
+
+  @Override
+  public String invoke() {
+    StringBuilder out = new StringBuilder();
+    appendTokenIssuanceMetrics(out);
+    appendPublicMetrics(out);
+    return out.toString();
+  }
+}
@@ -24,6 +24,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.mvc.AbstractEndpointMvcAdapter;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
@@ -32,10 +33,13 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.google.common.collect.Maps;
 
 import it.infn.mw.iam.actuator.endpoint.ExternalServiceProbeEndpoint;
+import it.infn.mw.iam.core.http.ExternalCallExecutor;
+import it.infn.mw.iam.core.http.ExternalCallTimeoutException;
 
 @Component
 @ConfigurationProperties(prefix = "health.externalServiceProbe")
@@ -44,27 +48,38 @@ public class ExternalServiceHealthMvcEndpoint
 
   private Map<String, HttpStatus> statusMapping = Maps.newLinkedHashMap();
 
+  private final ExternalCallExecutor executor;
+
   @Autowired
-  public ExternalServiceHealthMvcEndpoint(ExternalServiceProbeEndpoint delegate) {
+  public ExternalServiceHealthMvcEndpoint(ExternalServiceProbeEndpoint delegate,
+      ExternalCallExecutor executor) {
     super(delegate);
+    this.executor = executor;
     statusMapping.put("DOWN", HttpStatus.SERVICE_UNAVAILABLE);
   }
 
   @RequestMapping(produces = APPLICATION_JSON_VALUE, method = RequestMethod.GET)
   @ResponseBody
-  public Object getServiceHealth(AbstractAuthenticationToken auth) {
+  public DeferredResult<Object> getServiceHealth(AbstractAuthenticationToken auth) {
     if (!getDelegate().isEnabled()) {
-      return getDisabledResponse();
+      return ExternalCallExecutor.completed(getDisabledResponse());
     }
 
-    Health health = getHealth(auth);
-    HttpStatus status = getStatus(health);
+    return executor.call(() -> {
+      Health health = getHealth(auth);
+      HttpStatus status = getStatus(health);
 
-    if (status != null) {
-      return new ResponseEntity<Health>(health, status);
-    }
+      if (status != null) {
+        return new ResponseEntity<Health>(health, status);
+      }
 
-    return health;
+      return health;
+    }, e -> {
+      if (e instanceof ExternalCallTimeoutException || e instanceof TaskRejectedException) {
+        return new ResponseEntity<Health>(Health.down().build(), HttpStatus.SERVICE_UNAVAILABLE);
+      }
+      throw e;
+    });
   }
 
 
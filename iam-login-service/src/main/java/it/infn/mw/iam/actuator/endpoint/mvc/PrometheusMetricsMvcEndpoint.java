@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.actuator.endpoint.mvc;
+
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.mvc.AbstractEndpointMvcAdapter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import it.infn.mw.iam.actuator.endpoint.PrometheusMetricsEndpoint;
+
+@Component
+@ConfigurationProperties(prefix = "metrics.prometheus")
+public class PrometheusMetricsMvcEndpoint
+    extends AbstractEndpointMvcAdapter<PrometheusMetricsEndpoint> {
+
+  @Autowired
+  public PrometheusMetricsMvcEndpoint(PrometheusMetricsEndpoint delegate) {
+    super(delegate);
+  }
+
+  @RequestMapping(produces = TEXT_PLAIN_VALUE, method = RequestMethod.GET)
+  @ResponseBody
+  public Object getMetrics() {
+    if (!getDelegate().isEnabled()) {
+      return getDisabledResponse();
+    }
+
+    return ResponseEntity.ok(getDelegate().invoke());
+  }
+}
@@ -15,6 +15,8 @@
  */
 package it.infn.mw.iam.api.account.search;
 
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.RELEVANCE_SORT_PROPERTY;
+
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -60,6 +62,7 @@ public class AccountSearchController extends AbstractSearchController<ScimUser,
     super(service, converter);
   }
 
+  @Transactional(readOnly = true)
   @RequestMapping(method = RequestMethod.GET)
   public MappingJacksonValue getUsers(
       @RequestParam(required = false, defaultValue = DEFAULT_START_INDEX_STRING) int startIndex,
@@ -81,6 +84,8 @@ public class AccountSearchController extends AbstractSearchController<ScimUser,
         return getSortByCreationTime(direction);
       case "email":
         return getSortByEmail(direction);
+      case "relevance":
+        return getSortByRelevance(direction);
       default: /* case "name" and anything else */
         return getSortByName(direction);
     }
@@ -92,6 +97,11 @@ public class AccountSearchController extends AbstractSearchController<ScimUser,
         new Order(direction, "userInfo.familyName").ignoreCase());
   }
 
+  public static Sort getSortByRelevance(Sort.Direction direction) {
+
+    return new Sort(new Order(direction, RELEVANCE_SORT_PROPERTY)).and(getSortByName(direction));
+  }
+
   public static Sort getSortByCreationTime(Sort.Direction direction) {
 
     return new Sort(new Order(direction, "creationTime").ignoreCase());
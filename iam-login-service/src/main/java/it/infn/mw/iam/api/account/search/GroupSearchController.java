@@ -15,16 +15,20 @@
  */
 package it.infn.mw.iam.api.account.search;
 
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.RELEVANCE_SORT_PROPERTY;
 import static it.infn.mw.iam.api.scim.model.ScimConstants.INDIGO_GROUP_SCHEMA;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.http.converter.json.MappingJacksonValue;
@@ -37,6 +41,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import it.infn.mw.iam.api.common.PagedResourceService;
 import it.infn.mw.iam.api.scim.converter.Converter;
+import it.infn.mw.iam.api.scim.converter.GroupConverter;
 import it.infn.mw.iam.api.scim.model.ScimGroup;
 import it.infn.mw.iam.persistence.model.IamGroup;
 
@@ -58,13 +63,17 @@ public class GroupSearchController extends AbstractSearchController<ScimGroup, I
   static final Set<String> INCLUDED_ATTRIBUTES =
       Collections.unmodifiableSet(new HashSet<>(asList("id", "displayName", "meta", INDIGO_GROUP_SCHEMA)));
 
+  private final GroupConverter groupConverter;
+
   @Autowired
   public GroupSearchController(PagedResourceService<IamGroup> service,
-      Converter<ScimGroup, IamGroup> converter) {
+      GroupConverter converter) {
 
     super(service, converter);
+    this.groupConverter = converter;
   }
 
+  @Transactional(readOnly = true)
   @RequestMapping(method = RequestMethod.GET)
   public MappingJacksonValue getGroups(
       @RequestParam(required = false, defaultValue = DEFAULT_START_INDEX_STRING) int startIndex,
@@ -76,10 +85,35 @@ public class GroupSearchController extends AbstractSearchController<ScimGroup, I
     return getResources(startIndex, count, filter, INCLUDED_ATTRIBUTES, sortBy, sortDirection);
   }
 
+  /**
+   * Group members are not part of the search results (see {@link #INCLUDED_ATTRIBUTES}), so
+   * groups are converted without loading their members.
+   */
+  @Override
+  protected List<ScimGroup> convertFromPage(Page<IamGroup> entities,
+      Converter<ScimGroup, IamGroup> converter) {
+
+    return entities.getContent()
+      .stream()
+      .map(g -> groupConverter.dtoFromEntity(g, null))
+      .collect(toList());
+  }
+
   @Override
   public Sort getSort(String sortBy, String sortDirection) {
 
-    return getSortByName(getSortDirection(sortDirection));
+    Sort.Direction direction = getSortDirection(sortDirection);
+
+    if ("relevance".equalsIgnoreCase(sortBy)) {
+      return getSortByRelevance(direction);
+    }
+
+    return getSortByName(direction);
+  }
+
+  public static Sort getSortByRelevance(Sort.Direction direction) {
+
+    return new Sort(new Order(direction, RELEVANCE_SORT_PROPERTY)).and(getSortByName(direction));
   }
 
   public static Sort getSortByName(Sort.Direction direction) {
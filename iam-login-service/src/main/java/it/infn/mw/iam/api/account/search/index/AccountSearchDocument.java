@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.account.search.index;
+
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.normalize;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamUserInfo;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+
+public class AccountSearchDocument implements SearchIndexDocument {
+
+  public static final String GIVEN_NAME_PROPERTY = "userInfo.givenName";
+  public static final String FAMILY_NAME_PROPERTY = "userInfo.familyName";
+  public static final String EMAIL_PROPERTY = "userInfo.email";
+  public static final String CREATION_TIME_PROPERTY = "creationTime";
+
+  private final Long id;
+  private final String givenName;
+  private final String familyName;
+  private final String email;
+  private final Date creationTime;
+  private final List<String> terms;
+
+  public AccountSearchDocument(Long id, String uuid, String username, String email,
+      String givenName, String familyName, Date creationTime) {
+    this.id = id;
+    this.givenName = givenName;
+    this.familyName = familyName;
+    this.email = email;
+    this.creationTime = creationTime;
+
+    // Same fields matched by IamAccountRepository.findByFilter
+    List<String> t = Lists.newArrayListWithCapacity(4);
+    addTerm(t, email);
+    addTerm(t, username);
+    addTerm(t, uuid);
+    if (givenName != null && familyName != null) {
+      addTerm(t, givenName + " " + familyName);
+    }
+    this.terms = Collections.unmodifiableList(t);
+  }
+
+  private static void addTerm(List<String> terms, String value) {
+    if (value != null) {
+      terms.add(normalize(value));
+    }
+  }
+
+  public static AccountSearchDocument fromAccount(IamAccount account) {
+    IamUserInfo ui = account.getUserInfo();
+
+    if (ui == null) {
+      return new AccountSearchDocument(account.getId(), account.getUuid(), account.getUsername(),
+          null, null, null, account.getCreationTime());
+    }
+
+    return new AccountSearchDocument(account.getId(), account.getUuid(), account.getUsername(),
+        ui.getEmail(), ui.getGivenName(), ui.getFamilyName(), account.getCreationTime());
+  }
+
+  public static AccountSearchDocument fromSummary(AccountSummary summary) {
+    return new AccountSearchDocument(summary.getId(), summary.getUuid(), summary.getUsername(),
+        summary.getEmail(), summary.getGivenName(), summary.getFamilyName(),
+        summary.getCreationTime());
+  }
+
+  @Override
+  public Long getId() {
+    return id;
+  }
+
+  @Override
+  public List<String> getTerms() {
+    return terms;
+  }
+
+  @Override
+  public Object getSortValue(String property) {
+
+    switch (property) {
+      case GIVEN_NAME_PROPERTY:
+        return givenName;
+      case FAMILY_NAME_PROPERTY:
+        return familyName;
+      case EMAIL_PROPERTY:
+        return email;
+      case CREATION_TIME_PROPERTY:
+        return creationTime;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.account.search.index;
+
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.normalize;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.GroupSummary;
+
+public class GroupSearchDocument implements SearchIndexDocument {
+
+  public static final String NAME_PROPERTY = "name";
+  public static final String CREATION_TIME_PROPERTY = "creationTime";
+
+  private final Long id;
+  private final String name;
+  private final Date creationTime;
+  private final List<String> terms;
+
+  public GroupSearchDocument(Long id, String uuid, String name, Date creationTime) {
+    this.id = id;
+    this.name = name;
+    this.creationTime = creationTime;
+
+    // Same fields matched by IamGroupRepository.findByNameIgnoreCaseContainingOrUuidIgnoreCaseContaining
+    List<String> t = Lists.newArrayListWithCapacity(2);
+    if (name != null) {
+      t.add(normalize(name));
+    }
+    if (uuid != null) {
+      t.add(normalize(uuid));
+    }
+    this.terms = Collections.unmodifiableList(t);
+  }
+
+  public static GroupSearchDocument fromGroup(IamGroup group) {
+    return new GroupSearchDocument(group.getId(), group.getUuid(), group.getName(),
+        group.getCreationTime());
+  }
+
+  public static GroupSearchDocument fromSummary(GroupSummary summary) {
+    return new GroupSearchDocument(summary.getId(), summary.getUuid(), summary.getName(),
+        summary.getCreationTime());
+  }
+
+  @Override
+  public Long getId() {
+    return id;
+  }
+
+  @Override
+  public List<String> getTerms() {
+    return terms;
+  }
+
+  @Override
+  public Object getSortValue(String property) {
+
+    switch (property) {
+      case NAME_PROPERTY:
+        return name;
+      case CREATION_TIME_PROPERTY:
+        return creationTime;
+      default:
+        return null;
+    }
+  }
+}
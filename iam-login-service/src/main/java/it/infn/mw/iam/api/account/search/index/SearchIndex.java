@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.account.search.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.api.common.OffsetPageable;
+
+/**
+ * An in-memory trigram index supporting case-insensitive substring search over a set of
+ * {@link SearchIndexDocument}s.
+ *
+ * Candidate documents are selected by intersecting the posting lists of the query trigrams, and
+ * then verified against the document terms, so search results are exact. Queries shorter than
+ * {@link #GRAM_SIZE} characters cannot be served by the index.
+ *
+ * Search results can be sorted by any property supported by the documents, or by
+ * {@link #RELEVANCE_SORT_PROPERTY}, which ranks exact matches first, then prefix matches, then
+ * word-prefix matches, then any other substring match.
+ */
+public class SearchIndex<D extends SearchIndexDocument> {
+
+  public static final int GRAM_SIZE = 3;
+  public static final String RELEVANCE_SORT_PROPERTY = "_relevance";
+
+  private static final int EXACT_MATCH_SCORE = 4;
+  private static final int PREFIX_MATCH_SCORE = 3;
+  private static final int WORD_PREFIX_MATCH_SCORE = 2;
+  private static final int SUBSTRING_MATCH_SCORE = 1;
+  private static final int NO_MATCH_SCORE = 0;
+
+  private final Map<Long, D> documents = new HashMap<>();
+  private final Map<String, Set<Long>> postings = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private volatile boolean ready = false;
+
+  private static class SearchHit<D> {
+    final D document;
+    final int score;
+
+    SearchHit(D document, int score) {
+      this.document = document;
+      this.score = score;
+    }
+  }
+
+  public static String normalize(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  static Set<String> grams(String normalizedValue) {
+    Set<String> result = new HashSet<>();
+    for (int i = 0; i + GRAM_SIZE <= normalizedValue.length(); i++) {
+      result.add(normalizedValue.substring(i, i + GRAM_SIZE));
+    }
+    return result;
+  }
+
+  static int score(String term, String query) {
+    if (term.equals(query)) {
+      return EXACT_MATCH_SCORE;
+    }
+
+    if (term.startsWith(query)) {
+      return PREFIX_MATCH_SCORE;
+    }
+
+    int index = term.indexOf(query);
+
+    if (index < 0) {
+      return NO_MATCH_SCORE;
+    }
+
+    while (index > 0) {
+      if (!Character.isLetterOrDigit(term.charAt(index - 1))) {
+        return WORD_PREFIX_MATCH_SCORE;
+      }
+      index = term.indexOf(query, index + 1);
+    }
+
+    return SUBSTRING_MATCH_SCORE;
+  }
+
+  static int score(SearchIndexDocument document, String query) {
+    int result = NO_MATCH_SCORE;
+    for (String t : document.getTerms()) {
+      result = Math.max(result, score(t, query));
+    }
+    return result;
+  }
+
+  public static boolean isRelevanceSort(Sort sort) {
+    if (sort == null) {
+      return false;
+    }
+
+    for (Order o : sort) {
+      if (RELEVANCE_SORT_PROPERTY.equals(o.getProperty())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes relevance orders from the sort in the given pageable, so that it can be passed to a
+   * repository.
+   *
+   * @param op the pageable
+   * @return a pageable that does not refer to relevance
+   */
+  public static Pageable withoutRelevance(Pageable op) {
+    if (op == null || !isRelevanceSort(op.getSort())) {
+      return op;
+    }
+
+    List<Order> orders = Lists.newArrayList();
+    for (Order o : op.getSort()) {
+      if (!RELEVANCE_SORT_PROPERTY.equals(o.getProperty())) {
+        orders.add(o);
+      }
+    }
+
+    Sort sort = orders.isEmpty() ? null : new Sort(orders);
+    return new OffsetPageable(op.getOffset(), op.getPageSize(), sort);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compareValues(Object a, Object b, boolean ignoreCase) {
+    if (a == b) {
+      return 0;
+    }
+    if (a == null) {
+      return -1;
+    }
+    if (b == null) {
+      return 1;
+    }
+    if (ignoreCase && a instanceof String && b instanceof String) {
+      return String.CASE_INSENSITIVE_ORDER.compare((String) a, (String) b);
+    }
+    return ((Comparable) a).compareTo(b);
+  }
+
+  static <D extends SearchIndexDocument> Comparator<SearchHit<D>> comparatorFor(Sort sort) {
+
+    Comparator<SearchHit<D>> result = null;
+
+    if (sort != null) {
+      for (Order o : sort) {
+        Comparator<SearchHit<D>> c;
+
+        if (RELEVANCE_SORT_PROPERTY.equals(o.getProperty())) {
+          // Best matches always come first
+          c = (h1, h2) -> Integer.compare(h2.score, h1.score);
+        } else {
+          final String property = o.getProperty();
+          final boolean ignoreCase = o.isIgnoreCase();
+          c = (h1, h2) -> compareValues(h1.document.getSortValue(property),
+              h2.document.getSortValue(property), ignoreCase);
+
+          if (!o.isAscending()) {
+            c = c.reversed();
+          }
+        }
+
+        result = (result == null) ? c : result.thenComparing(c);
+      }
+    }
+
+    Comparator<SearchHit<D>> byId = (h1, h2) -> h1.document.getId().compareTo(h2.document.getId());
+
+    return (result == null) ? byId : result.thenComparing(byId);
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  public void setReady(boolean ready) {
+    this.ready = ready;
+  }
+
+  /**
+   * @param query the search query
+   * @return <code>true</code> if the index is ready and the query is long enough to be served by
+   *         the index
+   */
+  public boolean canSearch(String query) {
+    return ready && query != null && query.length() >= GRAM_SIZE;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void put(D document) {
+    checkNotNull(document, "null document");
+    checkNotNull(document.getId(), "null document id");
+
+    lock.writeLock().lock();
+    try {
+      unindex(documents.remove(document.getId()));
+      documents.put(document.getId(), document);
+
+      for (String t : document.getTerms()) {
+        for (String g : grams(t)) {
+          postings.computeIfAbsent(g, k -> new HashSet<>()).add(document.getId());
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(Long id) {
+    checkNotNull(id, "null document id");
+
+    lock.writeLock().lock();
+    try {
+      unindex(documents.remove(id));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      documents.clear();
+      postings.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void unindex(D document) {
+    if (document == null) {
+      return;
+    }
+
+    for (String t : document.getTerms()) {
+      for (String g : grams(t)) {
+        Set<Long> p = postings.get(g);
+        if (p != null) {
+          p.remove(document.getId());
+          if (p.isEmpty()) {
+            postings.remove(g);
+          }
+        }
+      }
+    }
+  }
+
+  private List<Set<Long>> postingsForQuery(String normalizedQuery) {
+    List<Set<Long>> result = Lists.newArrayList();
+
+    for (String g : grams(normalizedQuery)) {
+      Set<Long> p = postings.get(g);
+      if (p == null) {
+        return Collections.emptyList();
+      }
+      result.add(p);
+    }
+
+    result.sort((p1, p2) -> Integer.compare(p1.size(), p2.size()));
+    return result;
+  }
+
+  private List<SearchHit<D>> matches(String normalizedQuery) {
+
+    List<Set<Long>> querypostings = postingsForQuery(normalizedQuery);
+    List<SearchHit<D>> hits = Lists.newArrayList();
+
+    if (querypostings.isEmpty()) {
+      return hits;
+    }
+
+    Set<Long> smallest = querypostings.get(0);
+    List<Set<Long>> others = querypostings.subList(1, querypostings.size());
+
+    for (Long id : smallest) {
+      if (others.stream().allMatch(p -> p.contains(id))) {
+        D document = documents.get(id);
+        int score = score(document, normalizedQuery);
+        if (score > NO_MATCH_SCORE) {
+          hits.add(new SearchHit<>(document, score));
+        }
+      }
+    }
+
+    return hits;
+  }
+
+  /**
+   * Searches the index and returns all matching documents, sorted as requested.
+   *
+   * @param query the search query
+   * @param sort how results should be sorted; may be <code>null</code>
+   * @return the sorted list of matching documents
+   */
+  public List<D> search(String query, Sort sort) {
+    checkArgument(canSearch(query), "Query cannot be served by the search index");
+
+    List<SearchHit<D>> hits;
+
+    lock.readLock().lock();
+    try {
+      hits = matches(normalize(query));
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    hits.sort(comparatorFor(sort));
+    return hits.stream().map(h -> h.document).collect(Collectors.toList());
+  }
+
+  /**
+   * Searches the index and returns the requested page of matching documents.
+   *
+   * @param query the search query
+   * @param op the requested page
+   * @return the page of matching documents
+   */
+  public Page<D> searchPage(String query, Pageable op) {
+    List<D> results = search(query, op.getSort());
+
+    int from = Math.min(op.getOffset(), results.size());
+    int to = Math.min(from + op.getPageSize(), results.size());
+
+    return new PageImpl<>(Lists.newArrayList(results.subList(from, to)), op, results.size());
+  }
+
+  /**
+   * Counts the documents matching the query.
+   *
+   * When the smallest posting list for the query trigrams is larger than the given threshold, an
+   * upper bound of the number of matching documents is returned instead of the exact count.
+   *
+   * @param query the search query
+   * @param exactCountThreshold the threshold above which counts are approximated
+   * @return the (possibly approximated) number of matching documents
+   */
+  public long count(String query, long exactCountThreshold) {
+    checkArgument(canSearch(query), "Query cannot be served by the search index");
+
+    final String normalizedQuery = normalize(query);
+
+    lock.readLock().lock();
+    try {
+      List<Set<Long>> querypostings = postingsForQuery(normalizedQuery);
+
+      if (querypostings.isEmpty()) {
+        return 0;
+      }
+
+      if (querypostings.get(0).size() > exactCountThreshold) {
+        return querypostings.get(0).size();
+      }
+
+      return matches(normalizedQuery).size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.account.search.index;
+
+import java.util.List;
+
+public interface SearchIndexDocument {
+
+  /**
+   * @return the database id of the indexed entity
+   */
+  Long getId();
+
+  /**
+   * @return the normalized (i.e., lowercase) values that are matched against search queries
+   */
+  List<String> getTerms();
+
+  /**
+   * Returns the value used when sorting search results by the given property. Property names are
+   * the same used in the {@link org.springframework.data.domain.Sort} objects passed to the
+   * repositories.
+   *
+   * @param property the sort property
+   * @return the value for the property, or <code>null</code>
+   */
+  Object getSortValue(String property);
+}
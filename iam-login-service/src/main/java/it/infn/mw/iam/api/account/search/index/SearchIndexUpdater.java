@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.account.search.index;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import it.infn.mw.iam.audit.events.account.AccountEvent;
+import it.infn.mw.iam.audit.events.account.AccountRemovedEvent;
+import it.infn.mw.iam.audit.events.group.GroupEvent;
+import it.infn.mw.iam.audit.events.group.GroupRemovedEvent;
+import it.infn.mw.iam.config.search.SearchIndexProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.projection.GroupSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.persistence.repository.IamGroupRepository;
+
+/**
+ * Builds the account and group search indexes at startup, and keeps them up-to-date by listening
+ * to account and group audit events once the transaction that generated them has committed.
+ * Changes made on other IAM replicas are received from the {@link CacheInvalidationBus}.
+ */
+@Component
+public class SearchIndexUpdater {
+
+  public static final Logger LOG = LoggerFactory.getLogger(SearchIndexUpdater.class);
+
+  private final SearchIndexProperties properties;
+  private final AccountSearchIndex accountIndex;
+  private final GroupSearchIndex groupIndex;
+  private final IamAccountRepository accountRepo;
+  private final IamGroupRepository groupRepo;
+
+  @Autowired
+  public SearchIndexUpdater(SearchIndexProperties properties, AccountSearchIndex accountIndex,
+      GroupSearchIndex groupIndex, IamAccountRepository accountRepo, IamGroupRepository groupRepo,
+      CacheInvalidationBus invalidationBus) {
+    this.properties = properties;
+    this.accountIndex = accountIndex;
+    this.groupIndex = groupIndex;
+    this.accountRepo = accountRepo;
+    this.groupRepo = groupRepo;
+
+    invalidationBus.addListener(CacheInvalidationBus.ACCOUNT_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            refreshAccount(Long.valueOf(key));
+          }
+
+          @Override
+          public void invalidateAll() {
+            if (accountIndex.isReady()) {
+              rebuildAccountIndex();
+            }
+          }
+        });
+
+    invalidationBus.addListener(CacheInvalidationBus.GROUP_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            refreshGroup(Long.valueOf(key));
+          }
+
+          @Override
+          public void invalidateAll() {
+            if (groupIndex.isReady()) {
+              rebuildGroupIndex();
+            }
+          }
+        });
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    if (!properties.isEnabled()) {
+      LOG.info("Account and group search index is disabled");
+      return;
+    }
+
+    if (!accountIndex.isReady()) {
+      rebuildAccountIndex();
+    }
+
+    if (!groupIndex.isReady()) {
+      rebuildGroupIndex();
+    }
+  }
+
+  public void rebuildAccountIndex() {
+    final long startTime = System.currentTimeMillis();
+    final PageRequest chunk = new PageRequest(0, properties.getRebuildChunkSize());
+
+    accountIndex.setReady(false);
+    accountIndex.clear();
+
+    Long lastId = 0L;
+    List<AccountSummary> summaries = accountRepo.findSummariesWithIdGreaterThan(lastId, chunk);
+
+    while (!summaries.isEmpty()) {
+      for (AccountSummary s : summaries) {
+        accountIndex.put(AccountSearchDocument.fromSummary(s));
+        lastId = s.getId();
+      }
+      summaries = accountRepo.findSummariesWithIdGreaterThan(lastId, chunk);
+    }
+
+    accountIndex.setReady(true);
+    LOG.info("Account search index built: {} accounts indexed in {} msec", accountIndex.size(),
+        System.currentTimeMillis() - startTime);
+  }
+
+  public void rebuildGroupIndex() {
+    final long startTime = System.currentTimeMillis();
+    final PageRequest chunk = new PageRequest(0, properties.getRebuildChunkSize());
+
+    groupIndex.setReady(false);
+    groupIndex.clear();
+
+    Long lastId = 0L;
+    List<GroupSummary> summaries = groupRepo.findSummariesWithIdGreaterThan(lastId, chunk);
+
+    while (!summaries.isEmpty()) {
+      for (GroupSummary s : summaries) {
+        groupIndex.put(GroupSearchDocument.fromSummary(s));
+        lastId = s.getId();
+      }
+      summaries = groupRepo.findSummariesWithIdGreaterThan(lastId, chunk);
+    }
+
+    groupIndex.setReady(true);
+    LOG.info("Group search index built: {} groups indexed in {} msec", groupIndex.size(),
+        System.currentTimeMillis() - startTime);
+  }
+
+  public void refreshAccount(Long id) {
+    if (!accountIndex.isReady()) {
+      return;
+    }
+
+    Optional<AccountSummary> summary = accountRepo.findSummaryById(id);
+
+    if (summary.isPresent()) {
+      accountIndex.put(AccountSearchDocument.fromSummary(summary.get()));
+    } else {
+      accountIndex.remove(id);
+    }
+  }
+
+  public void refreshGroup(Long id) {
+    if (!groupIndex.isReady()) {
+      return;
+    }
+
+    Optional<GroupSummary> summary = groupRepo.findSummaryById(id);
+
+    if (summary.isPresent()) {
+      groupIndex.put(GroupSearchDocument.fromSummary(summary.get()));
+    } else {
+      groupIndex.remove(id);
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAccountEvent(AccountEvent event) {
+    if (!accountIndex.isReady() || event.getAccount() == null
+        || event.getAccount().getId() == null) {
+      return;
+    }
+
+    if (event instanceof AccountRemovedEvent) {
+      accountIndex.remove(event.getAccount().getId());
+    } else {
+      accountIndex.put(AccountSearchDocument.fromAccount(event.getAccount()));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onGroupEvent(GroupEvent event) {
+    if (!groupIndex.isReady() || event.getGroup() == null || event.getGroup().getId() == null) {
+      return;
+    }
+
+    if (event instanceof GroupRemovedEvent) {
+      groupIndex.remove(event.getGroup().getId());
+    } else {
+      groupIndex.put(GroupSearchDocument.fromGroup(event.getGroup()));
+    }
+  }
+}
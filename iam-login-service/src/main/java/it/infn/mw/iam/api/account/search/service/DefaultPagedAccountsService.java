@@ -15,11 +15,24 @@
  */
 package it.infn.mw.iam.api.account.search.service;
 
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.withoutRelevance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+
+import com.google.common.collect.Maps;
+
+import it.infn.mw.iam.api.account.search.index.AccountSearchDocument;
+import it.infn.mw.iam.api.account.search.index.AccountSearchIndex;
 import it.infn.mw.iam.api.common.PagedResourceService;
+import it.infn.mw.iam.config.search.SearchIndexProperties;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
@@ -29,10 +42,16 @@ public class DefaultPagedAccountsService implements PagedResourceService<IamAcco
   @Autowired
   private IamAccountRepository accountRepository;
 
+  @Autowired
+  private AccountSearchIndex searchIndex;
+
+  @Autowired
+  private SearchIndexProperties searchIndexProperties;
+
   @Override
   public Page<IamAccount> getPage(Pageable op) {
 
-    return accountRepository.findAll(op);
+    return accountRepository.findAll(withoutRelevance(op));
   }
 
   @Override
@@ -44,13 +63,37 @@ public class DefaultPagedAccountsService implements PagedResourceService<IamAcco
   @Override
   public Page<IamAccount> getPage(Pageable op, String filter) {
 
-    return accountRepository.findByFilter(filter, op);
+    if (searchIndex.canSearch(filter)) {
+      return loadPage(searchIndex.searchPage(filter, op), op);
+    }
+
+    return accountRepository.findByFilter(filter, withoutRelevance(op));
   }
 
   @Override
   public long count(String filter) {
 
+    if (searchIndex.canSearch(filter)) {
+      return searchIndex.count(filter, searchIndexProperties.getExactCountThreshold());
+    }
+
     return accountRepository.countByFilter(filter);
   }
 
+  private Page<IamAccount> loadPage(Page<AccountSearchDocument> documents, Pageable op) {
+
+    List<Long> ids =
+        documents.getContent().stream().map(AccountSearchDocument::getId).collect(Collectors.toList());
+
+    Map<Long, IamAccount> accounts = Maps.newHashMap();
+    accountRepository.findAll(ids).forEach(a -> accounts.put(a.getId(), a));
+
+    // Accounts removed after the index lookup are silently skipped
+    List<IamAccount> content = ids.stream()
+      .map(accounts::get)
+      .filter(a -> a != null)
+      .collect(Collectors.toList());
+
+    return new PageImpl<>(content, op, documents.getTotalElements());
+  }
 }
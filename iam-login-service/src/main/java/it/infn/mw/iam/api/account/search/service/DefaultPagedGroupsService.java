@@ -15,11 +15,24 @@
  */
 package it.infn.mw.iam.api.account.search.service;
 
+import static it.infn.mw.iam.api.account.search.index.SearchIndex.withoutRelevance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+
+import com.google.common.collect.Maps;
+
+import it.infn.mw.iam.api.account.search.index.GroupSearchDocument;
+import it.infn.mw.iam.api.account.search.index.GroupSearchIndex;
 import it.infn.mw.iam.api.common.PagedResourceService;
+import it.infn.mw.iam.config.search.SearchIndexProperties;
 import it.infn.mw.iam.persistence.model.IamGroup;
 import it.infn.mw.iam.persistence.repository.IamGroupRepository;
 
@@ -29,26 +42,59 @@ public class DefaultPagedGroupsService implements PagedResourceService<IamGroup>
   @Autowired
   private IamGroupRepository groupRepository;
 
+  @Autowired
+  private GroupSearchIndex searchIndex;
+
+  @Autowired
+  private SearchIndexProperties searchIndexProperties;
+
   @Override
   public Page<IamGroup> getPage(Pageable op) {
-    return groupRepository.findAll(op);
+
+    return groupRepository.findAll(withoutRelevance(op));
   }
 
   @Override
   public long count() {
+
     return groupRepository.count();
   }
 
   @Override
   public Page<IamGroup> getPage(Pageable op, String filter) {
 
-    return groupRepository.findByNameIgnoreCaseContainingOrUuidIgnoreCaseContaining(filter, filter, op);
+    if (searchIndex.canSearch(filter)) {
+      return loadPage(searchIndex.searchPage(filter, op), op);
+    }
+
+    return groupRepository.findByNameIgnoreCaseContainingOrUuidIgnoreCaseContaining(filter, filter,
+        withoutRelevance(op));
   }
 
   @Override
   public long count(String filter) {
 
+    if (searchIndex.canSearch(filter)) {
+      return searchIndex.count(filter, searchIndexProperties.getExactCountThreshold());
+    }
+
     return groupRepository.countByNameIgnoreCaseContainingOrUuidIgnoreCaseContaining(filter, filter);
   }
 
+  private Page<IamGroup> loadPage(Page<GroupSearchDocument> documents, Pageable op) {
+
+    List<Long> ids =
+        documents.getContent().stream().map(GroupSearchDocument::getId).collect(Collectors.toList());
+
+    Map<Long, IamGroup> groups = Maps.newHashMap();
+    groupRepository.findAll(ids).forEach(g -> groups.put(g.getId(), g));
+
+    // Groups removed after the index lookup are silently skipped
+    List<IamGroup> content = ids.stream()
+      .map(groups::get)
+      .filter(g -> g != null)
+      .collect(Collectors.toList());
+
+    return new PageImpl<>(content, op, documents.getTotalElements());
+  }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.batch;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import it.infn.mw.iam.api.common.ErrorDTO;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
+import it.infn.mw.iam.core.batch.BatchJobStatus;
+
+@RestController
+public class BatchJobStatusController {
+
+  public static final String BATCH_JOBS_ENDPOINT = "/iam/batch-jobs";
+
+  private final BatchJobRunner runner;
+
+  @Autowired
+  public BatchJobStatusController(BatchJobRunner runner) {
+    this.runner = runner;
+  }
+
+  @RequestMapping(value = BATCH_JOBS_ENDPOINT, method = RequestMethod.GET)
+  @PreAuthorize("hasRole('ADMIN')")
+  public Collection<BatchJobStatus> listJobStatuses() {
+    return runner.getStatuses();
+  }
+
+  @RequestMapping(value = BATCH_JOBS_ENDPOINT + "/{name:.+}", method = RequestMethod.GET)
+  @PreAuthorize("hasRole('ADMIN')")
+  public BatchJobStatus getJobStatus(@PathVariable String name) {
+    return runner.getStatus(name).orElseThrow(() -> new NoSuchBatchJobError(name));
+  }
+
+  @ResponseStatus(value = HttpStatus.NOT_FOUND)
+  @ExceptionHandler(NoSuchBatchJobError.class)
+  public ErrorDTO noSuchJobError(Exception ex) {
+    return ErrorDTO.fromString(ex.getMessage());
+  }
+}
@@ -19,6 +19,7 @@ import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +34,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
@@ -45,10 +47,12 @@ import it.infn.mw.iam.api.common.ErrorDTO;
 import it.infn.mw.iam.api.common.GroupDTO;
 import it.infn.mw.iam.api.common.GroupDTO.CreateGroup;
 import it.infn.mw.iam.api.common.GroupDTO.UpdateGroup;
+import it.infn.mw.iam.core.group.IamGroupMembershipService;
 import it.infn.mw.iam.core.group.IamGroupService;
 import it.infn.mw.iam.core.group.error.NoSuchGroupError;
 import it.infn.mw.iam.persistence.model.IamAttribute;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
 
 @RestController
 public class GroupController {
@@ -56,13 +60,18 @@ public class GroupController {
   public static final String INVALID_GROUP = "Invalid group: ";
   public static final String INVALID_ATTRIBUTE = "Invalid attribute: ";
   
+  public static final int GROUP_MEMBERS_MAX_PAGE_SIZE = 100;
+  
   final IamGroupService groupService;
+  final IamGroupMembershipService membershipService;
   final GroupDTOConverter converter;
   final AttributeDTOConverter attributeConverter;
   
   @Autowired
-  public GroupController(IamGroupService groupService, GroupDTOConverter converter, AttributeDTOConverter attrConverter) {
+  public GroupController(IamGroupService groupService, IamGroupMembershipService membershipService,
+      GroupDTOConverter converter, AttributeDTOConverter attrConverter) {
     this.groupService = groupService;
+    this.membershipService = membershipService;
     this.converter = converter;
     this.attributeConverter = attrConverter;
   }
@@ -107,6 +116,38 @@ public class GroupController {
     return converter.dtoFromEntity(entity);  
   }
   
+  @RequestMapping(value = "/iam/group/{id}/members", method = RequestMethod.GET)
+  @PreAuthorize("hasRole('ADMIN') or #iam.isGroupManager(#id)")
+  public GroupMembersDTO getMembers(@PathVariable String id,
+      @RequestParam(required = false) Long after, @RequestParam(required = false) Integer count) {
+
+    IamGroup entity = groupService.findByUuid(id).orElseThrow(() -> NoSuchGroupError.forUuid(id));
+
+    int validCount = GROUP_MEMBERS_MAX_PAGE_SIZE;
+    if (count != null) {
+      validCount = Math.max(0, Math.min(count, GROUP_MEMBERS_MAX_PAGE_SIZE));
+    }
+
+    Long totalResults = null;
+    if (after == null) {
+      totalResults = membershipService.countMembers(entity);
+    }
+
+    if (validCount == 0) {
+      return new GroupMembersDTO(totalResults, 0, null, Collections.emptyList());
+    }
+
+    List<GroupMemberSummary> members = membershipService.findMembers(entity, after, validCount);
+
+    Long next = null;
+    if (members.size() == validCount) {
+      next = members.get(members.size() - 1).getId();
+    }
+
+    return new GroupMembersDTO(totalResults, members.size(), next,
+        members.stream().map(GroupMemberDTO::fromSummary).collect(Collectors.toList()));
+  }
+  
   @RequestMapping(value = "/iam/group/{id}/attributes", method=RequestMethod.GET)
   @PreAuthorize("hasRole('ADMIN') or #iam.isGroupManager(#id)")
   public List<AttributeDTO> getAttributes(@PathVariable String id){
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.group;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class GroupMemberDTO {
+
+  private final String id;
+  private final String username;
+  private final String name;
+
+  @JsonCreator
+  public GroupMemberDTO(@JsonProperty("id") String id, @JsonProperty("username") String username,
+      @JsonProperty("name") String name) {
+    this.id = id;
+    this.username = username;
+    this.name = name;
+  }
+
+  public static GroupMemberDTO fromSummary(GroupMemberSummary summary) {
+    return new GroupMemberDTO(summary.getUuid(), summary.getUsername(), summary.getName());
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.group;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A page of group members. The next page is requested passing the value of the <code>next</code>
+ * field as the <code>after</code> parameter; <code>next</code> is missing on the last page.
+ *
+ * The total number of members is only returned with the first page.
+ */
+@JsonInclude(Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GroupMembersDTO {
+
+  private final Long totalResults;
+  private final Integer itemsPerPage;
+  private final Long next;
+  private final List<GroupMemberDTO> resources;
+
+  @JsonCreator
+  public GroupMembersDTO(@JsonProperty("totalResults") Long totalResults,
+      @JsonProperty("itemsPerPage") Integer itemsPerPage, @JsonProperty("next") Long next,
+      @JsonProperty("Resources") List<GroupMemberDTO> resources) {
+    this.totalResults = totalResults;
+    this.itemsPerPage = itemsPerPage;
+    this.next = next;
+    this.resources = resources;
+  }
+
+  public Long getTotalResults() {
+    return totalResults;
+  }
+
+  public Integer getItemsPerPage() {
+    return itemsPerPage;
+  }
+
+  public Long getNext() {
+    return next;
+  }
+
+  @JsonProperty("Resources")
+  public List<GroupMemberDTO> getResources() {
+    return resources;
+  }
+}
@@ -18,6 +18,9 @@ package it.infn.mw.iam.api.registration.cern;
 import static it.infn.mw.iam.util.BasicAuthenticationUtils.basicAuthHeaderValue;
 import static java.lang.String.format;
 
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,10 +51,29 @@ public class DefaultCernHrDBApiService implements CernHrDBApiService {
   final RestTemplateFactory rtFactory;
   final CernProperties properties;
 
+  // Limits the number of concurrent requests sent to the HR db api host
+  final Semaphore hostPermits;
+
   @Autowired
   public DefaultCernHrDBApiService(RestTemplateFactory rtFactory, CernProperties properties) {
     this.rtFactory = rtFactory;
     this.properties = properties;
+    this.hostPermits = new Semaphore(properties.getHrApi().getMaxConcurrentRequests(), true);
+  }
+
+  private <T> T withHostPermit(Supplier<T> request) {
+    try {
+      hostPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CernHrDbApiError("HR db api error: interrupted while waiting for a connection", e);
+    }
+
+    try {
+      return request.get();
+    } finally {
+      hostPermits.release();
+    }
   }
 
   private HttpHeaders buildAuthHeaders() {
@@ -75,8 +97,8 @@ public class DefaultCernHrDBApiService implements CernHrDBApiService {
 
     try {
 
-      ResponseEntity<Boolean> response = rt.exchange(personValidUrl, HttpMethod.GET,
-          new HttpEntity<>(buildAuthHeaders()), Boolean.class);
+      ResponseEntity<Boolean> response = withHostPermit(() -> rt.exchange(personValidUrl,
+          HttpMethod.GET, new HttpEntity<>(buildAuthHeaders()), Boolean.class));
       return response.getBody();
     } catch (RestClientException e) {
       final String errorMsg = "HR db api error: " + e.getMessage();
@@ -95,8 +117,8 @@ public class DefaultCernHrDBApiService implements CernHrDBApiService {
     LOG.debug("Querying HR db VO person API for person {} at URL {}", personId, personValidUrl);
 
     try {
-      ResponseEntity<VOPersonDTO> response = rt.exchange(personValidUrl, HttpMethod.GET,
-          new HttpEntity<>(buildAuthHeaders()), VOPersonDTO.class);
+      ResponseEntity<VOPersonDTO> response = withHostPermit(() -> rt.exchange(personValidUrl,
+          HttpMethod.GET, new HttpEntity<>(buildAuthHeaders()), VOPersonDTO.class));
       return response.getBody();
     } catch (RestClientException e) {
       final String errorMsg = "HR db api error: " + e.getMessage();
@@ -49,6 +49,7 @@ import it.infn.mw.iam.api.scim.model.ScimGroupPatchRequest;
 import it.infn.mw.iam.api.scim.model.ScimListResponse;
 import it.infn.mw.iam.api.scim.provisioning.ScimGroupProvisioning;
 import it.infn.mw.iam.api.scim.provisioning.paging.ScimPageRequest;
+import it.infn.mw.iam.config.scim.ScimProperties;
 
 @RestController
 @RequestMapping("/scim/Groups")
@@ -56,6 +57,7 @@ import it.infn.mw.iam.api.scim.provisioning.paging.ScimPageRequest;
 public class ScimGroupController extends ScimControllerSupport{
   
   public static final String INVALID_GROUP_MSG = "Invalid Scim Group";
+  public static final String MEMBERS_ATTRIBUTE = "members";
   
   private Set<String> parseAttributes(final String attributesParameter) {
 
@@ -71,38 +73,97 @@ public class ScimGroupController extends ScimControllerSupport{
     return result;
   }
 
+  private Set<String> parseExcludedAttributes(final String excludedAttributesParameter) {
+
+    Set<String> result = new HashSet<>();
+    if (!Strings.isNullOrEmpty(excludedAttributesParameter)) {
+      result = Sets.newHashSet(Splitter.on(',')
+        .trimResults()
+        .omitEmptyStrings()
+        .split(excludedAttributesParameter));
+    }
+    // schemas and id are always returned
+    result.remove("schemas");
+    result.remove("id");
+    return result;
+  }
+
+  private boolean includeMembers(Set<String> includeAttributes, Set<String> excludeAttributes) {
+
+    if (excludeAttributes.contains(MEMBERS_ATTRIBUTE)) {
+      return false;
+    }
+
+    if (includeAttributes.contains(MEMBERS_ATTRIBUTE)) {
+      return true;
+    }
+
+    return includeAttributes.isEmpty() && !scimProperties.isExcludeGroupMembersByDefault();
+  }
+
+  private MappingJacksonValue filterAttributes(Object result, String attributes,
+      String excludedAttributes, boolean includeMembers) {
+
+    MappingJacksonValue wrapper = new MappingJacksonValue(result);
+
+    SimpleBeanPropertyFilter filter = null;
+
+    if (attributes != null) {
+      filter = SimpleBeanPropertyFilter.filterOutAllExcept(parseAttributes(attributes));
+    } else if (excludedAttributes != null || !includeMembers) {
+      Set<String> excluded = parseExcludedAttributes(excludedAttributes);
+      if (!includeMembers) {
+        excluded.add(MEMBERS_ATTRIBUTE);
+      }
+      filter = SimpleBeanPropertyFilter.serializeAllExcept(excluded);
+    }
+
+    if (filter != null) {
+      FilterProvider filterProvider =
+          new SimpleFilterProvider().addFilter("attributeFilter", filter);
+      wrapper.setFilters(filterProvider);
+    }
+
+    return wrapper;
+  }
+
   @Autowired
   ScimGroupProvisioning groupProvisioningService;
 
+  @Autowired
+  ScimProperties scimProperties;
+
   @PreAuthorize("#oauth2.hasScope('scim:read') or hasRole('ADMIN') or #iam.isGroupManager(#id)")
+  @Transactional(readOnly = true)
   @RequestMapping(value = "/{id}", method = RequestMethod.GET,
       produces = ScimConstants.SCIM_CONTENT_TYPE)
-  public ScimGroup getGroup(@PathVariable final String id) {
+  public MappingJacksonValue getGroup(@PathVariable final String id,
+      @RequestParam(required = false) final String attributes,
+      @RequestParam(required = false) final String excludedAttributes) {
+
+    boolean includeMembers = includeMembers(attributes == null ? new HashSet<>()
+        : parseAttributes(attributes), parseExcludedAttributes(excludedAttributes));
+
+    ScimGroup result = groupProvisioningService.getById(id, includeMembers);
 
-    return groupProvisioningService.getById(id);
+    return filterAttributes(result, attributes, excludedAttributes, includeMembers);
   }
 
   @PreAuthorize("#oauth2.hasScope('scim:read') or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
   @RequestMapping(method = RequestMethod.GET, produces = ScimConstants.SCIM_CONTENT_TYPE)
   public MappingJacksonValue listGroups(@RequestParam(required = false) final Integer count,
       @RequestParam(required = false) final Integer startIndex,
-      @RequestParam(required = false) final String attributes) {
+      @RequestParam(required = false) final String attributes,
+      @RequestParam(required = false) final String excludedAttributes) {
 
-    ScimPageRequest pr = buildGroupPageRequest(count, startIndex);
-    ScimListResponse<ScimGroup> result = groupProvisioningService.list(pr);
-
-    MappingJacksonValue wrapper = new MappingJacksonValue(result);
-
-    if (attributes != null) {
-      Set<String> includeAttributes = parseAttributes(attributes);
+    boolean includeMembers = includeMembers(attributes == null ? new HashSet<>()
+        : parseAttributes(attributes), parseExcludedAttributes(excludedAttributes));
 
-      FilterProvider filterProvider = new SimpleFilterProvider().addFilter("attributeFilter",
-          SimpleBeanPropertyFilter.filterOutAllExcept(includeAttributes));
-
-      wrapper.setFilters(filterProvider);
-    }
+    ScimPageRequest pr = buildGroupPageRequest(count, startIndex);
+    ScimListResponse<ScimGroup> result = groupProvisioningService.list(pr, includeMembers);
 
-    return wrapper;
+    return filterAttributes(result, attributes, excludedAttributes, includeMembers);
   }
 
   @PreAuthorize("#oauth2.hasScope('scim:write') or hasRole('ADMIN')")
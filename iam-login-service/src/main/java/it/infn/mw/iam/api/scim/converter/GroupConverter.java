@@ -17,6 +17,7 @@ package it.infn.mw.iam.api.scim.converter;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -31,6 +32,7 @@ import it.infn.mw.iam.api.scim.model.ScimMemberRef;
 import it.infn.mw.iam.api.scim.model.ScimMeta;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
 
 @Service
 public class GroupConverter implements Converter<ScimGroup, IamGroup> {
@@ -65,30 +67,66 @@ public class GroupConverter implements Converter<ScimGroup, IamGroup> {
     return group;
   }
 
+  private ScimMemberRef accountMemberRef(String uuid, String name) {
+    return new ScimMemberRef.Builder().value(uuid)
+      .display(name)
+      .ref(resourceLocationProvider.userLocation(uuid))
+      .build();
+  }
+
   @Override
   public ScimGroup dtoFromEntity(IamGroup entity) {
 
-    ScimMeta meta = ScimMeta.builder(entity.getCreationTime(), entity.getLastUpdateTime())
-      .location(resourceLocationProvider.groupLocation(entity.getUuid()))
-      .resourceType(ScimGroup.RESOURCE_TYPE)
-      .build();
-
     Set<ScimMemberRef> members = new HashSet<>();
 
     for (IamAccount account : entity.getAccounts()) {
-      ScimMemberRef memberRef = new ScimMemberRef.Builder().value(account.getUuid())
-        .display(account.getUserInfo().getName())
-        .ref(resourceLocationProvider.userLocation(account.getUuid()))
-        .build();
-      members.add(memberRef);
+      members.add(accountMemberRef(account.getUuid(), account.getUserInfo().getName()));
     }
 
-    for (IamGroup subgroup : entity.getChildrenGroups()) {
-      ScimMemberRef memberRef = new ScimMemberRef.Builder().display(subgroup.getName())
-        .value(subgroup.getUuid())
-        .ref(resourceLocationProvider.groupLocation(subgroup.getUuid()))
-        .build();
-      members.add(memberRef);
+    return buildDto(entity, members);
+  }
+
+  /**
+   * Builds a SCIM group whose account members are taken from the given member summaries, so that
+   * group member accounts do not need to be loaded.
+   *
+   * @param entity the group
+   * @param accountMembers the direct account members of the group, or <code>null</code> if group
+   *        members (accounts and subgroups) should not be included in the result
+   * @return the SCIM group
+   */
+  public ScimGroup dtoFromEntity(IamGroup entity, Collection<GroupMemberSummary> accountMembers) {
+
+    if (accountMembers == null) {
+      return buildDto(entity, null);
+    }
+
+    Set<ScimMemberRef> members = new HashSet<>();
+
+    for (GroupMemberSummary m : accountMembers) {
+      members.add(accountMemberRef(m.getUuid(), m.getName()));
+    }
+
+    return buildDto(entity, members);
+  }
+
+  private ScimGroup buildDto(IamGroup entity, Set<ScimMemberRef> members) {
+
+    final boolean includeMembers = members != null;
+
+    ScimMeta meta = ScimMeta.builder(entity.getCreationTime(), entity.getLastUpdateTime())
+      .location(resourceLocationProvider.groupLocation(entity.getUuid()))
+      .resourceType(ScimGroup.RESOURCE_TYPE)
+      .build();
+
+    if (includeMembers) {
+      for (IamGroup subgroup : entity.getChildrenGroups()) {
+        ScimMemberRef memberRef = new ScimMemberRef.Builder().display(subgroup.getName())
+          .value(subgroup.getUuid())
+          .ref(resourceLocationProvider.groupLocation(subgroup.getUuid()))
+          .build();
+        members.add(memberRef);
+      }
     }
 
     IamGroup iamParentGroup = entity.getParentGroup();
@@ -111,7 +149,7 @@ public class GroupConverter implements Converter<ScimGroup, IamGroup> {
     return ScimGroup.builder(entity.getName())
       .id(entity.getUuid())
       .meta(meta)
-      .setMembers(members)
+      .setMembers(includeMembers ? members : new HashSet<>())
       .indigoGroup(scimIndigoGroup.build())
       .build();
   }
@@ -16,20 +16,23 @@
 package it.infn.mw.iam.api.scim.provisioning;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
-import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 
 import it.infn.mw.iam.api.common.OffsetPageable;
 import it.infn.mw.iam.api.scim.converter.GroupConverter;
@@ -43,40 +46,35 @@ import it.infn.mw.iam.api.scim.model.ScimListResponse.ScimListResponseBuilder;
 import it.infn.mw.iam.api.scim.model.ScimMemberRef;
 import it.infn.mw.iam.api.scim.model.ScimPatchOperation;
 import it.infn.mw.iam.api.scim.provisioning.paging.ScimPageRequest;
-import it.infn.mw.iam.api.scim.updater.AccountUpdater;
-import it.infn.mw.iam.api.scim.updater.factory.DefaultGroupMembershipUpdaterFactory;
+import it.infn.mw.iam.core.group.DefaultIamGroupMembershipService;
+import it.infn.mw.iam.core.group.IamGroupMembershipService;
 import it.infn.mw.iam.core.group.IamGroupService;
-import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @Service
 public class ScimGroupProvisioning
-    implements ScimProvisioning<ScimGroup, List<ScimMemberRef>>, ApplicationEventPublisherAware {
+    implements ScimProvisioning<ScimGroup, List<ScimMemberRef>> {
 
   private static final int GROUP_NAME_MAX_LENGTH = 50;
   private static final int GROUP_FULLNAME_MAX_LENGTH = 512;
 
   private final IamGroupService groupService;
+  private final IamGroupMembershipService membershipService;
   private final IamAccountRepository accountRepository;
-  private final Clock clock;
 
   private final GroupConverter converter;
 
-  private final DefaultGroupMembershipUpdaterFactory groupUpdaterFactory;
-  private ApplicationEventPublisher eventPublisher;
-
   @Autowired
-  public ScimGroupProvisioning(IamGroupService groupService, IamAccountRepository accountRepository,
-      GroupConverter converter, Clock clock) {
+  public ScimGroupProvisioning(IamGroupService groupService,
+      IamGroupMembershipService membershipService, IamAccountRepository accountRepository,
+      GroupConverter converter) {
 
     this.accountRepository = accountRepository;
     this.groupService = groupService;
+    this.membershipService = membershipService;
     this.converter = converter;
-    this.clock = clock;
-
-    this.groupUpdaterFactory = new DefaultGroupMembershipUpdaterFactory(accountRepository);
-
   }
 
   private void checkUnsupportedPath(ScimPatchOperation<List<ScimMemberRef>> op) {
@@ -124,7 +122,8 @@ public class ScimGroupProvisioning
 
     groupService.createGroup(iamGroup);
 
-    return converter.dtoFromEntity(iamGroup);
+    // A newly created group has no members
+    return converter.dtoFromEntity(iamGroup, emptyList());
   }
 
   @Override
@@ -148,36 +147,60 @@ public class ScimGroupProvisioning
     }
   }
 
-  private void executePatchOperation(IamGroup group, ScimPatchOperation<List<ScimMemberRef>> op) {
-
-    checkUnsupportedPath(op);
-
-    List<AccountUpdater> updaters = groupUpdaterFactory.getUpdatersForPatchOperation(group, op);
-    List<AccountUpdater> updatesToPublish = new ArrayList<>();
+  private List<AccountSummary> resolveMembers(List<ScimMemberRef> members) {
 
-    boolean hasChanged = false;
+    List<AccountSummary> accounts = new ArrayList<>();
 
-    for (AccountUpdater u : updaters) {
-      if (u.update()) {
-        IamAccount a = u.getAccount();
-        a.touch();
-        accountRepository.save(a);
-        hasChanged = true;
-        updatesToPublish.add(u);
-      }
+    if (members == null) {
+      return accounts;
     }
 
-    if (hasChanged) {
+    List<String> uuids = members.stream().map(ScimMemberRef::getValue).distinct().collect(toList());
+
+    for (List<String> chunk : Lists.partition(uuids, DefaultIamGroupMembershipService.CHUNK_SIZE)) {
+      Map<String, AccountSummary> resolved = accountRepository.findSummariesByUuid(chunk)
+        .stream()
+        .collect(toMap(AccountSummary::getUuid, Function.identity()));
 
-      group.touch(clock);
-      groupService.save(group);
-      for (AccountUpdater u : updatesToPublish) {
-        u.publishUpdateEvent(this, eventPublisher);
+      for (String uuid : chunk) {
+        AccountSummary account = resolved.get(uuid);
+        if (account == null) {
+          throw new ScimResourceNotFoundException("User UUID " + uuid + " not found");
+        }
+        accounts.add(account);
       }
     }
+
+    return accounts;
   }
 
+  private void executePatchOperation(IamGroup group, ScimPatchOperation<List<ScimMemberRef>> op) {
+
+    checkUnsupportedPath(op);
+
+    List<AccountSummary> members = resolveMembers(op.getValue());
 
+    switch (op.getOp()) {
+      case add:
+        membershipService.addMembers(group, members);
+        break;
+
+      case remove:
+        if (members.isEmpty()) {
+          membershipService.removeAllMembers(group);
+        } else {
+          membershipService.removeMembers(group, members);
+        }
+        break;
+
+      case replace:
+        membershipService.replaceMembers(group, members);
+        break;
+
+      default:
+        throw new ScimPatchOperationNotSupported(op.getOp() + " not supported");
+    }
+  }
 
   private void fullNameSanityChecks(String displayName) {
     if (displayName.length() > GROUP_FULLNAME_MAX_LENGTH) {
@@ -192,12 +215,29 @@ public class ScimGroupProvisioning
 
   @Override
   public ScimGroup getById(String id) {
+    return getById(id, true);
+  }
+
+  private ScimGroup groupToDto(IamGroup group, boolean includeMembers) {
+    if (includeMembers) {
+      return converter.dtoFromEntity(group, membershipService.findAllMembers(group));
+    }
+    return converter.dtoFromEntity(group, null);
+  }
+
+  /**
+   * @param id the group id
+   * @param includeMembers when <code>false</code>, group members are not loaded and are not
+   *        included in the returned group
+   * @return the SCIM group
+   */
+  public ScimGroup getById(String id, boolean includeMembers) {
 
     idSanityChecks(id);
 
     IamGroup group = groupService.findByUuid(id).orElseThrow(() -> noGroupMappedToId(id));
 
-    return converter.dtoFromEntity(group);
+    return groupToDto(group, includeMembers);
   }
 
   private void idSanityChecks(String id) {
@@ -218,6 +258,10 @@ public class ScimGroupProvisioning
 
   @Override
   public ScimListResponse<ScimGroup> list(ScimPageRequest params) {
+    return list(params, true);
+  }
+
+  public ScimListResponse<ScimGroup> list(ScimPageRequest params, boolean includeMembers) {
 
     ScimListResponseBuilder<ScimGroup> builder = ScimListResponse.builder();
 
@@ -234,7 +278,7 @@ public class ScimGroupProvisioning
 
       List<ScimGroup> resources = new ArrayList<>();
 
-      results.getContent().forEach(g -> resources.add(converter.dtoFromEntity(g)));
+      results.getContent().forEach(g -> resources.add(groupToDto(g, includeMembers)));
 
       builder.resources(resources);
       builder.fromPage(results, op);
@@ -263,11 +307,7 @@ public class ScimGroupProvisioning
     IamGroup newGroup = converter.entityFromDto(scimItemToBeReplaced);
     groupService.updateGroup(oldGroup, newGroup);
 
-    return converter.dtoFromEntity(newGroup);
-  }
-
-  public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-    this.eventPublisher = publisher;
+    return groupToDto(newGroup, true);
   }
 
   @Override
@@ -34,6 +34,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import it.infn.mw.iam.api.common.ErrorDTO;
 import it.infn.mw.iam.api.common.ListResponseDTO;
+import it.infn.mw.iam.api.tokens.exception.InvalidTokensCursorException;
 import it.infn.mw.iam.api.tokens.exception.TokenNotFoundException;
 import it.infn.mw.iam.api.tokens.model.AccessToken;
 import it.infn.mw.iam.api.tokens.service.TokenService;
@@ -49,14 +50,16 @@ public class AccessTokensController extends TokensControllerSupport {
   @Autowired
   private TokenService<AccessToken> tokenService;
 
+  @Transactional(readOnly = true)
   @RequestMapping(method = RequestMethod.GET, produces = APPLICATION_JSON_CONTENT_TYPE)
   public MappingJacksonValue listAccessTokens(@RequestParam(required = false) Integer count,
       @RequestParam(required = false) Integer startIndex,
+      @RequestParam(required = false) String after,
       @RequestParam(required = false) String userId,
       @RequestParam(required = false) String clientId,
       @RequestParam(required = false) final String attributes) {
 
-    TokensPageRequest pr = buildTokensPageRequest(count, startIndex);
+    TokensPageRequest pr = buildTokensPageRequest(count, startIndex, after);
     ListResponseDTO<AccessToken> results = getFilteredList(pr, userId, clientId);
     return filterAttributes(results, attributes);
   }
@@ -85,6 +88,7 @@ public class AccessTokensController extends TokensControllerSupport {
     return tokenService.getAllTokens(pageRequest);
   }
 
+  @Transactional(readOnly = true)
   @RequestMapping(method = RequestMethod.GET, value = "/{id}", produces = APPLICATION_JSON_CONTENT_TYPE)
   public AccessToken getAccessToken(@PathVariable("id") Long id) {
 
@@ -105,6 +109,13 @@ public class AccessTokensController extends TokensControllerSupport {
     return ErrorDTO.fromString(ex.getMessage());
   }
 
+  @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(InvalidTokensCursorException.class)
+  public ErrorDTO invalidCursorError(Exception ex) {
+
+    return ErrorDTO.fromString(ex.getMessage());
+  }
+
   @ResponseStatus(value = HttpStatus.INTERNAL_SERVER_ERROR)
   @ExceptionHandler(IamAccountException.class)
   public ErrorDTO accountNotFoundError(Exception ex) {
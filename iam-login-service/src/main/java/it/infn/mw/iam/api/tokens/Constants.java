@@ -19,6 +19,7 @@ public class Constants {
 
   public static final String ACCESS_TOKENS_ENDPOINT = "/iam/api/access-tokens";
   public static final String REFRESH_TOKENS_ENDPOINT = "/iam/api/refresh-tokens";
+  public static final String TOKEN_REVOCATIONS_ENDPOINT = "/iam/api/token-revocations";
 
   private Constants() {
     // utility class, it should not be instantiated
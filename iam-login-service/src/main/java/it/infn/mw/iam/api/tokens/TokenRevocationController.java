@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.tokens;
+
+import static com.google.common.base.Strings.emptyToNull;
+import static it.infn.mw.iam.api.tokens.Constants.TOKEN_REVOCATIONS_ENDPOINT;
+import static it.infn.mw.iam.api.tokens.TokensControllerSupport.APPLICATION_JSON_CONTENT_TYPE;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import it.infn.mw.iam.api.common.ErrorDTO;
+import it.infn.mw.iam.api.tokens.exception.TokenRevocationNotFoundException;
+import it.infn.mw.iam.api.tokens.model.TokenRevocationDTO;
+import it.infn.mw.iam.api.tokens.model.TokenRevocationRequestDTO;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocation;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocationService;
+import it.infn.mw.iam.persistence.repository.TokenRevocationFilter;
+
+@RestController
+@PreAuthorize("hasRole('ADMIN')")
+@RequestMapping(TOKEN_REVOCATIONS_ENDPOINT)
+public class TokenRevocationController {
+
+  private final TokenRevocationService revocationService;
+
+  @Autowired
+  public TokenRevocationController(TokenRevocationService revocationService) {
+    this.revocationService = revocationService;
+  }
+
+  private TokenRevocationDTO toDto(TokenRevocation revocation) {
+    return new TokenRevocationDTO(revocation,
+        revocationService.getAccessTokensJobStatus(revocation).orElse(null),
+        revocationService.getRefreshTokensJobStatus(revocation).orElse(null));
+  }
+
+  @RequestMapping(method = RequestMethod.POST, consumes = APPLICATION_JSON_CONTENT_TYPE,
+      produces = APPLICATION_JSON_CONTENT_TYPE)
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public TokenRevocationDTO revokeTokens(@RequestBody TokenRevocationRequestDTO request) {
+
+    TokenRevocationFilter filter = new TokenRevocationFilter(emptyToNull(request.getClientId()),
+        emptyToNull(request.getUserId()), request.getIssuedBefore());
+
+    return toDto(revocationService.submit(filter));
+  }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/{id}",
+      produces = APPLICATION_JSON_CONTENT_TYPE)
+  public TokenRevocationDTO getRevocation(@PathVariable("id") String id) {
+
+    return toDto(revocationService.findRevocation(id)
+      .orElseThrow(() -> new TokenRevocationNotFoundException(id)));
+  }
+
+  @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ErrorDTO invalidRevocationError(Exception ex) {
+
+    return ErrorDTO.fromString(ex.getMessage());
+  }
+
+  @ResponseStatus(value = HttpStatus.NOT_FOUND)
+  @ExceptionHandler(TokenRevocationNotFoundException.class)
+  public ErrorDTO revocationNotFoundError(Exception ex) {
+
+    return ErrorDTO.fromString(ex.getMessage());
+  }
+}
@@ -25,6 +25,7 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import it.infn.mw.iam.api.common.ListResponseDTO;
 import it.infn.mw.iam.api.tokens.service.paging.DefaultTokensPageRequest;
+import it.infn.mw.iam.api.tokens.service.paging.TokensCursor;
 import it.infn.mw.iam.api.tokens.service.paging.TokensPageRequest;
 
 import org.springframework.http.converter.json.MappingJacksonValue;
@@ -38,10 +39,16 @@ public class TokensControllerSupport {
   public static final int TOKENS_MAX_PAGE_SIZE = 20;
 
   protected TokensPageRequest buildTokensPageRequest(Integer count, Integer startIndex) {
-    return buildPageRequest(count, startIndex, TOKENS_MAX_PAGE_SIZE);
+    return buildPageRequest(count, startIndex, null, TOKENS_MAX_PAGE_SIZE);
   }
 
-  private TokensPageRequest buildPageRequest(Integer count, Integer startIndex, int maxPageSize) {
+  protected TokensPageRequest buildTokensPageRequest(Integer count, Integer startIndex,
+      String after) {
+    return buildPageRequest(count, startIndex, after, TOKENS_MAX_PAGE_SIZE);
+  }
+
+  private TokensPageRequest buildPageRequest(Integer count, Integer startIndex, String after,
+      int maxPageSize) {
 
     int validCount = 0;
     int validStartIndex = 1;
@@ -71,6 +78,7 @@ public class TokensControllerSupport {
 
     return new DefaultTokensPageRequest.Builder().count(validCount)
         .startIndex(validStartIndex - 1)
+        .after(Strings.isNullOrEmpty(after) ? null : TokensCursor.parse(after))
         .build();
   }
 
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.tokens.model;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import it.infn.mw.iam.core.batch.BatchJobStatus;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocation;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenRevocationDTO {
+
+  private final String id;
+  private final String userId;
+  private final String clientId;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private final Date issuedBefore;
+
+  private final String submittedBy;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private final Date submissionTime;
+
+  private final long matchingAccessTokens;
+  private final long matchingRefreshTokens;
+
+  private final String status;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private final Date completionTime;
+
+  private final BatchJobStatus accessTokensJob;
+  private final BatchJobStatus refreshTokensJob;
+
+  public TokenRevocationDTO(TokenRevocation revocation, BatchJobStatus accessTokensJob,
+      BatchJobStatus refreshTokensJob) {
+    this.id = revocation.getId();
+    this.userId = revocation.getFilter().getUsername();
+    this.clientId = revocation.getFilter().getClientId();
+    this.issuedBefore = revocation.getFilter().getIssuedBefore();
+    this.submittedBy = revocation.getSubmittedBy();
+    this.submissionTime = revocation.getSubmissionTime();
+    this.matchingAccessTokens = revocation.getMatchingAccessTokens();
+    this.matchingRefreshTokens = revocation.getMatchingRefreshTokens();
+    this.status = revocation.getStatus().name();
+    this.completionTime = revocation.getCompletionTime();
+    this.accessTokensJob = accessTokensJob;
+    this.refreshTokensJob = refreshTokensJob;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getClientId() {
+    return clientId;
+  }
+
+  public Date getIssuedBefore() {
+    return issuedBefore;
+  }
+
+  public String getSubmittedBy() {
+    return submittedBy;
+  }
+
+  public Date getSubmissionTime() {
+    return submissionTime;
+  }
+
+  public long getMatchingAccessTokens() {
+    return matchingAccessTokens;
+  }
+
+  public long getMatchingRefreshTokens() {
+    return matchingRefreshTokens;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public Date getCompletionTime() {
+    return completionTime;
+  }
+
+  public BatchJobStatus getAccessTokensJob() {
+    return accessTokensJob;
+  }
+
+  public BatchJobStatus getRefreshTokensJob() {
+    return refreshTokensJob;
+  }
+}
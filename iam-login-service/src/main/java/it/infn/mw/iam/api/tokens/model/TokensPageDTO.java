@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.tokens.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import it.infn.mw.iam.api.common.ListResponseDTO;
+
+/**
+ * A page of tokens. When the page is full, <code>next</code> holds the cursor to be passed as the
+ * <code>after</code> parameter to get the following page by keyset, which is much cheaper than
+ * paging by start index on large token tables.
+ *
+ * The total number of results is not returned for pages requested by cursor.
+ */
+@JsonInclude(Include.NON_NULL)
+public class TokensPageDTO<T> extends ListResponseDTO<T> {
+
+  private final String next;
+
+  public TokensPageDTO(Long totalResults, Integer itemsPerPage, Integer startIndex, String next,
+      List<T> resources) {
+    super(totalResults, itemsPerPage, startIndex, resources);
+    this.next = next;
+  }
+
+  public String getNext() {
+    return next;
+  }
+}
@@ -15,34 +15,74 @@
  */
 package it.infn.mw.iam.api.tokens.service;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
 import it.infn.mw.iam.api.common.ListResponseDTO;
-import it.infn.mw.iam.api.common.OffsetPageable;
+import it.infn.mw.iam.api.tokens.model.TokensPageDTO;
+import it.infn.mw.iam.api.tokens.service.paging.TokensCursor;
 import it.infn.mw.iam.api.tokens.service.paging.TokensPageRequest;
+import it.infn.mw.iam.config.tokens.TokensApiProperties;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
 
-public abstract class AbstractTokenService<T> implements TokenService<T> {
+/**
+ * Base class for token services, which lists valid tokens sorted by expiration and id, selecting
+ * pages either by start index or by keyset.
+ *
+ * @param <T> the token DTO type
+ * @param <E> the token entity type
+ */
+public abstract class AbstractTokenService<T, E> implements TokenService<T> {
 
+  @Autowired
+  private TokensApiProperties properties;
 
-  protected OffsetPageable getOffsetPageable(TokensPageRequest pageRequest) {
+  protected abstract List<E> findValidTokens(ValidTokensQuery query, int offset, int count);
 
-    if (pageRequest.getCount() == 0) {
-      return new OffsetPageable(0, 1);
-    }
-    return new OffsetPageable(pageRequest.getStartIndex(), pageRequest.getCount());
-  }
+  protected abstract long countValidTokens(ValidTokensQuery query, long limit);
+
+  protected abstract T toDto(E token);
+
+  protected abstract TokensCursor cursorOf(E token);
 
   protected boolean isCountRequest(TokensPageRequest pageRequest) {
 
     return pageRequest.getCount() == 0;
   }
 
-  protected ListResponseDTO<T> buildListResponse(List<T> resources, OffsetPageable op, long totalElements) {
-    
-    ListResponseDTO.Builder<T> builder = ListResponseDTO.builder();
-    builder.itemsPerPage(resources.size());
-    builder.startIndex(op.getOffset() + 1);
-    builder.resources(resources);
-    builder.totalResults(totalElements);
-    return builder.build();
+  protected ListResponseDTO<T> getValidTokens(ValidTokensQuery query,
+      TokensPageRequest pageRequest) {
+
+    TokensCursor after = pageRequest.getAfter();
+
+    if (after != null) {
+      query = query.after(after.getExpiration(), after.getId());
+    }
+
+    if (isCountRequest(pageRequest)) {
+      long count = countValidTokens(query, properties.getCountLimit());
+      return new TokensPageDTO<>(count, 0, after == null ? 1 : null, null,
+          Collections.emptyList());
+    }
+
+    List<E> tokens =
+        findValidTokens(query, pageRequest.getStartIndex(), pageRequest.getCount());
+
+    String next = null;
+    if (tokens.size() == pageRequest.getCount()) {
+      next = cursorOf(tokens.get(tokens.size() - 1)).toString();
+    }
+
+    List<T> resources = tokens.stream().map(this::toDto).collect(Collectors.toList());
+
+    if (after != null) {
+      return new TokensPageDTO<>(null, resources.size(), null, next, resources);
+    }
+
+    return new TokensPageDTO<>(countValidTokens(query, properties.getCountLimit()),
+        resources.size(), pageRequest.getStartIndex() + 1, next, resources);
   }
 }
@@ -15,26 +15,25 @@
  */
 package it.infn.mw.iam.api.tokens.service;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
 import org.mitre.oauth2.service.impl.DefaultOAuth2ProviderTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import it.infn.mw.iam.api.common.ListResponseDTO;
-import it.infn.mw.iam.api.common.OffsetPageable;
 import it.infn.mw.iam.api.tokens.converter.TokensConverter;
 import it.infn.mw.iam.api.tokens.exception.TokenNotFoundException;
 import it.infn.mw.iam.api.tokens.model.AccessToken;
+import it.infn.mw.iam.api.tokens.service.paging.TokensCursor;
 import it.infn.mw.iam.api.tokens.service.paging.TokensPageRequest;
 import it.infn.mw.iam.persistence.repository.IamOAuthAccessTokenRepository;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
 
 @Service
-public class DefaultAccessTokenService extends AbstractTokenService<AccessToken> {
+public class DefaultAccessTokenService
+    extends AbstractTokenService<AccessToken, OAuth2AccessTokenEntity> {
 
   @Autowired
   private TokensConverter tokensConverter;
@@ -67,119 +66,57 @@ public class DefaultAccessTokenService extends AbstractTokenService<AccessToken>
     return Optional.ofNullable(at);
   }
 
-  private Page<OAuth2AccessTokenEntity> getAllValidTokens(OffsetPageable op) {
-
-    return tokenRepository.findAllValidAccessTokens(new Date(), op);
-  }
-
-  private long countAllValidTokens() {
-
-    return tokenRepository.countValidAccessTokens(new Date());
-  }
-
-  private Page<OAuth2AccessTokenEntity> getAllValidTokensForUser(String userId, OffsetPageable op) {
-
-    return tokenRepository.findValidAccessTokensForUser(userId, new Date(), op);
-  }
-
-  private long countAllValidTokensForUser(String userId) {
-
-    return tokenRepository.countValidAccessTokensForUser(userId, new Date());
-  }
-
-  private Page<OAuth2AccessTokenEntity> getAllValidTokensForClient(String clientId,
-      OffsetPageable op) {
-
-    return tokenRepository.findValidAccessTokensForClient(clientId, new Date(), op);
-  }
-
-  private long countAllValidTokensForClient(String clientId) {
-
-    return tokenRepository.countValidAccessTokensForClient(clientId, new Date());
-  }
-
-  private Page<OAuth2AccessTokenEntity> getAllValidTokensForUserAndClient(String userId,
-      String clientId, OffsetPageable op) {
+  @Override
+  protected List<OAuth2AccessTokenEntity> findValidTokens(ValidTokensQuery query, int offset,
+      int count) {
 
-    return tokenRepository.findValidAccessTokensForUserAndClient(userId, clientId, new Date(), op);
+    return tokenRepository.findValidTokens(query, offset, count);
   }
 
-  private long countAllValidTokensForUserAndClient(String userId, String clientId) {
+  @Override
+  protected long countValidTokens(ValidTokensQuery query, long limit) {
 
-    return tokenRepository.countValidAccessTokensForUserAndClient(userId, clientId, new Date());
+    return tokenRepository.countValidTokens(query, limit);
   }
 
-  private ListResponseDTO<AccessToken> buildCountResponse(long countResponse) {
+  @Override
+  protected AccessToken toDto(OAuth2AccessTokenEntity token) {
 
-    return new ListResponseDTO.Builder<AccessToken>().totalResults(countResponse)
-        .resources(Collections.emptyList()).startIndex(1).itemsPerPage(0).build();
+    return tokensConverter.toAccessToken(token);
   }
 
-  private ListResponseDTO<AccessToken> buildListResponse(Page<OAuth2AccessTokenEntity> entities, OffsetPageable op) {
+  @Override
+  protected TokensCursor cursorOf(OAuth2AccessTokenEntity token) {
 
-    List<AccessToken> resources = new ArrayList<>();
-    entities.getContent().forEach(a -> resources.add(tokensConverter.toAccessToken(a)));
-    return buildListResponse(resources, op, entities.getTotalElements());
+    return TokensCursor.of(token.getExpiration(), token.getId());
   }
 
   @Override
   public ListResponseDTO<AccessToken> getAllTokens(TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokens();
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2AccessTokenEntity> entities = getAllValidTokens(op);
-    return buildListResponse(entities, op);
+    ValidTokensQuery query = ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens();
+    return getValidTokens(query, pageRequest);
   }
 
   @Override
   public ListResponseDTO<AccessToken> getTokensForUser(String userId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForUser(userId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2AccessTokenEntity> entities = getAllValidTokensForUser(userId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), userId, null), pageRequest);
   }
 
   @Override
   public ListResponseDTO<AccessToken> getTokensForClient(String clientId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForClient(clientId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2AccessTokenEntity> entities = getAllValidTokensForClient(clientId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), null, clientId), pageRequest);
   }
 
   @Override
   public ListResponseDTO<AccessToken> getTokensForClientAndUser(String userId, String clientId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForUserAndClient(userId, clientId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2AccessTokenEntity> entities =
-        getAllValidTokensForUserAndClient(userId, clientId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), userId, clientId), pageRequest);
   }
 
   @Override
@@ -15,26 +15,25 @@
  */
 package it.infn.mw.iam.api.tokens.service;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import org.mitre.oauth2.model.OAuth2RefreshTokenEntity;
 import org.mitre.oauth2.service.impl.DefaultOAuth2ProviderTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import it.infn.mw.iam.api.common.ListResponseDTO;
-import it.infn.mw.iam.api.common.OffsetPageable;
 import it.infn.mw.iam.api.tokens.converter.TokensConverter;
 import it.infn.mw.iam.api.tokens.exception.TokenNotFoundException;
 import it.infn.mw.iam.api.tokens.model.RefreshToken;
+import it.infn.mw.iam.api.tokens.service.paging.TokensCursor;
 import it.infn.mw.iam.api.tokens.service.paging.TokensPageRequest;
 import it.infn.mw.iam.persistence.repository.IamOAuthRefreshTokenRepository;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
 
 @Service
-public class DefaultRefreshTokenService extends AbstractTokenService<RefreshToken> {
+public class DefaultRefreshTokenService
+    extends AbstractTokenService<RefreshToken, OAuth2RefreshTokenEntity> {
 
   @Autowired
   private TokensConverter tokensConverter;
@@ -63,125 +62,60 @@ public class DefaultRefreshTokenService extends AbstractTokenService<RefreshToke
 
   private Optional<OAuth2RefreshTokenEntity> getRefreshTokenById(Long refreshTokenId) {
 
-    OAuth2RefreshTokenEntity at = tokenService.getRefreshTokenById(refreshTokenId);
-    return Optional.ofNullable(at);
+    OAuth2RefreshTokenEntity rt = tokenService.getRefreshTokenById(refreshTokenId);
+    return Optional.ofNullable(rt);
   }
 
-  private Page<OAuth2RefreshTokenEntity> getAllValidTokens(OffsetPageable op) {
-
-    return tokenRepository.findAllValidRefreshTokens(new Date(), op);
-  }
-
-  private long countAllValidTokens() {
-
-    return tokenRepository.countValidRefreshTokens(new Date());
-  }
-
-  private Page<OAuth2RefreshTokenEntity> getAllValidTokensForUser(String userId,
-      OffsetPageable op) {
-
-    return tokenRepository.findValidRefreshTokensForUser(userId, new Date(), op);
-  }
-
-  private long countAllValidTokensForUser(String userId) {
-
-    return tokenRepository.countValidRefreshTokensForUser(userId, new Date());
-  }
-
-  private Page<OAuth2RefreshTokenEntity> getAllValidTokensForClient(String clientId,
-      OffsetPageable op) {
-
-    return tokenRepository.findValidRefreshTokensForClient(clientId, new Date(), op);
-  }
-
-  private long countAllValidTokensForClient(String clientId) {
-
-    return tokenRepository.countValidRefreshTokensForClient(clientId, new Date());
-  }
-
-  private Page<OAuth2RefreshTokenEntity> getAllValidTokensForUserAndClient(String userId,
-      String clientId, OffsetPageable op) {
+  @Override
+  protected List<OAuth2RefreshTokenEntity> findValidTokens(ValidTokensQuery query, int offset,
+      int count) {
 
-    return tokenRepository.findValidRefreshTokensForUserAndClient(userId, clientId, new Date(), op);
+    return tokenRepository.findValidTokens(query, offset, count);
   }
 
-  private long countAllValidTokensForUserAndClient(String userId, String clientId) {
+  @Override
+  protected long countValidTokens(ValidTokensQuery query, long limit) {
 
-    return tokenRepository.countValidRefreshTokensForUserAndClient(userId, clientId, new Date());
+    return tokenRepository.countValidTokens(query, limit);
   }
 
-  private ListResponseDTO<RefreshToken> buildCountResponse(long countResponse) {
+  @Override
+  protected RefreshToken toDto(OAuth2RefreshTokenEntity token) {
 
-    return new ListResponseDTO.Builder<RefreshToken>().totalResults(countResponse)
-        .resources(Collections.emptyList()).startIndex(1).itemsPerPage(0).build();
+    return tokensConverter.toRefreshToken(token);
   }
 
-  private ListResponseDTO<RefreshToken> buildListResponse(Page<OAuth2RefreshTokenEntity> entities,
-      OffsetPageable op) {
+  @Override
+  protected TokensCursor cursorOf(OAuth2RefreshTokenEntity token) {
 
-    List<RefreshToken> resources = new ArrayList<>();
-    entities.getContent().forEach(a -> resources.add(tokensConverter.toRefreshToken(a)));
-    return buildListResponse(resources, op, entities.getTotalElements());
+    return TokensCursor.of(token.getExpiration(), token.getId());
   }
 
   @Override
   public ListResponseDTO<RefreshToken> getAllTokens(TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokens();
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2RefreshTokenEntity> entities = getAllValidTokens(op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), null, null), pageRequest);
   }
 
   @Override
   public ListResponseDTO<RefreshToken> getTokensForUser(String userId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForUser(userId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2RefreshTokenEntity> entities = getAllValidTokensForUser(userId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), userId, null), pageRequest);
   }
 
   @Override
   public ListResponseDTO<RefreshToken> getTokensForClient(String clientId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForClient(clientId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2RefreshTokenEntity> entities = getAllValidTokensForClient(clientId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), null, clientId), pageRequest);
   }
 
   @Override
   public ListResponseDTO<RefreshToken> getTokensForClientAndUser(String userId, String clientId,
       TokensPageRequest pageRequest) {
 
-    if (isCountRequest(pageRequest)) {
-
-      long count = countAllValidTokensForUserAndClient(userId, clientId);
-      return buildCountResponse(count);
-    }
-
-    OffsetPageable op = getOffsetPageable(pageRequest);
-    Page<OAuth2RefreshTokenEntity> entities =
-        getAllValidTokensForUserAndClient(userId, clientId, op);
-    return buildListResponse(entities, op);
+    return getValidTokens(ValidTokensQuery.of(new Date(), userId, clientId), pageRequest);
   }
 
   @Override
@@ -19,10 +19,12 @@ public class DefaultTokensPageRequest implements TokensPageRequest {
 
   private final int count;
   private final int startIndex;
+  private final TokensCursor after;
 
   private DefaultTokensPageRequest(Builder b) {
     this.count = b.count;
     this.startIndex = b.startIndex;
+    this.after = b.after;
   }
 
   @Override
@@ -37,10 +39,17 @@ public class DefaultTokensPageRequest implements TokensPageRequest {
     return startIndex;
   }
 
+  @Override
+  public TokensCursor getAfter() {
+
+    return after;
+  }
+
   public static class Builder {
 
     private int count;
     private int startIndex;
+    private TokensCursor after;
 
     public Builder count(int count) {
 
@@ -54,6 +63,12 @@ public class DefaultTokensPageRequest implements TokensPageRequest {
       return this;
     }
 
+    public Builder after(TokensCursor after) {
+
+      this.after = after;
+      return this;
+    }
+
     public DefaultTokensPageRequest build() {
 
       return new DefaultTokensPageRequest(this);
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.api.tokens.service.paging;
+
+import java.util.Date;
+
+import it.infn.mw.iam.api.tokens.exception.InvalidTokensCursorException;
+
+/**
+ * Identifies the last token of a page, by expiration and id, so that the next page can be
+ * selected by keyset. The cursor is rendered as <code>&lt;expiration&gt;.&lt;id&gt;</code>, where
+ * the expiration is in milliseconds since the epoch, or <code>-</code> for tokens that never
+ * expire.
+ */
+public class TokensCursor {
+
+  private static final String NO_EXPIRATION = "-";
+  private static final char SEPARATOR = '.';
+
+  private final Date expiration;
+  private final long id;
+
+  private TokensCursor(Date expiration, long id) {
+    this.expiration = expiration;
+    this.id = id;
+  }
+
+  public static TokensCursor of(Date expiration, long id) {
+    return new TokensCursor(expiration, id);
+  }
+
+  public static TokensCursor parse(String cursor) {
+    int separatorIndex = cursor.lastIndexOf(SEPARATOR);
+
+    if (separatorIndex < 1) {
+      throw new InvalidTokensCursorException(cursor);
+    }
+
+    String expirationPart = cursor.substring(0, separatorIndex);
+
+    try {
+      long id = Long.parseLong(cursor.substring(separatorIndex + 1));
+      Date expiration =
+          NO_EXPIRATION.equals(expirationPart) ? null : new Date(Long.parseLong(expirationPart));
+
+      return new TokensCursor(expiration, id);
+    } catch (NumberFormatException e) {
+      throw new InvalidTokensCursorException(cursor);
+    }
+  }
+
+  public Date getExpiration() {
+    return expiration;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return (expiration == null ? NO_EXPIRATION : String.valueOf(expiration.getTime())) + SEPARATOR
+        + id;
+  }
+}
@@ -21,4 +21,10 @@ public interface TokensPageRequest {
 
   public int getStartIndex();
 
+  /**
+   * @return the cursor of the last token of the previous page, or <code>null</code> if the page
+   *         is selected by start index
+   */
+  public TokensCursor getAfter();
+
 }
@@ -13,22 +13,22 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package it.infn.mw.iam.audit.events.account.group;
+package it.infn.mw.iam.audit.events.group.members;
 
 import static it.infn.mw.iam.api.scim.updater.UpdaterType.ACCOUNT_ADD_GROUP_MEMBERSHIP;
 
 import java.util.Collection;
 
-import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
 
-public class GroupMembershipAddedEvent extends GroupMembershipUpdatedEvent {
+public class GroupMembersAddedEvent extends GroupMembersUpdatedEvent {
 
   private static final long serialVersionUID = 1L;
 
-
-  public GroupMembershipAddedEvent(Object source, IamAccount account, Collection<IamGroup> groups) {
-    super(source, account, ACCOUNT_ADD_GROUP_MEMBERSHIP, groups);
+  public GroupMembersAddedEvent(Object source, IamGroup group,
+      Collection<AccountSummary> members) {
+    super(source, group, ACCOUNT_ADD_GROUP_MEMBERSHIP, members);
   }
 
 }
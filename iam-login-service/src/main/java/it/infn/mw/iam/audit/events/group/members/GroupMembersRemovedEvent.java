@@ -13,22 +13,22 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package it.infn.mw.iam.audit.events.account.group;
+package it.infn.mw.iam.audit.events.group.members;
 
 import static it.infn.mw.iam.api.scim.updater.UpdaterType.ACCOUNT_REMOVE_GROUP_MEMBERSHIP;
 
 import java.util.Collection;
 
-import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
 
-public class GroupMembershipRemovedEvent extends GroupMembershipUpdatedEvent {
+public class GroupMembersRemovedEvent extends GroupMembersUpdatedEvent {
 
   private static final long serialVersionUID = 1L;
 
-  public GroupMembershipRemovedEvent(Object source, IamAccount account,
-      Collection<IamGroup> groups) {
-    super(source, account, ACCOUNT_REMOVE_GROUP_MEMBERSHIP, groups);
+  public GroupMembersRemovedEvent(Object source, IamGroup group,
+      Collection<AccountSummary> members) {
+    super(source, group, ACCOUNT_REMOVE_GROUP_MEMBERSHIP, members);
   }
 
 }
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.audit.events.group.members;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+import java.util.Collection;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import it.infn.mw.iam.api.scim.updater.UpdaterType;
+import it.infn.mw.iam.audit.events.group.GroupEvent;
+import it.infn.mw.iam.audit.utils.AccountSummaryCollectionSerializer;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+
+public abstract class GroupMembersUpdatedEvent extends GroupEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  @JsonSerialize(using = AccountSummaryCollectionSerializer.class)
+  private final Collection<AccountSummary> members;
+
+  public GroupMembersUpdatedEvent(Object source, IamGroup group, UpdaterType type,
+      Collection<AccountSummary> members) {
+    super(source, group, buildMessage(type, group, members));
+    this.members = members;
+  }
+
+  public Collection<AccountSummary> getMembers() {
+    return members;
+  }
+
+  protected static String buildMessage(UpdaterType t, IamGroup group,
+      Collection<AccountSummary> members) {
+    return format("%s: group: '%s' members: [%s]", t.getDescription(), group.getName(),
+        members.stream().map(m -> format("username: '%s'", m.getUsername())).collect(joining(", ")));
+  }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.audit.events.tokens;
+
+import java.util.Collection;
+
+public class RefreshTokensRevokedEvent extends TokensRevokedEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  public RefreshTokensRevokedEvent(Object source, String revocationId, String filter,
+      Collection<Long> tokenIds) {
+    super(source, "refresh", revocationId, filter, tokenIds);
+  }
+}
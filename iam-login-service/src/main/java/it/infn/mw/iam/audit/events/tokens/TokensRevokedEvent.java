@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.audit.events.tokens;
+
+import static java.lang.String.format;
+
+import java.util.Collection;
+
+import it.infn.mw.iam.audit.events.IamAuditApplicationEvent;
+
+/**
+ * Records the revocation of a chunk of tokens matching a bulk revocation filter.
+ */
+public abstract class TokensRevokedEvent extends IamAuditApplicationEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String revocationId;
+  private final String filter;
+  private final Collection<Long> tokenIds;
+
+  protected TokensRevokedEvent(Object source, String tokenType, String revocationId,
+      String filter, Collection<Long> tokenIds) {
+    super(IamEventCategory.TOKEN, source,
+        format("Revoked %d %s tokens: revocation: '%s' filter: [%s]", tokenIds.size(), tokenType,
+            revocationId, filter));
+    this.revocationId = revocationId;
+    this.filter = filter;
+    this.tokenIds = tokenIds;
+  }
+
+  public String getRevocationId() {
+    return revocationId;
+  }
+
+  public String getFilter() {
+    return filter;
+  }
+
+  public Collection<Long> getTokenIds() {
+    return tokenIds;
+  }
+}
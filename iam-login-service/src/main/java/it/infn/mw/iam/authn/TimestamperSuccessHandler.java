@@ -31,20 +31,20 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 import it.infn.mw.iam.core.util.IamAuthenticationLogger;
-import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 public class TimestamperSuccessHandler implements AuthenticationSuccessHandler {
 
   public static final Logger LOG = getLogger(TimestamperSuccessHandler.class);
   private final AuthenticationSuccessHandler delegate;
   
-  private final IamAccountRepository accountRepository;
+  private final LastLoginTimeUpdater lastLoginTimeUpdater;
   
   public TimestamperSuccessHandler(AuthenticationSuccessHandler delegate,
-      IamAccountRepository accountRepository) {
+      LastLoginTimeUpdater lastLoginTimeUpdater) {
     this.delegate = delegate;
-    this.accountRepository = accountRepository;
+    this.lastLoginTimeUpdater = lastLoginTimeUpdater;
   }
 
   protected void setAuthenticationTimestamp(HttpServletRequest request,
@@ -60,10 +60,10 @@ public class TimestamperSuccessHandler implements AuthenticationSuccessHandler {
     if (authentication instanceof OAuth2Authentication){
       OAuth2Authentication oauth = (OAuth2Authentication) authentication;
       if (oauth.getUserAuthentication() != null){
-        accountRepository.touchLastLoginTimeForUserWithUsername(oauth.getUserAuthentication().getName());
+        lastLoginTimeUpdater.touchLastLoginTime(oauth.getUserAuthentication().getName());
       }
     }else {
-      accountRepository.touchLastLoginTimeForUserWithUsername(authentication.getName());
+      lastLoginTimeUpdater.touchLastLoginTime(authentication.getName());
     }
   }
   
@@ -20,6 +20,7 @@ import static it.infn.mw.iam.authn.util.SessionUtils.getStoredSessionString;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Date;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -49,6 +50,8 @@ import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.PlainJWT;
 import com.nimbusds.jwt.SignedJWT;
 
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics.Stage;
+
 /**
  * A slightly modified version of mitreid client filter that allows to provide a custom
  * {@link ClientHttpRequestFactory} object. This is needed to accomodate SSL connections to
@@ -72,9 +75,25 @@ public class OidcClientFilter extends OIDCAuthenticationFilter {
 
   OidcTokenRequestor tokenRequestor;
 
+  OidcProviderMetrics metrics;
+
   // Allow for time sync issues by having a window of X seconds.
   private int timeSkewAllowance = 300;
 
+  private <T> T time(String issuer, Stage stage, Supplier<T> supplier) {
+    if (metrics == null) {
+      return supplier.get();
+    }
+    return metrics.time(issuer, stage, supplier);
+  }
+
+  private void time(String issuer, Stage stage, Runnable runnable) {
+    time(issuer, stage, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
   private void validateState(HttpServletRequest request, HttpServletResponse response) {
 
     HttpSession session = request.getSession();
@@ -174,10 +193,12 @@ public class OidcClientFilter extends OIDCAuthenticationFilter {
 
     String tokenResponseString = null;
 
+    final String issuer = config.serverConfig.getIssuer();
+
     try {
 
-      tokenResponseString =
-          tokenRequestor.requestTokens(config, initTokenRequestParameters(request, config));
+      tokenResponseString = time(issuer, Stage.TOKEN_REQUEST,
+          () -> tokenRequestor.requestTokens(config, initTokenRequestParameters(request, config)));
 
     } catch (OidcClientError e) {
       LOG.error("Error executing token request against endpoint {}: {}",
@@ -214,8 +235,9 @@ public class OidcClientFilter extends OIDCAuthenticationFilter {
     JWT idToken = parseToken(idTokenValue);
     JWTClaimsSet idClaims = parseClaims(idToken);
 
-    validateSignature(idToken, config);
-    validateClaims(request.getSession(), idToken, idClaims, config);
+    time(issuer, Stage.SIGNATURE_VALIDATION, () -> validateSignature(idToken, config));
+    time(issuer, Stage.CLAIMS_VALIDATION,
+        () -> validateClaims(request.getSession(), idToken, idClaims, config));
 
     PendingOIDCAuthenticationToken oidcToken =
         new PendingOIDCAuthenticationToken(idClaims.getSubject(), idClaims.getIssuer(),
@@ -398,5 +420,9 @@ public class OidcClientFilter extends OIDCAuthenticationFilter {
     this.tokenRequestor = tokenRequestor;
   }
 
+  public void setMetrics(OidcProviderMetrics metrics) {
+    this.metrics = metrics;
+  }
+
 
 }
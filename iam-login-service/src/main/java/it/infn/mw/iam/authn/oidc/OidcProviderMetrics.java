@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.authn.oidc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.config.oidc.OidcProviderMetadataProperties;
+
+/**
+ * Timing metrics for the interactions with external OpenID Connect providers, tracked per
+ * provider and login stage.
+ */
+@Component
+public class OidcProviderMetrics implements PublicMetrics {
+
+  public static final String METRIC_PREFIX = "iam.oidc-provider.";
+  public static final String OTHER_PROVIDERS = "other";
+
+  public enum Stage {
+    DISCOVERY("discovery"),
+    TOKEN_REQUEST("token-request"),
+    SIGNATURE_VALIDATION("signature-validation"),
+    CLAIMS_VALIDATION("claims-validation");
+
+    private final String stageName;
+
+    Stage(String stageName) {
+      this.stageName = stageName;
+    }
+
+    public String getStageName() {
+      return stageName;
+    }
+  }
+
+  public static final class StageKey {
+    final String provider;
+    final Stage stage;
+
+    StageKey(String provider, Stage stage) {
+      this.provider = provider;
+      this.stage = stage;
+    }
+
+    public String getProvider() {
+      return provider;
+    }
+
+    public Stage getStage() {
+      return stage;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(provider, stage);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof StageKey)) {
+        return false;
+      }
+      StageKey other = (StageKey) obj;
+      return Objects.equals(provider, other.provider) && stage == other.stage;
+    }
+  }
+
+  public static final class StageStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMsec = new LongAdder();
+    private final AtomicLong maxMsec = new AtomicLong();
+
+    void record(long elapsedMsec, boolean error) {
+      count.increment();
+      totalMsec.add(elapsedMsec);
+      maxMsec.accumulateAndGet(elapsedMsec, Math::max);
+      if (error) {
+        errors.increment();
+      }
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    public long getTotalMsec() {
+      return totalMsec.sum();
+    }
+
+    public long getMaxMsec() {
+      return maxMsec.get();
+    }
+  }
+
+  private final OidcProviderMetadataProperties properties;
+
+  private final ConcurrentMap<StageKey, StageStats> stats = new ConcurrentHashMap<>();
+  private final Set<String> trackedProviders = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public OidcProviderMetrics(OidcProviderMetadataProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * @param issuer the provider issuer
+   * @return the provider name used in metrics, i.e. the issuer without the URL scheme
+   */
+  public static String providerName(String issuer) {
+    if (issuer == null) {
+      return "unknown";
+    }
+    return issuer.replaceFirst("^https?://", "").replaceAll("/+$", "");
+  }
+
+  private String trackedProvider(String issuer) {
+    String name = providerName(issuer);
+
+    if (trackedProviders.contains(name)) {
+      return name;
+    }
+
+    if (trackedProviders.size() < properties.getMaxTrackedProviders()) {
+      trackedProviders.add(name);
+      return name;
+    }
+
+    return OTHER_PROVIDERS;
+  }
+
+  public void record(String issuer, Stage stage, long elapsedMsec, boolean error) {
+    stats.computeIfAbsent(new StageKey(trackedProvider(issuer), stage), k -> new StageStats())
+      .record(elapsedMsec, error);
+  }
+
+  public <T> T time(String issuer, Stage stage, Supplier<T> supplier) {
+    final long startTime = System.currentTimeMillis();
+    boolean error = true;
+
+    try {
+      T result = supplier.get();
+      error = false;
+      return result;
+    } finally {
+      record(issuer, stage, System.currentTimeMillis() - startTime, error);
+    }
+  }
+
+  public void time(String issuer, Stage stage, Runnable runnable) {
+    time(issuer, stage, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  public Map<StageKey, StageStats> getStats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    stats.forEach((k, s) -> {
+      final String prefix =
+          String.format("%s%s.%s.", METRIC_PREFIX, k.getProvider(), k.getStage().getStageName());
+      long count = s.getCount();
+
+      result.add(new Metric<Long>(prefix + "count", count));
+      result.add(new Metric<Long>(prefix + "errors", s.getErrors()));
+      result.add(new Metric<Double>(prefix + "avg-msec",
+          count == 0 ? 0.0 : (double) s.getTotalMsec() / count));
+      result.add(new Metric<Long>(prefix + "max-msec", s.getMaxMsec()));
+    });
+
+    return result;
+  }
+}
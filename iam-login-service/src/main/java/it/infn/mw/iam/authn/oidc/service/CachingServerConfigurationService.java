@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.authn.oidc.service;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.mitre.jwt.signer.service.impl.JWKSetCacheService;
+import org.mitre.openid.connect.client.service.ServerConfigurationService;
+import org.mitre.openid.connect.config.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics;
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics.Stage;
+import it.infn.mw.iam.authn.oidc.RestTemplateFactory;
+
+/**
+ * A {@link ServerConfigurationService} that fetches the discovery document of external OpenID
+ * Connect providers, validates it and caches it.
+ *
+ * Only the first lookup of a provider blocks on discovery. Afterwards, configurations older than
+ * the refresh period are refreshed in the background while the cached configuration keeps being
+ * served; if a refresh fails, the cached configuration is served until it becomes older than the
+ * max stale period. Each successful fetch also warms the provider key set in the
+ * {@link JWKSetCacheService}, so that ID token validation does not block on key retrieval either.
+ */
+public class CachingServerConfigurationService implements ServerConfigurationService {
+
+  public static final Logger LOG = LoggerFactory.getLogger(CachingServerConfigurationService.class);
+
+  public static final String DISCOVERY_PATH = "/.well-known/openid-configuration";
+
+  static final class CachedConfiguration {
+    final ServerConfiguration configuration;
+    final Instant fetchTime;
+    final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    CachedConfiguration(ServerConfiguration configuration, Instant fetchTime) {
+      this.configuration = configuration;
+      this.fetchTime = fetchTime;
+    }
+  }
+
+  private final RestTemplateFactory restTemplateFactory;
+  private final ObjectMapper mapper;
+  private final OidcProviderMetrics metrics;
+  private final JWKSetCacheService validationServices;
+  private final Executor refreshExecutor;
+  private final Clock clock;
+  private final Duration refreshPeriod;
+  private final Duration maxStalePeriod;
+
+  private final ConcurrentMap<String, CachedConfiguration> cache = new ConcurrentHashMap<>();
+
+  public CachingServerConfigurationService(RestTemplateFactory restTemplateFactory,
+      ObjectMapper mapper, OidcProviderMetrics metrics, JWKSetCacheService validationServices,
+      Executor refreshExecutor, Clock clock, Duration refreshPeriod, Duration maxStalePeriod) {
+    this.restTemplateFactory = restTemplateFactory;
+    this.mapper = mapper;
+    this.metrics = metrics;
+    this.validationServices = validationServices;
+    this.refreshExecutor = refreshExecutor;
+    this.clock = clock;
+    this.refreshPeriod = refreshPeriod;
+    this.maxStalePeriod = maxStalePeriod;
+  }
+
+  static String withoutTrailingSlash(String issuer) {
+    return issuer.replaceAll("/+$", "");
+  }
+
+  static String discoveryUrl(String issuer) {
+    return withoutTrailingSlash(issuer) + DISCOVERY_PATH;
+  }
+
+  private static String text(JsonNode document, String field) {
+    JsonNode node = document.get(field);
+    return (node == null || node.isNull()) ? null : node.asText();
+  }
+
+  private static String requiredText(String issuer, JsonNode document, String field) {
+    String value = text(document, field);
+    if (isNullOrEmpty(value)) {
+      throw new IllegalStateException(
+          String.format("Discovery document for %s has no %s", issuer, field));
+    }
+    return value;
+  }
+
+  private static List<String> textList(JsonNode document, String field) {
+    JsonNode node = document.get(field);
+
+    if (node == null || !node.isArray()) {
+      return null;
+    }
+
+    List<String> result = Lists.newArrayList();
+    node.forEach(e -> result.add(e.asText()));
+    return result;
+  }
+
+  ServerConfiguration parse(String issuer, String discoveryDocument) {
+    JsonNode document;
+
+    try {
+      document = mapper.readTree(discoveryDocument);
+    } catch (IOException e) {
+      throw new IllegalStateException("Invalid discovery document for " + issuer, e);
+    }
+
+    if (document == null || !document.isObject()) {
+      throw new IllegalStateException("Invalid discovery document for " + issuer);
+    }
+
+    // OpenID Connect Discovery 1.0, section 4.3
+    String documentIssuer = requiredText(issuer, document, "issuer");
+    if (!withoutTrailingSlash(issuer).equals(withoutTrailingSlash(documentIssuer))) {
+      throw new IllegalStateException(String
+        .format("Discovery document issuer mismatch: expected %s, got %s", issuer, documentIssuer));
+    }
+
+    ServerConfiguration conf = new ServerConfiguration();
+
+    conf.setIssuer(documentIssuer);
+    conf.setAuthorizationEndpointUri(requiredText(issuer, document, "authorization_endpoint"));
+    conf.setTokenEndpointUri(requiredText(issuer, document, "token_endpoint"));
+    conf.setJwksUri(requiredText(issuer, document, "jwks_uri"));
+    conf.setUserInfoUri(text(document, "userinfo_endpoint"));
+    conf.setRegistrationEndpointUri(text(document, "registration_endpoint"));
+    conf.setEndSessionEndpoint(text(document, "end_session_endpoint"));
+    conf.setIntrospectionEndpointUri(text(document, "introspection_endpoint"));
+    conf.setRevocationEndpointUri(text(document, "revocation_endpoint"));
+    conf.setScopesSupported(textList(document, "scopes_supported"));
+    conf.setResponseTypesSupported(textList(document, "response_types_supported"));
+    conf.setGrantTypesSupported(textList(document, "grant_types_supported"));
+    conf.setSubjectTypesSupported(textList(document, "subject_types_supported"));
+    conf.setClaimsSupported(textList(document, "claims_supported"));
+
+    return conf;
+  }
+
+  ServerConfiguration fetch(String issuer) {
+    return metrics.time(issuer, Stage.DISCOVERY, () -> parse(issuer,
+        restTemplateFactory.newRestTemplate().getForObject(discoveryUrl(issuer), String.class)));
+  }
+
+  private ServerConfiguration fetchAndCache(String issuer) {
+    try {
+      ServerConfiguration conf = fetch(issuer);
+      cache.put(issuer, new CachedConfiguration(conf, clock.instant()));
+
+      if (validationServices != null) {
+        validationServices.getValidator(conf.getJwksUri());
+      }
+
+      return conf;
+    } catch (RuntimeException e) {
+      LOG.warn("Error fetching OpenID provider configuration for {}: {}", issuer,
+          e.getMessage());
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Error fetching OpenID provider configuration for {}", issuer, e);
+      }
+      return null;
+    }
+  }
+
+  private void refreshInBackground(String issuer, CachedConfiguration cached) {
+    if (!cached.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          fetchAndCache(issuer);
+        } finally {
+          cached.refreshing.set(false);
+        }
+      });
+    } catch (RuntimeException e) {
+      cached.refreshing.set(false);
+      LOG.warn("Could not schedule refresh of OpenID provider configuration for {}: {}", issuer,
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Fetches the configuration for the given issuer in the background, if not already cached.
+   *
+   * @param issuer the provider issuer
+   */
+  public void prefetch(String issuer) {
+    checkNotNull(issuer, "null issuer");
+    refreshExecutor.execute(() -> {
+      if (!cache.containsKey(issuer)) {
+        fetchAndCache(issuer);
+      }
+    });
+  }
+
+  public void evict(String issuer) {
+    cache.remove(issuer);
+  }
+
+  @Override
+  public ServerConfiguration getServerConfiguration(String issuer) {
+    if (isNullOrEmpty(issuer)) {
+      return null;
+    }
+
+    CachedConfiguration cached = cache.get(issuer);
+
+    if (cached == null) {
+      return fetchAndCache(issuer);
+    }
+
+    Duration age = Duration.between(cached.fetchTime, clock.instant());
+
+    if (age.compareTo(maxStalePeriod) > 0) {
+      ServerConfiguration conf = fetchAndCache(issuer);
+      if (conf == null) {
+        cache.remove(issuer, cached);
+      }
+      return conf;
+    }
+
+    if (age.compareTo(refreshPeriod) > 0) {
+      refreshInBackground(issuer, cached);
+    }
+
+    return cached.configuration;
+  }
+}
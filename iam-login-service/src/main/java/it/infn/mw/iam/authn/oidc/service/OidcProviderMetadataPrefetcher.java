@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.authn.oidc.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import it.infn.mw.iam.config.oidc.OidcProvider;
+import it.infn.mw.iam.config.oidc.OidcProviderMetadataProperties;
+import it.infn.mw.iam.config.oidc.OidcValidatedProviders;
+
+/**
+ * Fetches the configuration and key sets of all the configured external OpenID Connect providers
+ * at startup, so that the first logins do not block on discovery.
+ */
+@Component
+public class OidcProviderMetadataPrefetcher {
+
+  public static final Logger LOG = LoggerFactory.getLogger(OidcProviderMetadataPrefetcher.class);
+
+  private final OidcProviderMetadataProperties properties;
+  private final OidcValidatedProviders providers;
+  private final CachingServerConfigurationService serverConfigurationService;
+
+  @Autowired
+  public OidcProviderMetadataPrefetcher(OidcProviderMetadataProperties properties,
+      OidcValidatedProviders providers,
+      CachingServerConfigurationService serverConfigurationService) {
+    this.properties = properties;
+    this.providers = providers;
+    this.serverConfigurationService = serverConfigurationService;
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    if (!properties.isPrefetchOnStartup()) {
+      return;
+    }
+
+    for (OidcProvider p : providers.getValidatedProviders()) {
+      LOG.info("Prefetching OpenID provider configuration for {}", p.getIssuer());
+      serverConfigurationService.prefetch(p.getIssuer());
+    }
+  }
+}
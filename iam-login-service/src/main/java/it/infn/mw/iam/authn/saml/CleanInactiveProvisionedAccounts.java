@@ -26,26 +26,42 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
+import it.infn.mw.iam.core.batch.BatchJobStatus;
 import it.infn.mw.iam.core.time.TimeProvider;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
-public class CleanInactiveProvisionedAccounts implements Runnable {
+public class CleanInactiveProvisionedAccounts implements Runnable, BatchJob<IamAccount> {
 
   public static final Logger LOG = LoggerFactory.getLogger(CleanInactiveProvisionedAccounts.class);
 
+  public static final String JOB_NAME = "inactive-provisioned-accounts";
+
   final TimeProvider timeProvider;
   final IamAccountService accountService;
+  final IamAccountRepository accountRepo;
+  final BatchJobRunner runner;
   final int inactiveUserLifetimeInDays;
 
+  private Date expirationTimestamp;
+
   public CleanInactiveProvisionedAccounts(TimeProvider timeProvider,
-      IamAccountService accountService, int inactiveUserLifetimeInDays) {
+      IamAccountService accountService, IamAccountRepository accountRepo, BatchJobRunner runner,
+      int inactiveUserLifetimeInDays) {
     checkNotNull(timeProvider, "null timeProvider");
     checkNotNull(accountService, "null accountService");
+    checkNotNull(accountRepo, "null accountRepo");
+    checkNotNull(runner, "null runner");
     checkArgument(inactiveUserLifetimeInDays > 0, "inactiveUserLifetimeInDays must be > 0");
     this.timeProvider = timeProvider;
     this.accountService = accountService;
+    this.accountRepo = accountRepo;
+    this.runner = runner;
     this.inactiveUserLifetimeInDays = inactiveUserLifetimeInDays;
   }
 
@@ -58,18 +74,45 @@ public class CleanInactiveProvisionedAccounts implements Runnable {
   }
 
   @Override
-  public void run() {
-    Date expirationTimestamp = computeProvisionedUsersExpirationTimestamp();
+  public String getName() {
+    return JOB_NAME;
+  }
 
+  @Override
+  public void start() {
+    expirationTimestamp = computeProvisionedUsersExpirationTimestamp();
     LOG.info("Attempting removal of provisioned accounts inactive since {}", expirationTimestamp);
+  }
+
+  @Override
+  public List<IamAccount> readChunk(long lastKey, int chunkSize) {
+    return accountRepo.findProvisionedAccountsWithLastLoginTimeBeforeTimestampAndIdGreaterThan(
+        expirationTimestamp, lastKey, new PageRequest(0, chunkSize));
+  }
+
+  @Override
+  public long getKey(IamAccount item) {
+    return item.getId();
+  }
+
+  @Override
+  public void processChunk(List<IamAccount> chunk) {
+    for (IamAccount a : chunk) {
+      accountService.deleteAccount(a);
+      LOG.info("Removed inactive provisioned account: {}", a);
+    }
+  }
+
+  public Date getExpirationTimestamp() {
+    return expirationTimestamp;
+  }
 
-    List<IamAccount> removedAccounts =
-        accountService.deleteInactiveProvisionedUsersSinceTime(expirationTimestamp);
+  @Override
+  public void run() {
+    BatchJobStatus status = runner.run(this);
 
-    if (removedAccounts.isEmpty()) {
+    if (status != null && status.getItemsProcessed() == 0) {
       LOG.info("No accounts removed");
-    } else {
-      removedAccounts.forEach(a -> LOG.info("Removed inactive provisioned account: {}", a));
     }
   }
 
@@ -21,6 +21,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.saml.SAMLCredential;
 import org.springframework.security.saml.userdetails.SAMLUserDetailsService;
+import org.springframework.transaction.annotation.Transactional;
 
 import it.infn.mw.iam.authn.InactiveAccountAuthenticationHander;
 import it.infn.mw.iam.authn.saml.util.SamlUserIdentifierResolver;
@@ -40,6 +41,7 @@ public class DefaultSAMLUserDetailsService extends SAMLUserDetailsServiceSupport
     this.repo = repo;
   }
 
+  @Transactional
   @Override
   public Object loadUserBySAML(SAMLCredential credential) throws UsernameNotFoundException {
 
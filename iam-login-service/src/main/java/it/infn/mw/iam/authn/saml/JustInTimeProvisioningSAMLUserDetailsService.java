@@ -28,6 +28,7 @@ import java.util.UUID;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.saml.SAMLCredential;
 import org.springframework.security.saml.userdetails.SAMLUserDetailsService;
+import org.springframework.transaction.annotation.Transactional;
 
 import it.infn.mw.iam.authn.InactiveAccountAuthenticationHander;
 import it.infn.mw.iam.authn.saml.util.Saml2Attribute;
@@ -162,6 +163,7 @@ public class JustInTimeProvisioningSAMLUserDetailsService extends SAMLUserDetail
     return newAccount;
   }
 
+  @Transactional
   @Override
   public Object loadUserBySAML(SAMLCredential credential) {
     checkNotNull(credential, "null saml credential");
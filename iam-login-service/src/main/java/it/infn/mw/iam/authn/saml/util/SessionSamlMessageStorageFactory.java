@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.authn.saml.util;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.opensaml.Configuration;
+import org.opensaml.xml.XMLObject;
+import org.opensaml.xml.io.MarshallingException;
+import org.opensaml.xml.io.UnmarshallingException;
+import org.opensaml.xml.parse.ParserPool;
+import org.opensaml.xml.parse.XMLParserException;
+import org.opensaml.xml.util.XMLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.saml.storage.SAMLMessageStorage;
+import org.springframework.security.saml.storage.SAMLMessageStorageFactory;
+import org.w3c.dom.Element;
+
+/**
+ * Keeps the SAML messages sent by IAM (e.g. authentication requests) in the HTTP session as
+ * marshalled XML strings, so that the session can be serialized and shared among IAM instances
+ * (see the JDBC session store) while responses can still be checked against the request they
+ * reply to (InResponseTo validation).
+ *
+ * Only the most recent {@link #MAX_MESSAGES} messages are kept for each session.
+ */
+public class SessionSamlMessageStorageFactory implements SAMLMessageStorageFactory {
+
+  public static final Logger LOG = LoggerFactory.getLogger(SessionSamlMessageStorageFactory.class);
+
+  public static final String SESSION_ATTRIBUTE = "iam.saml.sentMessages";
+
+  public static final int MAX_MESSAGES = 10;
+
+  private final ParserPool parserPool;
+
+  public SessionSamlMessageStorageFactory(ParserPool parserPool) {
+    this.parserPool = parserPool;
+  }
+
+  @Override
+  public SAMLMessageStorage getMessageStorage(HttpServletRequest request) {
+    return new SessionSamlMessageStorage(request.getSession(true));
+  }
+
+  private class SessionSamlMessageStorage implements SAMLMessageStorage {
+
+    private final HttpSession session;
+
+    SessionSamlMessageStorage(HttpSession session) {
+      this.session = session;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LinkedHashMap<String, String> getMessages() {
+      LinkedHashMap<String, String> messages =
+          (LinkedHashMap<String, String>) session.getAttribute(SESSION_ATTRIBUTE);
+
+      return messages == null ? new LinkedHashMap<>() : messages;
+    }
+
+    @Override
+    public void storeMessage(String messageId, XMLObject message) {
+      String xml;
+
+      try {
+        Element element = Configuration.getMarshallerFactory()
+          .getMarshaller(message)
+          .marshall(message);
+        xml = XMLHelper.nodeToString(element);
+      } catch (MarshallingException e) {
+        throw new IllegalStateException("Error marshalling SAML message " + messageId, e);
+      }
+
+      synchronized (session) {
+        LinkedHashMap<String, String> messages = getMessages();
+        messages.put(messageId, xml);
+
+        Iterator<String> it = messages.keySet().iterator();
+        while (messages.size() > MAX_MESSAGES) {
+          it.next();
+          it.remove();
+        }
+
+        // The attribute is set again so that the change is written to the session store
+        session.setAttribute(SESSION_ATTRIBUTE, messages);
+      }
+    }
+
+    @Override
+    public XMLObject retrieveMessage(String messageId) {
+      String xml;
+
+      synchronized (session) {
+        xml = getMessages().get(messageId);
+      }
+
+      if (xml == null) {
+        return null;
+      }
+
+      try {
+        Element element = parserPool.parse(new StringReader(xml)).getDocumentElement();
+        return Configuration.getUnmarshallerFactory()
+          .getUnmarshaller(element)
+          .unmarshall(element);
+      } catch (XMLParserException | UnmarshallingException e) {
+        LOG.warn("Error unmarshalling stored SAML message {}: {}", messageId, e.getMessage());
+        return null;
+      }
+    }
+
+    @Override
+    public Set<String> getAllMessages() {
+      synchronized (session) {
+        return Collections.unmodifiableSet(new HashSet<>(getMessages().keySet()));
+      }
+    }
+  }
+}
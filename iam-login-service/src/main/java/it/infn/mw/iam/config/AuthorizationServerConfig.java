@@ -31,7 +31,6 @@ import org.springframework.security.authentication.AuthenticationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.ProviderManager;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
@@ -47,17 +46,19 @@ import org.springframework.security.oauth2.provider.approval.UserApprovalHandler
 import org.springframework.security.oauth2.provider.client.ClientCredentialsTokenGranter;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeTokenGranter;
-import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
 import org.springframework.security.oauth2.provider.error.WebResponseExceptionTranslator;
 import org.springframework.security.oauth2.provider.implicit.ImplicitTokenGranter;
 import org.springframework.security.oauth2.provider.refresh.RefreshTokenGranter;
 
 import it.infn.mw.iam.api.account.AccountUtils;
 import it.infn.mw.iam.api.aup.AUPSignatureCheckService;
+import it.infn.mw.iam.core.oauth.IamWebResponseExceptionTranslator;
 import it.infn.mw.iam.core.oauth.exchange.TokenExchangePdp;
 import it.infn.mw.iam.core.oauth.granters.IamDeviceCodeTokenGranter;
 import it.infn.mw.iam.core.oauth.granters.IamResourceOwnerPasswordTokenGranter;
 import it.infn.mw.iam.core.oauth.granters.TokenExchangeTokenGranter;
+import it.infn.mw.iam.core.password.AdmissionControlledAuthenticationProvider;
+import it.infn.mw.iam.core.password.PasswordAuthenticationAdmissionControl;
 import it.infn.mw.iam.core.util.IamAuthenticationEventPublisher;
 
 @Configuration
@@ -90,6 +91,9 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
   @Autowired
   private PasswordEncoder passwordEncoder;
 
+  @Autowired
+  private PasswordAuthenticationAdmissionControl admissionControl;
+
   @Autowired
   private DeviceCodeService deviceCodeService;
 
@@ -105,7 +109,7 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
   @Bean
   WebResponseExceptionTranslator webResponseExceptionTranslator() {
 
-    return new DefaultWebResponseExceptionTranslator();
+    return new IamWebResponseExceptionTranslator();
   }
 
   @Bean(name = "iamAuthenticationEventPublisher")
@@ -116,9 +120,9 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
   @Bean(name = "authenticationManager")
   AuthenticationManager authenticationManager() {
 
-    DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-    provider.setUserDetailsService(iamUserDetailsService);
-    provider.setPasswordEncoder(passwordEncoder);
+    AdmissionControlledAuthenticationProvider provider =
+        new AdmissionControlledAuthenticationProvider(iamUserDetailsService, passwordEncoder,
+            admissionControl);
 
     ProviderManager pm =
         new ProviderManager(Collections.<AuthenticationProvider>singletonList(provider));
@@ -172,6 +176,7 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
       .userApprovalHandler(approvalHandler)
       .requestFactory(requestFactory)
       .tokenGranter(tokenGranter())
+      .exceptionTranslator(webResponseExceptionTranslator())
       .authorizationCodeServices(authorizationCodeServices);
     // @formatter:on
   }
@@ -41,7 +41,6 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.Ordered;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.provider.ClientDetailsService;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
@@ -51,7 +50,12 @@ import com.google.common.collect.Maps;
 import it.infn.mw.iam.api.account.AccountUtils;
 import it.infn.mw.iam.api.aup.AUPSignatureCheckService;
 import it.infn.mw.iam.authn.ExternalAuthenticationInfoProcessor;
+import it.infn.mw.iam.config.password.PasswordHashingProperties;
+import it.infn.mw.iam.core.jpa.QueryAccounting;
+import it.infn.mw.iam.core.jpa.QueryAccountingFilter;
 import it.infn.mw.iam.core.oauth.IamIntrospectionResultAssembler;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimingFilter;
 import it.infn.mw.iam.core.oauth.profile.IamTokenEnhancer;
 import it.infn.mw.iam.core.oauth.profile.JWTProfile;
 import it.infn.mw.iam.core.oauth.profile.JWTProfileResolver;
@@ -75,7 +79,9 @@ import it.infn.mw.iam.core.oauth.scope.matchers.DefaultScopeMatcherRegistry;
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcherRegistry;
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatchersProperties;
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatchersPropertiesParser;
+import it.infn.mw.iam.core.password.BoundedPasswordEncoder;
 import it.infn.mw.iam.core.web.EnforceAupFilter;
+import it.infn.mw.iam.core.web.PasswordHashingUnavailableFilter;
 import it.infn.mw.iam.notification.NotificationProperties;
 import it.infn.mw.iam.notification.service.resolver.AddressResolutionService;
 import it.infn.mw.iam.notification.service.resolver.AdminNotificationDeliveryStrategy;
@@ -230,8 +236,31 @@ public class IamConfig {
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public BoundedPasswordEncoder passwordEncoder(PasswordHashingProperties properties) {
+    return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), properties);
+  }
+
+  @Bean
+  FilterRegistrationBean passwordHashingUnavailableFilter() {
+    FilterRegistrationBean frb =
+        new FilterRegistrationBean(new PasswordHashingUnavailableFilter());
+    frb.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+    return frb;
+  }
+
+  @Bean
+  FilterRegistrationBean tokenIssuanceTimingFilter(TokenIssuanceTimer timer) {
+    FilterRegistrationBean frb = new FilterRegistrationBean(new TokenIssuanceTimingFilter(timer));
+    frb.addUrlPatterns("/token", "/authorize");
+    frb.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+    return frb;
+  }
+
+  @Bean
+  FilterRegistrationBean queryAccountingFilter(QueryAccounting accounting) {
+    FilterRegistrationBean frb = new FilterRegistrationBean(new QueryAccountingFilter(accounting));
+    frb.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+    return frb;
   }
 
   @Bean
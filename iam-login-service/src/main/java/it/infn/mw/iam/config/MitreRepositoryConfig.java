@@ -25,7 +25,6 @@ import org.mitre.oauth2.repository.impl.JpaAuthenticationHolderRepository;
 import org.mitre.oauth2.repository.impl.JpaAuthorizationCodeRepository;
 import org.mitre.oauth2.repository.impl.JpaDeviceCodeRepository;
 import org.mitre.oauth2.repository.impl.JpaOAuth2ClientRepository;
-import org.mitre.oauth2.repository.impl.JpaOAuth2TokenRepository;
 import org.mitre.oauth2.repository.impl.JpaSystemScopeRepository;
 import org.mitre.openid.connect.repository.ApprovedSiteRepository;
 import org.mitre.openid.connect.repository.BlacklistedSiteRepository;
@@ -40,6 +39,7 @@ import org.mitre.openid.connect.service.impl.MITREidDataService_1_3;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import it.infn.mw.iam.core.oauth.IamOAuth2TokenRepository;
 import it.infn.mw.iam.persistence.repository.IamUserinfoRepository;
 
 @Configuration
@@ -78,7 +78,7 @@ public class MitreRepositoryConfig {
   @Bean
   OAuth2TokenRepository defaultOAuth2TokenRepository() {
 
-    return new JpaOAuth2TokenRepository();
+    return new IamOAuth2TokenRepository();
   }
 
   @Bean
@@ -87,6 +87,7 @@ import com.google.common.collect.Sets;
 import it.infn.mw.iam.authn.oidc.RestTemplateFactory;
 import it.infn.mw.iam.core.oauth.IamJWKSetCacheService;
 import it.infn.mw.iam.core.oauth.IamOAuth2RequestFactory;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
 import it.infn.mw.iam.core.oauth.profile.JWTProfileResolver;
 import it.infn.mw.iam.core.oauth.scope.IamSystemScopeService;
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcherOAuthRequestValidator;
@@ -172,8 +173,9 @@ public class MitreServicesConfig {
 
   @Bean
   OAuth2RequestFactory requestFactory(IamScopeFilter scopeFilter,
-      JWTProfileResolver profileResolver) {
-    return new IamOAuth2RequestFactory(clientDetailsEntityService(), scopeFilter, profileResolver);
+      JWTProfileResolver profileResolver, TokenIssuanceTimer timer) {
+    return new IamOAuth2RequestFactory(clientDetailsEntityService(), scopeFilter, profileResolver,
+        timer);
   }
 
   @Bean
@@ -315,7 +317,7 @@ public class MitreServicesConfig {
   @Bean
   JWKSetCacheService defaultCacheService(RestTemplateFactory rtf) {
 
-    return new IamJWKSetCacheService(rtf, 100, 1, TimeUnit.HOURS);
+    return new IamJWKSetCacheService(rtf, 100, 1, 24, TimeUnit.HOURS);
   }
 
   @Bean
@@ -19,9 +19,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
+
 import org.mitre.oauth2.service.DeviceCodeService;
-import org.mitre.oauth2.service.OAuth2TokenEntityService;
-import org.mitre.openid.connect.service.ApprovedSiteService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,12 +34,28 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import it.infn.mw.iam.config.cache.CacheInvalidationProperties;
+import it.infn.mw.iam.config.jdbc.ReadReplicaProperties;
 import it.infn.mw.iam.config.lifecycle.LifecycleProperties;
+import it.infn.mw.iam.config.session.SessionStoreProperties;
+import it.infn.mw.iam.config.tokens.TokenRevocationProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.jdbc.ReplicaLagMonitor;
+import it.infn.mw.iam.core.jpa.QueryAccounting;
 import it.infn.mw.iam.core.lifecycle.ExpiredAccountsHandler;
+import it.infn.mw.iam.core.lifecycle.ExpiredTokensCleanupTask;
+import it.infn.mw.iam.core.lifecycle.OrphanTokensCleanupTask;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocationService;
+import it.infn.mw.iam.core.session.JdbcSessionRepository;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.notification.NotificationDelivery;
 import it.infn.mw.iam.notification.NotificationDeliveryTask;
+import it.infn.mw.iam.notification.NotificationProperties;
+import it.infn.mw.iam.notification.NotificationTemplateCache;
 import it.infn.mw.iam.notification.service.NotificationStoreService;
+import it.infn.mw.iam.registration.availability.AccountAvailabilityIndex;
 
 @Configuration
 @EnableScheduling
@@ -56,12 +72,6 @@ public class TaskConfig implements SchedulingConfigurer {
   public static final long ONE_HOUR_MSEC = 60 * ONE_MINUTE_MSEC;
   public static final long ONE_DAY_MSEC = 24 * ONE_HOUR_MSEC;
 
-  @Autowired
-  OAuth2TokenEntityService tokenEntityService;
-
-  @Autowired
-  ApprovedSiteService approvedSiteService;
-
   @Autowired
   NotificationStoreService notificationStoreService;
 
@@ -77,46 +87,108 @@ public class TaskConfig implements SchedulingConfigurer {
   @Autowired
   NotificationDeliveryTask deliveryTask;
 
+  @Autowired
+  NotificationProperties notificationProperties;
+
+  @Autowired
+  NotificationTemplateCache notificationTemplateCache;
+
   @Autowired
   LifecycleProperties lifecycleProperties;
 
   @Autowired
   ExpiredAccountsHandler expiredAccountsHandler;
 
+  @Autowired
+  OrphanTokensCleanupTask orphanTokensCleanupTask;
+
+  @Autowired
+  ExpiredTokensCleanupTask expiredTokensCleanupTask;
+
+  @Autowired
+  QueryAccounting queryAccounting;
+
+  @Autowired
+  AccountAvailabilityIndex availabilityIndex;
+
+  @Autowired
+  SessionStoreProperties sessionStoreProperties;
+
+  @Autowired(required = false)
+  JdbcSessionRepository sessionRepository;
+
+  @Autowired
+  CacheInvalidationProperties cacheInvalidationProperties;
+
+  @Autowired
+  CacheInvalidationBus cacheInvalidationBus;
+
+  @Autowired
+  ReadReplicaProperties readReplicaProperties;
+
+  @Autowired(required = false)
+  ReplicaLagMonitor replicaLagMonitor;
+
+  @Autowired
+  TokenRevocationService tokenRevocationService;
+
+  @Autowired
+  TokenRevocationProperties tokenRevocationProperties;
+
   @Value("${notification.disable}")
   boolean notificationDisabled;
 
   @Value("${notification.taskDelay}")
   long notificationTaskPeriodMsec;
 
+  @Value("${task.tokenCleanupPeriodMsec}")
+  long tokenCleanupPeriodMsec;
+
+  @Value("${task.approvalCleanupPeriodMsec}")
+  long approvalCleanupPeriodMsec;
+
+  // Expired tokens cleanup runs on its own thread, so that long cleanup runs do not delay
+  // the other scheduled tasks
+  private final ScheduledExecutorService tokenCleanupScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("token-cleanup-%d").setDaemon(true).build());
 
   @Bean(destroyMethod = "shutdown")
   public ScheduledExecutorService taskScheduler() {
     return Executors.newSingleThreadScheduledExecutor();
   }
 
-  @Scheduled(fixedDelayString = "${task.tokenCleanupPeriodMsec}", initialDelay = TEN_MINUTES_MSEC)
-  public void clearExpiredTokens() {
+  @PreDestroy
+  public void shutdownTokenCleanupScheduler() {
+    tokenCleanupScheduler.shutdownNow();
+  }
 
-    tokenEntityService.clearExpiredTokens();
+  private Runnable accounted(String taskName, Runnable task) {
+    return () -> queryAccounting.account("task " + taskName, task);
   }
 
-  @Scheduled(fixedDelayString = "${task.approvalCleanupPeriodMsec}",
+  @Scheduled(fixedDelayString = "${task.orphanTokenCleanupPeriodMsec}",
       initialDelay = TEN_MINUTES_MSEC)
-  public void clearExpiredSites() {
-
-    approvedSiteService.clearExpiredSites();
+  public void clearOrphanTokens() {
+    accounted("orphan-tokens-cleanup", orphanTokensCleanupTask).run();
   }
 
   @Scheduled(fixedDelay = THIRTY_SECONDS_MSEC, initialDelay = TEN_MINUTES_MSEC)
   public void clearExpiredNotifications() {
-    notificationStoreService.clearExpiredNotifications();
+    accounted("expired-notifications-cleanup", notificationStoreService::clearExpiredNotifications)
+      .run();
   }
 
   @Scheduled(fixedDelayString = "${task.deviceCodeCleanupPeriodMsec}",
       initialDelay = TEN_MINUTES_MSEC)
   public void clearExpiredDeviceCodes() {
-    deviceCodeService.clearExpiredDeviceCodes();
+    accounted("expired-device-codes-cleanup", deviceCodeService::clearExpiredDeviceCodes).run();
+  }
+
+  @Scheduled(fixedDelayString = "${registration-availability.refresh-period-msec}",
+      initialDelay = ONE_MINUTE_MSEC)
+  public void refreshAccountAvailabilityIndex() {
+    accounted("account-availability-index-refresh", availabilityIndex::catchUp).run();
   }
 
   public void schedulePendingNotificationsDelivery(final ScheduledTaskRegistrar taskRegistrar) {
@@ -130,7 +202,21 @@ public class TaskConfig implements SchedulingConfigurer {
     LOG.info("Scheduling pending notification delivery task to run every {} sec",
         TimeUnit.MILLISECONDS.toSeconds(notificationTaskPeriodMsec));
 
-    taskRegistrar.addFixedRateTask(deliveryTask, notificationTaskPeriodMsec);
+    taskRegistrar.addFixedRateTask(accounted("notification-delivery", deliveryTask),
+        notificationTaskPeriodMsec);
+  }
+
+  public void scheduleNotificationTemplateReload(final ScheduledTaskRegistrar taskRegistrar) {
+    final long period = notificationProperties.getTemplateReloadPeriodMsec();
+
+    if (period <= 0) {
+      return;
+    }
+
+    LOG.info("Scheduling notification templates reload every {} msec", period);
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Notification templates reload", notificationTemplateCache::reload), period);
   }
 
   public void scheduledExpiredAccountsTask(final ScheduledTaskRegistrar taskRegistrar) {
@@ -140,15 +226,116 @@ public class TaskConfig implements SchedulingConfigurer {
       final String cronSchedule =
           lifecycleProperties.getAccount().getExpiredAccountsTask().getCronSchedule();
       LOG.info("Scheduling expired accounts handler task with schedule: {}", cronSchedule);
-      taskRegistrar.addCronTask(expiredAccountsHandler, cronSchedule);
+      taskRegistrar.addCronTask(accounted("expired-accounts", expiredAccountsHandler),
+          cronSchedule);
+    }
+  }
+
+  private Runnable logErrors(String taskName, Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("{} task failed: {}", taskName, e.getMessage(), e);
+      }
+    };
+  }
+
+  public void scheduleExpiredTokensCleanup() {
+    LOG.info("Scheduling expired tokens cleanup task to run every {} sec",
+        TimeUnit.MILLISECONDS.toSeconds(tokenCleanupPeriodMsec));
+
+    tokenCleanupScheduler.scheduleWithFixedDelay(
+        logErrors("Expired tokens cleanup", accounted("expired-tokens-cleanup",
+            expiredTokensCleanupTask::cleanupExpiredTokens)),
+        TEN_MINUTES_MSEC, tokenCleanupPeriodMsec, TimeUnit.MILLISECONDS);
+
+    LOG.info("Scheduling expired approved sites cleanup task to run every {} sec",
+        TimeUnit.MILLISECONDS.toSeconds(approvalCleanupPeriodMsec));
+
+    tokenCleanupScheduler.scheduleWithFixedDelay(
+        logErrors("Expired approved sites cleanup", accounted("expired-approved-sites-cleanup",
+            expiredTokensCleanupTask::cleanupExpiredApprovedSites)),
+        TEN_MINUTES_MSEC, approvalCleanupPeriodMsec, TimeUnit.MILLISECONDS);
+  }
+
+  public void scheduleSessionStoreTasks(final ScheduledTaskRegistrar taskRegistrar) {
+    if (sessionRepository == null) {
+      return;
+    }
+
+    LOG.info("Scheduling session store tasks: access time flush every {} msec, "
+        + "expired sessions cleanup every {} msec",
+        sessionStoreProperties.getAccessTimeFlushPeriodMsec(),
+        sessionStoreProperties.getCleanupPeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Session access time flush", sessionRepository::flushAccessTimes),
+        sessionStoreProperties.getAccessTimeFlushPeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Expired sessions cleanup",
+            accounted("expired-sessions-cleanup", sessionRepository::deleteExpiredSessions)),
+        sessionStoreProperties.getCleanupPeriodMsec());
+  }
+
+  public void scheduleCacheInvalidationTasks(final ScheduledTaskRegistrar taskRegistrar) {
+    if (!cacheInvalidationProperties.isEnabled()) {
+      LOG.info("Cross-replica cache invalidation is disabled");
+      return;
     }
+
+    LOG.info("Scheduling cache invalidation polling every {} msec",
+        cacheInvalidationProperties.getPollPeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Cache invalidation polling", cacheInvalidationBus::poll),
+        cacheInvalidationProperties.getPollPeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Cache invalidation cleanup",
+            accounted("cache-invalidation-cleanup", cacheInvalidationBus::deleteOldInvalidations)),
+        cacheInvalidationProperties.getCleanupPeriodMsec());
+  }
+
+  public void scheduleReplicaLagCheck(final ScheduledTaskRegistrar taskRegistrar) {
+    if (replicaLagMonitor == null) {
+      return;
+    }
+
+    LOG.info("Scheduling read replica lag check every {} msec",
+        readReplicaProperties.getLagCheckPeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(logErrors("Read replica lag check", replicaLagMonitor::check),
+        readReplicaProperties.getLagCheckPeriodMsec());
+  }
+
+  public void scheduleTokenRevocationTasks(final ScheduledTaskRegistrar taskRegistrar) {
+    LOG.info("Scheduling unfinished token revocations resume every {} msec",
+        tokenRevocationProperties.getResumePeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Token revocations resume", tokenRevocationService::resumeUnfinishedRevocations),
+        tokenRevocationProperties.getResumePeriodMsec());
+
+    taskRegistrar.addFixedDelayTask(
+        logErrors("Completed token revocations cleanup",
+            accounted("token-revocations-cleanup",
+                tokenRevocationService::deleteCompletedRevocations)),
+        ONE_HOUR_MSEC);
   }
 
   @Override
   public void configureTasks(final ScheduledTaskRegistrar taskRegistrar) {
     taskRegistrar.setScheduler(taskScheduler());
     schedulePendingNotificationsDelivery(taskRegistrar);
+    scheduleNotificationTemplateReload(taskRegistrar);
     scheduledExpiredAccountsTask(taskRegistrar);
+    scheduleExpiredTokensCleanup();
+    scheduleSessionStoreTasks(taskRegistrar);
+    scheduleCacheInvalidationTasks(taskRegistrar);
+    scheduleReplicaLagCheck(taskRegistrar);
+    scheduleTokenRevocationTasks(taskRegistrar);
   }
 
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("batch-jobs")
+@Configuration
+@Validated
+public class BatchJobProperties {
+
+  @Min(value = 1L)
+  int chunkSize = 100;
+
+  Map<String, Integer> jobChunkSize = new HashMap<>();
+
+  @Min(value = 1L)
+  long leaseTimeoutMsec = 300000;
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  public Map<String, Integer> getJobChunkSize() {
+    return jobChunkSize;
+  }
+
+  public void setJobChunkSize(Map<String, Integer> jobChunkSize) {
+    this.jobChunkSize = jobChunkSize;
+  }
+
+  public long getLeaseTimeoutMsec() {
+    return leaseTimeoutMsec;
+  }
+
+  public void setLeaseTimeoutMsec(long leaseTimeoutMsec) {
+    this.leaseTimeoutMsec = leaseTimeoutMsec;
+  }
+
+  public int chunkSizeForJob(String jobName) {
+    Integer size = jobChunkSize.get(jobName);
+
+    if (size == null || size < 1) {
+      return chunkSize;
+    }
+
+    return size;
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.cache;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("cache-invalidation")
+@Configuration
+@Validated
+public class CacheInvalidationProperties {
+
+  boolean enabled = false;
+
+  @Min(value = 100L)
+  long pollPeriodMsec = 1000;
+
+  @Min(value = 1L)
+  int pollBatchSize = 500;
+
+  @Min(value = 0L)
+  long gapTimeoutMsec = 30000;
+
+  @Min(value = 60L)
+  long retentionSecs = 3600;
+
+  @Min(value = 1000L)
+  long cleanupPeriodMsec = 300000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getPollPeriodMsec() {
+    return pollPeriodMsec;
+  }
+
+  public void setPollPeriodMsec(long pollPeriodMsec) {
+    this.pollPeriodMsec = pollPeriodMsec;
+  }
+
+  public int getPollBatchSize() {
+    return pollBatchSize;
+  }
+
+  public void setPollBatchSize(int pollBatchSize) {
+    this.pollBatchSize = pollBatchSize;
+  }
+
+  public long getGapTimeoutMsec() {
+    return gapTimeoutMsec;
+  }
+
+  public void setGapTimeoutMsec(long gapTimeoutMsec) {
+    this.gapTimeoutMsec = gapTimeoutMsec;
+  }
+
+  public long getRetentionSecs() {
+    return retentionSecs;
+  }
+
+  public void setRetentionSecs(long retentionSecs) {
+    this.retentionSecs = retentionSecs;
+  }
+
+  public long getCleanupPeriodMsec() {
+    return cleanupPeriodMsec;
+  }
+
+  public void setCleanupPeriodMsec(long cleanupPeriodMsec) {
+    this.cleanupPeriodMsec = cleanupPeriodMsec;
+  }
+}
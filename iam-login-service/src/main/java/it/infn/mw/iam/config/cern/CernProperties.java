@@ -38,6 +38,9 @@ public class CernProperties {
     @Min(value = 5L)
     int pageSize = 50;
 
+    @Min(value = 1L)
+    int syncThreads = 4;
+
     public boolean isEnabled() {
       return enabled;
     }
@@ -61,6 +64,14 @@ public class CernProperties {
     public void setPageSize(int pageSize) {
       this.pageSize = pageSize;
     }
+
+    public int getSyncThreads() {
+      return syncThreads;
+    }
+
+    public void setSyncThreads(int syncThreads) {
+      this.syncThreads = syncThreads;
+    }
   }
 
   public static class HrDbApiProperties {
@@ -74,6 +85,15 @@ public class CernProperties {
     @NotBlank
     String password = "password";
 
+    @Min(value = 1L)
+    int maxConcurrentRequests = 4;
+
+    @Min(value = 1L)
+    int circuitBreakerFailureThreshold = 10;
+
+    @Min(value = 1L)
+    long circuitBreakerOpenTimeSecs = 60;
+
     public String getUrl() {
       return url;
     }
@@ -97,6 +117,30 @@ public class CernProperties {
     public void setPassword(String password) {
       this.password = password;
     }
+
+    public int getMaxConcurrentRequests() {
+      return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+      this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+      return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+      this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenTimeSecs() {
+      return circuitBreakerOpenTimeSecs;
+    }
+
+    public void setCircuitBreakerOpenTimeSecs(long circuitBreakerOpenTimeSecs) {
+      this.circuitBreakerOpenTimeSecs = circuitBreakerOpenTimeSecs;
+    }
   }
 
   @NotBlank
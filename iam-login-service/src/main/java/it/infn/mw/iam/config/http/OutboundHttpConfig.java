@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.http;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import it.infn.mw.iam.core.error.StartupError;
+import it.infn.mw.iam.core.http.InstrumentedHttpRequestExecutor;
+import it.infn.mw.iam.core.http.OutboundHttpMetrics;
+
+/**
+ * The HTTP client shared by all outbound integrations (external OpenID Connect providers, JWK set
+ * and discovery fetching, CERN HR DB, RCAuth).
+ *
+ * Connections are pooled and kept alive per destination. Each destination can only lease a
+ * bounded number of connections, and requests waiting for a connection fail after the configured
+ * connection request timeout, so that a slow destination cannot tie up the threads serving
+ * requests that depend on other destinations.
+ *
+ * When the <code>canl</code> profile is active, TLS connections are validated against the CANL
+ * trust anchors.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+  public static final Logger LOG = LoggerFactory.getLogger(OutboundHttpConfig.class);
+
+  @Autowired
+  OutboundHttpProperties properties;
+
+  @Autowired(required = false)
+  @Qualifier("canlSslContext")
+  SSLContext canlSslContext;
+
+  SSLConnectionSocketFactory sslSocketFactory() {
+    if (canlSslContext != null) {
+      return new SSLConnectionSocketFactory(canlSslContext);
+    }
+    return SSLConnectionSocketFactory.getSystemSocketFactory();
+  }
+
+  static HttpRoute routeFor(String destination) {
+    try {
+      HttpHost host = HttpHost.create(destination);
+      int port = DefaultSchemePortResolver.INSTANCE.resolve(host);
+      HttpHost target = new HttpHost(host.getHostName(), port, host.getSchemeName());
+      return new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+    } catch (Exception e) {
+      throw new StartupError("Invalid outbound HTTP destination: " + destination, e);
+    }
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public PoolingHttpClientConnectionManager outboundConnectionManager() {
+
+    Registry<ConnectionSocketFactory> socketFactoryRegistry =
+        RegistryBuilder.<ConnectionSocketFactory>create()
+          .register("https", sslSocketFactory())
+          .register("http", PlainConnectionSocketFactory.getSocketFactory())
+          .build();
+
+    PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+
+    connectionManager.setMaxTotal(properties.getMaxTotalConnections());
+    connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerDestination());
+
+    for (Map.Entry<String, Integer> e : properties.getDestinationMaxConnections().entrySet()) {
+      connectionManager.setMaxPerRoute(routeFor(e.getKey()), e.getValue());
+      LOG.info("Outbound HTTP connections to {} limited to {}", e.getKey(), e.getValue());
+    }
+
+    return connectionManager;
+  }
+
+  @Bean
+  public OutboundHttpMetrics outboundHttpMetrics() {
+    return new OutboundHttpMetrics(outboundConnectionManager(),
+        properties.getMaxTrackedDestinations());
+  }
+
+  ConnectionKeepAliveStrategy keepAliveStrategy() {
+    final long defaultKeepAliveMsec = TimeUnit.SECONDS.toMillis(properties.getKeepAliveSecs());
+
+    return (response, context) -> {
+      long keepAlive =
+          DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return keepAlive > 0 ? Math.min(keepAlive, defaultKeepAliveMsec) : defaultKeepAliveMsec;
+    };
+  }
+
+  @Bean(name = "outboundHttpClient")
+  public CloseableHttpClient outboundHttpClient() {
+
+    RequestConfig requestConfig = RequestConfig.custom()
+      .setConnectTimeout(properties.getConnectTimeoutMsec())
+      .setSocketTimeout(properties.getReadTimeoutMsec())
+      .setConnectionRequestTimeout(properties.getConnectionRequestTimeoutMsec())
+      .build();
+
+    return HttpClientBuilder.create()
+      .useSystemProperties()
+      .setConnectionManager(outboundConnectionManager())
+      .setDefaultRequestConfig(requestConfig)
+      .setKeepAliveStrategy(keepAliveStrategy())
+      .setRequestExecutor(new InstrumentedHttpRequestExecutor(outboundHttpMetrics()))
+      .evictExpiredConnections()
+      .evictIdleConnections(properties.getIdleConnectionTimeoutSecs(), TimeUnit.SECONDS)
+      .disableAuthCaching()
+      .build();
+  }
+
+  @Bean(name = "outboundRequestFactory")
+  public ClientHttpRequestFactory outboundRequestFactory() {
+    return new HttpComponentsClientHttpRequestFactory(outboundHttpClient());
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.http;
+
+import java.util.Map;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import com.google.common.collect.Maps;
+
+@ConfigurationProperties("outbound-http")
+@Configuration
+@Validated
+public class OutboundHttpProperties {
+
+  @Min(value = 1L)
+  int connectTimeoutMsec = 5000;
+
+  @Min(value = 1L)
+  int readTimeoutMsec = 30000;
+
+  @Min(value = 0L)
+  int connectionRequestTimeoutMsec = 2000;
+
+  @Min(value = 1L)
+  int maxTotalConnections = 200;
+
+  @Min(value = 1L)
+  int maxConnectionsPerDestination = 20;
+
+  Map<String, Integer> destinationMaxConnections = Maps.newHashMap();
+
+  @Min(value = 1L)
+  long keepAliveSecs = 30;
+
+  @Min(value = 1L)
+  long idleConnectionTimeoutSecs = 60;
+
+  @Min(value = 1L)
+  int maxTrackedDestinations = 100;
+
+  boolean asyncRequestsEnabled = true;
+
+  @Min(value = 1L)
+  int asyncMaxThreads = 20;
+
+  @Min(value = 0L)
+  int asyncQueueCapacity = 100;
+
+  @Min(value = 1L)
+  long asyncRequestTimeoutMsec = 60000;
+
+  public int getConnectTimeoutMsec() {
+    return connectTimeoutMsec;
+  }
+
+  public void setConnectTimeoutMsec(int connectTimeoutMsec) {
+    this.connectTimeoutMsec = connectTimeoutMsec;
+  }
+
+  public int getReadTimeoutMsec() {
+    return readTimeoutMsec;
+  }
+
+  public void setReadTimeoutMsec(int readTimeoutMsec) {
+    this.readTimeoutMsec = readTimeoutMsec;
+  }
+
+  public int getConnectionRequestTimeoutMsec() {
+    return connectionRequestTimeoutMsec;
+  }
+
+  public void setConnectionRequestTimeoutMsec(int connectionRequestTimeoutMsec) {
+    this.connectionRequestTimeoutMsec = connectionRequestTimeoutMsec;
+  }
+
+  public int getMaxTotalConnections() {
+    return maxTotalConnections;
+  }
+
+  public void setMaxTotalConnections(int maxTotalConnections) {
+    this.maxTotalConnections = maxTotalConnections;
+  }
+
+  public int getMaxConnectionsPerDestination() {
+    return maxConnectionsPerDestination;
+  }
+
+  public void setMaxConnectionsPerDestination(int maxConnectionsPerDestination) {
+    this.maxConnectionsPerDestination = maxConnectionsPerDestination;
+  }
+
+  public Map<String, Integer> getDestinationMaxConnections() {
+    return destinationMaxConnections;
+  }
+
+  public void setDestinationMaxConnections(Map<String, Integer> destinationMaxConnections) {
+    this.destinationMaxConnections = destinationMaxConnections;
+  }
+
+  public long getKeepAliveSecs() {
+    return keepAliveSecs;
+  }
+
+  public void setKeepAliveSecs(long keepAliveSecs) {
+    this.keepAliveSecs = keepAliveSecs;
+  }
+
+  public long getIdleConnectionTimeoutSecs() {
+    return idleConnectionTimeoutSecs;
+  }
+
+  public void setIdleConnectionTimeoutSecs(long idleConnectionTimeoutSecs) {
+    this.idleConnectionTimeoutSecs = idleConnectionTimeoutSecs;
+  }
+
+  public int getMaxTrackedDestinations() {
+    return maxTrackedDestinations;
+  }
+
+  public void setMaxTrackedDestinations(int maxTrackedDestinations) {
+    this.maxTrackedDestinations = maxTrackedDestinations;
+  }
+
+  public boolean isAsyncRequestsEnabled() {
+    return asyncRequestsEnabled;
+  }
+
+  public void setAsyncRequestsEnabled(boolean asyncRequestsEnabled) {
+    this.asyncRequestsEnabled = asyncRequestsEnabled;
+  }
+
+  public int getAsyncMaxThreads() {
+    return asyncMaxThreads;
+  }
+
+  public void setAsyncMaxThreads(int asyncMaxThreads) {
+    this.asyncMaxThreads = asyncMaxThreads;
+  }
+
+  public int getAsyncQueueCapacity() {
+    return asyncQueueCapacity;
+  }
+
+  public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+    this.asyncQueueCapacity = asyncQueueCapacity;
+  }
+
+  public long getAsyncRequestTimeoutMsec() {
+    return asyncRequestTimeoutMsec;
+  }
+
+  public void setAsyncRequestTimeoutMsec(long asyncRequestTimeoutMsec) {
+    this.asyncRequestTimeoutMsec = asyncRequestTimeoutMsec;
+  }
+}
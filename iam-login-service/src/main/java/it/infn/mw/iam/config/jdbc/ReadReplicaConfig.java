@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.jdbc;
+
+import java.time.Clock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import it.infn.mw.iam.core.jdbc.ReplicaLagMonitor;
+import it.infn.mw.iam.core.jdbc.ReplicaRoutingDataSource;
+
+/**
+ * Sends read-only transactions to a read replica of the IAM database. Enabled by setting
+ * <code>read-replica.enabled</code> to <code>true</code>; the replica connection pool is
+ * configured with the <code>read-replica.datasource</code> properties, which support the same
+ * settings as <code>spring.datasource</code>.
+ */
+@Configuration
+@ConditionalOnProperty(name = "read-replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+  @Bean
+  @ConfigurationProperties(prefix = "spring.datasource")
+  DataSource primaryDataSource(DataSourceProperties properties) {
+    return DataSourceBuilder.create(properties.getClassLoader())
+      .driverClassName(properties.getDriverClassName())
+      .url(properties.getUrl())
+      .username(properties.getUsername())
+      .password(properties.getPassword())
+      .build();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "read-replica.datasource")
+  DataSource replicaDataSource() {
+    return DataSourceBuilder.create().build();
+  }
+
+  @Bean
+  ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica, Clock clock,
+      ReadReplicaProperties properties) {
+    return new ReplicaLagMonitor(primary, replica, clock, properties.getMaxLagMsec());
+  }
+
+  @Bean
+  ReplicaRoutingDataSource replicaRoutingDataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica, ReplicaLagMonitor lagMonitor,
+      Clock clock, ReadReplicaProperties properties) {
+    return new ReplicaRoutingDataSource(primary, replica, lagMonitor, clock,
+        properties.getReadYourWritesWindowMsec());
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.jdbc;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("read-replica")
+@Configuration
+@Validated
+public class ReadReplicaProperties {
+
+  boolean enabled = false;
+
+  @Min(value = 0L)
+  long maxLagMsec = 5000;
+
+  @Min(value = 100L)
+  long lagCheckPeriodMsec = 1000;
+
+  @Min(value = 0L)
+  long readYourWritesWindowMsec = 5000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getMaxLagMsec() {
+    return maxLagMsec;
+  }
+
+  public void setMaxLagMsec(long maxLagMsec) {
+    this.maxLagMsec = maxLagMsec;
+  }
+
+  public long getLagCheckPeriodMsec() {
+    return lagCheckPeriodMsec;
+  }
+
+  public void setLagCheckPeriodMsec(long lagCheckPeriodMsec) {
+    this.lagCheckPeriodMsec = lagCheckPeriodMsec;
+  }
+
+  public long getReadYourWritesWindowMsec() {
+    return readYourWritesWindowMsec;
+  }
+
+  public void setReadYourWritesWindowMsec(long readYourWritesWindowMsec) {
+    this.readYourWritesWindowMsec = readYourWritesWindowMsec;
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.login;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("last-login-updater")
+@Configuration
+@Validated
+public class LastLoginTimeUpdaterProperties {
+
+  boolean async = true;
+
+  @Min(value = 1L)
+  long flushPeriodMsec = 5000;
+
+  @Min(value = 1L)
+  int maxPendingUpdates = 10000;
+
+  public boolean isAsync() {
+    return async;
+  }
+
+  public void setAsync(boolean async) {
+    this.async = async;
+  }
+
+  public long getFlushPeriodMsec() {
+    return flushPeriodMsec;
+  }
+
+  public void setFlushPeriodMsec(long flushPeriodMsec) {
+    this.flushPeriodMsec = flushPeriodMsec;
+  }
+
+  public int getMaxPendingUpdates() {
+    return maxPendingUpdates;
+  }
+
+  public void setMaxPendingUpdates(int maxPendingUpdates) {
+    this.maxPendingUpdates = maxPendingUpdates;
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.metrics;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("query-accounting")
+@Configuration
+@Validated
+public class QueryAccountingProperties {
+
+  boolean enabled = true;
+
+  @Min(value = 1L)
+  int statementsThreshold = 50;
+
+  @Min(value = 0L)
+  long dbTimeThresholdMsec = 500;
+
+  @Min(value = 1L)
+  int maxLoggedQueryShapes = 5;
+
+  @Min(value = 1L)
+  int maxTrackedScopes = 200;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getStatementsThreshold() {
+    return statementsThreshold;
+  }
+
+  public void setStatementsThreshold(int statementsThreshold) {
+    this.statementsThreshold = statementsThreshold;
+  }
+
+  public long getDbTimeThresholdMsec() {
+    return dbTimeThresholdMsec;
+  }
+
+  public void setDbTimeThresholdMsec(long dbTimeThresholdMsec) {
+    this.dbTimeThresholdMsec = dbTimeThresholdMsec;
+  }
+
+  public int getMaxLoggedQueryShapes() {
+    return maxLoggedQueryShapes;
+  }
+
+  public void setMaxLoggedQueryShapes(int maxLoggedQueryShapes) {
+    this.maxLoggedQueryShapes = maxLoggedQueryShapes;
+  }
+
+  public int getMaxTrackedScopes() {
+    return maxTrackedScopes;
+  }
+
+  public void setMaxTrackedScopes(int maxTrackedScopes) {
+    this.maxTrackedScopes = maxTrackedScopes;
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.metrics;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("token-issuance-metrics")
+@Configuration
+@Validated
+public class TokenIssuanceMetricsProperties {
+
+  boolean enabled = true;
+
+  @Min(value = 0L)
+  long slowRequestThresholdMsec = 1000;
+
+  @Min(value = 1L)
+  int maxTrackedClients = 100;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getSlowRequestThresholdMsec() {
+    return slowRequestThresholdMsec;
+  }
+
+  public void setSlowRequestThresholdMsec(long slowRequestThresholdMsec) {
+    this.slowRequestThresholdMsec = slowRequestThresholdMsec;
+  }
+
+  public int getMaxTrackedClients() {
+    return maxTrackedClients;
+  }
+
+  public void setMaxTrackedClients(int maxTrackedClients) {
+    this.maxTrackedClients = maxTrackedClients;
+  }
+}
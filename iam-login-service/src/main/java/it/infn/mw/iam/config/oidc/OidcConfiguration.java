@@ -16,11 +16,13 @@
 package it.infn.mw.iam.config.oidc;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.apache.http.client.HttpClient;
 import org.mitre.jwt.signer.service.impl.JWKSetCacheService;
 import org.mitre.oauth2.model.RegisteredClient;
 import org.mitre.openid.connect.client.OIDCAuthenticationProvider;
@@ -30,7 +32,6 @@ import org.mitre.openid.connect.client.service.AuthRequestUrlBuilder;
 import org.mitre.openid.connect.client.service.ClientConfigurationService;
 import org.mitre.openid.connect.client.service.IssuerService;
 import org.mitre.openid.connect.client.service.ServerConfigurationService;
-import org.mitre.openid.connect.client.service.impl.DynamicServerConfigurationService;
 import org.mitre.openid.connect.client.service.impl.PlainAuthRequestUrlBuilder;
 import org.mitre.openid.connect.client.service.impl.StaticAuthRequestOptionsService;
 import org.mitre.openid.connect.client.service.impl.StaticClientConfigurationService;
@@ -41,9 +42,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
@@ -53,6 +52,7 @@ import org.springframework.security.web.savedrequest.HttpSessionRequestCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import it.infn.mw.iam.api.account.AccountUtils;
 import it.infn.mw.iam.api.aup.AUPSignatureCheckService;
@@ -67,13 +67,16 @@ import it.infn.mw.iam.authn.oidc.DefaultRestTemplateFactory;
 import it.infn.mw.iam.authn.oidc.OidcAuthenticationProvider;
 import it.infn.mw.iam.authn.oidc.OidcClientFilter;
 import it.infn.mw.iam.authn.oidc.OidcExceptionMessageHelper;
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics;
 import it.infn.mw.iam.authn.oidc.OidcTokenRequestor;
 import it.infn.mw.iam.authn.oidc.RestTemplateFactory;
+import it.infn.mw.iam.authn.oidc.service.CachingServerConfigurationService;
 import it.infn.mw.iam.authn.oidc.service.DefaultOidcUserDetailsService;
 import it.infn.mw.iam.authn.oidc.service.NullClientConfigurationService;
 import it.infn.mw.iam.authn.oidc.service.OidcUserDetailsService;
 import it.infn.mw.iam.authn.util.SessionTimeoutHelper;
 import it.infn.mw.iam.core.IamThirdPartyIssuerService;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @Configuration
@@ -83,7 +86,7 @@ public class OidcConfiguration {
   private String iamBaseUrl;
 
   @Autowired
-  private IamAccountRepository accountRepo;
+  private LastLoginTimeUpdater lastLoginTimeUpdater;
 
   @Autowired
   private AUPSignatureCheckService aupSignatureCheckService;
@@ -109,7 +112,8 @@ public class OidcConfiguration {
       IssuerService issuerService, ServerConfigurationService serverConfigurationService,
       ClientConfigurationService clientConfigurationService,
       AuthRequestUrlBuilder authRequestUrlBuilder,
-      AuthRequestOptionsService authRequestOptionsService, JWKSetCacheService validationServices) {
+      AuthRequestOptionsService authRequestOptionsService, JWKSetCacheService validationServices,
+      OidcProviderMetrics metrics) {
 
     OidcClientFilter filter = new OidcClientFilter();
     filter.setAuthenticationManager(oidcAuthenticationManager);
@@ -122,21 +126,14 @@ public class OidcConfiguration {
     filter.setAuthenticationFailureHandler(failureHandler);
     filter.setValidationServices(validationServices);
     filter.setTokenRequestor(tokenRequestor);
+    filter.setMetrics(metrics);
 
     return filter;
   }
 
   @Bean
-  @Profile("!canl")
-  public RestTemplateFactory restTemplateFactory() {
-
-    return new DefaultRestTemplateFactory(new HttpComponentsClientHttpRequestFactory());
-  }
-
-  @Bean
-  @Profile("canl")
-  public RestTemplateFactory canlRestTemplateFactory(
-      @Qualifier("canlRequestFactory") ClientHttpRequestFactory rf) {
+  public RestTemplateFactory restTemplateFactory(
+      @Qualifier("outboundRequestFactory") ClientHttpRequestFactory rf) {
 
     return new DefaultRestTemplateFactory(rf);
   }
@@ -154,7 +151,7 @@ public class OidcConfiguration {
         new RootIsDashboardSuccessHandler(iamBaseUrl, new HttpSessionRequestCache());
 
     EnforceAupSignatureSuccessHandler successHandler = new EnforceAupSignatureSuccessHandler(sa,
-        aupSignatureCheckService, accountUtils, accountRepo);
+        aupSignatureCheckService, accountUtils, lastLoginTimeUpdater);
 
     return new ExternalAuthenticationSuccessHandler(successHandler, "/");
   }
@@ -184,19 +181,24 @@ public class OidcConfiguration {
     return new IamThirdPartyIssuerService();
   }
 
-  @Bean
-  @Profile("!canl")
-  public ServerConfigurationService dynamicServerConfiguration() {
-
-    return new DynamicServerConfigurationService();
+  @Bean(name = "oidcProviderMetadataRefreshExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService oidcProviderMetadataRefreshExecutor() {
+    return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("oidc-provider-metadata-refresh-%d")
+      .setDaemon(true)
+      .build());
   }
 
   @Bean
-  @Profile("canl")
-  public ServerConfigurationService canlDynamicServerConfiguration(
-      @Qualifier("canlHttpClient") HttpClient client) {
-
-    return new DynamicServerConfigurationService(client);
+  public CachingServerConfigurationService dynamicServerConfiguration(
+      RestTemplateFactory restTemplateFactory, ObjectMapper mapper, OidcProviderMetrics metrics,
+      JWKSetCacheService validationServices, Clock clock,
+      OidcProviderMetadataProperties properties) {
+
+    return new CachingServerConfigurationService(restTemplateFactory, mapper, metrics,
+        validationServices, oidcProviderMetadataRefreshExecutor(), clock,
+        Duration.ofSeconds(properties.getRefreshPeriodSecs()),
+        Duration.ofSeconds(properties.getMaxStaleSecs()));
   }
 
   public boolean configuredProvider(OidcProvider provider) {
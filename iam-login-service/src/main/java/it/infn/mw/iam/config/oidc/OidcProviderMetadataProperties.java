@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.oidc;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("oidc-provider-metadata")
+@Configuration
+@Validated
+public class OidcProviderMetadataProperties {
+
+  boolean prefetchOnStartup = true;
+
+  @Min(value = 1L)
+  long refreshPeriodSecs = 3600;
+
+  @Min(value = 1L)
+  long maxStaleSecs = 86400;
+
+  @Min(value = 1L)
+  int maxTrackedProviders = 50;
+
+  public boolean isPrefetchOnStartup() {
+    return prefetchOnStartup;
+  }
+
+  public void setPrefetchOnStartup(boolean prefetchOnStartup) {
+    this.prefetchOnStartup = prefetchOnStartup;
+  }
+
+  public long getRefreshPeriodSecs() {
+    return refreshPeriodSecs;
+  }
+
+  public void setRefreshPeriodSecs(long refreshPeriodSecs) {
+    this.refreshPeriodSecs = refreshPeriodSecs;
+  }
+
+  public long getMaxStaleSecs() {
+    return maxStaleSecs;
+  }
+
+  public void setMaxStaleSecs(long maxStaleSecs) {
+    this.maxStaleSecs = maxStaleSecs;
+  }
+
+  public int getMaxTrackedProviders() {
+    return maxTrackedProviders;
+  }
+
+  public void setMaxTrackedProviders(int maxTrackedProviders) {
+    this.maxTrackedProviders = maxTrackedProviders;
+  }
+}
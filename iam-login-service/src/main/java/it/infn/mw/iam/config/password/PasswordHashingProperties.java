@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.password;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("password-hashing")
+@Configuration
+@Validated
+public class PasswordHashingProperties {
+
+  @Min(value = 1L)
+  int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  @Min(value = 1L)
+  int queueSize = 64;
+
+  @Min(value = 1L)
+  int retryAfterSecs = 5;
+
+  @Min(value = 0L)
+  int maxConcurrentPerUsername = 2;
+
+  // Clients are identified by their remote address: behind a reverse proxy, enable this only
+  // together with server.use-forward-headers (IAM_USE_FORWARDED_HEADERS), otherwise all clients
+  // share the address of the proxy and the same limit. 0 disables the limit
+  @Min(value = 0L)
+  int maxConcurrentPerAddress = 0;
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public int getRetryAfterSecs() {
+    return retryAfterSecs;
+  }
+
+  public void setRetryAfterSecs(int retryAfterSecs) {
+    this.retryAfterSecs = retryAfterSecs;
+  }
+
+  public int getMaxConcurrentPerUsername() {
+    return maxConcurrentPerUsername;
+  }
+
+  public void setMaxConcurrentPerUsername(int maxConcurrentPerUsername) {
+    this.maxConcurrentPerUsername = maxConcurrentPerUsername;
+  }
+
+  public int getMaxConcurrentPerAddress() {
+    return maxConcurrentPerAddress;
+  }
+
+  public void setMaxConcurrentPerAddress(int maxConcurrentPerAddress) {
+    this.maxConcurrentPerAddress = maxConcurrentPerAddress;
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.registration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("registration-availability")
+@Configuration
+@Validated
+public class RegistrationAvailabilityProperties {
+
+  boolean indexEnabled = false;
+
+  @Min(value = 1L)
+  int expectedAccounts = 100000;
+
+  @DecimalMin(value = "0.0001")
+  @DecimalMax(value = "0.5")
+  double falsePositiveProbability = 0.01;
+
+  @Min(value = 1L)
+  int rebuildChunkSize = 500;
+
+  @Min(value = 1000L)
+  long refreshPeriodMsec = 60000;
+
+  // Clients are identified by their remote address: behind a reverse proxy, enable this only
+  // together with server.use-forward-headers (IAM_USE_FORWARDED_HEADERS), otherwise all clients
+  // share the address of the proxy and the same request budget
+  boolean rateLimitEnabled = false;
+
+  @Min(value = 1L)
+  int rateLimitRequests = 120;
+
+  @Min(value = 1L)
+  int rateLimitWindowSecs = 60;
+
+  @Min(value = 1L)
+  int maxTrackedClients = 10000;
+
+  public boolean isIndexEnabled() {
+    return indexEnabled;
+  }
+
+  public void setIndexEnabled(boolean indexEnabled) {
+    this.indexEnabled = indexEnabled;
+  }
+
+  public int getExpectedAccounts() {
+    return expectedAccounts;
+  }
+
+  public void setExpectedAccounts(int expectedAccounts) {
+    this.expectedAccounts = expectedAccounts;
+  }
+
+  public double getFalsePositiveProbability() {
+    return falsePositiveProbability;
+  }
+
+  public void setFalsePositiveProbability(double falsePositiveProbability) {
+    this.falsePositiveProbability = falsePositiveProbability;
+  }
+
+  public int getRebuildChunkSize() {
+    return rebuildChunkSize;
+  }
+
+  public void setRebuildChunkSize(int rebuildChunkSize) {
+    this.rebuildChunkSize = rebuildChunkSize;
+  }
+
+  public long getRefreshPeriodMsec() {
+    return refreshPeriodMsec;
+  }
+
+  public void setRefreshPeriodMsec(long refreshPeriodMsec) {
+    this.refreshPeriodMsec = refreshPeriodMsec;
+  }
+
+  public boolean isRateLimitEnabled() {
+    return rateLimitEnabled;
+  }
+
+  public void setRateLimitEnabled(boolean rateLimitEnabled) {
+    this.rateLimitEnabled = rateLimitEnabled;
+  }
+
+  public int getRateLimitRequests() {
+    return rateLimitRequests;
+  }
+
+  public void setRateLimitRequests(int rateLimitRequests) {
+    this.rateLimitRequests = rateLimitRequests;
+  }
+
+  public int getRateLimitWindowSecs() {
+    return rateLimitWindowSecs;
+  }
+
+  public void setRateLimitWindowSecs(int rateLimitWindowSecs) {
+    this.rateLimitWindowSecs = rateLimitWindowSecs;
+  }
+
+  public int getMaxTrackedClients() {
+    return maxTrackedClients;
+  }
+
+  public void setMaxTrackedClients(int maxTrackedClients) {
+    this.maxTrackedClients = maxTrackedClients;
+  }
+}
@@ -151,13 +151,19 @@ import it.infn.mw.iam.authn.saml.util.IamSamlBootstrap;
 import it.infn.mw.iam.authn.saml.util.IamSamlEntryPoint;
 import it.infn.mw.iam.authn.saml.util.SamlIdResolvers;
 import it.infn.mw.iam.authn.saml.util.SamlUserIdentifierResolver;
+import it.infn.mw.iam.authn.saml.util.SessionSamlMessageStorageFactory;
 import it.infn.mw.iam.authn.saml.util.metadata.ResearchAndScholarshipMetadataFilter;
 import it.infn.mw.iam.authn.saml.util.metadata.SirtfiAttributeMetadataFilter;
 import it.infn.mw.iam.authn.util.SessionTimeoutHelper;
 import it.infn.mw.iam.config.IamProperties;
+import it.infn.mw.iam.config.http.OutboundHttpProperties;
 import it.infn.mw.iam.config.saml.SamlConfig.ServerProperties;
+import it.infn.mw.iam.config.session.SessionStoreProperties;
+import it.infn.mw.iam.config.session.SessionStoreProperties.SessionStoreType;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
 import it.infn.mw.iam.core.time.SystemTimeProvider;
 import it.infn.mw.iam.core.user.IamAccountService;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @Configuration
@@ -190,12 +196,24 @@ public class SamlConfig extends WebSecurityConfigurerAdapter implements Scheduli
   @Autowired
   IamAccountService accountService;
 
+  @Autowired
+  BatchJobRunner batchJobRunner;
+
+  @Autowired
+  LastLoginTimeUpdater lastLoginTimeUpdater;
+
   @Autowired
   IamProperties iamProperties;
 
   @Autowired
   IamSamlProperties samlProperties;
 
+  @Autowired
+  OutboundHttpProperties outboundHttpProperties;
+
+  @Autowired
+  SessionStoreProperties sessionStoreProperties;
+
   @Autowired
   IamSamlJITAccountProvisioningProperties jitProperties;
 
@@ -379,6 +397,12 @@ public class SamlConfig extends WebSecurityConfigurerAdapter implements Scheduli
       .setSoTimeout(
           (int) TimeUnit.SECONDS.toMillis(samlProperties.getHttpClientSocketTimeoutSecs()));
 
+    // SAML metadata is fetched with commons-httpclient 3, which cannot share the outbound
+    // connection pool, but follows the same per-destination limits
+    manager.getParams().setMaxTotalConnections(outboundHttpProperties.getMaxTotalConnections());
+    manager.getParams()
+      .setDefaultMaxConnectionsPerHost(outboundHttpProperties.getMaxConnectionsPerDestination());
+
     return manager;
   }
 
@@ -407,26 +431,37 @@ public class SamlConfig extends WebSecurityConfigurerAdapter implements Scheduli
   @Bean
   public SAMLContextProvider contextProvider(ServerProperties serverProperties) {
 
+    SAMLContextProviderImpl cp;
+
     if (serverProperties.isUseForwardHeaders()) {
-      SAMLContextProviderLB cp = new SAMLContextProviderLB();
+      SAMLContextProviderLB lbcp = new SAMLContextProviderLB();
 
       // Assume https when sitting behind a reverse proxy
-      cp.setScheme("https");
+      lbcp.setScheme("https");
 
       // FIXME: find more reliable way of extracting the iamHost name
-      cp.setServerName(iamProperties.getBaseUrl().substring(8));
-      cp.setServerPort(443);
-      cp.setIncludeServerPortInRequestURL(false);
-      cp.setContextPath("/");
+      lbcp.setServerName(iamProperties.getBaseUrl().substring(8));
+      lbcp.setServerPort(443);
+      lbcp.setIncludeServerPortInRequestURL(false);
+      lbcp.setContextPath("/");
+
+      cp = lbcp;
+    } else {
+      cp = new SAMLContextProviderImpl();
+    }
 
-      return cp;
+    // Sent SAML messages are kept as XML strings in a JDBC-backed session, so that responses
+    // received by any IAM instance can be validated against the request they reply to
+    if (SessionStoreType.JDBC.equals(sessionStoreProperties.getType())) {
+      cp.setStorageFactory(new SessionSamlMessageStorageFactory(parserPool()));
     }
 
-    return new SAMLContextProviderImpl();
+    return cp;
   }
 
 
 
+
   // Logger for SAML messages and events
   @Bean
   public SAMLDefaultLogger samlLogger() {
@@ -701,7 +736,8 @@ public class SamlConfig extends WebSecurityConfigurerAdapter implements Scheduli
         new HttpSessionRequestCache());
 
     EnforceAupSignatureSuccessHandler aup =
-        new EnforceAupSignatureSuccessHandler(sa, aupSignatureCheckService, accountUtils, repo);
+        new EnforceAupSignatureSuccessHandler(sa, aupSignatureCheckService, accountUtils,
+            lastLoginTimeUpdater);
 
     return new ExternalAuthenticationSuccessHandler(aup, "/");
   }
@@ -888,7 +924,7 @@ public class SamlConfig extends WebSecurityConfigurerAdapter implements Scheduli
 
     taskRegistrar.addFixedRateTask(
         new CleanInactiveProvisionedAccounts(new SystemTimeProvider(), accountService,
-            jitProperties.getInactiveAccountLifetimeDays()),
+            repo, batchJobRunner, jitProperties.getInactiveAccountLifetimeDays()),
         TimeUnit.SECONDS.toMillis(jitProperties.getCleanupTaskPeriodSec()));
 
   }
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.scim;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("scim")
+@Configuration
+@Validated
+public class ScimProperties {
+
+  /**
+   * When true, SCIM group resources do not include the members attribute unless it is explicitly
+   * requested with the attributes parameter.
+   */
+  boolean excludeGroupMembersByDefault = false;
+
+  public boolean isExcludeGroupMembersByDefault() {
+    return excludeGroupMembersByDefault;
+  }
+
+  public void setExcludeGroupMembersByDefault(boolean excludeGroupMembersByDefault) {
+    this.excludeGroupMembersByDefault = excludeGroupMembersByDefault;
+  }
+}
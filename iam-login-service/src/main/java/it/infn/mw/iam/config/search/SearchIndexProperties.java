@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.search;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("search-index")
+@Configuration
+@Validated
+public class SearchIndexProperties {
+
+  boolean enabled = false;
+
+  @Min(value = 1L)
+  int rebuildChunkSize = 500;
+
+  @Min(value = 0L)
+  long exactCountThreshold = 10000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getRebuildChunkSize() {
+    return rebuildChunkSize;
+  }
+
+  public void setRebuildChunkSize(int rebuildChunkSize) {
+    this.rebuildChunkSize = rebuildChunkSize;
+  }
+
+  public long getExactCountThreshold() {
+    return exactCountThreshold;
+  }
+
+  public void setExactCountThreshold(long exactCountThreshold) {
+    this.exactCountThreshold = exactCountThreshold;
+  }
+}
@@ -177,7 +177,8 @@ public class IamApiSecurityConfig {
       // @formatter:off
       http
         .requestMatchers()
-          .antMatchers("/metrics", "/info", "/health", "/health/mail", "/health/external",
+          .antMatchers("/metrics", "/metrics/prometheus", "/info", "/health", "/health/mail",
+              "/health/external",
               "/configprops", "/env", "/mappings", "/flyway", "/autoconfig", "/beans", "/dump", "/trace")
         .and()
           .httpBasic()
@@ -192,7 +193,7 @@ public class IamApiSecurityConfig {
         .and()
           .authorizeRequests()
             .antMatchers(GET, "/info", "/health", "/health/mail", "/health/external").permitAll()
-            .antMatchers(GET, "/metrics").hasRole("ADMIN")
+            .antMatchers(GET, "/metrics", "/metrics/prometheus").hasRole("ADMIN")
             .antMatchers(GET, "/configprops", "/env", "/mappings", 
                 "/flyway", "/autoconfig", "/beans", "/dump", "/trace").hasRole("SUPERUSER");
       // @formatter:on
@@ -62,7 +62,8 @@ import it.infn.mw.iam.authn.x509.IamX509PreauthenticationProcessingFilter;
 import it.infn.mw.iam.authn.x509.X509AuthenticationCredentialExtractor;
 import it.infn.mw.iam.config.IamProperties;
 import it.infn.mw.iam.core.IamLocalAuthenticationProvider;
-import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.core.password.PasswordAuthenticationAdmissionControl;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 
 @Configuration
 @EnableWebSecurity
@@ -103,7 +104,7 @@ public class IamWebSecurityConfig {
     private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private IamAccountRepository accountRepo;
+    private LastLoginTimeUpdater lastLoginTimeUpdater;
 
     @Autowired
     private AUPSignatureCheckService aupSignatureCheckService;
@@ -117,10 +118,13 @@ public class IamWebSecurityConfig {
     @Autowired
     private IamProperties iamProperties;
 
+    @Autowired
+    private PasswordAuthenticationAdmissionControl admissionControl;
+
     @Autowired
     public void configureGlobal(final AuthenticationManagerBuilder auth) throws Exception {
       // @formatter:off
-      auth.authenticationProvider(new IamLocalAuthenticationProvider(iamProperties, iamUserDetailsService, passwordEncoder));
+      auth.authenticationProvider(new IamLocalAuthenticationProvider(iamProperties, iamUserDetailsService, passwordEncoder, admissionControl));
       // @formatter:on
     }
 
@@ -194,7 +198,7 @@ public class IamWebSecurityConfig {
           new RootIsDashboardSuccessHandler(iamBaseUrl, new HttpSessionRequestCache());
 
       return new EnforceAupSignatureSuccessHandler(delegate, aupSignatureCheckService, accountUtils,
-          accountRepo);
+          lastLoginTimeUpdater);
     }
   }
 
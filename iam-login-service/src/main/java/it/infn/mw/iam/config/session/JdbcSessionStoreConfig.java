@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.session;
+
+import java.time.Clock;
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import it.infn.mw.iam.core.session.JdbcSessionRepository;
+import it.infn.mw.iam.core.session.JdbcSessionRepositoryFilter;
+import it.infn.mw.iam.core.session.SessionAttributeCodec;
+
+/**
+ * Stores HTTP sessions in the IAM database, so that they can be shared among IAM replicas.
+ * Enabled by setting <code>session-store.type</code> to <code>jdbc</code>.
+ */
+@Configuration
+@ConditionalOnProperty(name = "session-store.type", havingValue = "jdbc")
+public class JdbcSessionStoreConfig {
+
+  @Value("${server.session.timeout:1800}")
+  int sessionTimeoutSecs;
+
+  @Bean
+  SessionAttributeCodec sessionAttributeCodec(SessionStoreProperties properties) {
+    return new SessionAttributeCodec(properties.getCompressionThresholdBytes(),
+        JdbcSessionStoreConfig.class.getClassLoader());
+  }
+
+  @Bean
+  JdbcSessionRepository jdbcSessionRepository(JdbcTemplate jdbcTemplate,
+      SessionAttributeCodec codec, Clock clock, SessionStoreProperties properties) {
+    return new JdbcSessionRepository(jdbcTemplate, codec, clock, sessionTimeoutSecs,
+        properties.getLastAccessUpdateIntervalSecs());
+  }
+
+  @Bean
+  FilterRegistrationBean jdbcSessionRepositoryFilter(JdbcSessionRepository repository,
+      Clock clock, SessionStoreProperties properties) {
+    FilterRegistrationBean frb = new FilterRegistrationBean(
+        new JdbcSessionRepositoryFilter(repository, properties.getCookieName(), clock));
+    frb.setDispatcherTypes(
+        EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR));
+    // Must come before the Spring Security filter chain
+    frb.setOrder(Ordered.HIGHEST_PRECEDENCE + 50);
+    return frb;
+  }
+}
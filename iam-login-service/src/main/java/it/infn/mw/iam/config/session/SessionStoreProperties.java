@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.session;
+
+import javax.validation.constraints.Min;
+
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("session-store")
+@Configuration
+@Validated
+public class SessionStoreProperties {
+
+  public enum SessionStoreType {
+    CONTAINER,
+    JDBC
+  }
+
+  SessionStoreType type = SessionStoreType.CONTAINER;
+
+  @NotBlank
+  String cookieName = "IAMSESSION";
+
+  @Min(value = 0L)
+  int lastAccessUpdateIntervalSecs = 60;
+
+  @Min(value = 1000L)
+  long accessTimeFlushPeriodMsec = 10000;
+
+  @Min(value = 1000L)
+  long cleanupPeriodMsec = 60000;
+
+  @Min(value = 0L)
+  int compressionThresholdBytes = 512;
+
+  public SessionStoreType getType() {
+    return type;
+  }
+
+  public void setType(SessionStoreType type) {
+    this.type = type;
+  }
+
+  public String getCookieName() {
+    return cookieName;
+  }
+
+  public void setCookieName(String cookieName) {
+    this.cookieName = cookieName;
+  }
+
+  public int getLastAccessUpdateIntervalSecs() {
+    return lastAccessUpdateIntervalSecs;
+  }
+
+  public void setLastAccessUpdateIntervalSecs(int lastAccessUpdateIntervalSecs) {
+    this.lastAccessUpdateIntervalSecs = lastAccessUpdateIntervalSecs;
+  }
+
+  public long getAccessTimeFlushPeriodMsec() {
+    return accessTimeFlushPeriodMsec;
+  }
+
+  public void setAccessTimeFlushPeriodMsec(long accessTimeFlushPeriodMsec) {
+    this.accessTimeFlushPeriodMsec = accessTimeFlushPeriodMsec;
+  }
+
+  public long getCleanupPeriodMsec() {
+    return cleanupPeriodMsec;
+  }
+
+  public void setCleanupPeriodMsec(long cleanupPeriodMsec) {
+    this.cleanupPeriodMsec = cleanupPeriodMsec;
+  }
+
+  public int getCompressionThresholdBytes() {
+    return compressionThresholdBytes;
+  }
+
+  public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+    this.compressionThresholdBytes = compressionThresholdBytes;
+  }
+}
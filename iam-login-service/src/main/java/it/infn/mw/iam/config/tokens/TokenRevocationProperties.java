@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.tokens;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("token-revocation")
+@Configuration
+@Validated
+public class TokenRevocationProperties {
+
+  @Min(value = 1000L)
+  long resumePeriodMsec = 60000;
+
+  @Min(value = 0L)
+  long retentionSecs = 604800;
+
+  public long getResumePeriodMsec() {
+    return resumePeriodMsec;
+  }
+
+  public void setResumePeriodMsec(long resumePeriodMsec) {
+    this.resumePeriodMsec = resumePeriodMsec;
+  }
+
+  public long getRetentionSecs() {
+    return retentionSecs;
+  }
+
+  public void setRetentionSecs(long retentionSecs) {
+    this.retentionSecs = retentionSecs;
+  }
+}
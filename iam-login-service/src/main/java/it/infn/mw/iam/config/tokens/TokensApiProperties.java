@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.config.tokens;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties("tokens-api")
+@Configuration
+@Validated
+public class TokensApiProperties {
+
+  /**
+   * When greater than 0, token counts stop at this value, so the total number of results returned
+   * by the token management API is a lower bound once it is reached.
+   */
+  @Min(value = 0L)
+  long countLimit = 0;
+
+  public long getCountLimit() {
+    return countLimit;
+  }
+
+  public void setCountLimit(long countLimit) {
+    this.countLimit = countLimit;
+  }
+}
@@ -21,7 +21,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -29,8 +28,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 import it.infn.mw.iam.config.IamProperties;
 import it.infn.mw.iam.config.IamProperties.LocalAuthenticationAllowedUsers;
+import it.infn.mw.iam.core.password.AdmissionControlledAuthenticationProvider;
+import it.infn.mw.iam.core.password.PasswordAuthenticationAdmissionControl;
 
-public class IamLocalAuthenticationProvider extends DaoAuthenticationProvider {
+public class IamLocalAuthenticationProvider extends AdmissionControlledAuthenticationProvider {
 
   public static final Logger LOG = LoggerFactory.getLogger(IamLocalAuthenticationProvider.class);
 
@@ -42,10 +43,9 @@ public class IamLocalAuthenticationProvider extends DaoAuthenticationProvider {
       a -> a.getAuthority().equals("ROLE_ADMIN");
 
   public IamLocalAuthenticationProvider(IamProperties properties, UserDetailsService uds,
-      PasswordEncoder passwordEncoder) {
+      PasswordEncoder passwordEncoder, PasswordAuthenticationAdmissionControl admissionControl) {
+    super(uds, passwordEncoder, admissionControl);
     this.allowedUsers = properties.getLocalAuthn().getEnabledFor();
-    setUserDetailsService(uds);
-    setPasswordEncoder(passwordEncoder);
   }
 
   @Override
@@ -28,6 +28,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamAuthority;
@@ -48,6 +49,9 @@ public class IamUserDetailsService implements UserDetailsService {
     return authorities;
   }
 
+  // Accounts are always read from the primary database, since a password or status change made
+  // just before must be enforced at the next login, whatever the replica lag
+  @Transactional
   @Override
   public UserDetails loadUserByUsername(final String username) throws UsernameNotFoundException {
 
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.batch;
+
+import java.util.List;
+
+/**
+ * A batch job that processes a set of items in chunks, following the order of a monotonically
+ * increasing numeric key (typically the entity id).
+ *
+ * Each chunk is read and processed by the {@link BatchJobRunner} in its own transaction, together
+ * with the update of the job checkpoint, so an interrupted job can be resumed after the last
+ * committed chunk.
+ *
+ * @param <T> the type of items processed by the job
+ */
+public interface BatchJob<T> {
+
+  /**
+   * @return the job name, which must be unique and stable across restarts, since it identifies the
+   *         job checkpoint
+   */
+  String getName();
+
+  /**
+   * Called by the runner at the beginning of each run (resumed or not), before any chunk is read.
+   */
+  default void start() {
+    // nothing to do by default
+  }
+
+  /**
+   * Reads the next chunk of items.
+   *
+   * @param lastKey the key of the last processed item, or 0 when the job starts from scratch
+   * @param chunkSize the maximum number of items to be returned
+   * @return the next items, ordered by key, whose key is greater than <code>lastKey</code>
+   */
+  List<T> readChunk(long lastKey, int chunkSize);
+
+  /**
+   * @param item an item returned by {@link #readChunk(long, int)}
+   * @return the item key
+   */
+  long getKey(T item);
+
+  /**
+   * Processes a chunk of items.
+   *
+   * @param chunk the items returned by the last {@link #readChunk(long, int)} invocation
+   */
+  void processChunk(List<T> chunk);
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.config.batch.BatchJobProperties;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint.Status;
+import it.infn.mw.iam.persistence.repository.IamBatchJobCheckpointRepository;
+
+/**
+ * Runs {@link BatchJob}s one chunk per transaction, persisting the job checkpoint in the same
+ * transaction that processes the chunk.
+ *
+ * A job whose last run did not complete (i.e., whose checkpoint is left in the
+ * {@link Status#RUNNING} or {@link Status#FAILED} state) is resumed after the last committed chunk;
+ * otherwise the job starts from scratch.
+ *
+ * Before running a job, the runner takes a lease on the job checkpoint, which is renewed in each
+ * chunk transaction. A job whose lease is held by another IAM instance is skipped, unless the lease
+ * has not been renewed for longer than the configured lease timeout, in which case the owner is
+ * considered dead and the job is taken over and resumed.
+ */
+@Component
+public class BatchJobRunner {
+
+  public static final Logger LOG = LoggerFactory.getLogger(BatchJobRunner.class);
+
+  private final BatchJobProperties properties;
+  private final IamBatchJobCheckpointRepository checkpointRepo;
+  private final TransactionTemplate txTemplate;
+  private final Clock clock;
+
+  private final String owner = UUID.randomUUID().toString();
+
+  private final Map<String, BatchJobStatus> statuses = new ConcurrentHashMap<>();
+  private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public BatchJobRunner(BatchJobProperties properties,
+      IamBatchJobCheckpointRepository checkpointRepo, PlatformTransactionManager txManager,
+      Clock clock) {
+    this.properties = properties;
+    this.checkpointRepo = checkpointRepo;
+    this.txTemplate = new TransactionTemplate(txManager);
+    this.clock = clock;
+  }
+
+  private static class LeaseLostException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    LeaseLostException(String jobName) {
+      super("Lease on batch job " + jobName + " has been taken over by another instance");
+    }
+  }
+
+  private static class ChunkResult {
+    final IamBatchJobCheckpoint checkpoint;
+    final int itemCount;
+
+    ChunkResult(IamBatchJobCheckpoint checkpoint, int itemCount) {
+      this.checkpoint = checkpoint;
+      this.itemCount = itemCount;
+    }
+  }
+
+  private Date now() {
+    return Date.from(clock.instant());
+  }
+
+  private void createCheckpointIfMissing(String jobName) {
+    if (checkpointRepo.exists(jobName)) {
+      return;
+    }
+
+    final Date now = now();
+
+    IamBatchJobCheckpoint checkpoint = new IamBatchJobCheckpoint(jobName);
+    checkpoint.setStatus(Status.COMPLETED);
+    checkpoint.setStartTime(now);
+    checkpoint.setLastUpdateTime(now);
+
+    try {
+      txTemplate.execute(s -> checkpointRepo.save(checkpoint));
+    } catch (DataAccessException | TransactionException e) {
+      // Another instance has created the checkpoint in the meantime, the lease decides who runs
+      LOG.debug("Checkpoint for batch job {} not created: {}", jobName, e.getMessage());
+    }
+  }
+
+  private IamBatchJobCheckpoint startCheckpoint(String jobName) {
+    final Date now = now();
+    final Date staleBefore = new Date(now.getTime() - properties.getLeaseTimeoutMsec());
+
+    if (!checkpointRepo.claimLease(jobName, owner, now, staleBefore)) {
+      return null;
+    }
+
+    IamBatchJobCheckpoint checkpoint = checkpointRepo.findOne(jobName);
+
+    if (!isResumable(checkpoint)) {
+      checkpoint.setLastKey(0L);
+      checkpoint.setItemsProcessed(0L);
+      checkpoint.setChunksProcessed(0L);
+      checkpoint.setStartTime(now);
+    }
+
+    checkpoint.setStatus(Status.RUNNING);
+    checkpoint.setLastUpdateTime(now);
+    checkpoint.setOwner(owner);
+    checkpoint.setHeartbeatTime(now);
+    return checkpointRepo.save(checkpoint);
+  }
+
+  private IamBatchJobCheckpoint updateCheckpoint(String jobName, Status status, long lastKey,
+      int itemCount) {
+    final Date now = now();
+
+    if (!checkpointRepo.renewLease(jobName, owner, now)) {
+      throw new LeaseLostException(jobName);
+    }
+
+    IamBatchJobCheckpoint checkpoint = checkpointRepo.findOne(jobName);
+
+    if (itemCount > 0) {
+      checkpoint.setLastKey(lastKey);
+      checkpoint.setItemsProcessed(checkpoint.getItemsProcessed() + itemCount);
+      checkpoint.setChunksProcessed(checkpoint.getChunksProcessed() + 1);
+    }
+
+    checkpoint.setStatus(status);
+    checkpoint.setLastUpdateTime(now);
+    checkpoint.setHeartbeatTime(now);
+
+    if (!Status.RUNNING.equals(status)) {
+      checkpoint.setOwner(null);
+    }
+
+    return checkpointRepo.save(checkpoint);
+  }
+
+  private <T> ChunkResult processNextChunk(BatchJob<T> job, long lastKey, int chunkSize) {
+    if (!checkpointRepo.renewLease(job.getName(), owner, now())) {
+      // Checked before processing, so that no work is done without holding the lease
+      throw new LeaseLostException(job.getName());
+    }
+
+    List<T> chunk = job.readChunk(lastKey, chunkSize);
+
+    if (chunk.isEmpty()) {
+      return new ChunkResult(updateCheckpoint(job.getName(), Status.COMPLETED, lastKey, 0), 0);
+    }
+
+    job.processChunk(chunk);
+
+    final long chunkLastKey = job.getKey(chunk.get(chunk.size() - 1));
+    final Status status = chunk.size() < chunkSize ? Status.COMPLETED : Status.RUNNING;
+
+    return new ChunkResult(updateCheckpoint(job.getName(), status, chunkLastKey, chunk.size()),
+        chunk.size());
+  }
+
+  private <T> BatchJobStatus doRun(BatchJob<T> job, int chunkSize) {
+    final String jobName = job.getName();
+
+    createCheckpointIfMissing(jobName);
+
+    IamBatchJobCheckpoint checkpoint = txTemplate.execute(s -> startCheckpoint(jobName));
+
+    if (checkpoint == null) {
+      LOG.info("Batch job {} is being run by another instance, skipping this run", jobName);
+      return BatchJobStatus.fromCheckpoint(checkpointRepo.findOne(jobName));
+    }
+
+    final boolean resumed = checkpoint.getLastKey() > 0;
+
+    if (resumed) {
+      LOG.info("Resuming batch job {} after key {} ({} items already processed)", jobName,
+          checkpoint.getLastKey(), checkpoint.getItemsProcessed());
+    } else {
+      LOG.debug("Starting batch job {} with chunk size {}", jobName, chunkSize);
+    }
+
+    statuses.put(jobName, new BatchJobStatus(checkpoint, resumed, null));
+
+    try {
+      job.start();
+
+      while (Status.RUNNING.equals(checkpoint.getStatus())) {
+        final long lastKey = checkpoint.getLastKey();
+        ChunkResult result = txTemplate.execute(s -> processNextChunk(job, lastKey, chunkSize));
+        checkpoint = result.checkpoint;
+        statuses.put(jobName, new BatchJobStatus(checkpoint, resumed, null));
+      }
+
+      LOG.info("Batch job {} completed: {} items processed in {} chunks", jobName,
+          checkpoint.getItemsProcessed(), checkpoint.getChunksProcessed());
+
+    } catch (LeaseLostException e) {
+      LOG.warn("Batch job {} stopped after key {}: {}", jobName, checkpoint.getLastKey(),
+          e.getMessage());
+
+      statuses.put(jobName, new BatchJobStatus(checkpoint, resumed, e.getMessage()));
+
+    } catch (RuntimeException e) {
+      LOG.error("Batch job {} failed after key {}: {}", jobName, checkpoint.getLastKey(),
+          e.getMessage(), e);
+
+      final long lastKey = checkpoint.getLastKey();
+
+      try {
+        checkpoint =
+            txTemplate.execute(s -> updateCheckpoint(jobName, Status.FAILED, lastKey, 0));
+      } catch (LeaseLostException lle) {
+        LOG.warn("Batch job {} not marked as failed: {}", jobName, lle.getMessage());
+      }
+
+      statuses.put(jobName, new BatchJobStatus(checkpoint, resumed, e.getMessage()));
+    }
+
+    return statuses.get(jobName);
+  }
+
+  public static boolean isResumable(IamBatchJobCheckpoint checkpoint) {
+    return Status.RUNNING.equals(checkpoint.getStatus())
+        || Status.FAILED.equals(checkpoint.getStatus());
+  }
+
+  /**
+   * Runs the job, using the chunk size configured for the job.
+   *
+   * @param job the job to run
+   * @return the status of the job at the end of the run
+   */
+  public <T> BatchJobStatus run(BatchJob<T> job) {
+    checkNotNull(job, "null job");
+    return run(job, properties.chunkSizeForJob(job.getName()));
+  }
+
+  /**
+   * Runs the job with the given chunk size. If the job is already running in this instance or in
+   * another instance holding a live lease on the job checkpoint, this method returns immediately.
+   *
+   * @param job the job to run
+   * @param chunkSize the number of items processed in each transaction
+   * @return the status of the job at the end of the run
+   */
+  public <T> BatchJobStatus run(BatchJob<T> job, int chunkSize) {
+    checkNotNull(job, "null job");
+
+    if (!runningJobs.add(job.getName())) {
+      LOG.warn("Batch job {} is already running, skipping this run", job.getName());
+      return statuses.get(job.getName());
+    }
+
+    try {
+      return doRun(job, chunkSize);
+    } finally {
+      runningJobs.remove(job.getName());
+    }
+  }
+
+  /**
+   * Forgets a job that is no longer needed, deleting its checkpoint.
+   *
+   * @param jobName the job name
+   * @return <code>false</code> if the job is running in this instance, and has not been deleted
+   */
+  public boolean deleteJob(String jobName) {
+    if (runningJobs.contains(jobName)) {
+      return false;
+    }
+
+    statuses.remove(jobName);
+
+    if (checkpointRepo.exists(jobName)) {
+      txTemplate.execute(s -> {
+        checkpointRepo.delete(jobName);
+        return null;
+      });
+    }
+
+    return true;
+  }
+
+  public Optional<BatchJobStatus> getStatus(String jobName) {
+    BatchJobStatus status = statuses.get(jobName);
+
+    if (status != null) {
+      return Optional.of(status);
+    }
+
+    return Optional.ofNullable(checkpointRepo.findOne(jobName))
+      .map(BatchJobStatus::fromCheckpoint);
+  }
+
+  /**
+   * @return the status of the jobs run by this instance, and of the jobs whose checkpoint has been
+   *         persisted by other instances or previous runs
+   */
+  public Collection<BatchJobStatus> getStatuses() {
+    Map<String, BatchJobStatus> result = new ConcurrentHashMap<>();
+
+    for (IamBatchJobCheckpoint c : checkpointRepo.findAll()) {
+      result.put(c.getName(), BatchJobStatus.fromCheckpoint(c));
+    }
+
+    result.putAll(statuses);
+
+    List<BatchJobStatus> sorted = Lists.newArrayList(result.values());
+    sorted.sort((s1, s2) -> s1.getName().compareTo(s2.getName()));
+    return sorted;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.batch;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint.Status;
+
+@JsonInclude(Include.NON_EMPTY)
+public class BatchJobStatus {
+
+  private final String name;
+  private final Status status;
+  private final boolean resumed;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private final Date startTime;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private final Date lastUpdateTime;
+
+  private final long itemsProcessed;
+  private final long chunksProcessed;
+  private final long lastKey;
+  private final String lastError;
+
+  public BatchJobStatus(IamBatchJobCheckpoint checkpoint, boolean resumed, String lastError) {
+    this.name = checkpoint.getName();
+    this.status = checkpoint.getStatus();
+    this.resumed = resumed;
+    this.startTime = checkpoint.getStartTime();
+    this.lastUpdateTime = checkpoint.getLastUpdateTime();
+    this.itemsProcessed = checkpoint.getItemsProcessed();
+    this.chunksProcessed = checkpoint.getChunksProcessed();
+    this.lastKey = checkpoint.getLastKey();
+    this.lastError = lastError;
+  }
+
+  public static BatchJobStatus fromCheckpoint(IamBatchJobCheckpoint checkpoint) {
+    return new BatchJobStatus(checkpoint, false, null);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  public Date getStartTime() {
+    return startTime;
+  }
+
+  public Date getLastUpdateTime() {
+    return lastUpdateTime;
+  }
+
+  public long getDurationMsec() {
+    if (startTime == null || lastUpdateTime == null) {
+      return 0;
+    }
+    return lastUpdateTime.getTime() - startTime.getTime();
+  }
+
+  public long getItemsProcessed() {
+    return itemsProcessed;
+  }
+
+  public long getChunksProcessed() {
+    return chunksProcessed;
+  }
+
+  public long getLastKey() {
+    return lastKey;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchJobStatus [name=" + name + ", status=" + status + ", resumed=" + resumed
+        + ", itemsProcessed=" + itemsProcessed + ", chunksProcessed=" + chunksProcessed
+        + ", durationMsec=" + getDurationMsec() + "]";
+  }
+}
@@ -0,0 +1,375 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.cache;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import it.infn.mw.iam.audit.events.IamAuditApplicationEvent;
+import it.infn.mw.iam.audit.events.account.AccountEvent;
+import it.infn.mw.iam.audit.events.aup.AupEvent;
+import it.infn.mw.iam.audit.events.group.GroupEvent;
+import it.infn.mw.iam.audit.events.scope_policy.ScopePolicyEvent;
+import it.infn.mw.iam.config.cache.CacheInvalidationProperties;
+import it.infn.mw.iam.core.oauth.scope.SystemScopesChangedEvent;
+
+/**
+ * Propagates cache invalidations among IAM replicas through the shared database.
+ *
+ * Account, group, scope policy, AUP and system scope changes are recorded in the
+ * <code>iam_cache_invalidation</code> table once the transaction that generated them has
+ * committed. Each replica tails the table by id and notifies the {@link CacheInvalidationListener}s
+ * registered for the changed region. Changes recorded by this replica are skipped, since local
+ * caches are already kept up-to-date by the application event listeners.
+ *
+ * Ids are not guaranteed to become visible in order, so ids skipped by the cursor are polled again
+ * until they show up or the gap timeout expires.
+ */
+@Component
+public class CacheInvalidationBus implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+  public static final String METRIC_PREFIX = "iam.cache-invalidation.";
+
+  public static final String ACCOUNT_REGION = "account";
+  public static final String GROUP_REGION = "group";
+  public static final String SCOPE_POLICY_REGION = "scope-policy";
+  public static final String AUP_REGION = "aup";
+  public static final String SYSTEM_SCOPE_REGION = "system-scope";
+
+  // Beyond this number of keys in a poll, the whole region is invalidated
+  public static final int MAX_KEYS_PER_REGION = 100;
+
+  public static final int MAX_TRACKED_GAPS = 1000;
+
+  private static final String INSERT_INVALIDATION = "INSERT INTO iam_cache_invalidation "
+      + "(REGION, CACHE_KEY, ORIGIN, CREATION_TIME) VALUES (?, ?, ?, ?)";
+
+  private static final String SELECT_MAX_ID =
+      "SELECT COALESCE(MAX(ID), 0) FROM iam_cache_invalidation";
+
+  private static final String SELECT_INVALIDATIONS =
+      "SELECT ID, REGION, CACHE_KEY, ORIGIN, CREATION_TIME FROM iam_cache_invalidation "
+          + "WHERE ID > ? ORDER BY ID";
+
+  private static final String SELECT_INVALIDATIONS_BY_ID =
+      "SELECT ID, REGION, CACHE_KEY, ORIGIN, CREATION_TIME FROM iam_cache_invalidation "
+          + "WHERE ID IN (:ids)";
+
+  private static final String DELETE_OLD_INVALIDATIONS =
+      "DELETE FROM iam_cache_invalidation WHERE CREATION_TIME < ?";
+
+  private static final RowMapper<Invalidation> INVALIDATION_MAPPER =
+      (rs, n) -> new Invalidation(rs.getLong(1), rs.getString(2), rs.getString(3),
+          rs.getString(4), rs.getLong(5));
+
+  private final CacheInvalidationProperties properties;
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final TransactionTemplate publishTxTemplate;
+  private final Clock clock;
+  private final String origin = UUID.randomUUID().toString();
+
+  private final ConcurrentMap<String, List<CacheInvalidationListener>> listeners =
+      new ConcurrentHashMap<>();
+
+  // Ids skipped by the cursor -> time the gap was detected
+  private final SortedMap<Long, Long> gaps = new TreeMap<>();
+
+  private volatile long cursor = -1;
+  private volatile long lastPollTime = 0;
+  private volatile long lastLagMsec = 0;
+
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong received = new AtomicLong();
+  private final AtomicLong applied = new AtomicLong();
+  private final AtomicLong expiredGaps = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+
+  static final class Invalidation {
+    final long id;
+    final String region;
+    final String key;
+    final String origin;
+    final long creationTime;
+
+    Invalidation(long id, String region, String key, String origin, long creationTime) {
+      this.id = id;
+      this.region = region;
+      this.key = key;
+      this.origin = origin;
+      this.creationTime = creationTime;
+    }
+  }
+
+  @Autowired
+  public CacheInvalidationBus(CacheInvalidationProperties properties, DataSource dataSource,
+      PlatformTransactionManager transactionManager, Clock clock) {
+    this.properties = properties;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setMaxRows(properties.getPollBatchSize());
+    this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.clock = clock;
+
+    // Invalidations are mostly published after the commit of the transaction that generated
+    // them, when its connection is still bound to the thread but no longer commits anything
+    this.publishTxTemplate = new TransactionTemplate(transactionManager);
+    this.publishTxTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public void addListener(String region, CacheInvalidationListener listener) {
+    listeners.computeIfAbsent(region, r -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  /**
+   * Records an invalidation for the other replicas. The invalidation is written in a new
+   * transaction, independent of the one (if any) bound to the calling thread.
+   *
+   * @param region the cache region
+   * @param key the key of the changed entity, or <code>null</code> to invalidate the whole region
+   */
+  public void publish(String region, String key) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    try {
+      publishTxTemplate.execute(
+          status -> jdbcTemplate.update(INSERT_INVALIDATION, region, key, origin, clock.millis()));
+      published.incrementAndGet();
+    } catch (DataAccessException | TransactionException e) {
+      errors.incrementAndGet();
+      LOG.warn("Error publishing invalidation for cache region '{}': {}", region,
+          e.getMessage());
+    }
+  }
+
+  private static String key(Long id) {
+    return id == null ? null : id.toString();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAuditEvent(IamAuditApplicationEvent event) {
+    if (event instanceof AccountEvent) {
+      AccountEvent e = (AccountEvent) event;
+      publish(ACCOUNT_REGION, e.getAccount() == null ? null : key(e.getAccount().getId()));
+    } else if (event instanceof GroupEvent) {
+      GroupEvent e = (GroupEvent) event;
+      publish(GROUP_REGION, e.getGroup() == null ? null : key(e.getGroup().getId()));
+    } else if (event instanceof ScopePolicyEvent) {
+      ScopePolicyEvent e = (ScopePolicyEvent) event;
+      publish(SCOPE_POLICY_REGION, e.getPolicy() == null ? null : key(e.getPolicy().getId()));
+    } else if (event instanceof AupEvent) {
+      AupEvent e = (AupEvent) event;
+      publish(AUP_REGION, e.getAup() == null ? null : key(e.getAup().getId()));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSystemScopesChanged(SystemScopesChangedEvent event) {
+    publish(SYSTEM_SCOPE_REGION, null);
+  }
+
+  private List<Invalidation> pollGaps(long now) {
+    if (gaps.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Invalidation> result = namedJdbcTemplate.query(SELECT_INVALIDATIONS_BY_ID,
+        Collections.singletonMap("ids", gaps.keySet()), INVALIDATION_MAPPER);
+
+    result.forEach(i -> gaps.remove(i.id));
+
+    int gapCount = gaps.size();
+    gaps.values().removeIf(t -> now - t > properties.getGapTimeoutMsec());
+    expiredGaps.addAndGet(gapCount - gaps.size());
+
+    return result;
+  }
+
+  private void trackGaps(long fromId, long toId, long now) {
+    for (long id = fromId; id < toId && gaps.size() < MAX_TRACKED_GAPS; id++) {
+      gaps.put(id, now);
+    }
+  }
+
+  private void notifyListeners(String region, Set<String> keys, boolean all) {
+    for (CacheInvalidationListener l : listeners.getOrDefault(region, Collections.emptyList())) {
+      try {
+        if (all || keys.size() > MAX_KEYS_PER_REGION) {
+          l.invalidateAll();
+        } else {
+          keys.forEach(l::invalidate);
+        }
+      } catch (RuntimeException e) {
+        errors.incrementAndGet();
+        LOG.warn("Error invalidating cache region '{}': {}", region, e.getMessage(), e);
+      }
+    }
+  }
+
+  private void dispatch(List<Invalidation> invalidations, long now) {
+    Map<String, Set<String>> keysByRegion = Maps.newHashMap();
+    Set<String> invalidatedRegions = Sets.newHashSet();
+    long maxLag = 0;
+
+    for (Invalidation i : invalidations) {
+      maxLag = Math.max(maxLag, now - i.creationTime);
+
+      if (origin.equals(i.origin)) {
+        continue;
+      }
+
+      applied.incrementAndGet();
+
+      if (i.key == null) {
+        invalidatedRegions.add(i.region);
+      } else {
+        keysByRegion.computeIfAbsent(i.region, r -> Sets.newHashSet()).add(i.key);
+      }
+    }
+
+    received.addAndGet(invalidations.size());
+
+    if (!invalidations.isEmpty()) {
+      lastLagMsec = maxLag;
+    }
+
+    Set<String> regions = Sets.union(keysByRegion.keySet(), invalidatedRegions);
+
+    for (String r : regions) {
+      notifyListeners(r, keysByRegion.getOrDefault(r, Collections.emptySet()),
+          invalidatedRegions.contains(r));
+    }
+  }
+
+  /**
+   * Reads the invalidations recorded since the last poll and notifies the registered listeners.
+   */
+  public synchronized void poll() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final long now = clock.millis();
+
+    try {
+      if (cursor < 0) {
+        // Local caches are built from the database, so older invalidations can be ignored
+        cursor = jdbcTemplate.queryForObject(SELECT_MAX_ID, Long.class);
+        lastPollTime = now;
+        return;
+      }
+
+      List<Invalidation> invalidations = Lists.newArrayList(pollGaps(now));
+
+      for (Invalidation i : jdbcTemplate.query(SELECT_INVALIDATIONS, INVALIDATION_MAPPER,
+          cursor)) {
+        trackGaps(cursor + 1, i.id, now);
+        cursor = i.id;
+        invalidations.add(i);
+      }
+
+      dispatch(invalidations, now);
+      lastPollTime = now;
+
+    } catch (DataAccessException e) {
+      errors.incrementAndGet();
+      LOG.warn("Error polling cache invalidations: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Deletes the invalidations older than the configured retention period.
+   */
+  public void deleteOldInvalidations() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    long threshold = clock.millis() - properties.getRetentionSecs() * 1000;
+    int count = jdbcTemplate.update(DELETE_OLD_INVALIDATIONS, threshold);
+
+    if (count > 0) {
+      LOG.debug("Deleted {} old cache invalidations", count);
+    }
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    if (!isEnabled()) {
+      return result;
+    }
+
+    long lastPoll = lastPollTime;
+
+    result.add(new Metric<Long>(METRIC_PREFIX + "published", published.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "received", received.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "applied", applied.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "errors", errors.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "expired-gaps", expiredGaps.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "cursor", cursor));
+    result.add(new Metric<Long>(METRIC_PREFIX + "lag-msec", lastLagMsec));
+    result.add(new Metric<Long>(METRIC_PREFIX + "since-last-poll-msec",
+        lastPoll == 0 ? -1L : clock.millis() - lastPoll));
+
+    return result;
+  }
+}
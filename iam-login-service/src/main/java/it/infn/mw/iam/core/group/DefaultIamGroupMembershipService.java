@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.group;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.audit.events.group.members.GroupMembersAddedEvent;
+import it.infn.mw.iam.audit.events.group.members.GroupMembersRemovedEvent;
+import it.infn.mw.iam.core.group.error.NoSuchGroupError;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.persistence.repository.IamGroupRepository;
+
+@Service
+@Transactional
+public class DefaultIamGroupMembershipService
+    implements IamGroupMembershipService, ApplicationEventPublisherAware {
+
+  public static final int CHUNK_SIZE = 500;
+
+  private final IamGroupRepository groupRepo;
+  private final IamAccountRepository accountRepo;
+  private final Clock clock;
+
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  public DefaultIamGroupMembershipService(IamGroupRepository groupRepo,
+      IamAccountRepository accountRepo, Clock clock) {
+    this.groupRepo = groupRepo;
+    this.accountRepo = accountRepo;
+    this.clock = clock;
+  }
+
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+    this.eventPublisher = applicationEventPublisher;
+  }
+
+  private static List<Long> ids(List<AccountSummary> accounts) {
+    return accounts.stream().map(AccountSummary::getId).collect(toList());
+  }
+
+  private static List<AccountSummary> select(List<AccountSummary> chunk, List<Long> ids) {
+    Map<Long, AccountSummary> byId = chunk.stream()
+      .collect(Collectors.toMap(AccountSummary::getId, Function.identity(), (a1, a2) -> a1));
+    return ids.stream().map(byId::get).collect(toList());
+  }
+
+  private IamGroup touchGroup(IamGroup group) {
+    IamGroup g = groupRepo.findOne(group.getId());
+    if (g == null) {
+      throw NoSuchGroupError.forUuid(group.getUuid());
+    }
+    g.touch(clock);
+    return groupRepo.save(g);
+  }
+
+  private int apply(IamGroup group, List<AccountSummary> accounts, boolean add) {
+    checkNotNull(group, "null group");
+    checkNotNull(accounts, "null accounts");
+
+    final Date now = Date.from(clock.instant());
+    List<List<AccountSummary>> updatedChunks = Lists.newArrayList();
+
+    for (List<AccountSummary> chunk : Lists.partition(accounts, CHUNK_SIZE)) {
+      List<Long> updatedIds = add ? groupRepo.addMembers(group, ids(chunk))
+          : groupRepo.removeMembers(group, ids(chunk));
+
+      if (!updatedIds.isEmpty()) {
+        groupRepo.touchAccounts(updatedIds, now);
+        updatedChunks.add(select(chunk, updatedIds));
+      }
+    }
+
+    if (updatedChunks.isEmpty()) {
+      return 0;
+    }
+
+    IamGroup g = touchGroup(group);
+    int count = 0;
+    List<ApplicationEvent> events = Lists.newArrayList();
+
+    for (List<AccountSummary> c : updatedChunks) {
+      count += c.size();
+      events.add(
+          add ? new GroupMembersAddedEvent(this, g, c) : new GroupMembersRemovedEvent(this, g, c));
+    }
+
+    publishAfterCommit(events);
+    return count;
+  }
+
+  private void publishAfterCommit(List<ApplicationEvent> events) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      events.forEach(eventPublisher::publishEvent);
+      return;
+    }
+
+    TransactionSynchronizationManager
+      .registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          events.forEach(eventPublisher::publishEvent);
+        }
+      });
+  }
+
+  @Override
+  public int addMembers(IamGroup group, List<AccountSummary> accounts) {
+    return apply(group, accounts, true);
+  }
+
+  @Override
+  public int removeMembers(IamGroup group, List<AccountSummary> accounts) {
+    return apply(group, accounts, false);
+  }
+
+  @Override
+  public int removeAllMembers(IamGroup group) {
+    checkNotNull(group, "null group");
+    return apply(group, accountRepo.findMemberSummaries(group.getId()), false);
+  }
+
+  @Override
+  public int replaceMembers(IamGroup group, List<AccountSummary> accounts) {
+    checkNotNull(group, "null group");
+    checkNotNull(accounts, "null accounts");
+
+    List<AccountSummary> currentMembers = accountRepo.findMemberSummaries(group.getId());
+
+    Set<Long> newMemberIds = accounts.stream().map(AccountSummary::getId).collect(toSet());
+    Set<Long> currentMemberIds =
+        currentMembers.stream().map(AccountSummary::getId).collect(toSet());
+
+    List<AccountSummary> toBeRemoved = currentMembers.stream()
+      .filter(a -> !newMemberIds.contains(a.getId()))
+      .collect(toList());
+
+    List<AccountSummary> toBeAdded = accounts.stream()
+      .filter(a -> !currentMemberIds.contains(a.getId()))
+      .collect(toList());
+
+    return apply(group, toBeRemoved, false) + apply(group, toBeAdded, true);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<GroupMemberSummary> findMembers(IamGroup group, Long lastMemberId, int count) {
+    checkNotNull(group, "null group");
+
+    return accountRepo.findMemberSummariesWithIdGreaterThan(group.getId(),
+        lastMemberId == null ? 0L : lastMemberId, new PageRequest(0, count));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<GroupMemberSummary> findAllMembers(IamGroup group) {
+    List<GroupMemberSummary> result = Lists.newArrayList();
+    List<GroupMemberSummary> chunk = findMembers(group, null, CHUNK_SIZE);
+
+    result.addAll(chunk);
+
+    while (chunk.size() == CHUNK_SIZE) {
+      chunk = findMembers(group, chunk.get(chunk.size() - 1).getId(), CHUNK_SIZE);
+      result.addAll(chunk);
+    }
+
+    return result;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public long countMembers(IamGroup group) {
+    checkNotNull(group, "null group");
+    return accountRepo.countByGroupId(group.getId());
+  }
+}
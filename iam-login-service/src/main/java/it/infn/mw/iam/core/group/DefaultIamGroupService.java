@@ -21,7 +21,9 @@ import static java.util.Objects.isNull;
 
 import java.time.Clock;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
@@ -43,9 +45,11 @@ import it.infn.mw.iam.core.group.error.NoSuchGroupError;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamAuthority;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.model.IamGroupClosure;
 import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 import it.infn.mw.iam.persistence.repository.IamAuthoritiesRepository;
+import it.infn.mw.iam.persistence.repository.IamGroupClosureRepository;
 import it.infn.mw.iam.persistence.repository.IamGroupRepository;
 
 @Service
@@ -57,16 +61,18 @@ public class DefaultIamGroupService implements IamGroupService, ApplicationEvent
   private final IamGroupRepository groupRepo;
   private final IamAuthoritiesRepository authorityRepo;
   private final IamAccountRepository accountRepo;
+  private final IamGroupClosureRepository closureRepo;
   private final Clock clock;
 
   private ApplicationEventPublisher eventPublisher;
 
   @Autowired
   public DefaultIamGroupService(IamGroupRepository groupRepo, IamAuthoritiesRepository authRepo,
-      IamAccountRepository accountRepo, Clock clock) {
+      IamAccountRepository accountRepo, IamGroupClosureRepository closureRepo, Clock clock) {
     this.groupRepo = groupRepo;
     this.authorityRepo = authRepo;
     this.accountRepo = accountRepo;
+    this.closureRepo = closureRepo;
     this.clock = clock;
   }
 
@@ -84,10 +90,13 @@ public class DefaultIamGroupService implements IamGroupService, ApplicationEvent
 
     g.setAccounts(newHashSet());
     g.setChildrenGroups(newHashSet());
+    g.setAncestorLinks(newHashSet());
 
     createGroupManagerAuthority(g);
     g = groupRepo.save(g);
 
+    linkToAncestors(g);
+
     if (!isNull(g.getParentGroup())) {
       groupRepo.save(g.getParentGroup());
     }
@@ -96,6 +105,19 @@ public class DefaultIamGroupService implements IamGroupService, ApplicationEvent
     return g;
   }
 
+  private void linkToAncestors(IamGroup g) {
+    Set<IamGroupClosure> links = g.getAncestorLinks();
+
+    links.add(new IamGroupClosure(g, g, 0));
+
+    if (!isNull(g.getParentGroup())) {
+      closureRepo.findAncestorLinks(g.getParentGroup())
+        .forEach(l -> links.add(new IamGroupClosure(l.getAncestor(), g, l.getDepth() + 1)));
+    }
+
+    closureRepo.save(links);
+  }
+
   protected IamAuthority createGroupManagerAuthority(IamGroup g) {
     return authorityRepo.save(new IamAuthority(groupManagerAuthority(g)));
   }
@@ -211,6 +233,7 @@ public class DefaultIamGroupService implements IamGroupService, ApplicationEvent
     newGroup.setDescription(oldGroup.getDescription());
     newGroup.setParentGroup(oldGroup.getParentGroup());
     newGroup.setChildrenGroups(oldGroup.getChildrenGroups());
+    newGroup.setAncestorLinks(oldGroup.getAncestorLinks());
 
     newGroup.touch(clock);
 
@@ -273,4 +296,28 @@ public class DefaultIamGroupService implements IamGroupService, ApplicationEvent
     return g;
   }
 
+  @Override
+  public List<IamGroup> findAncestors(IamGroup g) {
+    checkNotNull(g);
+    return closureRepo.findAncestors(g);
+  }
+
+  @Override
+  public List<IamGroup> findDescendants(IamGroup g) {
+    checkNotNull(g);
+    return closureRepo.findDescendants(g);
+  }
+
+  @Override
+  public Page<IamGroup> findDescendants(IamGroup g, Pageable page) {
+    checkNotNull(g);
+    return closureRepo.findDescendants(g, page);
+  }
+
+  @Override
+  public List<IamGroup> findEffectiveGroupsForAccount(IamAccount account) {
+    checkNotNull(account);
+    return closureRepo.findEffectiveGroupsForAccount(account.getUuid());
+  }
+
 }
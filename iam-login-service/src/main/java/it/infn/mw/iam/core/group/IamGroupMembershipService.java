@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.group;
+
+import java.util.List;
+
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
+
+/**
+ * Set-based group membership management, meant for operations involving many accounts at once.
+ *
+ * Membership changes are applied in chunks, and a single audit event is published for each chunk
+ * of accounts that have actually been added to or removed from the group. Events are published
+ * once the enclosing transaction has committed, so changes that are rolled back are never audited.
+ */
+public interface IamGroupMembershipService {
+
+  /**
+   * @return the number of accounts added to the group
+   */
+  int addMembers(IamGroup group, List<AccountSummary> accounts);
+
+  /**
+   * @return the number of accounts removed from the group
+   */
+  int removeMembers(IamGroup group, List<AccountSummary> accounts);
+
+  /**
+   * @return the number of accounts removed from the group
+   */
+  int removeAllMembers(IamGroup group);
+
+  /**
+   * Makes the given accounts the only members of a group.
+   *
+   * @return the number of accounts added to or removed from the group
+   */
+  int replaceMembers(IamGroup group, List<AccountSummary> accounts);
+
+  /**
+   * Returns a page of the direct members of a group, ordered by account id.
+   *
+   * Pages are selected with a keyset (i.e., by the id of the last member of the previous page)
+   * rather than with an offset, so that fetching any page of a large group has the same cost.
+   *
+   * @param group the group
+   * @param lastMemberId the id of the last member returned in the previous page, or
+   *        <code>null</code> to get the first page
+   * @param count the maximum number of members returned
+   * @return a list of group members
+   */
+  List<GroupMemberSummary> findMembers(IamGroup group, Long lastMemberId, int count);
+
+  /**
+   * Returns all the direct members of a group, loaded in chunks.
+   */
+  List<GroupMemberSummary> findAllMembers(IamGroup group);
+
+  long countMembers(IamGroup group);
+}
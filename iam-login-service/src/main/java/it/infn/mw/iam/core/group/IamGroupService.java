@@ -15,11 +15,13 @@
  */
 package it.infn.mw.iam.core.group;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamGroup;
 import it.infn.mw.iam.persistence.model.IamLabel;
 
@@ -48,4 +50,23 @@ public interface IamGroupService {
   IamGroup deleteLabel(IamGroup g, IamLabel l);
 
   void touchGroup(IamGroup g);
+
+  /**
+   * Returns the ancestors of a group, starting from its parent and up to the root group.
+   */
+  List<IamGroup> findAncestors(IamGroup g);
+
+  /**
+   * Returns all the groups in the subtree rooted at the given group (the group itself excluded),
+   * ordered by depth.
+   */
+  List<IamGroup> findDescendants(IamGroup g);
+
+  Page<IamGroup> findDescendants(IamGroup g, Pageable page);
+
+  /**
+   * Returns the groups an account is a member of, either directly or because it is a member of one
+   * of their subgroups.
+   */
+  List<IamGroup> findEffectiveGroupsForAccount(IamAccount account);
 }
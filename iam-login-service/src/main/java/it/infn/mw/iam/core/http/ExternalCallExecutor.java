@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.http;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import it.infn.mw.iam.config.http.OutboundHttpProperties;
+
+/**
+ * Runs request handling work that blocks on external services on a dedicated, bounded thread
+ * pool, so that servlet container threads are released while waiting for the upstream service.
+ *
+ * The outcome of the work is delivered through a {@link DeferredResult}. Failures, timeouts (as
+ * {@link ExternalCallTimeoutException}) and rejections due to a saturated pool (as
+ * {@link TaskRejectedException}) are passed to an error handler that maps them to a result;
+ * exceptions raised by the error handler are propagated to the MVC exception handling.
+ */
+@Component
+public class ExternalCallExecutor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(ExternalCallExecutor.class);
+
+  private final OutboundHttpProperties properties;
+  private final ThreadPoolTaskExecutor threadPool;
+  private final AsyncTaskExecutor executor;
+
+  @Autowired
+  public ExternalCallExecutor(OutboundHttpProperties properties) {
+    this.properties = properties;
+
+    threadPool = new ThreadPoolTaskExecutor();
+    threadPool.setThreadNamePrefix("external-call-");
+    threadPool.setCorePoolSize(properties.getAsyncMaxThreads());
+    threadPool.setMaxPoolSize(properties.getAsyncMaxThreads());
+    threadPool.setQueueCapacity(properties.getAsyncQueueCapacity());
+    threadPool.setDaemon(true);
+    threadPool.initialize();
+
+    executor = new DelegatingSecurityContextAsyncTaskExecutor(threadPool);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    threadPool.shutdown();
+  }
+
+  public static <T> DeferredResult<T> completed(T value) {
+    DeferredResult<T> result = new DeferredResult<>();
+    result.setResult(value);
+    return result;
+  }
+
+  private static <T> void complete(DeferredResult<T> result, Supplier<T> call,
+      Function<RuntimeException, T> errorHandler) {
+    try {
+      result.setResult(call.get());
+    } catch (RuntimeException e) {
+      handleError(result, e, errorHandler);
+    }
+  }
+
+  private static <T> void handleError(DeferredResult<T> result, RuntimeException error,
+      Function<RuntimeException, T> errorHandler) {
+    try {
+      result.setResult(errorHandler.apply(error));
+    } catch (RuntimeException unhandled) {
+      result.setErrorResult(unhandled);
+    }
+  }
+
+  /**
+   * @param call the work to be done, typically blocking on an external service
+   * @param errorHandler maps errors raised by the call, timeouts and rejections to a result
+   * @return the deferred result of the call
+   */
+  public <T> DeferredResult<T> call(Supplier<T> call,
+      Function<RuntimeException, T> errorHandler) {
+
+    DeferredResult<T> result = new DeferredResult<>(properties.getAsyncRequestTimeoutMsec());
+
+    if (!properties.isAsyncRequestsEnabled()) {
+      complete(result, call, errorHandler);
+      return result;
+    }
+
+    final AtomicReference<Future<?>> future = new AtomicReference<>();
+
+    result.onTimeout(() -> {
+      Future<?> f = future.get();
+      if (f != null) {
+        f.cancel(true);
+      }
+      handleError(result, new ExternalCallTimeoutException(
+          String.format("No response within %d msec", properties.getAsyncRequestTimeoutMsec())),
+          errorHandler);
+    });
+
+    try {
+      future.set(executor.submit(() -> complete(result, call, errorHandler)));
+    } catch (TaskRejectedException e) {
+      LOG.warn("External call rejected: {}", e.getMessage());
+      handleError(result, e, errorHandler);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.http;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * An {@link HttpRequestExecutor} that records, for each destination, the time spent waiting for
+ * the response headers and whether the request failed, i.e. raised an I/O error or got a 5xx
+ * response.
+ */
+public class InstrumentedHttpRequestExecutor extends HttpRequestExecutor {
+
+  public static final String UNKNOWN_DESTINATION = "unknown";
+
+  private final OutboundHttpMetrics metrics;
+
+  public InstrumentedHttpRequestExecutor(OutboundHttpMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  static String destination(HttpContext context) {
+    HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+    return target == null ? UNKNOWN_DESTINATION : target.toHostString();
+  }
+
+  @Override
+  public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+      throws IOException, HttpException {
+
+    final long startTime = System.currentTimeMillis();
+    boolean error = true;
+
+    try {
+      HttpResponse response = super.execute(request, conn, context);
+      error = response.getStatusLine().getStatusCode() >= 500;
+      return response;
+    } finally {
+      metrics.record(destination(context), System.currentTimeMillis() - startTime, error);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.http;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Latency, error and connection pool metrics for outbound HTTP requests, tracked per destination
+ * (i.e. <code>host:port</code>).
+ *
+ * Pool saturation is reported through the number of leased and pending connections for each
+ * destination: a destination with pending requests is using all the connections it is allowed to,
+ * and further requests will fail once the connection request timeout expires.
+ */
+public class OutboundHttpMetrics implements PublicMetrics {
+
+  public static final String METRIC_PREFIX = "iam.outbound-http.";
+  public static final String OTHER_DESTINATIONS = "other";
+
+  public static final class DestinationStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMsec = new LongAdder();
+    private final AtomicLong maxMsec = new AtomicLong();
+
+    void record(long elapsedMsec, boolean error) {
+      requests.increment();
+      totalMsec.add(elapsedMsec);
+      maxMsec.accumulateAndGet(elapsedMsec, Math::max);
+      if (error) {
+        errors.increment();
+      }
+    }
+
+    public long getRequests() {
+      return requests.sum();
+    }
+
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    public long getTotalMsec() {
+      return totalMsec.sum();
+    }
+
+    public long getMaxMsec() {
+      return maxMsec.get();
+    }
+  }
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final int maxTrackedDestinations;
+
+  private final ConcurrentMap<String, DestinationStats> stats = new ConcurrentHashMap<>();
+  private final Set<String> trackedDestinations = ConcurrentHashMap.newKeySet();
+
+  public OutboundHttpMetrics(PoolingHttpClientConnectionManager connectionManager,
+      int maxTrackedDestinations) {
+    this.connectionManager = connectionManager;
+    this.maxTrackedDestinations = maxTrackedDestinations;
+  }
+
+  public static String destination(HttpRoute route) {
+    return route.getTargetHost().toHostString();
+  }
+
+  public void record(String destination, long elapsedMsec, boolean error) {
+    stats.computeIfAbsent(trackedDestination(destination), k -> new DestinationStats())
+      .record(elapsedMsec, error);
+  }
+
+  public Map<String, DestinationStats> getStats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  private String trackedDestination(String destination) {
+    if (trackedDestinations.contains(destination)) {
+      return destination;
+    }
+
+    if (trackedDestinations.size() < maxTrackedDestinations) {
+      trackedDestinations.add(destination);
+      return destination;
+    }
+
+    return OTHER_DESTINATIONS;
+  }
+
+  private static void addPoolMetrics(Collection<Metric<?>> result, String prefix, PoolStats s) {
+    result.add(new Metric<Integer>(prefix + "pool.leased", s.getLeased()));
+    result.add(new Metric<Integer>(prefix + "pool.pending", s.getPending()));
+    result.add(new Metric<Integer>(prefix + "pool.available", s.getAvailable()));
+    result.add(new Metric<Integer>(prefix + "pool.max", s.getMax()));
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    stats.forEach((d, s) -> {
+      final String prefix = METRIC_PREFIX + d + ".";
+      long requests = s.getRequests();
+
+      result.add(new Metric<Long>(prefix + "requests", requests));
+      result.add(new Metric<Long>(prefix + "errors", s.getErrors()));
+      result.add(new Metric<Double>(prefix + "avg-msec",
+          requests == 0 ? 0.0 : (double) s.getTotalMsec() / requests));
+      result.add(new Metric<Long>(prefix + "max-msec", s.getMaxMsec()));
+    });
+
+    addPoolMetrics(result, METRIC_PREFIX, connectionManager.getTotalStats());
+
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      addPoolMetrics(result, METRIC_PREFIX + destination(route) + ".",
+          connectionManager.getStats(route));
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.jdbc;
+
+import java.time.Clock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Estimates the replication lag of the read replica.
+ *
+ * Each check writes the current time in the <code>iam_replica_heartbeat</code> table on the
+ * primary database, and reads it back from the replica. The replica is considered available as
+ * long as the heartbeat read from the replica is not older than the configured maximum lag.
+ */
+public class ReplicaLagMonitor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+  private static final String UPDATE_HEARTBEAT =
+      "UPDATE iam_replica_heartbeat SET HEARTBEAT_TIME = ? WHERE ID = 1";
+
+  private static final String SELECT_HEARTBEAT =
+      "SELECT HEARTBEAT_TIME FROM iam_replica_heartbeat WHERE ID = 1";
+
+  private final JdbcTemplate primary;
+  private final JdbcTemplate replica;
+  private final Clock clock;
+  private final long maxLagMsec;
+
+  private volatile boolean replicaAvailable = false;
+  private volatile long lagMsec = -1;
+
+  public ReplicaLagMonitor(DataSource primary, DataSource replica, Clock clock, long maxLagMsec) {
+    this.primary = new JdbcTemplate(primary);
+    this.replica = new JdbcTemplate(replica);
+    this.clock = clock;
+    this.maxLagMsec = maxLagMsec;
+  }
+
+  public boolean isReplicaAvailable() {
+    return replicaAvailable;
+  }
+
+  /**
+   * @return the last measured replication lag in msec, or -1 if the replica could not be reached
+   */
+  public long getLagMsec() {
+    return lagMsec;
+  }
+
+  public void check() {
+    final long now = clock.millis();
+
+    try {
+      primary.update(UPDATE_HEARTBEAT, now);
+    } catch (DataAccessException e) {
+      LOG.warn("Error writing replica heartbeat on the primary database: {}", e.getMessage());
+      return;
+    }
+
+    boolean wasAvailable = replicaAvailable;
+
+    try {
+      Long heartbeat = replica.queryForObject(SELECT_HEARTBEAT, Long.class);
+      lagMsec = Math.max(0, now - heartbeat);
+      replicaAvailable = lagMsec <= maxLagMsec;
+    } catch (DataAccessException e) {
+      LOG.debug("Error reading replica heartbeat: {}", e.getMessage());
+      lagMsec = -1;
+      replicaAvailable = false;
+    }
+
+    if (wasAvailable != replicaAvailable) {
+      if (replicaAvailable) {
+        LOG.info("Read replica available, lag: {} msec", lagMsec);
+      } else {
+        LOG.warn("Read replica unavailable (lag: {} msec), routing reads to the primary database",
+            lagMsec);
+      }
+    }
+  }
+}
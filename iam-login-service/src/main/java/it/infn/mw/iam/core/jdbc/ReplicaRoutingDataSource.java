@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.jdbc;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Routes connections requested by read-only transactions to the read replica. All other
+ * connections go to the primary database.
+ *
+ * Reads still go to the primary database when:
+ * <ul>
+ * <li>the replica is lagging behind or unreachable, as reported by the {@link ReplicaLagMonitor};
+ * <li>the authenticated principal ran a read-write transaction within the read-your-writes window,
+ * so that a client does not miss its own changes in the requests following a write, whatever
+ * thread serves them. Without an authenticated principal, only the read-write transactions run by
+ * the current thread are considered.
+ * </ul>
+ *
+ * Note that Spring Data repository methods run in read-only transactions when no transaction is
+ * active, and are thus routed to the replica. Lookups that must see the latest changes, such as
+ * the account lookups done during authentication, are run in read-write transactions instead.
+ *
+ * The routing decision is taken when a connection is requested, so this data source should be
+ * wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which
+ * defers the request until the transaction characteristics are known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements PublicMetrics {
+
+  public static final String METRIC_PREFIX = "iam.datasource-routing.";
+
+  public enum Route {
+    PRIMARY,
+    REPLICA
+  }
+
+  // Beyond this number of principals, the least recent writes are forgotten
+  public static final int MAX_TRACKED_PRINCIPALS = 10000;
+
+  private static final ThreadLocal<Long> LAST_WRITE_TIME = new ThreadLocal<>();
+
+  private final ReplicaLagMonitor lagMonitor;
+  private final Clock clock;
+  private final long readYourWritesWindowMsec;
+
+  // Principal name -> time of its last read-write transaction
+  private final ConcurrentMap<String, Long> lastWriteTimes;
+
+  private final AtomicLong primaryRoutes = new AtomicLong();
+  private final AtomicLong replicaRoutes = new AtomicLong();
+  private final AtomicLong readYourWritesRoutes = new AtomicLong();
+  private final AtomicLong fallbackRoutes = new AtomicLong();
+
+  public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+      ReplicaLagMonitor lagMonitor, Clock clock, long readYourWritesWindowMsec) {
+    this.lagMonitor = lagMonitor;
+    this.clock = clock;
+    this.readYourWritesWindowMsec = readYourWritesWindowMsec;
+    this.lastWriteTimes = CacheBuilder.newBuilder()
+      .maximumSize(MAX_TRACKED_PRINCIPALS)
+      .expireAfterWrite(readYourWritesWindowMsec, TimeUnit.MILLISECONDS)
+      .<String, Long>build()
+      .asMap();
+
+    Map<Object, Object> targets = Maps.newHashMap();
+    targets.put(Route.PRIMARY, primary);
+    targets.put(Route.REPLICA, replica);
+
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  /**
+   * Forgets the read-write transactions run by the current thread without an authenticated
+   * principal, so that its next read-only transactions may be routed to the replica.
+   */
+  public static void clearLastWriteTime() {
+    LAST_WRITE_TIME.remove();
+  }
+
+  private static String currentPrincipal() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+    if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+      return null;
+    }
+
+    return auth.getName();
+  }
+
+  private void setLastWriteTime(long now) {
+    String principal = currentPrincipal();
+
+    if (principal == null) {
+      LAST_WRITE_TIME.set(now);
+    } else {
+      lastWriteTimes.put(principal, now);
+    }
+  }
+
+  private Long getLastWriteTime() {
+    String principal = currentPrincipal();
+
+    if (principal == null) {
+      return LAST_WRITE_TIME.get();
+    }
+
+    return lastWriteTimes.get(principal);
+  }
+
+  private Route primary() {
+    primaryRoutes.incrementAndGet();
+    return Route.PRIMARY;
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      return primary();
+    }
+
+    final long now = clock.millis();
+
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      setLastWriteTime(now);
+      return primary();
+    }
+
+    Long lastWriteTime = getLastWriteTime();
+
+    if (lastWriteTime != null && now - lastWriteTime < readYourWritesWindowMsec) {
+      readYourWritesRoutes.incrementAndGet();
+      return primary();
+    }
+
+    if (!lagMonitor.isReplicaAvailable()) {
+      fallbackRoutes.incrementAndGet();
+      return primary();
+    }
+
+    replicaRoutes.incrementAndGet();
+    return Route.REPLICA;
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<Long>(METRIC_PREFIX + "primary", primaryRoutes.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "replica", replicaRoutes.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "primary.read-your-writes",
+        readYourWritesRoutes.get()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "primary.replica-fallback",
+        fallbackRoutes.get()));
+    result.add(new Metric<Integer>(METRIC_PREFIX + "replica.available",
+        lagMonitor.isReplicaAvailable() ? 1 : 0));
+    result.add(new Metric<Long>(METRIC_PREFIX + "replica.lag-msec", lagMonitor.getLagMsec()));
+
+    return result;
+  }
+}
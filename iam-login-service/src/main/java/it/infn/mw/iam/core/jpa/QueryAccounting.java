@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.jpa;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import it.infn.mw.iam.config.metrics.QueryAccountingProperties;
+
+/**
+ * Accounts the SQL statements, fetched rows and database time spent in a unit of work, i.e. an
+ * HTTP request or a scheduled task run.
+ *
+ * Statements are reported by the {@link QueryAccountingProfiler} installed on the EclipseLink
+ * session, and collected in a per-thread scope opened by {@link #begin()} and closed by
+ * {@link #end(String)}. When a scope is closed, its counters are aggregated by scope name, and
+ * scopes exceeding the configured thresholds are logged together with their most frequent query
+ * shapes, which makes N+1 query patterns easy to spot. Statements executed outside a scope are
+ * not accounted.
+ *
+ * At most <code>maxTrackedScopes</code> scope names are tracked; later ones are aggregated in the
+ * {@value #OTHER_SCOPES} scope, so that the number of published metrics stays bounded.
+ */
+@Component
+public class QueryAccounting implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(QueryAccounting.class);
+
+  public static final String METRIC_PREFIX = "iam.query-accounting.";
+  public static final String OTHER_SCOPES = "other";
+
+  private static final int MAX_SHAPE_LENGTH = 200;
+  private static final Pattern METRIC_UNSAFE_CHARS = Pattern.compile("[^a-z0-9-]+");
+
+  static final class Scope {
+
+    final long startTime = System.nanoTime();
+    final Map<String, Integer> shapes = Maps.newHashMap();
+
+    long statementStartTime = -1;
+    int statements;
+    long rows;
+    long dbNanos;
+  }
+
+  public static final class ScopeStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder dbNanos = new LongAdder();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final LongAdder expensive = new LongAdder();
+
+    void record(Scope scope, boolean isExpensive) {
+      count.increment();
+      statements.add(scope.statements);
+      rows.add(scope.rows);
+      dbNanos.add(scope.dbNanos);
+      maxStatements.accumulateAndGet(scope.statements, Math::max);
+      if (isExpensive) {
+        expensive.increment();
+      }
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getStatements() {
+      return statements.sum();
+    }
+
+    public long getRows() {
+      return rows.sum();
+    }
+
+    public long getDbNanos() {
+      return dbNanos.sum();
+    }
+
+    public long getMaxStatements() {
+      return maxStatements.get();
+    }
+
+    public long getExpensive() {
+      return expensive.sum();
+    }
+  }
+
+  private final QueryAccountingProperties properties;
+  private final EntityManagerFactory entityManagerFactory;
+
+  private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+  private final ConcurrentMap<String, ScopeStats> stats = new ConcurrentHashMap<>();
+  private final Set<String> trackedScopes = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public QueryAccounting(QueryAccountingProperties properties,
+      EntityManagerFactory entityManagerFactory) {
+    this.properties = properties;
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  @PostConstruct
+  public void installProfiler() {
+    if (!properties.isEnabled()) {
+      LOG.info("JPA query accounting is disabled");
+      return;
+    }
+
+    entityManagerFactory.unwrap(JpaEntityManagerFactory.class)
+      .getDatabaseSession()
+      .setProfiler(new QueryAccountingProfiler(this));
+  }
+
+  static String shape(String sql) {
+    if (sql == null) {
+      return "unknown";
+    }
+
+    String normalized = sql.replaceAll("\\s+", " ").trim();
+
+    if (normalized.length() > MAX_SHAPE_LENGTH) {
+      return normalized.substring(0, MAX_SHAPE_LENGTH) + "...";
+    }
+
+    return normalized;
+  }
+
+  /**
+   * Turns a scope name into a token that can be safely embedded in a metric name, e.g.
+   * <code>GET /scim/Users/{id}</code> becomes <code>get.scim.users.id</code>.
+   */
+  public static String metricName(String scope) {
+    String name = METRIC_UNSAFE_CHARS.matcher(scope.toLowerCase(Locale.ROOT)).replaceAll(".");
+    name = CharMatcher.is('.').trimFrom(name);
+
+    return name.isEmpty() ? OTHER_SCOPES : name;
+  }
+
+  /**
+   * Opens an accounting scope for the current thread. Has no effect if accounting is disabled or
+   * a scope is already open.
+   */
+  public void begin() {
+    if (properties.isEnabled() && currentScope.get() == null) {
+      currentScope.set(new Scope());
+    }
+  }
+
+  /**
+   * Closes the accounting scope for the current thread, if any, and aggregates its counters
+   * under the given name.
+   *
+   * @param name the scope name, e.g. the endpoint or task that has been served
+   */
+  public void end(String name) {
+    Scope scope = currentScope.get();
+
+    if (scope == null) {
+      return;
+    }
+
+    currentScope.remove();
+
+    boolean isExpensive = scope.statements >= properties.getStatementsThreshold()
+        || NANOSECONDS.toMillis(scope.dbNanos) >= properties.getDbTimeThresholdMsec();
+
+    stats.computeIfAbsent(trackedScopeName(name), k -> new ScopeStats())
+      .record(scope, isExpensive);
+
+    if (isExpensive) {
+      logExpensiveScope(name, scope);
+    }
+  }
+
+  public <T> T account(String name, Supplier<T> supplier) {
+    if (currentScope.get() != null) {
+      return supplier.get();
+    }
+
+    begin();
+    try {
+      return supplier.get();
+    } finally {
+      end(name);
+    }
+  }
+
+  public void account(String name, Runnable runnable) {
+    account(name, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  void statementStarted() {
+    Scope scope = currentScope.get();
+    if (scope != null) {
+      scope.statementStartTime = System.nanoTime();
+    }
+  }
+
+  void statementEnded(String sql) {
+    Scope scope = currentScope.get();
+    if (scope == null || scope.statementStartTime < 0) {
+      return;
+    }
+
+    scope.statements++;
+    scope.dbNanos += System.nanoTime() - scope.statementStartTime;
+    scope.statementStartTime = -1;
+    scope.shapes.merge(shape(sql), 1, Integer::sum);
+  }
+
+  void rowFetched() {
+    Scope scope = currentScope.get();
+    if (scope != null) {
+      scope.rows++;
+    }
+  }
+
+  private String trackedScopeName(String name) {
+    if (trackedScopes.contains(name)) {
+      return name;
+    }
+
+    if (trackedScopes.size() < properties.getMaxTrackedScopes()) {
+      trackedScopes.add(name);
+      return name;
+    }
+
+    return OTHER_SCOPES;
+  }
+
+  private void logExpensiveScope(String name, Scope scope) {
+    if (!LOG.isWarnEnabled()) {
+      return;
+    }
+
+    String topShapes = scope.shapes.entrySet()
+      .stream()
+      .sorted((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()))
+      .limit(properties.getMaxLoggedQueryShapes())
+      .map(e -> String.format("%n  %d x %s", e.getValue(), e.getKey()))
+      .collect(Collectors.joining());
+
+    LOG.warn("{}: {} SQL statements, {} rows, {} msec in the database ({} msec elapsed). "
+        + "Most frequent queries:{}", name, scope.statements, scope.rows,
+        NANOSECONDS.toMillis(scope.dbNanos),
+        NANOSECONDS.toMillis(System.nanoTime() - scope.startTime), topShapes);
+  }
+
+  public Map<String, ScopeStats> getStats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    stats.forEach((name, s) -> {
+      String prefix = METRIC_PREFIX + metricName(name) + ".";
+      result.add(new Metric<>(prefix + "count", s.getCount()));
+      result.add(new Metric<>(prefix + "statements", s.getStatements()));
+      result.add(new Metric<>(prefix + "rows", s.getRows()));
+      result.add(new Metric<>(prefix + "db-time-msec", NANOSECONDS.toMillis(s.getDbNanos())));
+      result.add(new Metric<>(prefix + "max-statements", s.getMaxStatements()));
+      result.add(new Metric<>(prefix + "expensive", s.getExpensive()));
+    });
+
+    return result;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.jpa;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Opens a {@link QueryAccounting} scope around each HTTP request. Requests are accounted by method
+ * and by the request mapping pattern of the handler that served them. Requests not served by a
+ * mapped handler are all accounted in the {@value QueryAccounting#OTHER_SCOPES} scope, so that
+ * arbitrary request paths cannot use up the tracked scopes.
+ */
+public class QueryAccountingFilter extends OncePerRequestFilter {
+
+  private final QueryAccounting accounting;
+
+  public QueryAccountingFilter(QueryAccounting accounting) {
+    this.accounting = accounting;
+  }
+
+  static String scopeName(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+    if (pattern == null) {
+      return QueryAccounting.OTHER_SCOPES;
+    }
+
+    return String.format("%s %s", request.getMethod(), pattern);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+
+    accounting.begin();
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      accounting.end(scopeName(request));
+    }
+  }
+}
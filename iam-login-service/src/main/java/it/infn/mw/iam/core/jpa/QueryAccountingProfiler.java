@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.jpa;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+/**
+ * An EclipseLink session profiler that reports executed SQL statements and fetched rows to
+ * {@link QueryAccounting}.
+ */
+public class QueryAccountingProfiler extends SessionProfilerAdapter {
+
+  private final QueryAccounting accounting;
+
+  public QueryAccountingProfiler(QueryAccounting accounting) {
+    this.accounting = accounting;
+  }
+
+  private static String sqlString(DatabaseQuery query) {
+    if (query == null) {
+      return null;
+    }
+
+    String sql = query.getSQLString();
+
+    if (sql == null) {
+      return query.getClass().getSimpleName() + " " + query.getReferenceClassName();
+    }
+
+    return sql;
+  }
+
+  @Override
+  public int getProfileWeight() {
+    return SessionProfiler.ALL;
+  }
+
+  @Override
+  public void startOperationProfile(String operationName, DatabaseQuery query, int weight) {
+    if (SessionProfiler.StatementExecute.equals(operationName)) {
+      accounting.statementStarted();
+    }
+  }
+
+  @Override
+  public void endOperationProfile(String operationName, DatabaseQuery query, int weight) {
+    if (SessionProfiler.StatementExecute.equals(operationName)) {
+      accounting.statementEnded(sqlString(query));
+    }
+  }
+
+  @Override
+  public void occurred(String operationName, DatabaseQuery query, AbstractSession session) {
+    if (SessionProfiler.RowFetch.equals(operationName)) {
+      accounting.rowFetched();
+    }
+  }
+}
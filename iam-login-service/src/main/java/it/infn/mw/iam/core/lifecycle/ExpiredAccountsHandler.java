@@ -15,62 +15,62 @@
  */
 package it.infn.mw.iam.core.lifecycle;
 
-import static com.google.common.collect.Sets.newHashSet;
+import static java.util.stream.Collectors.toList;
 
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.Set;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.Lists;
+
 import it.infn.mw.iam.config.lifecycle.LifecycleProperties;
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @Component
-public class ExpiredAccountsHandler implements Runnable {
+public class ExpiredAccountsHandler implements Runnable, BatchJob<IamAccount> {
 
   public enum AccountLifecycleStatus {
     OK, PENDING_SUSPENSION, PENDING_REMOVAL
   }
 
+  public static final String JOB_NAME = "expired-accounts";
+
   public static final String LIFECYCLE_TIMESTAMP_LABEL = "lifecycle.timestamp";
   public static final String LIFECYCLE_STATUS_LABEL = "lifecycle.status";
   public static final String LIFECYCLE_IGNORE_LABEL = "lifecycle.ignore";
   public static final String LIFECYCLE_MESSAGE_LABEL = "lifecycle.message";
 
-  public static final int PAGE_SIZE = 10;
-
   public static final Logger LOG = LoggerFactory.getLogger(ExpiredAccountsHandler.class);
 
   private final LifecycleProperties properties;
   private final IamAccountRepository accountRepo;
   private final IamAccountService accountService;
+  private final BatchJobRunner runner;
   private final Clock clock;
 
   private Instant checkTime;
 
-  private Set<IamAccount> accountsScheduledForRemoval = newHashSet();
-
   @Autowired
   public ExpiredAccountsHandler(Clock clock, LifecycleProperties properties,
-      IamAccountRepository repo, IamAccountService service) {
+      IamAccountRepository repo, IamAccountService service, BatchJobRunner runner) {
     this.clock = clock;
     this.properties = properties;
     this.accountRepo = repo;
     this.accountService = service;
+    this.runner = runner;
   }
 
   private boolean pastGracePeriod(IamAccount expiredAccount, long gracePeriodDays) {
@@ -93,93 +93,96 @@ public class ExpiredAccountsHandler implements Runnable {
         properties.getAccount().getExpiredAccountPolicy().getRemovalGracePeriodDays());
   }
 
-  private void addLastCheckedLabel(IamAccount expiredAccount) {
-    accountService.setLabel(expiredAccount,
+  private static List<Long> ids(List<IamAccount> accounts) {
+    return accounts.stream().map(IamAccount::getId).collect(toList());
+  }
+
+  private void addLastCheckedLabel(List<IamAccount> expiredAccounts) {
+    accountRepo.setLabelForAccounts(ids(expiredAccounts),
         IamLabel.builder()
           .name(LIFECYCLE_TIMESTAMP_LABEL)
           .value(String.valueOf(checkTime.toEpochMilli()))
           .build());
   }
 
-  private void addStatusLabel(IamAccount expiredAccount, AccountLifecycleStatus status) {
-    accountService.setLabel(expiredAccount,
+  private void addStatusLabel(List<IamAccount> expiredAccounts, AccountLifecycleStatus status) {
+    accountRepo.setLabelForAccounts(ids(expiredAccounts),
         IamLabel.builder().name(LIFECYCLE_STATUS_LABEL).value(status.name()).build());
   }
 
-  private void suspendAccount(IamAccount expiredAccount) {
+  private long daysSinceExpiration(IamAccount expiredAccount) {
+    return ChronoUnit.DAYS.between(expiredAccount.getEndTime().toInstant(), checkTime);
+  }
 
+  private void suspendAccount(IamAccount expiredAccount) {
     LOG.info("Suspeding account {} expired on {} ({} days ago)", expiredAccount.getUsername(),
-        expiredAccount.getEndTime(),
-        ChronoUnit.DAYS.between(expiredAccount.getEndTime().toInstant(), checkTime));
+        expiredAccount.getEndTime(), daysSinceExpiration(expiredAccount));
     accountService.disableAccount(expiredAccount);
-    addStatusLabel(expiredAccount, AccountLifecycleStatus.PENDING_REMOVAL);
-    addLastCheckedLabel(expiredAccount);
   }
 
   private void markAsPendingSuspension(IamAccount expiredAccount) {
     LOG.info("Marking account {} (expired on {} ({} days ago)) as pending suspension",
         expiredAccount.getUsername(), expiredAccount.getEndTime(),
-        ChronoUnit.DAYS.between(expiredAccount.getEndTime().toInstant(), checkTime));
-    addStatusLabel(expiredAccount, AccountLifecycleStatus.PENDING_SUSPENSION);
-    addLastCheckedLabel(expiredAccount);
+        daysSinceExpiration(expiredAccount));
   }
 
   private void removeAccount(IamAccount expiredAccount) {
     LOG.info("Removing account {} expired on {} ({} days ago)", expiredAccount.getUsername(),
-        expiredAccount.getEndTime(),
-        ChronoUnit.DAYS.between(expiredAccount.getEndTime().toInstant(), checkTime));
+        expiredAccount.getEndTime(), daysSinceExpiration(expiredAccount));
     accountService.deleteAccount(expiredAccount);
   }
 
-
-  private void scheduleAccountRemoval(IamAccount expiredAccount) {
-    accountsScheduledForRemoval.add(expiredAccount);
-  }
-
-  private void handleExpiredAccount(IamAccount expiredAccount) {
-
-    if (pastRemovalGracePeriod(expiredAccount)) {
-      scheduleAccountRemoval(expiredAccount);
-    } else if (pastSuspensionGracePeriod(expiredAccount)) {
-      suspendAccount(expiredAccount);
-    } else {
-      markAsPendingSuspension(expiredAccount);
-    }
+  @Override
+  public String getName() {
+    return JOB_NAME;
   }
 
-  public void handleExpiredAccounts() {
-
-    accountsScheduledForRemoval.clear();
-
-    LOG.debug("Starting...");
+  @Override
+  public void start() {
     checkTime = clock.instant();
-    Date now = Date.from(checkTime);
+  }
 
-    Pageable pageRequest = new PageRequest(0, PAGE_SIZE, new Sort(Direction.ASC, "endTime"));
+  @Override
+  public List<IamAccount> readChunk(long lastKey, int chunkSize) {
+    return accountRepo.findExpiredAccountsAtTimestampWithIdGreaterThan(Date.from(checkTime),
+        lastKey, new PageRequest(0, chunkSize));
+  }
 
-    while (true) {
-      Page<IamAccount> expiredAccountsPage =
-          accountRepo.findExpiredAccountsAtTimestamp(now, pageRequest);
-      LOG.debug("expiredAccountsPage: {}", expiredAccountsPage);
+  @Override
+  public long getKey(IamAccount item) {
+    return item.getId();
+  }
 
-      if (expiredAccountsPage.hasContent()) {
-        
-        for (IamAccount expiredAccount : expiredAccountsPage.getContent()) {
-          handleExpiredAccount(expiredAccount);
-        }
+  @Override
+  public void processChunk(List<IamAccount> chunk) {
+    List<IamAccount> suspended = Lists.newArrayList();
+    List<IamAccount> pendingSuspension = Lists.newArrayList();
+
+    for (IamAccount expiredAccount : chunk) {
+      if (pastRemovalGracePeriod(expiredAccount)) {
+        removeAccount(expiredAccount);
+      } else if (pastSuspensionGracePeriod(expiredAccount)) {
+        suspendAccount(expiredAccount);
+        suspended.add(expiredAccount);
+      } else {
+        markAsPendingSuspension(expiredAccount);
+        pendingSuspension.add(expiredAccount);
       }
+    }
 
-      if (!expiredAccountsPage.hasNext()) {
-        break;
-      }
+    // Labels are set in bulk once the account entities have been updated, since the
+    // set-based label update clears the persistence context
+    addStatusLabel(suspended, AccountLifecycleStatus.PENDING_REMOVAL);
+    addStatusLabel(pendingSuspension, AccountLifecycleStatus.PENDING_SUSPENSION);
 
-      pageRequest = expiredAccountsPage.nextPageable();
-    }
+    List<IamAccount> checked = Lists.newArrayList(suspended);
+    checked.addAll(pendingSuspension);
+    addLastCheckedLabel(checked);
+  }
 
-    // Removals must be handled separately, otherwise pagination breaks 
-    for (IamAccount a : accountsScheduledForRemoval) {
-      removeAccount(a);
-    }
+  public void handleExpiredAccounts() {
+    LOG.debug("Starting...");
+    runner.run(this);
   }
 
   @Override
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.lifecycle;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.config.lifecycle.TokenCleanupProperties;
+import it.infn.mw.iam.persistence.repository.IamTokenCleanupRepository;
+
+/**
+ * Removes expired access tokens, refresh tokens and approved sites, and the authentication
+ * information that is no longer referenced by any token, with chunked set-based deletes.
+ *
+ * Each chunk is deleted in its own transaction, and each run stops when the configured time
+ * budget is exhausted; the remaining backlog is handled by the next run.
+ */
+@Component
+public class ExpiredTokensCleanupTask implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(ExpiredTokensCleanupTask.class);
+
+  public static final String METRIC_PREFIX = "iam.token-cleanup.";
+
+  public static final String ACCESS_TOKENS = "access-tokens";
+  public static final String REFRESH_TOKENS = "refresh-tokens";
+  public static final String APPROVED_SITES = "approved-sites";
+  public static final String AUTHENTICATION_HOLDERS = "authentication-holders";
+  public static final String SAVED_USER_AUTHS = "saved-user-authentications";
+
+  private final TokenCleanupProperties properties;
+  private final IamTokenCleanupRepository repo;
+  private final TransactionTemplate txTemplate;
+  private final Clock clock;
+
+  private final Map<String, AtomicLong> deletedRows = new ConcurrentHashMap<>();
+  private final Map<String, Long> backlog = new ConcurrentHashMap<>();
+
+  private volatile long lastRunDurationMsec = 0;
+  private volatile boolean lastRunBudgetExhausted = false;
+
+  @Autowired
+  public ExpiredTokensCleanupTask(TokenCleanupProperties properties,
+      IamTokenCleanupRepository repo, PlatformTransactionManager transactionManager, Clock clock) {
+    this.properties = properties;
+    this.repo = repo;
+    this.txTemplate = new TransactionTemplate(transactionManager);
+    this.clock = clock;
+  }
+
+  private boolean budgetExhausted(Instant deadline) {
+    return clock.instant().isAfter(deadline);
+  }
+
+  /**
+   * Deletes chunks until nothing is left or the time budget is exhausted.
+   *
+   * @return <code>true</code> if the step completed within the time budget
+   */
+  private boolean runStep(String step, LongFunction<List<Long>> chunkDeleter, Instant deadline) {
+    final int chunkSize = properties.getChunkSize();
+    final AtomicLong counter = deletedRows.computeIfAbsent(step, k -> new AtomicLong());
+
+    long lastId = 0;
+    long deleted = 0;
+
+    while (!budgetExhausted(deadline)) {
+      final long fromId = lastId;
+      List<Long> ids = txTemplate.execute(s -> chunkDeleter.apply(fromId));
+
+      deleted += ids.size();
+      counter.addAndGet(ids.size());
+
+      if (ids.size() < chunkSize) {
+        if (deleted > 0) {
+          LOG.info("Token cleanup: {} {} deleted", deleted, step);
+        }
+        return true;
+      }
+
+      lastId = ids.get(ids.size() - 1);
+    }
+
+    LOG.warn("Token cleanup: {} {} deleted, time budget exhausted", deleted, step);
+    return false;
+  }
+
+  private void completed(Instant startTime, boolean withinBudget) {
+    lastRunDurationMsec = clock.millis() - startTime.toEpochMilli();
+    lastRunBudgetExhausted = !withinBudget;
+  }
+
+  public void cleanupExpiredTokens() {
+    final Instant startTime = clock.instant();
+    final Instant deadline = startTime.plusSeconds(properties.getMaxRunTimeSecs());
+    final Date now = Date.from(startTime);
+    final int chunkSize = properties.getChunkSize();
+
+    boolean withinBudget =
+        runStep(ACCESS_TOKENS, id -> repo.deleteExpiredAccessTokens(now, chunkSize), deadline)
+            && runStep(REFRESH_TOKENS, id -> repo.deleteExpiredRefreshTokens(now, chunkSize),
+                deadline)
+            && runStep(AUTHENTICATION_HOLDERS,
+                id -> repo.deleteOrphanedAuthenticationHolders(id, chunkSize), deadline)
+            && runStep(SAVED_USER_AUTHS,
+                id -> repo.deleteOrphanedSavedUserAuthentications(id, chunkSize), deadline);
+
+    backlog.put(ACCESS_TOKENS, repo.countExpiredAccessTokens(now));
+    backlog.put(REFRESH_TOKENS, repo.countExpiredRefreshTokens(now));
+
+    completed(startTime, withinBudget);
+  }
+
+  public void cleanupExpiredApprovedSites() {
+    final Instant startTime = clock.instant();
+    final Instant deadline = startTime.plusSeconds(properties.getMaxRunTimeSecs());
+    final Date now = Date.from(startTime);
+    final int chunkSize = properties.getChunkSize();
+
+    boolean withinBudget = runStep(APPROVED_SITES,
+        id -> repo.deleteExpiredApprovedSites(now, chunkSize), deadline);
+
+    backlog.put(APPROVED_SITES, repo.countExpiredApprovedSites(now));
+
+    completed(startTime, withinBudget);
+  }
+
+  public long getDeletedRows(String step) {
+    AtomicLong counter = deletedRows.get(step);
+    return counter == null ? 0 : counter.get();
+  }
+
+  public long getBacklog(String step) {
+    return backlog.getOrDefault(step, 0L);
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    deletedRows
+      .forEach((step, c) -> result.add(new Metric<>(METRIC_PREFIX + "deleted." + step, c.get())));
+    backlog.forEach((step, b) -> result.add(new Metric<>(METRIC_PREFIX + "backlog." + step, b)));
+
+    result.add(new Metric<>(METRIC_PREFIX + "last-run.duration-msec", lastRunDurationMsec));
+    result.add(new Metric<>(METRIC_PREFIX + "last-run.budget-exhausted",
+        lastRunBudgetExhausted ? 1 : 0));
+
+    return result;
+  }
+}
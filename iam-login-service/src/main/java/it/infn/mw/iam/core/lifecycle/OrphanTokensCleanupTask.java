@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.lifecycle;
+
+import java.util.List;
+
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.mitre.oauth2.model.OAuth2RefreshTokenEntity;
+import org.mitre.oauth2.service.OAuth2TokenEntityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
+import it.infn.mw.iam.persistence.repository.IamOAuthAccessTokenRepository;
+import it.infn.mw.iam.persistence.repository.IamOAuthRefreshTokenRepository;
+
+/**
+ * Revokes, in chunks, the access and refresh tokens linked to accounts that no longer exist.
+ */
+@Component
+public class OrphanTokensCleanupTask implements Runnable {
+
+  public static final Logger LOG = LoggerFactory.getLogger(OrphanTokensCleanupTask.class);
+
+  public static final String ACCESS_TOKENS_JOB_NAME = "orphan-access-tokens";
+  public static final String REFRESH_TOKENS_JOB_NAME = "orphan-refresh-tokens";
+
+  private final IamOAuthAccessTokenRepository accessTokenRepo;
+  private final IamOAuthRefreshTokenRepository refreshTokenRepo;
+  private final OAuth2TokenEntityService tokenService;
+  private final BatchJobRunner runner;
+
+  private final BatchJob<OAuth2AccessTokenEntity> accessTokensJob =
+      new BatchJob<OAuth2AccessTokenEntity>() {
+
+        @Override
+        public String getName() {
+          return ACCESS_TOKENS_JOB_NAME;
+        }
+
+        @Override
+        public List<OAuth2AccessTokenEntity> readChunk(long lastKey, int chunkSize) {
+          return accessTokenRepo.findOrphanedTokensWithIdGreaterThan(lastKey,
+              new PageRequest(0, chunkSize));
+        }
+
+        @Override
+        public long getKey(OAuth2AccessTokenEntity item) {
+          return item.getId();
+        }
+
+        @Override
+        public void processChunk(List<OAuth2AccessTokenEntity> chunk) {
+          chunk.forEach(tokenService::revokeAccessToken);
+          LOG.info("Removed {} access tokens owned by deleted users", chunk.size());
+        }
+      };
+
+  private final BatchJob<OAuth2RefreshTokenEntity> refreshTokensJob =
+      new BatchJob<OAuth2RefreshTokenEntity>() {
+
+        @Override
+        public String getName() {
+          return REFRESH_TOKENS_JOB_NAME;
+        }
+
+        @Override
+        public List<OAuth2RefreshTokenEntity> readChunk(long lastKey, int chunkSize) {
+          return refreshTokenRepo.findOrphanedTokensWithIdGreaterThan(lastKey,
+              new PageRequest(0, chunkSize));
+        }
+
+        @Override
+        public long getKey(OAuth2RefreshTokenEntity item) {
+          return item.getId();
+        }
+
+        @Override
+        public void processChunk(List<OAuth2RefreshTokenEntity> chunk) {
+          chunk.forEach(tokenService::revokeRefreshToken);
+          LOG.info("Removed {} refresh tokens owned by deleted users", chunk.size());
+        }
+      };
+
+  @Autowired
+  public OrphanTokensCleanupTask(IamOAuthAccessTokenRepository accessTokenRepo,
+      IamOAuthRefreshTokenRepository refreshTokenRepo, OAuth2TokenEntityService tokenService,
+      BatchJobRunner runner) {
+    this.accessTokenRepo = accessTokenRepo;
+    this.refreshTokenRepo = refreshTokenRepo;
+    this.tokenService = tokenService;
+    this.runner = runner;
+  }
+
+  public void removeOrphanTokens() {
+    runner.run(accessTokensJob);
+    runner.run(refreshTokensJob);
+  }
+
+  @Override
+  public void run() {
+    removeOrphanTokens();
+  }
+}
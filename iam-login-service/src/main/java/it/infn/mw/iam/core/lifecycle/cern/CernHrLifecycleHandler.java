@@ -22,38 +22,64 @@ import static it.infn.mw.iam.core.lifecycle.cern.CernHrLifecycleHandler.Status.O
 import static java.lang.String.format;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import it.infn.mw.iam.api.registration.cern.CernHrDBApiService;
+import it.infn.mw.iam.api.registration.cern.CernHrDbApiError;
 import it.infn.mw.iam.api.registration.cern.dto.VOPersonDTO;
 import it.infn.mw.iam.config.cern.CernProperties;
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.util.CircuitBreaker;
 
+/**
+ * Synchronizes the status of accounts linked to a CERN person id with the CERN HR database.
+ *
+ * Accounts are processed in chunks by the {@link BatchJobRunner}. For each chunk, HR db lookups
+ * are run concurrently on a bounded worker pool, while account updates are applied on the calling
+ * thread, in the chunk transaction. Calls to the HR db are guarded by a {@link CircuitBreaker}:
+ * when the breaker opens, the run is interrupted and resumed from the last committed chunk at the
+ * next run.
+ */
 @Component
 @Profile("cern")
-public class CernHrLifecycleHandler implements Runnable, SchedulingConfigurer {
+public class CernHrLifecycleHandler
+    implements Runnable, SchedulingConfigurer, BatchJob<IamAccount> {
 
   public static final String IGNORE_MESSAGE = "Skipping account as requested by the 'ignore' label";
   public static final String HR_DB_API_ERROR = "Account not updated: HR DB error";
   public static final String PERSON_ID_NOT_FOUND_TEMPLATE = "%s not found";
 
+  public static final String JOB_NAME = "cern-hr-lifecycle";
+
   public static final int DEFAULT_PAGE_SIZE = 50;
 
   public static final Logger LOG = LoggerFactory.getLogger(CernHrLifecycleHandler.class);
@@ -81,20 +107,42 @@ public class CernHrLifecycleHandler implements Runnable, SchedulingConfigurer {
   private final IamAccountRepository accountRepo;
   private final IamAccountService accountService;
   private final CernHrDBApiService hrDb;
+  private final BatchJobRunner runner;
+  private final CircuitBreaker circuitBreaker;
+  private final ExecutorService hrDbExecutor;
+
+  private Instant checkTime;
+  private CernHrSyncStatistics currentRunStats;
+  private volatile CernHrSyncStatistics lastRunStats;
+
+  private static class HrDbRecord {
+    boolean validParticipation;
+    VOPersonDTO person;
+    RuntimeException error;
+  }
 
   @Autowired
   public CernHrLifecycleHandler(Clock clock, CernProperties cernProperties,
-      IamAccountRepository accountRepo, IamAccountService accountService, CernHrDBApiService hrDb) {
+      IamAccountRepository accountRepo, IamAccountService accountService, CernHrDBApiService hrDb,
+      BatchJobRunner runner) {
     this.clock = clock;
     this.cernProperties = cernProperties;
     this.accountRepo = accountRepo;
     this.accountService = accountService;
     this.hrDb = hrDb;
+    this.runner = runner;
+
+    this.circuitBreaker = new CircuitBreaker("cern-hr-db",
+        cernProperties.getHrApi().getCircuitBreakerFailureThreshold(),
+        Duration.ofSeconds(cernProperties.getHrApi().getCircuitBreakerOpenTimeSecs()), clock);
+
+    this.hrDbExecutor = Executors.newFixedThreadPool(cernProperties.getTask().getSyncThreads(),
+        new ThreadFactoryBuilder().setNameFormat("cern-hr-sync-%d").setDaemon(true).build());
   }
 
-  private Supplier<IllegalArgumentException> personIdNotFound(IamAccount a) {
-    return () -> new IllegalArgumentException(
-        "CERN person id not found for account " + a.getUsername());
+  @PreDestroy
+  public void shutdown() {
+    hrDbExecutor.shutdownNow();
   }
 
   private IamLabel buildActionLabel(Action action) {
@@ -125,16 +173,17 @@ public class CernHrLifecycleHandler implements Runnable, SchedulingConfigurer {
     return IamLabel.builder().prefix(LABEL_CERN_PREFIX).name(LABEL_MESSAGE).value(message).build();
   }
 
-  public void addErrorMessage(IamAccount account, String message) {
-    account.getLabels().add(buildStatusLabel(Status.ERROR));
-    account.getLabels().add(buildMessageLabel(message));
+  private void addErrorMessage(List<IamLabel> labels, String message) {
+    labels.add(buildStatusLabel(Status.ERROR));
+    labels.add(buildMessageLabel(message));
   }
 
-  private void syncMembershipInformation(IamAccount account) {
-    IamLabel cernPersonId = getPersonIdLabel(account).orElseThrow(personIdNotFound(account));
-
-    VOPersonDTO voPerson = hrDb.getHrDbPersonRecord(cernPersonId.getValue());
+  private void addStatusAndAction(List<IamLabel> labels, Action action) {
+    labels.add(buildStatusLabel(OK));
+    labels.add(buildActionLabel(action));
+  }
 
+  private void syncMembershipInformation(IamAccount account, VOPersonDTO voPerson) {
     account.getUserInfo().setGivenName(voPerson.getFirstName());
     account.getUserInfo().setFamilyName((voPerson.getName()));
     account.getUserInfo().setEmail(voPerson.getEmail());
@@ -147,49 +196,50 @@ public class CernHrLifecycleHandler implements Runnable, SchedulingConfigurer {
     return actionLabel.isPresent() && actionLabel.get().getValue().equals(DISABLE_ACCOUNT.name());
   }
 
-  private void disableAccount(IamAccount account) {
+  private void disableAccount(IamAccount account, List<IamLabel> labels) {
     LOG.info("No valid HR record found for account {} -> Disabling account", account.getUsername());
 
     accountService.disableAccount(account);
-    accountService.setAccountEndTime(account, Date.from(clock.instant()));
+    accountService.setAccountEndTime(account, Date.from(checkTime));
 
-    accountService.setLabel(account, buildStatusLabel(OK));
-    accountService.setLabel(account, buildActionLabel(DISABLE_ACCOUNT));
+    addStatusAndAction(labels, DISABLE_ACCOUNT);
+    currentRunStats.accountDisabled();
   }
 
-  private void restoreAccount(IamAccount account) {
+  private void restoreAccount(IamAccount account, List<IamLabel> labels) {
     LOG.info("A valid HR record was found for account {} -> restoring account",
         account.getUsername());
 
     accountService.restoreAccount(account);
 
-    accountService.setLabel(account, buildStatusLabel(OK));
-    accountService.setLabel(account, buildActionLabel(RESTORE_ACCOUNT));
+    addStatusAndAction(labels, RESTORE_ACCOUNT);
+    currentRunStats.accountRestored();
   }
 
-  public void handleValidAccount(IamAccount account) {
-    syncMembershipInformation(account);
+  private void handleValidAccount(IamAccount account, VOPersonDTO voPerson,
+      List<IamLabel> labels) {
+    syncMembershipInformation(account, voPerson);
     if (!account.isActive() && accountWasSuspendedByUs(account)) {
-      restoreAccount(account);
+      restoreAccount(account, labels);
     } else {
-      accountService.setLabel(account, buildStatusLabel(OK));
-      accountService.setLabel(account, buildActionLabel(NO_ACTION));
+      addStatusAndAction(labels, NO_ACTION);
+      currentRunStats.accountUnchanged();
     }
   }
 
-  public void handleInvalidAccount(IamAccount account) {
+  private void handleInvalidAccount(IamAccount account, List<IamLabel> labels) {
     if (account.isActive()) {
-      disableAccount(account);
+      disableAccount(account, labels);
     } else {
-      accountService.setLabel(account, buildStatusLabel(OK));
-      accountService.setLabel(account, buildActionLabel(NO_ACTION));
+      addStatusAndAction(labels, NO_ACTION);
+      currentRunStats.accountUnchanged();
     }
   }
 
-  public void handleIgnoredAccount(IamAccount account) {
-    accountService.setLabel(account, buildStatusLabel(OK));
-    accountService.setLabel(account, buildActionLabel(NO_ACTION));
-    accountService.setLabel(account, buildMessageLabel(IGNORE_MESSAGE));
+  private void handleIgnoredAccount(List<IamLabel> labels) {
+    addStatusAndAction(labels, NO_ACTION);
+    labels.add(buildMessageLabel(IGNORE_MESSAGE));
+    currentRunStats.accountIgnored();
   }
 
   private Optional<IamLabel> getPersonIdLabel(IamAccount account) {
@@ -197,52 +247,129 @@ public class CernHrLifecycleHandler implements Runnable, SchedulingConfigurer {
         cernProperties.getPersonIdClaim());
   }
 
-  public void handleAccount(IamAccount account) {
-    Instant checkTime = clock.instant();
-    account.getLabels().add(buildTimestampLabel(checkTime));
-    Optional<IamLabel> cernPersonId = getPersonIdLabel(account);
-    if (!cernPersonId.isPresent()) {
-      addErrorMessage(account,
+  private boolean isIgnored(IamAccount account) {
+    return account.getLabelByPrefixAndName(LABEL_CERN_PREFIX, LABEL_IGNORE).isPresent();
+  }
+
+  private HrDbRecord lookupHrDbRecord(String personId) {
+    HrDbRecord hrDbRecord = new HrDbRecord();
+
+    try {
+      hrDbRecord.validParticipation =
+          circuitBreaker.call(() -> hrDb.hasValidExperimentParticipation(personId));
+
+      if (hrDbRecord.validParticipation) {
+        hrDbRecord.person = circuitBreaker.call(() -> hrDb.getHrDbPersonRecord(personId));
+      }
+    } catch (RuntimeException e) {
+      hrDbRecord.error = e;
+    }
+
+    return hrDbRecord;
+  }
+
+  private HrDbRecord awaitHrDbRecord(Future<HrDbRecord> lookup) {
+    try {
+      return lookup.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CernHrDbApiError("Interrupted while waiting for HR db lookups", e);
+    } catch (ExecutionException e) {
+      HrDbRecord hrDbRecord = new HrDbRecord();
+      hrDbRecord.error = new CernHrDbApiError(e.getMessage(), e.getCause());
+      return hrDbRecord;
+    }
+  }
+
+  private void handleAccount(IamAccount account, Future<HrDbRecord> lookup) {
+    List<IamLabel> labels = Lists.newArrayList(buildTimestampLabel(checkTime));
+
+    if (!getPersonIdLabel(account).isPresent()) {
+      addErrorMessage(labels,
           format(PERSON_ID_NOT_FOUND_TEMPLATE, cernProperties.getPersonIdClaim()));
+      currentRunStats.accountError();
+    } else if (isIgnored(account)) {
+      handleIgnoredAccount(labels);
     } else {
-      if (account.getLabelByPrefixAndName(LABEL_CERN_PREFIX, LABEL_IGNORE).isPresent()) {
-        handleIgnoredAccount(account);
+      HrDbRecord hrDbRecord = awaitHrDbRecord(lookup);
+
+      if (hrDbRecord.error != null) {
+        LOG.error("Error contacting HR DB api: {}", hrDbRecord.error.getMessage(),
+            hrDbRecord.error);
+        addErrorMessage(labels, format(HR_DB_API_ERROR));
+        currentRunStats.hrDbError();
+      } else if (hrDbRecord.validParticipation) {
+        handleValidAccount(account, hrDbRecord.person, labels);
       } else {
-        try {
-          if (hrDb.hasValidExperimentParticipation(cernPersonId.get().getValue())) {
-            handleValidAccount(account);
-          } else {
-            handleInvalidAccount(account);
-          }
-        } catch (RuntimeException e) {
-          LOG.error("Error contacting HR DB api: {}", e.getMessage(), e);
-          addErrorMessage(account, format(HR_DB_API_ERROR));
-        }
+        handleInvalidAccount(account, labels);
       }
     }
+
+    accountService.setLabels(account, labels);
+    currentRunStats.accountProcessed();
   }
 
   @Override
-  public void run() {
-    LOG.debug("Starting...");
+  public String getName() {
+    return JOB_NAME;
+  }
 
-    Pageable pageRequest = new PageRequest(0, cernProperties.getTask().getPageSize());
+  @Override
+  public void start() {
+    checkTime = clock.instant();
+    currentRunStats = new CernHrSyncStatistics(checkTime);
+    circuitBreaker.reset();
+  }
 
-    while (true) {
-      Page<IamAccount> accountsPage = accountRepo.findByLabelPrefixAndName(
-          LABEL_CERN_PREFIX, cernProperties.getPersonIdClaim(), pageRequest);
+  @Override
+  public List<IamAccount> readChunk(long lastKey, int chunkSize) {
+    if (circuitBreaker.isOpen()) {
+      throw new CernHrDbApiError(
+          "HR db api circuit breaker is open, the run will be resumed at the next execution");
+    }
 
-      if (accountsPage.hasContent()) {
-        for (IamAccount account : accountsPage.getContent()) {
-          handleAccount(account);
-        }
-      }
+    return accountRepo.findByLabelPrefixAndNameWithIdGreaterThan(LABEL_CERN_PREFIX,
+        cernProperties.getPersonIdClaim(), lastKey, new PageRequest(0, chunkSize));
+  }
+
+  @Override
+  public long getKey(IamAccount item) {
+    return item.getId();
+  }
+
+  @Override
+  public void processChunk(List<IamAccount> chunk) {
+    Map<Long, Future<HrDbRecord>> lookups = Maps.newHashMap();
 
-      if (!accountsPage.hasNext()) {
-        break;
+    for (IamAccount account : chunk) {
+      Optional<IamLabel> personId = getPersonIdLabel(account);
+
+      if (personId.isPresent() && !isIgnored(account)) {
+        final String personIdValue = personId.get().getValue();
+        lookups.put(account.getId(),
+            hrDbExecutor.submit(() -> lookupHrDbRecord(personIdValue)));
       }
+    }
+
+    for (IamAccount account : chunk) {
+      handleAccount(account, lookups.get(account.getId()));
+    }
+  }
+
+  public Optional<CernHrSyncStatistics> getLastRunStatistics() {
+    return Optional.ofNullable(lastRunStats);
+  }
+
+  @Override
+  public void run() {
+    LOG.debug("Starting...");
+
+    runner.run(this, cernProperties.getTask().getPageSize());
 
-      pageRequest = accountsPage.nextPageable();
+    if (currentRunStats != null) {
+      currentRunStats.completed(clock.instant());
+      lastRunStats = currentRunStats;
+      LOG.info("CERN HR DB synchronization run completed: {}", lastRunStats);
     }
   }
 
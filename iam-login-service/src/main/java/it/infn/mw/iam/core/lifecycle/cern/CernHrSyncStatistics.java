@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.lifecycle.cern;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Statistics collected during a run of the {@link CernHrLifecycleHandler}.
+ */
+public class CernHrSyncStatistics {
+
+  private final Instant startTime;
+  private Instant endTime;
+
+  private long accounts;
+  private long unchanged;
+  private long disabled;
+  private long restored;
+  private long ignored;
+  private long errors;
+  private long hrDbErrors;
+
+  public CernHrSyncStatistics(Instant startTime) {
+    this.startTime = startTime;
+  }
+
+  void accountProcessed() {
+    accounts++;
+  }
+
+  void accountUnchanged() {
+    unchanged++;
+  }
+
+  void accountDisabled() {
+    disabled++;
+  }
+
+  void accountRestored() {
+    restored++;
+  }
+
+  void accountIgnored() {
+    ignored++;
+  }
+
+  void accountError() {
+    errors++;
+  }
+
+  void hrDbError() {
+    errors++;
+    hrDbErrors++;
+  }
+
+  void completed(Instant time) {
+    this.endTime = time;
+  }
+
+  public Instant getStartTime() {
+    return startTime;
+  }
+
+  public Instant getEndTime() {
+    return endTime;
+  }
+
+  public Duration getDuration() {
+    return Duration.between(startTime, endTime == null ? Instant.now() : endTime);
+  }
+
+  public double getAccountsPerSecond() {
+    long msecs = getDuration().toMillis();
+    if (msecs <= 0) {
+      return accounts;
+    }
+    return accounts * 1000.0 / msecs;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  public long getDisabled() {
+    return disabled;
+  }
+
+  public long getRestored() {
+    return restored;
+  }
+
+  public long getIgnored() {
+    return ignored;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getHrDbErrors() {
+    return hrDbErrors;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "accounts=%d, unchanged=%d, disabled=%d, restored=%d, ignored=%d, errors=%d "
+            + "(HR db errors=%d), duration=%d msec, accounts/sec=%.2f",
+        accounts, unchanged, disabled, restored, ignored, errors, hrDbErrors,
+        getDuration().toMillis(), getAccountsPerSecond());
+  }
+}
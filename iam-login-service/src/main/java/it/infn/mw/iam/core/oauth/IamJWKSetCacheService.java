@@ -15,9 +15,15 @@
  */
 package it.infn.mw.iam.core.oauth;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
+
 import org.mitre.jose.keystore.JWKSetKeyStore;
 import org.mitre.jwt.encryption.service.JWTEncryptionAndDecryptionService;
 import org.mitre.jwt.encryption.service.impl.DefaultJWTEncryptionAndDecryptionService;
@@ -31,6 +37,9 @@ import org.springframework.web.client.RestTemplate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.nimbusds.jose.jwk.JWKSet;
 
@@ -45,20 +54,47 @@ public class IamJWKSetCacheService extends JWKSetCacheService {
   private LoadingCache<String, JWTSigningAndValidationService> validators;
   private LoadingCache<String, JWTEncryptionAndDecryptionService> encrypters;
 
+  private final ExecutorService refreshExecutor;
+
   public IamJWKSetCacheService(RestTemplateFactory rtf, int maxCacheSize, int expirationTime,
       TimeUnit timeUnit) {
+    this(rtf, maxCacheSize, expirationTime, expirationTime, timeUnit);
+  }
+
+  /**
+   * Key sets are refreshed in the background once older than the refresh time; while a refresh is
+   * in progress, or if it fails, the previously fetched key set keeps being served until it
+   * becomes older than the max stale time.
+   */
+  public IamJWKSetCacheService(RestTemplateFactory rtf, int maxCacheSize, int refreshTime,
+      int maxStaleTime, TimeUnit timeUnit) {
+
+    this.refreshExecutor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("jwks-refresh-%d").setDaemon(true).build());
 
     this.validators = CacheBuilder.newBuilder()
-      .expireAfterWrite(expirationTime, timeUnit)
+      .refreshAfterWrite(refreshTime, timeUnit)
+      .expireAfterWrite(Math.max(refreshTime, maxStaleTime), timeUnit)
       .maximumSize(maxCacheSize)
-      .build(new JWKSetVerifierFetcher(rtf));
+      .build(new JWKSetVerifierFetcher(rtf, refreshExecutor));
 
     this.encrypters = CacheBuilder.newBuilder()
-      .expireAfterWrite(expirationTime, timeUnit)
+      .refreshAfterWrite(refreshTime, timeUnit)
+      .expireAfterWrite(Math.max(refreshTime, maxStaleTime), timeUnit)
       .maximumSize(maxCacheSize)
-      .build(new JWKSetEncryptorFetcher(rtf));
+      .build(new JWKSetEncryptorFetcher(rtf, refreshExecutor));
   }
 
+  static <V> ListenableFuture<V> reloadAsync(Executor executor, Callable<V> loader) {
+    ListenableFutureTask<V> task = ListenableFutureTask.create(loader);
+    executor.execute(task);
+    return task;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
 
   @Override
   public JWTSigningAndValidationService getValidator(String jwksUri) {
@@ -91,9 +127,21 @@ public class IamJWKSetCacheService extends JWKSetCacheService {
       extends CacheLoader<String, JWTEncryptionAndDecryptionService> {
 
     final RestTemplateFactory rtf;
+    final Executor refreshExecutor;
 
     public JWKSetEncryptorFetcher(RestTemplateFactory rtf) {
+      this(rtf, Runnable::run);
+    }
+
+    public JWKSetEncryptorFetcher(RestTemplateFactory rtf, Executor refreshExecutor) {
       this.rtf = rtf;
+      this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public ListenableFuture<JWTEncryptionAndDecryptionService> reload(String key,
+        JWTEncryptionAndDecryptionService oldValue) {
+      return reloadAsync(refreshExecutor, () -> load(key));
     }
 
     @Override
@@ -114,9 +162,21 @@ public class IamJWKSetCacheService extends JWKSetCacheService {
       extends CacheLoader<String, JWTSigningAndValidationService> {
 
     final RestTemplateFactory rtf;
+    final Executor refreshExecutor;
 
     public JWKSetVerifierFetcher(RestTemplateFactory rtf) {
+      this(rtf, Runnable::run);
+    }
+
+    public JWKSetVerifierFetcher(RestTemplateFactory rtf, Executor refreshExecutor) {
       this.rtf = rtf;
+      this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public ListenableFuture<JWTSigningAndValidationService> reload(String key,
+        JWTSigningAndValidationService oldValue) {
+      return reloadAsync(refreshExecutor, () -> load(key));
     }
 
     @Override
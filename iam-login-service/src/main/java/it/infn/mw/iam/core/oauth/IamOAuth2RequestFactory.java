@@ -34,6 +34,8 @@ import org.springframework.security.oauth2.provider.TokenRequest;
 
 import com.google.common.base.Joiner;
 
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceStage;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
 import it.infn.mw.iam.core.oauth.profile.JWTProfileResolver;
 import it.infn.mw.iam.core.oauth.scope.pdp.IamScopeFilter;
 
@@ -49,13 +51,16 @@ public class IamOAuth2RequestFactory extends ConnectOAuth2RequestFactory {
 
   private final JWTProfileResolver profileResolver;
 
+  private final TokenIssuanceTimer timer;
+
   private final Joiner joiner = Joiner.on(' ');
 
   public IamOAuth2RequestFactory(ClientDetailsEntityService clientDetailsService,
-      IamScopeFilter scopeFilter, JWTProfileResolver profileResolver) {
+      IamScopeFilter scopeFilter, JWTProfileResolver profileResolver, TokenIssuanceTimer timer) {
     super(clientDetailsService);
     this.scopeFilter = scopeFilter;
     this.profileResolver = profileResolver;
+    this.timer = timer;
   }
 
 
@@ -68,7 +73,8 @@ public class IamOAuth2RequestFactory extends ConnectOAuth2RequestFactory {
       final Set<String> requestedScopes =
           OAuth2Utils.parseParameterList(inputParams.get(OAuth2Utils.SCOPE));
 
-      scopeFilter.filterScopes(requestedScopes, authn);
+      timer.time(TokenIssuanceStage.SCOPE_FILTER,
+          () -> scopeFilter.filterScopes(requestedScopes, authn));
       inputParams.put(OAuth2Utils.SCOPE, joiner.join(requestedScopes));
     }
     
@@ -106,6 +112,8 @@ public class IamOAuth2RequestFactory extends ConnectOAuth2RequestFactory {
 
     OAuth2Request request = super.createOAuth2Request(client, tokenRequest);
 
+    timer.tagRequest(request.getGrantType(), request.getClientId());
+
     handlePasswordGrantAuthenticationTimestamp(request);
 
     for (String audienceKey : AUDIENCE_KEYS) {
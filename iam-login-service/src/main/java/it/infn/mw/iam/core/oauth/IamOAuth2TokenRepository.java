@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth;
+
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.mitre.oauth2.model.OAuth2RefreshTokenEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import it.infn.mw.iam.core.oauth.metrics.TimedOAuth2TokenRepository;
+import it.infn.mw.iam.persistence.repository.IamOAuthAccessTokenRepository;
+import it.infn.mw.iam.persistence.repository.IamOAuthRefreshTokenRepository;
+
+/**
+ * Records the owner of access and refresh tokens in the denormalized <code>user_name</code>
+ * column of the token tables when tokens are saved, so that the token management API can filter
+ * tokens by owner without joining the authentication holder tables.
+ */
+public class IamOAuth2TokenRepository extends TimedOAuth2TokenRepository {
+
+  @Autowired
+  private IamOAuthAccessTokenRepository accessTokenRepo;
+
+  @Autowired
+  private IamOAuthRefreshTokenRepository refreshTokenRepo;
+
+  @Override
+  @Transactional(value = "defaultTransactionManager")
+  public OAuth2AccessTokenEntity saveAccessToken(OAuth2AccessTokenEntity token) {
+    OAuth2AccessTokenEntity savedToken = super.saveAccessToken(token);
+    accessTokenRepo.updateOwner(savedToken);
+    return savedToken;
+  }
+
+  @Override
+  @Transactional(value = "defaultTransactionManager")
+  public OAuth2RefreshTokenEntity saveRefreshToken(OAuth2RefreshTokenEntity refreshToken) {
+    OAuth2RefreshTokenEntity savedToken = super.saveRefreshToken(refreshToken);
+    refreshTokenRepo.updateOwner(savedToken);
+    return savedToken;
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth;
+
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
+
+import it.infn.mw.iam.core.password.PasswordHashingUnavailableException;
+
+/**
+ * Translates password hashing saturation errors raised at the token endpoint into a
+ * <code>temporarily_unavailable</code> error with a 503 status and a <code>Retry-After</code>
+ * header. Any other error is translated as in {@link DefaultWebResponseExceptionTranslator}.
+ */
+public class IamWebResponseExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+
+  public static final String TEMPORARILY_UNAVAILABLE = "temporarily_unavailable";
+
+  public static class TemporarilyUnavailableException extends OAuth2Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public TemporarilyUnavailableException(String msg) {
+      super(msg);
+    }
+
+    @Override
+    public String getOAuth2ErrorCode() {
+      return TEMPORARILY_UNAVAILABLE;
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+      return HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+  }
+
+  @Override
+  public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+
+    Optional<PasswordHashingUnavailableException> unavailable =
+        PasswordHashingUnavailableException.findInCausalChain(e);
+
+    if (!unavailable.isPresent()) {
+      return super.translate(e);
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("Cache-Control", "no-store");
+    headers.set("Pragma", "no-cache");
+    headers.set(PasswordHashingUnavailableException.RETRY_AFTER_HEADER,
+        String.valueOf(unavailable.get().getRetryAfterSecs()));
+
+    return new ResponseEntity<>(
+        new TemporarilyUnavailableException(unavailable.get().getMessage()), headers,
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
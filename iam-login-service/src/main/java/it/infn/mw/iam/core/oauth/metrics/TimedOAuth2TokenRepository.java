@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth.metrics;
+
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.mitre.oauth2.model.OAuth2RefreshTokenEntity;
+import org.mitre.oauth2.repository.impl.JpaOAuth2TokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A {@link JpaOAuth2TokenRepository} that accounts the time spent persisting tokens to the
+ * {@link TokenIssuanceStage#PERSISTENCE} stage.
+ */
+public class TimedOAuth2TokenRepository extends JpaOAuth2TokenRepository {
+
+  @Autowired
+  private TokenIssuanceTimer timer;
+
+  @Override
+  @Transactional(value = "defaultTransactionManager")
+  public OAuth2AccessTokenEntity saveAccessToken(OAuth2AccessTokenEntity token) {
+    return timer.time(TokenIssuanceStage.PERSISTENCE, () -> super.saveAccessToken(token));
+  }
+
+  @Override
+  @Transactional(value = "defaultTransactionManager")
+  public OAuth2RefreshTokenEntity saveRefreshToken(OAuth2RefreshTokenEntity refreshToken) {
+    return timer.time(TokenIssuanceStage.PERSISTENCE, () -> super.saveRefreshToken(refreshToken));
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth.metrics;
+
+public enum TokenIssuanceStage {
+
+  SCOPE_FILTER("scope-filter"),
+  SCOPE_POLICY("scope-policy"),
+  USER_INFO("userinfo"),
+  ACCESS_TOKEN_BUILDER("access-token-builder"),
+  SIGNING("signing"),
+  ID_TOKEN("id-token"),
+  PERSISTENCE("persistence"),
+  TOTAL("total");
+
+  private final String stageName;
+
+  private TokenIssuanceStage(String stageName) {
+    this.stageName = stageName;
+  }
+
+  public String getStageName() {
+    return stageName;
+  }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import it.infn.mw.iam.config.metrics.TokenIssuanceMetricsProperties;
+
+/**
+ * Measures the time spent in each stage of token issuance.
+ *
+ * Stage timings are collected in a per-thread trace, opened by {@link #begin()} when a token
+ * request enters the application and closed by {@link #end()}. When the trace is closed, timings
+ * are aggregated by stage, grant type, client and JWT profile, and a stage breakdown is logged if
+ * the request took longer than the configured threshold. Stages executed outside a trace are not
+ * measured.
+ */
+@Component
+public class TokenIssuanceTimer implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TokenIssuanceTimer.class);
+
+  public static final String METRIC_PREFIX = "iam.token-issuance.";
+  public static final String UNKNOWN = "unknown";
+  public static final String OTHER_CLIENTS = "other";
+
+  private static final double NANOS_PER_MSEC = 1_000_000.0;
+
+  public static final class StageKey {
+
+    private final TokenIssuanceStage stage;
+    private final String grantType;
+    private final String clientId;
+    private final String profile;
+
+    StageKey(TokenIssuanceStage stage, String grantType, String clientId, String profile) {
+      this.stage = stage;
+      this.grantType = grantType;
+      this.clientId = clientId;
+      this.profile = profile;
+    }
+
+    public TokenIssuanceStage getStage() {
+      return stage;
+    }
+
+    public String getGrantType() {
+      return grantType;
+    }
+
+    public String getClientId() {
+      return clientId;
+    }
+
+    public String getProfile() {
+      return profile;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stage, grantType, clientId, profile);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof StageKey)) {
+        return false;
+      }
+      StageKey other = (StageKey) obj;
+      return stage == other.stage && Objects.equals(grantType, other.grantType)
+          && Objects.equals(clientId, other.clientId) && Objects.equals(profile, other.profile);
+    }
+  }
+
+  public static final class StageStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+      return maxNanos.get();
+    }
+  }
+
+  static final class Trace {
+
+    final long startTime = System.nanoTime();
+    final Map<TokenIssuanceStage, Long> stageNanos = new EnumMap<>(TokenIssuanceStage.class);
+
+    String grantType = UNKNOWN;
+    String clientId = UNKNOWN;
+    String profile = UNKNOWN;
+
+    void add(TokenIssuanceStage stage, long nanos) {
+      stageNanos.merge(stage, nanos, Long::sum);
+    }
+  }
+
+  private final TokenIssuanceMetricsProperties properties;
+
+  private final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+  private final ConcurrentMap<StageKey, StageStats> stats = new ConcurrentHashMap<>();
+  private final Set<String> trackedClients = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder slowRequests = new LongAdder();
+
+  @Autowired
+  public TokenIssuanceTimer(TokenIssuanceMetricsProperties properties) {
+    this.properties = properties;
+  }
+
+  private static double toMsec(long nanos) {
+    return nanos / NANOS_PER_MSEC;
+  }
+
+  private static String orUnknown(String value) {
+    return value == null ? UNKNOWN : value;
+  }
+
+  /**
+   * Opens a trace for the token request being served by the current thread. Has no effect if
+   * timing is disabled or a trace is already open.
+   */
+  public void begin() {
+    if (properties.isEnabled() && currentTrace.get() == null) {
+      currentTrace.set(new Trace());
+    }
+  }
+
+  /**
+   * Closes the trace for the token request being served by the current thread, if any, and
+   * aggregates its stage timings.
+   */
+  public void end() {
+    Trace trace = currentTrace.get();
+
+    if (trace == null) {
+      return;
+    }
+
+    currentTrace.remove();
+    trace.add(TokenIssuanceStage.TOTAL, System.nanoTime() - trace.startTime);
+
+    String clientId = trackedClientId(trace.clientId);
+
+    trace.stageNanos.forEach((stage, nanos) -> stats
+      .computeIfAbsent(new StageKey(stage, trace.grantType, clientId, trace.profile),
+          k -> new StageStats())
+      .record(nanos));
+
+    logIfSlow(trace);
+  }
+
+  public void tagRequest(String grantType, String clientId) {
+    Trace trace = currentTrace.get();
+    if (trace != null) {
+      trace.grantType = orUnknown(grantType);
+      trace.clientId = orUnknown(clientId);
+    }
+  }
+
+  public void tagProfile(String profile) {
+    Trace trace = currentTrace.get();
+    if (trace != null) {
+      trace.profile = orUnknown(profile);
+    }
+  }
+
+  public <T> T time(TokenIssuanceStage stage, Supplier<T> supplier) {
+    Trace trace = currentTrace.get();
+
+    if (trace == null) {
+      return supplier.get();
+    }
+
+    final long startTime = System.nanoTime();
+    try {
+      return supplier.get();
+    } finally {
+      trace.add(stage, System.nanoTime() - startTime);
+    }
+  }
+
+  public void time(TokenIssuanceStage stage, Runnable runnable) {
+    time(stage, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  private String trackedClientId(String clientId) {
+    if (trackedClients.contains(clientId)) {
+      return clientId;
+    }
+
+    if (trackedClients.size() < properties.getMaxTrackedClients()) {
+      trackedClients.add(clientId);
+      return clientId;
+    }
+
+    return OTHER_CLIENTS;
+  }
+
+  private void logIfSlow(Trace trace) {
+    long totalNanos = trace.stageNanos.get(TokenIssuanceStage.TOTAL);
+
+    if (NANOSECONDS.toMillis(totalNanos) < properties.getSlowRequestThresholdMsec()) {
+      return;
+    }
+
+    slowRequests.increment();
+
+    if (LOG.isWarnEnabled()) {
+      StringBuilder breakdown = new StringBuilder();
+      trace.stageNanos.forEach((stage, nanos) -> {
+        if (stage != TokenIssuanceStage.TOTAL) {
+          breakdown.append(String.format(" %s=%.1f", stage.getStageName(), toMsec(nanos)));
+        }
+      });
+
+      LOG.warn("Slow token request: grant_type={}, client_id={}, profile={}, total={} msec, "
+          + "stages (msec):{}", trace.grantType, trace.clientId, trace.profile,
+          String.format("%.1f", toMsec(totalNanos)), breakdown);
+    }
+  }
+
+  public Map<StageKey, StageStats> getStats() {
+    return Collections.unmodifiableMap(stats);
+  }
+
+  public long getSlowRequests() {
+    return slowRequests.sum();
+  }
+
+  private static String metricName(StageKey key) {
+    return METRIC_PREFIX + key.getStage().getStageName() + "." + key.getGrantType() + "."
+        + key.getProfile();
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    // Clients are only exposed by the Prometheus endpoint, to keep the number of metric names
+    // bounded
+    Map<String, long[]> byName = Maps.newTreeMap();
+
+    stats.forEach((key, s) -> {
+      long[] values = byName.computeIfAbsent(metricName(key), k -> new long[3]);
+      values[0] += s.getCount();
+      values[1] += s.getTotalNanos();
+      values[2] = Math.max(values[2], s.getMaxNanos());
+    });
+
+    byName.forEach((name, values) -> {
+      result.add(new Metric<>(name + ".count", values[0]));
+      result.add(new Metric<>(name + ".avg-msec",
+          values[0] == 0 ? 0.0 : toMsec(values[1] / values[0])));
+      result.add(new Metric<>(name + ".max-msec", toMsec(values[2])));
+    });
+
+    result.add(new Metric<>(METRIC_PREFIX + "slow-requests", getSlowRequests()));
+
+    return result;
+  }
+}
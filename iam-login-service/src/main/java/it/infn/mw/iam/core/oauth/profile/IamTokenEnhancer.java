@@ -36,6 +36,8 @@ import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceStage;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
 import it.infn.mw.iam.core.oauth.scope.pdp.IamScopeFilter;
 
 public class IamTokenEnhancer extends ConnectTokenEnhancer {
@@ -55,6 +57,9 @@ public class IamTokenEnhancer extends ConnectTokenEnhancer {
   @Autowired
   private Clock clock;
 
+  @Autowired
+  private TokenIssuanceTimer timer;
+
   private SignedJWT signClaims(JWTClaimsSet claims) {
     JWSAlgorithm signingAlg = getJwtService().getDefaultSigningAlgorithm();
 
@@ -76,20 +81,27 @@ public class IamTokenEnhancer extends ConnectTokenEnhancer {
     String username = authentication.getName();
     String clientId = originalAuthRequest.getClientId();
 
-    UserInfo userInfo = userInfoService.getByUsernameAndClientId(username, clientId);
+    timer.tagRequest(originalAuthRequest.getGrantType(), clientId);
+
+    UserInfo userInfo = timer.time(TokenIssuanceStage.USER_INFO,
+        () -> userInfoService.getByUsernameAndClientId(username, clientId));
 
-    scopeFilter.filterScopes(accessToken.getScope(), authentication);
+    timer.time(TokenIssuanceStage.SCOPE_FILTER,
+        () -> scopeFilter.filterScopes(accessToken.getScope(), authentication));
 
     Date issueTime = new Date();
     OAuth2AccessTokenEntity accessTokenEntity = (OAuth2AccessTokenEntity) accessToken;
 
     JWTProfile profile =
         profileResolver.resolveProfile(authentication.getOAuth2Request().getClientId());
-    
-    JWTClaimsSet atClaims = profile.getAccessTokenBuilder()
-      .buildAccessToken(accessTokenEntity, authentication, userInfo, clock.instant());
 
-    accessTokenEntity.setJwt(signClaims(atClaims));
+    timer.tagProfile(profile.name());
+
+    JWTClaimsSet atClaims = timer.time(TokenIssuanceStage.ACCESS_TOKEN_BUILDER,
+        () -> profile.getAccessTokenBuilder()
+          .buildAccessToken(accessTokenEntity, authentication, userInfo, clock.instant()));
+
+    accessTokenEntity.setJwt(timer.time(TokenIssuanceStage.SIGNING, () -> signClaims(atClaims)));
 
     /**
      * Authorization request scope MUST include "openid" in OIDC, but access token request may or
@@ -105,8 +117,9 @@ public class IamTokenEnhancer extends ConnectTokenEnhancer {
 
       ClientDetailsEntity client = getClientService().loadClientByClientId(clientId);
 
-      JWT idToken = connectTokenService.createIdToken(client, originalAuthRequest, issueTime,
-          userInfo.getSub(), accessTokenEntity);
+      JWT idToken = timer.time(TokenIssuanceStage.ID_TOKEN,
+          () -> connectTokenService.createIdToken(client, originalAuthRequest, issueTime,
+              userInfo.getSub(), accessTokenEntity));
 
       accessTokenEntity.setIdToken(idToken);
     }
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth.revocation;
+
+import java.util.Date;
+
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest;
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest.Status;
+import it.infn.mw.iam.persistence.repository.TokenRevocationFilter;
+
+/**
+ * A bulk token revocation submitted to the {@link TokenRevocationService}.
+ */
+public class TokenRevocation {
+
+  private final String id;
+  private final TokenRevocationFilter filter;
+  private final String submittedBy;
+  private final Date submissionTime;
+  private final long matchingAccessTokens;
+  private final long matchingRefreshTokens;
+  private final Status status;
+  private final Date completionTime;
+
+  public TokenRevocation(IamTokenRevocationRequest request) {
+    this.id = request.getId();
+    this.filter = new TokenRevocationFilter(request.getClientId(), request.getUsername(),
+        request.getIssuedBefore());
+    this.submittedBy = request.getSubmittedBy();
+    this.submissionTime = request.getSubmissionTime();
+    this.matchingAccessTokens = request.getMatchingAccessTokens();
+    this.matchingRefreshTokens = request.getMatchingRefreshTokens();
+    this.status = request.getStatus();
+    this.completionTime = request.getCompletionTime();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public TokenRevocationFilter getFilter() {
+    return filter;
+  }
+
+  public String getSubmittedBy() {
+    return submittedBy;
+  }
+
+  public Date getSubmissionTime() {
+    return submissionTime;
+  }
+
+  /**
+   * @return the number of access tokens matching the filter at submission time
+   */
+  public long getMatchingAccessTokens() {
+    return matchingAccessTokens;
+  }
+
+  /**
+   * @return the number of refresh tokens matching the filter at submission time
+   */
+  public long getMatchingRefreshTokens() {
+    return matchingRefreshTokens;
+  }
+
+  /**
+   * @return the revocation stage, as of when this object has been loaded
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  public Date getCompletionTime() {
+    return completionTime;
+  }
+
+  public boolean isCompleted() {
+    return Status.COMPLETED.equals(status);
+  }
+
+  public String getAccessTokensJobName() {
+    return TokenRevocationService.JOB_NAME_PREFIX + id + "-access-tokens";
+  }
+
+  public String getRefreshTokensJobName() {
+    return TokenRevocationService.JOB_NAME_PREFIX + id + "-refresh-tokens";
+  }
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.oauth.revocation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import it.infn.mw.iam.audit.events.IamAuditApplicationEvent;
+import it.infn.mw.iam.audit.events.tokens.AccessTokensRevokedEvent;
+import it.infn.mw.iam.audit.events.tokens.RefreshTokensRevokedEvent;
+import it.infn.mw.iam.config.batch.BatchJobProperties;
+import it.infn.mw.iam.config.tokens.TokenRevocationProperties;
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
+import it.infn.mw.iam.core.batch.BatchJobStatus;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint;
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest;
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest.Status;
+import it.infn.mw.iam.persistence.repository.IamTokenRevocationRepository;
+import it.infn.mw.iam.persistence.repository.IamTokenRevocationRequestRepository;
+import it.infn.mw.iam.persistence.repository.TokenRevocationFilter;
+
+/**
+ * Revokes, in the background, all the access and refresh tokens matching a
+ * {@link TokenRevocationFilter}.
+ *
+ * Each revocation is executed as two {@link BatchJob}s (access tokens first, then refresh tokens)
+ * that delete matching tokens in chunks with set-based statements, so their progress can be
+ * followed like any other batch job. An audit event is emitted for each revoked chunk.
+ * Revocations are executed one at a time, in submission order; the chunk size is configured by
+ * the <code>batch-jobs.job-chunk-size.token-revocation</code> property.
+ *
+ * Revocation requests are persisted together with their stage, so that their status can be
+ * queried from any IAM instance. Unfinished revocations are resumed at startup and periodically,
+ * and the batch job lease makes sure that each of them is run by a single instance at a time.
+ * Completed revocations are deleted after the configured retention period.
+ */
+@Service
+public class TokenRevocationService implements ApplicationEventPublisherAware {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  public static final String JOB_NAME_PREFIX = "token-revocation-";
+  public static final String CHUNK_SIZE_KEY = "token-revocation";
+
+  private final IamTokenRevocationRepository revocationRepo;
+  private final IamTokenRevocationRequestRepository requestRepo;
+  private final BatchJobRunner runner;
+  private final BatchJobProperties batchProperties;
+  private final TokenRevocationProperties properties;
+  private final TransactionTemplate txTemplate;
+  private final Clock clock;
+
+  // Ids of the revocations queued or running in this instance
+  private final Set<String> queued = ConcurrentHashMap.newKeySet();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("token-revocation-%d").setDaemon(true).build());
+
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  public TokenRevocationService(IamTokenRevocationRepository revocationRepo,
+      IamTokenRevocationRequestRepository requestRepo, BatchJobRunner runner,
+      BatchJobProperties batchProperties, TokenRevocationProperties properties,
+      PlatformTransactionManager transactionManager, Clock clock) {
+    this.revocationRepo = revocationRepo;
+    this.requestRepo = requestRepo;
+    this.runner = runner;
+    this.batchProperties = batchProperties;
+    this.properties = properties;
+    this.txTemplate = new TransactionTemplate(transactionManager);
+    this.clock = clock;
+  }
+
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+    this.eventPublisher = applicationEventPublisher;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private abstract class RevocationJob implements BatchJob<Long> {
+
+    protected final TokenRevocation revocation;
+
+    RevocationJob(TokenRevocation revocation) {
+      this.revocation = revocation;
+    }
+
+    @Override
+    public long getKey(Long item) {
+      return item;
+    }
+  }
+
+  private BatchJob<Long> accessTokensJob(TokenRevocation revocation) {
+    return new RevocationJob(revocation) {
+
+      @Override
+      public String getName() {
+        return revocation.getAccessTokensJobName();
+      }
+
+      @Override
+      public List<Long> readChunk(long lastKey, int chunkSize) {
+        return revocationRepo.findAccessTokenIds(revocation.getFilter(), lastKey, chunkSize);
+      }
+
+      @Override
+      public void processChunk(List<Long> chunk) {
+        revocationRepo.revokeAccessTokens(chunk);
+        eventPublisher.publishEvent(new AccessTokensRevokedEvent(TokenRevocationService.this,
+            revocation.getId(), revocation.getFilter().toString(), chunk));
+      }
+    };
+  }
+
+  private BatchJob<Long> refreshTokensJob(TokenRevocation revocation) {
+    return new RevocationJob(revocation) {
+
+      @Override
+      public String getName() {
+        return revocation.getRefreshTokensJobName();
+      }
+
+      @Override
+      public List<Long> readChunk(long lastKey, int chunkSize) {
+        return revocationRepo.findRefreshTokenIds(revocation.getFilter(), lastKey, chunkSize);
+      }
+
+      @Override
+      public void processChunk(List<Long> chunk) {
+        revocationRepo.revokeRefreshTokens(chunk);
+        eventPublisher.publishEvent(new RefreshTokensRevokedEvent(TokenRevocationService.this,
+            revocation.getId(), revocation.getFilter().toString(), chunk));
+      }
+    };
+  }
+
+  private static String currentPrincipal() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    return auth == null ? IamAuditApplicationEvent.NULL_PRINCIPAL : auth.getName();
+  }
+
+  private static boolean isCompleted(BatchJobStatus status) {
+    return status != null && IamBatchJobCheckpoint.Status.COMPLETED.equals(status.getStatus());
+  }
+
+  private void updateStatus(String id, Status status) {
+    txTemplate.execute(s -> {
+      IamTokenRevocationRequest request = requestRepo.findOne(id);
+      request.setStatus(status);
+
+      if (Status.COMPLETED.equals(status)) {
+        request.setCompletionTime(Date.from(clock.instant()));
+      }
+
+      return requestRepo.save(request);
+    });
+  }
+
+  void revoke(String id) {
+    IamTokenRevocationRequest request = requestRepo.findOne(id);
+
+    if (request == null || Status.COMPLETED.equals(request.getStatus())) {
+      return;
+    }
+
+    final TokenRevocation revocation = new TokenRevocation(request);
+    final int chunkSize = batchProperties.chunkSizeForJob(CHUNK_SIZE_KEY);
+
+    LOG.info("Running token revocation {} from stage {}: [{}]", id, revocation.getStatus(),
+        revocation.getFilter());
+
+    // A job not completed here has failed or is being run by another instance, which will
+    // advance the revocation stage; otherwise it is retried when revocations are resumed
+    if (Status.ACCESS_TOKENS.equals(revocation.getStatus())) {
+      if (!isCompleted(runner.run(accessTokensJob(revocation), chunkSize))) {
+        return;
+      }
+      updateStatus(id, Status.REFRESH_TOKENS);
+    }
+
+    if (isCompleted(runner.run(refreshTokensJob(revocation), chunkSize))) {
+      updateStatus(id, Status.COMPLETED);
+      LOG.info("Token revocation {} completed", id);
+    }
+  }
+
+  private void enqueue(String id, Runnable task) {
+    if (!queued.add(id)) {
+      return;
+    }
+
+    executor.submit(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("Token revocation {} failed: {}", id, e.getMessage(), e);
+      } finally {
+        queued.remove(id);
+      }
+    });
+  }
+
+  /**
+   * Schedules the revocation of all the tokens matching the filter.
+   *
+   * @param filter the revocation filter, which must not be empty
+   * @return the submitted revocation
+   */
+  public TokenRevocation submit(TokenRevocationFilter filter) {
+    checkNotNull(filter, "null filter");
+    checkArgument(!filter.isEmpty(), "At least one revocation criterion must be provided");
+
+    IamTokenRevocationRequest request =
+        new IamTokenRevocationRequest(UUID.randomUUID().toString());
+    request.setClientId(filter.getClientId());
+    request.setUsername(filter.getUsername());
+    request.setIssuedBefore(filter.getIssuedBefore());
+    request.setSubmittedBy(currentPrincipal());
+    request.setSubmissionTime(Date.from(clock.instant()));
+    request.setMatchingAccessTokens(revocationRepo.countAccessTokens(filter));
+    request.setMatchingRefreshTokens(revocationRepo.countRefreshTokens(filter));
+    request.setStatus(Status.ACCESS_TOKENS);
+
+    TokenRevocation revocation =
+        new TokenRevocation(txTemplate.execute(s -> requestRepo.save(request)));
+
+    enqueue(revocation.getId(),
+        new DelegatingSecurityContextRunnable(() -> revoke(revocation.getId())));
+
+    LOG.info("Token revocation {} submitted by {}: [{}], {} access and {} refresh tokens matching",
+        revocation.getId(), revocation.getSubmittedBy(), filter,
+        revocation.getMatchingAccessTokens(), revocation.getMatchingRefreshTokens());
+
+    return revocation;
+  }
+
+  @EventListener
+  public void onApplicationReady(ApplicationReadyEvent event) {
+    resumeUnfinishedRevocations();
+  }
+
+  /**
+   * Schedules the unfinished revocations for execution in this instance, e.g. after a restart.
+   * Revocations being run by another live instance are skipped when their lease is checked.
+   */
+  public void resumeUnfinishedRevocations() {
+    for (IamTokenRevocationRequest r : requestRepo
+      .findByStatusNotOrderBySubmissionTimeAsc(Status.COMPLETED)) {
+      enqueue(r.getId(), () -> revoke(r.getId()));
+    }
+  }
+
+  /**
+   * Deletes the revocations completed before the retention period, together with the checkpoints
+   * of their jobs.
+   */
+  public void deleteCompletedRevocations() {
+    final Date threshold =
+        Date.from(clock.instant().minusSeconds(properties.getRetentionSecs()));
+
+    for (IamTokenRevocationRequest r : requestRepo
+      .findByStatusAndCompletionTimeBefore(Status.COMPLETED, threshold)) {
+      TokenRevocation revocation = new TokenRevocation(r);
+
+      runner.deleteJob(revocation.getAccessTokensJobName());
+      runner.deleteJob(revocation.getRefreshTokensJobName());
+      txTemplate.execute(s -> {
+        requestRepo.delete(r.getId());
+        return null;
+      });
+
+      LOG.debug("Deleted completed token revocation {}", r.getId());
+    }
+  }
+
+  /**
+   * @param id the revocation id
+   * @return the revocation with the given id, if any
+   */
+  public Optional<TokenRevocation> findRevocation(String id) {
+    return Optional.ofNullable(requestRepo.findOne(id)).map(TokenRevocation::new);
+  }
+
+  public Optional<BatchJobStatus> getAccessTokensJobStatus(TokenRevocation revocation) {
+    return runner.getStatus(revocation.getAccessTokensJobName());
+  }
+
+  public Optional<BatchJobStatus> getRefreshTokensJobStatus(TokenRevocation revocation) {
+    return runner.getStatus(revocation.getRefreshTokensJobName());
+  }
+}
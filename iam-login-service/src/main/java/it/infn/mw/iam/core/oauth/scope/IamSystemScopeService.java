@@ -19,19 +19,43 @@ import static java.util.stream.Collectors.toSet;
 
 import java.util.Set;
 
+import org.mitre.oauth2.model.SystemScope;
 import org.mitre.oauth2.service.impl.DefaultSystemScopeService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcher;
 import it.infn.mw.iam.core.oauth.scope.matchers.ScopeMatcherRegistry;
 
-public class IamSystemScopeService extends DefaultSystemScopeService {
+public class IamSystemScopeService extends DefaultSystemScopeService
+    implements ApplicationEventPublisherAware {
 
   final ScopeMatcherRegistry scopeMatcherRegistry;
 
+  private ApplicationEventPublisher eventPublisher;
+
   public IamSystemScopeService(ScopeMatcherRegistry matcherRegistry) {
     this.scopeMatcherRegistry = matcherRegistry;
   }
 
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+    this.eventPublisher = applicationEventPublisher;
+  }
+
+  @Override
+  public SystemScope save(SystemScope scope) {
+    SystemScope result = super.save(scope);
+    eventPublisher.publishEvent(new SystemScopesChangedEvent(this));
+    return result;
+  }
+
+  @Override
+  public void remove(SystemScope scope) {
+    super.remove(scope);
+    eventPublisher.publishEvent(new SystemScopesChangedEvent(this));
+  }
+
 
   @Override
   public boolean scopesMatch(Set<String> allowedScopes, Set<String> requestedScopes) {
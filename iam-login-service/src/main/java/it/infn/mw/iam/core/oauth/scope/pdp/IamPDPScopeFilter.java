@@ -23,7 +23,10 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceStage;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
@@ -33,11 +36,14 @@ public class IamPDPScopeFilter implements IamScopeFilter {
 
   final ScopePolicyPDP pdp;
   final IamAccountRepository accountRepo;
+  final TokenIssuanceTimer timer;
 
   @Autowired
-  public IamPDPScopeFilter(ScopePolicyPDP pdp, IamAccountRepository accountRepo) {
+  public IamPDPScopeFilter(ScopePolicyPDP pdp, IamAccountRepository accountRepo,
+      TokenIssuanceTimer timer) {
     this.pdp = pdp;
     this.accountRepo = accountRepo;
+    this.timer = timer;
   }
 
   protected Optional<IamAccount> resolveIamAccount(Authentication authn) {
@@ -60,14 +66,15 @@ public class IamPDPScopeFilter implements IamScopeFilter {
     return accountRepo.findByUsername(principalName);
   }
 
+  @Transactional
   @Override
   public void filterScopes(Set<String> scopes, Authentication authn) {
     
     Optional<IamAccount> maybeAccount = resolveIamAccount(authn);
 
     if (maybeAccount.isPresent()) {
-      Set<String> filteredScopes =
-          pdp.filterScopes(scopes, maybeAccount.get());
+      Set<String> filteredScopes = timer.time(TokenIssuanceStage.SCOPE_POLICY,
+          () -> pdp.filterScopes(scopes, maybeAccount.get()));
       
       scopes.retainAll(filteredScopes);
     }
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.password;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * A {@link DaoAuthenticationProvider} that goes through the
+ * {@link PasswordAuthenticationAdmissionControl} before verifying a password.
+ */
+public class AdmissionControlledAuthenticationProvider extends DaoAuthenticationProvider {
+
+  private final PasswordAuthenticationAdmissionControl admissionControl;
+
+  public AdmissionControlledAuthenticationProvider(UserDetailsService uds,
+      PasswordEncoder passwordEncoder, PasswordAuthenticationAdmissionControl admissionControl) {
+    this.admissionControl = admissionControl;
+    setUserDetailsService(uds);
+    setPasswordEncoder(passwordEncoder);
+  }
+
+  static String resolveRemoteAddress(Authentication authentication) {
+    if (authentication.getDetails() instanceof WebAuthenticationDetails) {
+      return ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress();
+    }
+
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+    if (attributes instanceof ServletRequestAttributes) {
+      HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+      return request.getRemoteAddr();
+    }
+
+    return null;
+  }
+
+  @Override
+  public Authentication authenticate(Authentication authentication)
+      throws AuthenticationException {
+
+    List<String> permits =
+        admissionControl.admit(authentication.getName(), resolveRemoteAddress(authentication));
+
+    try {
+      return super.authenticate(authentication);
+    } finally {
+      admissionControl.release(permits);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.password;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import it.infn.mw.iam.config.password.PasswordHashingProperties;
+
+/**
+ * A {@link PasswordEncoder} that runs the (CPU intensive) work of a delegate encoder on a
+ * dedicated, bounded executor, so that password hashing cannot starve the request processing
+ * threads.
+ *
+ * When the executor queue is full, requests fail fast with a
+ * {@link PasswordHashingUnavailableException}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, PublicMetrics, DisposableBean {
+
+  public static final Logger LOG = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+  /**
+   * The value stored as the password of accounts that do not have a local password. It is not a
+   * valid encoded password, so no raw password will ever match it.
+   */
+  public static final String NO_LOCAL_PASSWORD = "!";
+
+  public static final String METRIC_PREFIX = "iam.password-hashing.";
+
+  private final PasswordEncoder delegate;
+  private final int retryAfterSecs;
+  private final ThreadPoolExecutor executor;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingProperties properties) {
+    this.delegate = checkNotNull(delegate, "null delegate");
+    this.retryAfterSecs = properties.getRetryAfterSecs();
+
+    executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueSize()),
+        new ThreadFactoryBuilder().setNameFormat("password-hashing-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  private <T> T execute(Callable<T> task) {
+    Future<T> result;
+
+    try {
+      result = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      rejected.incrementAndGet();
+      LOG.warn("Password hashing request rejected: executor saturated");
+      throw new PasswordHashingUnavailableException(
+          "Password hashing capacity exhausted, retry later", retryAfterSecs);
+    }
+
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.cancel(true);
+      throw new PasswordHashingUnavailableException("Interrupted while hashing password",
+          retryAfterSecs);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return execute(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    // No need to go through the executor when no password could ever match
+    if (Strings.isNullOrEmpty(encodedPassword) || NO_LOCAL_PASSWORD.equals(encodedPassword)) {
+      return false;
+    }
+
+    return execute(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<>(METRIC_PREFIX + "active", executor.getActiveCount()));
+    result.add(new Metric<>(METRIC_PREFIX + "queued", executor.getQueue().size()));
+    result.add(new Metric<>(METRIC_PREFIX + "completed", executor.getCompletedTaskCount()));
+    result.add(new Metric<>(METRIC_PREFIX + "rejected", rejected.get()));
+
+    return result;
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+}
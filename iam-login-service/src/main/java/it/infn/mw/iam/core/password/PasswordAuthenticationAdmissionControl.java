@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.password;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.config.password.PasswordHashingProperties;
+
+/**
+ * Limits the number of concurrent password authentications for the same username and for the
+ * same client address, so that a single user or client cannot monopolize the password hashing
+ * executor.
+ *
+ * The per-address limit is disabled by default. Client addresses are taken from
+ * {@link javax.servlet.ServletRequest#getRemoteAddr()}, which reports the real client address
+ * behind a reverse proxy only when forwarded headers are trusted
+ * (<code>server.use-forward-headers</code>).
+ */
+@Component
+public class PasswordAuthenticationAdmissionControl implements PublicMetrics {
+
+  public static final Logger LOG =
+      LoggerFactory.getLogger(PasswordAuthenticationAdmissionControl.class);
+
+  public static final String USERNAME_KEY_PREFIX = "username:";
+  public static final String ADDRESS_KEY_PREFIX = "address:";
+
+  private final PasswordHashingProperties properties;
+  private final ConcurrentMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+  private final AtomicLong admitted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  @Autowired
+  public PasswordAuthenticationAdmissionControl(PasswordHashingProperties properties) {
+    this.properties = properties;
+  }
+
+  private boolean tryAcquire(String key, int limit) {
+    boolean[] acquired = {false};
+
+    inFlight.compute(key, (k, count) -> {
+      int current = count == null ? 0 : count;
+      if (current >= limit) {
+        return count;
+      }
+      acquired[0] = true;
+      return current + 1;
+    });
+
+    return acquired[0];
+  }
+
+  private void release(String key) {
+    inFlight.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+  }
+
+  private void acquire(List<String> acquiredKeys, String key, int limit) {
+    if (key == null || limit <= 0) {
+      return;
+    }
+
+    if (!tryAcquire(key, limit)) {
+      release(acquiredKeys);
+      rejected.incrementAndGet();
+      LOG.warn("Password authentication rejected: too many concurrent requests for {}", key);
+      throw new PasswordHashingUnavailableException(
+          "Too many concurrent authentication requests, retry later",
+          properties.getRetryAfterSecs());
+    }
+
+    acquiredKeys.add(key);
+  }
+
+  /**
+   * Admits a password authentication request.
+   *
+   * @param username the username, may be <code>null</code>
+   * @param remoteAddress the client address, may be <code>null</code>
+   * @return the permits acquired, to be passed to {@link #release(List)} when the authentication
+   *         is over
+   * @throws PasswordHashingUnavailableException if too many requests are in progress for the same
+   *         username or client address
+   */
+  public List<String> admit(String username, String remoteAddress) {
+    List<String> keys = Lists.newArrayList();
+
+    acquire(keys, username == null ? null : USERNAME_KEY_PREFIX + username,
+        properties.getMaxConcurrentPerUsername());
+    acquire(keys, remoteAddress == null ? null : ADDRESS_KEY_PREFIX + remoteAddress,
+        properties.getMaxConcurrentPerAddress());
+
+    admitted.incrementAndGet();
+    return Collections.unmodifiableList(keys);
+  }
+
+  public void release(List<String> permits) {
+    permits.forEach(this::release);
+  }
+
+  public int getInFlightCount(String key) {
+    return inFlight.getOrDefault(key, 0);
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<>(BoundedPasswordEncoder.METRIC_PREFIX + "admitted", admitted.get()));
+    result.add(new Metric<>(BoundedPasswordEncoder.METRIC_PREFIX + "admission-rejected",
+        rejected.get()));
+
+    return result;
+  }
+}
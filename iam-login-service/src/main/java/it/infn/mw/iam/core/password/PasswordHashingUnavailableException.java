@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.password;
+
+import java.util.Optional;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Raised when a password cannot be hashed or verified right now, either because the password
+ * hashing executor is saturated or because too many concurrent authentications are in progress
+ * for the same username or client address.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  private final int retryAfterSecs;
+
+  public PasswordHashingUnavailableException(String message, int retryAfterSecs) {
+    super(message);
+    this.retryAfterSecs = retryAfterSecs;
+  }
+
+  public int getRetryAfterSecs() {
+    return retryAfterSecs;
+  }
+
+  public static Optional<PasswordHashingUnavailableException> findInCausalChain(Throwable t) {
+    return Throwables.getCausalChain(t)
+      .stream()
+      .filter(PasswordHashingUnavailableException.class::isInstance)
+      .map(PasswordHashingUnavailableException.class::cast)
+      .findFirst();
+  }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.session;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+/**
+ * An {@link HttpSession} stored by the {@link JdbcSessionRepository}.
+ *
+ * Attribute values are loaded from the database one by one, the first time they are requested,
+ * and only the attributes set or removed during a request are written back when the request
+ * completes. Attribute values modified in place are not detected: they must be set again to be
+ * saved.
+ */
+@SuppressWarnings("deprecation")
+public class JdbcHttpSession implements HttpSession {
+
+  private final JdbcSessionRepository repository;
+  private final ServletContext servletContext;
+
+  private final String primaryId;
+  private final long creationTime;
+  private final boolean isNew;
+
+  private String id;
+  private long lastAccessedTime;
+  private long storedLastAccessedTime;
+  private int maxInactiveInterval;
+  private boolean stored;
+  private boolean invalid = false;
+  private boolean metadataChanged = false;
+
+  private final Map<String, Object> attributes = new HashMap<>();
+  private final Set<String> missingAttributes = new HashSet<>();
+  private final Set<String> updatedAttributes = new HashSet<>();
+  private final Set<String> removedAttributes = new HashSet<>();
+
+  // null until the attribute names are loaded from the database
+  private Set<String> attributeNames;
+
+  JdbcHttpSession(JdbcSessionRepository repository, ServletContext servletContext,
+      String primaryId, String id, long creationTime, long lastAccessedTime,
+      int maxInactiveInterval, boolean isNew) {
+    this.repository = repository;
+    this.servletContext = servletContext;
+    this.primaryId = primaryId;
+    this.id = id;
+    this.creationTime = creationTime;
+    this.lastAccessedTime = lastAccessedTime;
+    this.storedLastAccessedTime = lastAccessedTime;
+    this.maxInactiveInterval = maxInactiveInterval;
+    this.isNew = isNew;
+    this.stored = !isNew;
+
+    if (isNew) {
+      attributeNames = new HashSet<>();
+    }
+  }
+
+  private void checkValid() {
+    if (invalid) {
+      throw new IllegalStateException("Session " + id + " has been invalidated");
+    }
+  }
+
+  private void loadAttributeNames() {
+    if (attributeNames == null) {
+      attributeNames = new HashSet<>(repository.loadAttributeNames(primaryId));
+      attributeNames.addAll(updatedAttributes);
+      attributeNames.removeAll(removedAttributes);
+    }
+  }
+
+  String getPrimaryId() {
+    return primaryId;
+  }
+
+  synchronized void setId(String id) {
+    this.id = id;
+  }
+
+  synchronized boolean isInvalid() {
+    return invalid;
+  }
+
+  synchronized boolean isMetadataChanged() {
+    return metadataChanged;
+  }
+
+  synchronized long getStoredLastAccessedTime() {
+    return storedLastAccessedTime;
+  }
+
+  synchronized void access(long now) {
+    lastAccessedTime = now;
+  }
+
+  synchronized Map<String, Object> getUpdatedAttributes() {
+    Map<String, Object> result = new HashMap<>();
+    updatedAttributes.forEach(n -> result.put(n, attributes.get(n)));
+    return result;
+  }
+
+  synchronized Set<String> getRemovedAttributes() {
+    return new HashSet<>(removedAttributes);
+  }
+
+  synchronized void markSaved() {
+    updatedAttributes.clear();
+    removedAttributes.clear();
+    metadataChanged = false;
+    stored = true;
+    storedLastAccessedTime = lastAccessedTime;
+  }
+
+  @Override
+  public synchronized String getId() {
+    return id;
+  }
+
+  @Override
+  public long getCreationTime() {
+    checkValid();
+    return creationTime;
+  }
+
+  @Override
+  public synchronized long getLastAccessedTime() {
+    checkValid();
+    return lastAccessedTime;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    return servletContext;
+  }
+
+  @Override
+  public synchronized void setMaxInactiveInterval(int interval) {
+    maxInactiveInterval = interval;
+    metadataChanged = true;
+  }
+
+  @Override
+  public synchronized int getMaxInactiveInterval() {
+    return maxInactiveInterval;
+  }
+
+  @Override
+  public javax.servlet.http.HttpSessionContext getSessionContext() {
+    return null;
+  }
+
+  @Override
+  public synchronized Object getAttribute(String name) {
+    checkValid();
+
+    if (attributes.containsKey(name)) {
+      return attributes.get(name);
+    }
+
+    if (removedAttributes.contains(name) || missingAttributes.contains(name)
+        || (attributeNames != null && !attributeNames.contains(name))) {
+      return null;
+    }
+
+    Object value = repository.loadAttribute(primaryId, name);
+
+    if (value == null) {
+      missingAttributes.add(name);
+    } else {
+      attributes.put(name, value);
+    }
+
+    return value;
+  }
+
+  @Override
+  public Object getValue(String name) {
+    return getAttribute(name);
+  }
+
+  @Override
+  public synchronized Enumeration<String> getAttributeNames() {
+    checkValid();
+    loadAttributeNames();
+    return Collections.enumeration(new HashSet<>(attributeNames));
+  }
+
+  @Override
+  public synchronized String[] getValueNames() {
+    checkValid();
+    loadAttributeNames();
+    return attributeNames.toArray(new String[attributeNames.size()]);
+  }
+
+  @Override
+  public synchronized void setAttribute(String name, Object value) {
+    checkValid();
+
+    if (value == null) {
+      removeAttribute(name);
+      return;
+    }
+
+    attributes.put(name, value);
+    updatedAttributes.add(name);
+    removedAttributes.remove(name);
+    missingAttributes.remove(name);
+
+    if (attributeNames != null) {
+      attributeNames.add(name);
+    }
+  }
+
+  @Override
+  public void putValue(String name, Object value) {
+    setAttribute(name, value);
+  }
+
+  @Override
+  public synchronized void removeAttribute(String name) {
+    checkValid();
+
+    attributes.remove(name);
+    updatedAttributes.remove(name);
+    missingAttributes.add(name);
+
+    if (stored) {
+      removedAttributes.add(name);
+    }
+
+    if (attributeNames != null) {
+      attributeNames.remove(name);
+    }
+  }
+
+  @Override
+  public void removeValue(String name) {
+    removeAttribute(name);
+  }
+
+  @Override
+  public synchronized void invalidate() {
+    checkValid();
+    invalid = true;
+  }
+
+  @Override
+  public boolean isNew() {
+    checkValid();
+    return isNew;
+  }
+
+  synchronized boolean isStored() {
+    return stored;
+  }
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.session;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.servlet.ServletContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Stores HTTP sessions in the IAM database, so that they are shared by all the IAM instances
+ * behind a load balancer and survive restarts.
+ *
+ * Session metadata is kept in the <code>iam_session</code> table, and each attribute in its own
+ * row in the <code>iam_session_attribute</code> table, so that attributes can be loaded lazily
+ * and written back individually. Last access time updates for sessions that are only read are
+ * rate limited, queued and written in batches by {@link #flushAccessTimes()}.
+ */
+public class JdbcSessionRepository implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(JdbcSessionRepository.class);
+
+  public static final String METRIC_PREFIX = "iam.session-store.";
+
+  private static final String SELECT_SESSION =
+      "SELECT PRIMARY_ID, CREATION_TIME, LAST_ACCESS_TIME, MAX_INACTIVE_INTERVAL "
+          + "FROM iam_session WHERE SESSION_ID = ? AND EXPIRY_TIME > ?";
+
+  private static final String INSERT_SESSION =
+      "INSERT INTO iam_session (PRIMARY_ID, SESSION_ID, CREATION_TIME, LAST_ACCESS_TIME, "
+          + "MAX_INACTIVE_INTERVAL, EXPIRY_TIME) VALUES (?, ?, ?, ?, ?, ?)";
+
+  private static final String UPDATE_SESSION =
+      "UPDATE iam_session SET LAST_ACCESS_TIME = ?, MAX_INACTIVE_INTERVAL = ?, EXPIRY_TIME = ? "
+          + "WHERE PRIMARY_ID = ?";
+
+  private static final String UPDATE_ACCESS_TIME =
+      "UPDATE iam_session SET LAST_ACCESS_TIME = ?, EXPIRY_TIME = ? "
+          + "WHERE PRIMARY_ID = ? AND LAST_ACCESS_TIME < ?";
+
+  private static final String UPDATE_SESSION_ID =
+      "UPDATE iam_session SET SESSION_ID = ? WHERE PRIMARY_ID = ?";
+
+  private static final String DELETE_SESSION = "DELETE FROM iam_session WHERE PRIMARY_ID = ?";
+
+  private static final String DELETE_EXPIRED_SESSIONS =
+      "DELETE FROM iam_session WHERE EXPIRY_TIME < ?";
+
+  private static final String SELECT_ATTRIBUTE =
+      "SELECT ATTRIBUTE_BYTES FROM iam_session_attribute "
+          + "WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = ?";
+
+  private static final String SELECT_ATTRIBUTE_NAMES =
+      "SELECT ATTRIBUTE_NAME FROM iam_session_attribute WHERE SESSION_PRIMARY_ID = ?";
+
+  private static final String INSERT_ATTRIBUTE =
+      "INSERT INTO iam_session_attribute (SESSION_PRIMARY_ID, ATTRIBUTE_NAME, ATTRIBUTE_BYTES) "
+          + "VALUES (?, ?, ?)";
+
+  private static final String UPDATE_ATTRIBUTE = "UPDATE iam_session_attribute "
+      + "SET ATTRIBUTE_BYTES = ? WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = ?";
+
+  private static final String DELETE_ATTRIBUTE = "DELETE FROM iam_session_attribute "
+      + "WHERE SESSION_PRIMARY_ID = ? AND ATTRIBUTE_NAME = ?";
+
+  private static final int SESSION_ID_BYTES = 24;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SessionAttributeCodec codec;
+  private final Clock clock;
+  private final int defaultMaxInactiveInterval;
+  private final long lastAccessUpdateIntervalMsec;
+
+  private final SecureRandom random = new SecureRandom();
+
+  // primary id -> last access time, waiting to be written
+  private final ConcurrentMap<String, AccessTime> pendingAccessTimes = new ConcurrentHashMap<>();
+
+  private final Set<String> unserializableAttributes = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong sessionsCreated = new AtomicLong();
+  private final AtomicLong sessionsLoaded = new AtomicLong();
+  private final AtomicLong attributesLoaded = new AtomicLong();
+  private final AtomicLong attributesWritten = new AtomicLong();
+  private final AtomicLong accessTimesWritten = new AtomicLong();
+  private final AtomicLong expiredSessionsDeleted = new AtomicLong();
+
+  private static class AccessTime {
+    final long lastAccessTime;
+    final long expiryTime;
+
+    AccessTime(long lastAccessTime, long expiryTime) {
+      this.lastAccessTime = lastAccessTime;
+      this.expiryTime = expiryTime;
+    }
+
+    static AccessTime latest(AccessTime a1, AccessTime a2) {
+      return a1.lastAccessTime >= a2.lastAccessTime ? a1 : a2;
+    }
+  }
+
+  public JdbcSessionRepository(JdbcTemplate jdbcTemplate, SessionAttributeCodec codec,
+      Clock clock, int defaultMaxInactiveInterval, int lastAccessUpdateIntervalSecs) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.codec = codec;
+    this.clock = clock;
+    this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+    this.lastAccessUpdateIntervalMsec = lastAccessUpdateIntervalSecs * 1000L;
+  }
+
+  private static long expiryTime(long lastAccessTime, int maxInactiveInterval) {
+    if (maxInactiveInterval < 0) {
+      return Long.MAX_VALUE;
+    }
+    return lastAccessTime + maxInactiveInterval * 1000L;
+  }
+
+  String generateSessionId() {
+    byte[] bytes = new byte[SESSION_ID_BYTES];
+    random.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  public JdbcHttpSession createSession(ServletContext servletContext) {
+    final long now = clock.millis();
+    sessionsCreated.incrementAndGet();
+    return new JdbcHttpSession(this, servletContext, UUID.randomUUID().toString(),
+        generateSessionId(), now, now, defaultMaxInactiveInterval, true);
+  }
+
+  /**
+   * Loads the metadata of a session. Attributes are loaded lazily.
+   *
+   * @param sessionId the session id
+   * @param servletContext the servlet context
+   * @return the session, or <code>null</code> if no valid session is found for the id
+   */
+  public JdbcHttpSession findById(String sessionId, ServletContext servletContext) {
+    List<JdbcHttpSession> sessions = jdbcTemplate.query(SELECT_SESSION,
+        (rs, n) -> new JdbcHttpSession(this, servletContext, rs.getString(1), sessionId,
+            rs.getLong(2), rs.getLong(3), rs.getInt(4), false),
+        sessionId, clock.millis());
+
+    if (sessions.isEmpty()) {
+      return null;
+    }
+
+    sessionsLoaded.incrementAndGet();
+    return sessions.get(0);
+  }
+
+  Object loadAttribute(String primaryId, String name) {
+    List<byte[]> values = jdbcTemplate.query(SELECT_ATTRIBUTE, (rs, n) -> rs.getBytes(1),
+        primaryId, name);
+
+    if (values.isEmpty()) {
+      return null;
+    }
+
+    attributesLoaded.incrementAndGet();
+
+    try {
+      return codec.decode(values.get(0));
+    } catch (IOException | ClassNotFoundException e) {
+      LOG.warn("Cannot decode session attribute {}: {}", name, e.getMessage());
+      return null;
+    }
+  }
+
+  List<String> loadAttributeNames(String primaryId) {
+    return jdbcTemplate.queryForList(SELECT_ATTRIBUTE_NAMES, String.class, primaryId);
+  }
+
+  private byte[] encode(String name, Object value) {
+    try {
+      return codec.encode(value);
+    } catch (IOException e) {
+      if (unserializableAttributes.add(name)) {
+        LOG.warn("Session attribute {} cannot be stored and will not be shared: {}", name,
+            e.getMessage());
+      }
+      return null;
+    }
+  }
+
+  private List<Object[]> encodeAttributes(JdbcHttpSession session) {
+    List<Object[]> result = Lists.newArrayList();
+
+    for (Map.Entry<String, Object> e : session.getUpdatedAttributes().entrySet()) {
+      byte[] value = encode(e.getKey(), e.getValue());
+      if (value != null) {
+        result.add(new Object[] {session.getPrimaryId(), e.getKey(), value});
+      }
+    }
+
+    return result;
+  }
+
+  private void insert(JdbcHttpSession session) {
+    final long lastAccess = session.getLastAccessedTime();
+
+    jdbcTemplate.update(INSERT_SESSION, session.getPrimaryId(), session.getId(),
+        session.getCreationTime(), lastAccess, session.getMaxInactiveInterval(),
+        expiryTime(lastAccess, session.getMaxInactiveInterval()));
+
+    List<Object[]> attributes = encodeAttributes(session);
+
+    if (!attributes.isEmpty()) {
+      jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE, attributes);
+      attributesWritten.addAndGet(attributes.size());
+    }
+  }
+
+  private void updateAttributes(JdbcHttpSession session) {
+    Set<String> removed = session.getRemovedAttributes();
+
+    if (!removed.isEmpty()) {
+      jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE, removed.stream()
+        .map(n -> new Object[] {session.getPrimaryId(), n})
+        .collect(Collectors.toList()));
+    }
+
+    List<Object[]> attributes = encodeAttributes(session);
+
+    if (attributes.isEmpty()) {
+      return;
+    }
+
+    int[] updated = jdbcTemplate.batchUpdate(UPDATE_ATTRIBUTE, attributes.stream()
+      .map(a -> new Object[] {a[2], a[0], a[1]})
+      .collect(Collectors.toList()));
+
+    List<Object[]> inserts = Lists.newArrayList();
+    for (int i = 0; i < updated.length; i++) {
+      if (updated[i] == 0) {
+        inserts.add(attributes.get(i));
+      }
+    }
+
+    if (!inserts.isEmpty()) {
+      jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE, inserts);
+    }
+
+    attributesWritten.addAndGet(attributes.size());
+  }
+
+  /**
+   * Writes back the changes made to a session while serving a request.
+   *
+   * @param session the session
+   */
+  public void save(JdbcHttpSession session) {
+    if (!session.isStored()) {
+      insert(session);
+      session.markSaved();
+      return;
+    }
+
+    final long lastAccess = session.getLastAccessedTime();
+    final int maxInactiveInterval = session.getMaxInactiveInterval();
+    final boolean attributesChanged =
+        !session.getUpdatedAttributes().isEmpty() || !session.getRemovedAttributes().isEmpty();
+
+    if (attributesChanged || session.isMetadataChanged()) {
+      updateAttributes(session);
+      pendingAccessTimes.remove(session.getPrimaryId());
+      jdbcTemplate.update(UPDATE_SESSION, lastAccess, maxInactiveInterval,
+          expiryTime(lastAccess, maxInactiveInterval), session.getPrimaryId());
+      session.markSaved();
+      return;
+    }
+
+    if (lastAccess - session.getStoredLastAccessedTime() >= lastAccessUpdateIntervalMsec) {
+      pendingAccessTimes.merge(session.getPrimaryId(),
+          new AccessTime(lastAccess, expiryTime(lastAccess, maxInactiveInterval)),
+          AccessTime::latest);
+      session.markSaved();
+    }
+  }
+
+  public void changeSessionId(JdbcHttpSession session, String newId) {
+    if (session.isStored()) {
+      jdbcTemplate.update(UPDATE_SESSION_ID, newId, session.getPrimaryId());
+    }
+    session.setId(newId);
+  }
+
+  public void delete(JdbcHttpSession session) {
+    pendingAccessTimes.remove(session.getPrimaryId());
+    if (session.isStored()) {
+      jdbcTemplate.update(DELETE_SESSION, session.getPrimaryId());
+    }
+  }
+
+  /**
+   * Writes the queued last access time updates in a single batch.
+   */
+  public void flushAccessTimes() {
+    List<Object[]> updates = Lists.newArrayList();
+
+    for (String primaryId : pendingAccessTimes.keySet()) {
+      AccessTime t = pendingAccessTimes.remove(primaryId);
+      if (t != null) {
+        updates.add(new Object[] {t.lastAccessTime, t.expiryTime, primaryId, t.lastAccessTime});
+      }
+    }
+
+    if (!updates.isEmpty()) {
+      jdbcTemplate.batchUpdate(UPDATE_ACCESS_TIME, updates);
+      accessTimesWritten.addAndGet(updates.size());
+    }
+  }
+
+  public int deleteExpiredSessions() {
+    flushAccessTimes();
+
+    int deleted = jdbcTemplate.update(DELETE_EXPIRED_SESSIONS, clock.millis());
+    expiredSessionsDeleted.addAndGet(deleted);
+
+    if (deleted > 0) {
+      LOG.debug("Deleted {} expired sessions", deleted);
+    }
+    return deleted;
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<>(METRIC_PREFIX + "sessions-created", sessionsCreated.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "sessions-loaded", sessionsLoaded.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "attributes-loaded", attributesLoaded.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "attributes-written", attributesWritten.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "access-times-written", accessTimesWritten.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "access-times-pending",
+        (long) pendingAccessTimes.size()));
+    result.add(
+        new Metric<>(METRIC_PREFIX + "expired-sessions-deleted", expiredSessionsDeleted.get()));
+
+    return result;
+  }
+}
@@ -0,0 +1,464 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.session;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Clock;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Replaces the servlet container session with sessions stored by a {@link JdbcSessionRepository}.
+ * The session id is carried by a dedicated cookie.
+ *
+ * Session changes are written back as soon as the response is committed (i.e., on redirects,
+ * errors, explicit flushes or once the declared content length has been written), since the
+ * client may then send its next request, possibly to another IAM instance, before this request
+ * has completed. Changes done after that point are written back when the request completes; for
+ * asynchronous requests, when the last dispatch completes.
+ */
+public class JdbcSessionRepositoryFilter extends OncePerRequestFilter {
+
+  public static final String CURRENT_SESSION_ATTR =
+      JdbcSessionRepositoryFilter.class.getName() + ".CURRENT_SESSION";
+
+  private final JdbcSessionRepository repository;
+  private final String cookieName;
+  private final Clock clock;
+
+  public JdbcSessionRepositoryFilter(JdbcSessionRepository repository, String cookieName,
+      Clock clock) {
+    this.repository = repository;
+    this.cookieName = cookieName;
+    this.clock = clock;
+  }
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected boolean shouldNotFilterErrorDispatch() {
+    return false;
+  }
+
+  private class SessionRepositoryRequestWrapper extends HttpServletRequestWrapper {
+
+    private final HttpServletResponse response;
+
+    private boolean requestedSessionLoaded = false;
+    private JdbcHttpSession requestedSession;
+
+    SessionRepositoryRequestWrapper(HttpServletRequest request, HttpServletResponse response) {
+      super(request);
+      this.response = response;
+    }
+
+    private JdbcHttpSession getCurrentSession() {
+      return (JdbcHttpSession) getAttribute(CURRENT_SESSION_ATTR);
+    }
+
+    private void setCurrentSession(JdbcHttpSession session) {
+      if (session == null) {
+        removeAttribute(CURRENT_SESSION_ATTR);
+      } else {
+        setAttribute(CURRENT_SESSION_ATTR, session);
+      }
+    }
+
+    private String getSessionIdFromCookie() {
+      Cookie[] cookies = getCookies();
+
+      if (cookies == null) {
+        return null;
+      }
+
+      for (Cookie c : cookies) {
+        if (cookieName.equals(c.getName()) && StringUtils.hasText(c.getValue())) {
+          return c.getValue();
+        }
+      }
+
+      return null;
+    }
+
+    private JdbcHttpSession getRequestedSession() {
+      if (!requestedSessionLoaded) {
+        String id = getSessionIdFromCookie();
+        requestedSession = id == null ? null : repository.findById(id, getServletContext());
+        requestedSessionLoaded = true;
+      }
+      return requestedSession;
+    }
+
+    private void writeCookie(String value, int maxAge) {
+      if (response.isCommitted()) {
+        return;
+      }
+
+      Cookie cookie = new Cookie(cookieName, value);
+      cookie.setPath(StringUtils.hasLength(getContextPath()) ? getContextPath() : "/");
+      cookie.setHttpOnly(true);
+      cookie.setSecure(isSecure());
+      cookie.setMaxAge(maxAge);
+      response.addCookie(cookie);
+    }
+
+    /**
+     * Writes the current session back to the repository.
+     *
+     * @param requestCompleted whether the request has completed, in which case the session is
+     *        also detached from the request
+     */
+    void commit(boolean requestCompleted) {
+      JdbcHttpSession session = getCurrentSession();
+
+      if (session == null) {
+        return;
+      }
+
+      if (session.isInvalid()) {
+        repository.delete(session);
+        writeCookie("", 0);
+        setCurrentSession(null);
+        return;
+      }
+
+      repository.save(session);
+
+      if (requestCompleted) {
+        setCurrentSession(null);
+      }
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+      JdbcHttpSession session = getCurrentSession();
+
+      if (session != null) {
+        if (!session.isInvalid()) {
+          return session;
+        }
+        repository.delete(session);
+        setCurrentSession(null);
+      } else {
+        session = getRequestedSession();
+        if (session != null && !session.isInvalid()) {
+          session.access(clock.millis());
+          setCurrentSession(session);
+          return session;
+        }
+      }
+
+      if (!create) {
+        return null;
+      }
+
+      session = repository.createSession(getServletContext());
+      setCurrentSession(session);
+      writeCookie(session.getId(), -1);
+      return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+      return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+      HttpSession session = getSession(false);
+
+      if (session == null) {
+        throw new IllegalStateException("No session associated with the request");
+      }
+
+      String newId = repository.generateSessionId();
+      repository.changeSessionId((JdbcHttpSession) session, newId);
+      writeCookie(newId, -1);
+      return newId;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+      return getSessionIdFromCookie();
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+      JdbcHttpSession session = getRequestedSession();
+      return session != null && !session.isInvalid();
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+      return getSessionIdFromCookie() != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+      return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+      return false;
+    }
+  }
+
+  /**
+   * Writes the session back right before the response is committed, in the spirit of Spring
+   * Session's <code>OnCommittedResponseWrapper</code>.
+   */
+  private class SessionCommittingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final SessionRepositoryRequestWrapper request;
+
+    private long contentLength = -1;
+    private long contentWritten = 0;
+    private boolean responseCommitted = false;
+
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+
+    SessionCommittingResponseWrapper(HttpServletResponse response,
+        SessionRepositoryRequestWrapper request) {
+      super(response);
+      this.request = request;
+    }
+
+    private void onResponseCommitted() {
+      if (!responseCommitted) {
+        responseCommitted = true;
+        request.commit(false);
+      }
+    }
+
+    private void beforeWrite(long count) {
+      contentWritten += count;
+      if (contentLength > 0 && contentWritten >= contentLength) {
+        onResponseCommitted();
+      }
+    }
+
+    private void trackContentLength(String name, String value) {
+      if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+        try {
+          contentLength = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+          contentLength = -1;
+        }
+      }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+      contentLength = len;
+      super.setContentLength(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+      contentLength = len;
+      super.setContentLengthLong(len);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      trackContentLength(name, value);
+      super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      trackContentLength(name, value);
+      super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      trackContentLength(name, String.valueOf(value));
+      super.setIntHeader(name, value);
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+      trackContentLength(name, String.valueOf(value));
+      super.addIntHeader(name, value);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      onResponseCommitted();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      onResponseCommitted();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      onResponseCommitted();
+      super.sendRedirect(location);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      onResponseCommitted();
+      super.flushBuffer();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer = new SessionCommittingPrintWriter(super.getWriter());
+      }
+      return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new SessionCommittingOutputStream(super.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    private class SessionCommittingPrintWriter extends PrintWriter {
+
+      SessionCommittingPrintWriter(PrintWriter delegate) {
+        super(delegate);
+      }
+
+      @Override
+      public void write(int c) {
+        beforeWrite(1);
+        super.write(c);
+      }
+
+      @Override
+      public void write(char[] buf, int off, int len) {
+        beforeWrite(len);
+        super.write(buf, off, len);
+      }
+
+      @Override
+      public void write(String s, int off, int len) {
+        beforeWrite(len);
+        super.write(s, off, len);
+      }
+
+      @Override
+      public void println() {
+        beforeWrite(System.lineSeparator().length());
+        super.println();
+      }
+
+      @Override
+      public void flush() {
+        onResponseCommitted();
+        super.flush();
+      }
+
+      @Override
+      public void close() {
+        onResponseCommitted();
+        super.close();
+      }
+    }
+
+    private class SessionCommittingOutputStream extends ServletOutputStream {
+
+      private final ServletOutputStream delegate;
+
+      SessionCommittingOutputStream(ServletOutputStream delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        beforeWrite(1);
+        delegate.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        beforeWrite(len);
+        delegate.write(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        onResponseCommitted();
+        delegate.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        onResponseCommitted();
+        delegate.close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return delegate.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        delegate.setWriteListener(writeListener);
+      }
+    }
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+
+    SessionRepositoryRequestWrapper wrappedRequest =
+        new SessionRepositoryRequestWrapper(request, response);
+
+    SessionCommittingResponseWrapper wrappedResponse =
+        new SessionCommittingResponseWrapper(response, wrappedRequest);
+
+    try {
+      filterChain.doFilter(wrappedRequest, wrappedResponse);
+    } finally {
+      if (!wrappedRequest.isAsyncStarted()) {
+        wrappedRequest.commit(true);
+      }
+    }
+  }
+}
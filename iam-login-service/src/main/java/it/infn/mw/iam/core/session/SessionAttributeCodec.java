@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+
+/**
+ * Encodes session attribute values with Java serialization. Encoded values larger than the
+ * compression threshold are deflated; the first byte of the encoded form tells whether the
+ * value is compressed.
+ */
+public class SessionAttributeCodec {
+
+  private static final byte PLAIN = 0;
+  private static final byte DEFLATED = 1;
+
+  private final int compressionThresholdBytes;
+  private final ClassLoader classLoader;
+
+  public SessionAttributeCodec(int compressionThresholdBytes, ClassLoader classLoader) {
+    this.compressionThresholdBytes = compressionThresholdBytes;
+    this.classLoader = classLoader;
+  }
+
+  private static byte[] serialize(Object value) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(value);
+    }
+    return bos.toByteArray();
+  }
+
+  public byte[] encode(Object value) throws IOException {
+    byte[] serialized = serialize(value);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(serialized.length + 1);
+
+    if (serialized.length <= compressionThresholdBytes) {
+      bos.write(PLAIN);
+      bos.write(serialized);
+      return bos.toByteArray();
+    }
+
+    bos.write(DEFLATED);
+    try (OutputStream dos = new DeflaterOutputStream(bos)) {
+      dos.write(serialized);
+    }
+    return bos.toByteArray();
+  }
+
+  public Object decode(byte[] encoded) throws IOException, ClassNotFoundException {
+    if (encoded == null || encoded.length == 0) {
+      return null;
+    }
+
+    InputStream is = new ByteArrayInputStream(encoded, 1, encoded.length - 1);
+
+    if (encoded[0] == DEFLATED) {
+      is = new InflaterInputStream(is);
+    }
+
+    try (ObjectInputStream ois = new ConfigurableObjectInputStream(is, classLoader)) {
+      return ois.readObject();
+    }
+  }
+}
@@ -19,7 +19,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static it.infn.mw.iam.core.lifecycle.ExpiredAccountsHandler.LIFECYCLE_STATUS_LABEL;
+import static it.infn.mw.iam.core.password.BoundedPasswordEncoder.NO_LOCAL_PASSWORD;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -106,12 +108,14 @@ public class DefaultIamAccountService implements IamAccountService {
 
     account.getUserInfo().setEmailVerified(true);
 
+    // Accounts created without a password (e.g., just-in-time provisioned accounts) cannot
+    // authenticate with a local password until one is set, so there's nothing to encode
     if (account.getPassword() == null) {
-      account.setPassword(UUID.randomUUID().toString());
+      account.setPassword(NO_LOCAL_PASSWORD);
+    } else {
+      account.setPassword(passwordEncoder.encode(account.getPassword()));
     }
 
-    account.setPassword(passwordEncoder.encode(account.getPassword()));
-
     IamAuthority roleUserAuthority = authoritiesRepo.findByAuthority("ROLE_USER")
       .orElseThrow(
           () -> new IllegalStateException("ROLE_USER not found in database. This is a bug"));
@@ -313,6 +317,18 @@ public class DefaultIamAccountService implements IamAccountService {
     return account;
   }
 
+  @Override
+  public IamAccount setLabels(IamAccount account, Collection<IamLabel> labels) {
+    account.getLabels().removeAll(labels);
+    account.getLabels().addAll(labels);
+
+    accountRepo.save(account);
+
+    labels.forEach(l -> labelSetEvent(account, l));
+
+    return account;
+  }
+
   @Override
   public IamAccount deleteLabel(IamAccount account, IamLabel label) {
     account.getLabels().remove(label);
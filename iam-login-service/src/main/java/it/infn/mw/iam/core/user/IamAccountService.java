@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.core.user;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -71,6 +72,15 @@ public interface IamAccountService {
    */
   IamAccount setLabel(IamAccount account, IamLabel label);
 
+  /**
+   * Sets a set of labels for a given account, saving the account only once
+   * 
+   * @param account
+   * @param labels
+   * @return the updated account
+   */
+  IamAccount setLabels(IamAccount account, Collection<IamLabel> labels);
+
   /**
    * Deletes a label for a given account
    * 
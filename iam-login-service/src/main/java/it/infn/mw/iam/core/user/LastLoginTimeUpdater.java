@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.user;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import it.infn.mw.iam.config.login.LastLoginTimeUpdaterProperties;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+/**
+ * Records the last login time of accounts without loading and saving them on the login request
+ * thread.
+ *
+ * Login times are queued and periodically flushed to the database in a single transaction, with
+ * one single-column update per account. Repeated logins by the same user within a flush period
+ * are coalesced into a single update. When the queue is full, the update is applied synchronously
+ * on the caller thread.
+ */
+@Component
+public class LastLoginTimeUpdater implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(LastLoginTimeUpdater.class);
+
+  public static final String METRIC_PREFIX = "iam.last-login-updater.";
+
+  private final LastLoginTimeUpdaterProperties properties;
+  private final IamAccountRepository accountRepo;
+  private final TransactionTemplate txTemplate;
+  private final Clock clock;
+
+  private final ConcurrentMap<String, Date> pendingUpdates = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong overflows = new AtomicLong();
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong flushedUpdates = new AtomicLong();
+  private final AtomicLong flushErrors = new AtomicLong();
+
+  private volatile long lastFlushSize = 0;
+  private volatile long lastFlushDurationMsec = 0;
+
+  @Autowired
+  public LastLoginTimeUpdater(LastLoginTimeUpdaterProperties properties,
+      IamAccountRepository accountRepo, PlatformTransactionManager transactionManager,
+      Clock clock) {
+    this.properties = properties;
+    this.accountRepo = accountRepo;
+    this.txTemplate = new TransactionTemplate(transactionManager);
+    this.clock = clock;
+
+    if (properties.isAsync()) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("last-login-updater-%d")
+            .setDaemon(true)
+            .build());
+
+      scheduler.scheduleWithFixedDelay(this::flush, properties.getFlushPeriodMsec(),
+          properties.getFlushPeriodMsec(), TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+  }
+
+  private static Date latest(Date d1, Date d2) {
+    return d1.after(d2) ? d1 : d2;
+  }
+
+  private void updateNow(String username, Date lastLoginTime) {
+    try {
+      txTemplate.execute(s -> accountRepo
+        .updateLastLoginTimes(Collections.singletonMap(username, lastLoginTime)));
+    } catch (RuntimeException e) {
+      LOG.error("Error updating last login time for user '{}': {}", username, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Records a successful login for the given user.
+   *
+   * @param username the username of the account that logged in
+   */
+  public void touchLastLoginTime(String username) {
+    checkNotNull(username, "null username");
+    final Date now = Date.from(clock.instant());
+
+    if (!properties.isAsync()) {
+      updateNow(username, now);
+      return;
+    }
+
+    if (pendingUpdates.size() >= properties.getMaxPendingUpdates()
+        && !pendingUpdates.containsKey(username)) {
+      overflows.incrementAndGet();
+      updateNow(username, now);
+      return;
+    }
+
+    queued.incrementAndGet();
+
+    if (pendingUpdates.put(username, now) != null) {
+      coalesced.incrementAndGet();
+    }
+  }
+
+  /**
+   * Writes all pending last login time updates to the database.
+   *
+   * Updates that could not be written are queued again, and retried at the next flush.
+   *
+   * @return the number of accounts updated
+   */
+  public synchronized int flush() {
+    if (pendingUpdates.isEmpty()) {
+      return 0;
+    }
+
+    Map<String, Date> batch = new HashMap<>();
+
+    for (String username : pendingUpdates.keySet()) {
+      Date lastLoginTime = pendingUpdates.remove(username);
+      if (lastLoginTime != null) {
+        batch.put(username, lastLoginTime);
+      }
+    }
+
+    final long startTime = clock.millis();
+
+    try {
+      int updated = txTemplate.execute(s -> accountRepo.updateLastLoginTimes(batch));
+
+      flushes.incrementAndGet();
+      flushedUpdates.addAndGet(batch.size());
+      lastFlushSize = batch.size();
+      lastFlushDurationMsec = clock.millis() - startTime;
+
+      LOG.debug("Flushed {} last login time updates in {} msec", batch.size(),
+          lastFlushDurationMsec);
+
+      return updated;
+
+    } catch (RuntimeException e) {
+      flushErrors.incrementAndGet();
+      LOG.error("Error flushing {} last login time updates: {}", batch.size(), e.getMessage(), e);
+
+      batch.forEach((u, d) -> pendingUpdates.merge(u, d, LastLoginTimeUpdater::latest));
+      return 0;
+    }
+  }
+
+  public int getPendingUpdatesCount() {
+    return pendingUpdates.size();
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<>(METRIC_PREFIX + "pending", pendingUpdates.size()));
+    result.add(new Metric<>(METRIC_PREFIX + "queued", queued.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "coalesced", coalesced.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "overflows", overflows.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "flushes", flushes.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "flushed", flushedUpdates.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "flush-errors", flushErrors.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "last-flush.size", lastFlushSize));
+    result.add(new Metric<>(METRIC_PREFIX + "last-flush.duration-msec", lastFlushDurationMsec));
+
+    return result;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    flush();
+  }
+}
@@ -16,28 +16,43 @@
 package it.infn.mw.iam.core.userinfo;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static it.infn.mw.iam.authn.util.AuthenticationUtils.isSupportedExternalAuthenticationToken;
+
+import java.util.Map;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.mitre.oauth2.service.SystemScopeService;
 import org.mitre.openid.connect.model.UserInfo;
-import org.mitre.openid.connect.view.HttpCodeView;
 import org.mitre.openid.connect.view.UserInfoView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.View;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.google.common.collect.Maps;
 
 import it.infn.mw.iam.core.oauth.profile.JWTProfile;
 import it.infn.mw.iam.core.oauth.profile.JWTProfileResolver;
+import it.infn.mw.iam.core.userinfo.UserInfoResponseCache.Key;
+import it.infn.mw.iam.core.web.PrecomputedJsonDocument;
 
 @Controller
 @RequestMapping("/userinfo")
@@ -45,44 +60,92 @@ public class IamUserInfoEndpoint {
 
   private static final Logger LOG = LoggerFactory.getLogger(IamUserInfoEndpoint.class);
 
+  private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
   private final JWTProfileResolver profileResolver;
+  private final UserInfoResponseCache responseCache;
+  private final View userInfoView;
 
   @Autowired
-  public IamUserInfoEndpoint(JWTProfileResolver profileResolver) {
+  public IamUserInfoEndpoint(JWTProfileResolver profileResolver,
+      UserInfoResponseCache responseCache, @Qualifier(UserInfoView.VIEWNAME) View userInfoView) {
     this.profileResolver = profileResolver;
+    this.responseCache = responseCache;
+    this.userInfoView = userInfoView;
+  }
+
+  private boolean isCacheable(OAuth2Authentication auth) {
+    // External authentication information is only available in the current authentication
+    return responseCache.isEnabled()
+        && !isSupportedExternalAuthenticationToken(auth.getUserAuthentication());
   }
 
+  private PrecomputedJsonDocument render(UserInfo userInfo, OAuth2Request request,
+      String claimsRequestJsonString, HttpServletRequest servletRequest,
+      HttpServletResponse servletResponse) throws Exception {
+
+    Map<String, Object> model = Maps.newHashMap();
+
+    model.put(UserInfoView.SCOPE, request.getScope());
+    model.put(UserInfoView.AUTHORIZED_CLAIMS, request.getExtensions().get("claims"));
+
+    if (!isNullOrEmpty(claimsRequestJsonString)) {
+      model.put(UserInfoView.REQUESTED_CLAIMS, claimsRequestJsonString);
+    }
+
+    model.put(UserInfoView.USER_INFO, userInfo);
+
+    ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(servletResponse);
+    userInfoView.render(model, servletRequest, wrapper);
+
+    return PrecomputedJsonDocument.of(wrapper.getContentAsByteArray());
+  }
 
   @PreAuthorize("hasRole('ROLE_USER') and #oauth2.hasScope('" + SystemScopeService.OPENID_SCOPE
       + "')")
   @RequestMapping(method = RequestMethod.GET, produces = {MediaType.APPLICATION_JSON_VALUE})
-  public String getInfo(
+  public ResponseEntity<byte[]> getInfo(
       @RequestParam(value = "claims", required = false) String claimsRequestJsonString,
       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String acceptHeader,
-      OAuth2Authentication auth, Model model) {
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      OAuth2Authentication auth, HttpServletRequest servletRequest,
+      HttpServletResponse servletResponse) throws Exception {
+
+    final OAuth2Request request = auth.getOAuth2Request();
+    final JWTProfile profile = profileResolver.resolveProfile(request.getClientId());
+
+    Key key = null;
+    long version = 0;
+
+    if (isCacheable(auth)) {
+      key = new Key(auth.getName(), request.getClientId(), profile.name(), request.getScope(),
+          request.getExtensions().get("claims"), claimsRequestJsonString);
 
-    JWTProfile profile = profileResolver.resolveProfile(auth.getOAuth2Request().getClientId());
+      // The version is read before the user info, so that a concurrent update can only leave
+      // behind an entry that will never be served
+      version = responseCache.currentVersion(auth.getName());
+      Optional<PrecomputedJsonDocument> cached = responseCache.get(key, version);
+
+      if (cached.isPresent()) {
+        return cached.get().toResponse(ifNoneMatch, CACHE_CONTROL);
+      }
+    }
 
     UserInfo userInfo = profile.getUserinfoHelper().resolveUserInfo(auth);
 
     if (userInfo == null) {
       LOG.error("user not found: {}", auth.getName());
-      model.addAttribute(HttpCodeView.CODE, HttpStatus.NOT_FOUND);
-      return HttpCodeView.VIEWNAME;
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
-    model.addAttribute(UserInfoView.SCOPE, auth.getOAuth2Request().getScope());
-    model.addAttribute(UserInfoView.AUTHORIZED_CLAIMS,
-        auth.getOAuth2Request().getExtensions().get("claims"));
+    PrecomputedJsonDocument document =
+        render(userInfo, request, claimsRequestJsonString, servletRequest, servletResponse);
 
-    if (!isNullOrEmpty(claimsRequestJsonString)) {
-      model.addAttribute(UserInfoView.REQUESTED_CLAIMS, claimsRequestJsonString);
+    if (key != null) {
+      responseCache.put(key, version, document);
     }
 
-    model.addAttribute(UserInfoView.USER_INFO, userInfo);
-
-    return UserInfoView.VIEWNAME;
-
+    return document.toResponse(ifNoneMatch, CACHE_CONTROL);
   }
 
 }
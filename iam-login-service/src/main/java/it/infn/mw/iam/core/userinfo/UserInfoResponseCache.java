@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.userinfo;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.audit.events.account.AccountEvent;
+import it.infn.mw.iam.audit.events.group.GroupEvent;
+import it.infn.mw.iam.config.web.UserInfoCacheProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.core.web.PrecomputedJsonDocument;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+/**
+ * Caches rendered userinfo responses per subject, client, profile and authorized scopes and
+ * claims.
+ *
+ * Each entry is tagged with the account <code>lastUpdateTime</code> at render time, and is only
+ * served while the account has not been updated since. Entries are also evicted when account,
+ * group or label change events are committed, since not all of those changes touch the account.
+ * The same changes made on other IAM replicas are received from the {@link CacheInvalidationBus}.
+ */
+@Component
+public class UserInfoResponseCache implements PublicMetrics {
+
+  public static final String METRIC_PREFIX = "iam.userinfo-cache.";
+
+  private final UserInfoCacheProperties properties;
+  private final IamAccountRepository accountRepo;
+  private final Cache<Key, Entry> cache;
+
+  public static final class Key {
+    final String username;
+    final String clientId;
+    final String profile;
+    final SortedSet<String> scopes;
+    final String authorizedClaims;
+    final String requestedClaims;
+
+    public Key(String username, String clientId, String profile, Collection<String> scopes,
+        Object authorizedClaims, String requestedClaims) {
+      this.username = username;
+      this.clientId = clientId;
+      this.profile = profile;
+      this.scopes = new TreeSet<>(scopes);
+      this.authorizedClaims = Objects.toString(authorizedClaims, null);
+      this.requestedClaims = requestedClaims;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, clientId, profile, scopes, authorizedClaims, requestedClaims);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return Objects.equals(username, other.username) && Objects.equals(clientId, other.clientId)
+          && Objects.equals(profile, other.profile) && Objects.equals(scopes, other.scopes)
+          && Objects.equals(authorizedClaims, other.authorizedClaims)
+          && Objects.equals(requestedClaims, other.requestedClaims);
+    }
+  }
+
+  private static final class Entry {
+    final long version;
+    final PrecomputedJsonDocument document;
+
+    Entry(long version, PrecomputedJsonDocument document) {
+      this.version = version;
+      this.document = document;
+    }
+  }
+
+  @Autowired
+  public UserInfoResponseCache(UserInfoCacheProperties properties,
+      IamAccountRepository accountRepo, CacheInvalidationBus invalidationBus) {
+    this.properties = properties;
+    this.accountRepo = accountRepo;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(properties.getMaxSize())
+      .expireAfterWrite(properties.getMaxAgeSecs(), TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+
+    invalidationBus.addListener(CacheInvalidationBus.ACCOUNT_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            Optional<AccountSummary> summary = accountRepo.findSummaryById(Long.valueOf(key));
+            if (summary.isPresent()) {
+              invalidateUser(summary.get().getUsername());
+            } else {
+              invalidateAll();
+            }
+          }
+
+          @Override
+          public void invalidateAll() {
+            UserInfoResponseCache.this.invalidateAll();
+          }
+        });
+
+    invalidationBus.addListener(CacheInvalidationBus.GROUP_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            UserInfoResponseCache.this.invalidateAll();
+          }
+
+          @Override
+          public void invalidateAll() {
+            UserInfoResponseCache.this.invalidateAll();
+          }
+        });
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * @param username the account username
+   * @return the current version of the account, i.e. its last update time in msec, or -1 when the
+   *         account cannot be found
+   */
+  public long currentVersion(String username) {
+    Date lastUpdateTime = accountRepo.findLastUpdateTimeByUsername(username);
+    return lastUpdateTime == null ? -1L : lastUpdateTime.getTime();
+  }
+
+  public Optional<PrecomputedJsonDocument> get(Key key, long version) {
+    Entry e = cache.getIfPresent(key);
+
+    if (e == null) {
+      return Optional.empty();
+    }
+
+    if (e.version != version) {
+      cache.invalidate(key);
+      return Optional.empty();
+    }
+
+    return Optional.of(e.document);
+  }
+
+  public void put(Key key, long version, PrecomputedJsonDocument document) {
+    cache.put(key, new Entry(version, document));
+  }
+
+  public void invalidateUser(String username) {
+    cache.asMap().keySet().removeIf(k -> Objects.equals(k.getUsername(), username));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAccountEvent(AccountEvent event) {
+    if (event.getAccount() == null) {
+      invalidateAll();
+    } else {
+      invalidateUser(event.getAccount().getUsername());
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onGroupEvent(GroupEvent event) {
+    // Group names and labels may be rendered in the userinfo of any member
+    invalidateAll();
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+    CacheStats stats = cache.stats();
+
+    result.add(new Metric<Long>(METRIC_PREFIX + "size", cache.size()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "hits", stats.hitCount()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "misses", stats.missCount()));
+    result.add(new Metric<Long>(METRIC_PREFIX + "evictions", stats.evictionCount()));
+
+    return result;
+  }
+}
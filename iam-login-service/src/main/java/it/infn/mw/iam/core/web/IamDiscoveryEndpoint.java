@@ -21,6 +21,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import javax.annotation.PostConstruct;
+
 import org.mitre.discovery.util.WebfingerURLNormalizer;
 import org.mitre.jwt.encryption.service.JWTEncryptionAndDecryptionService;
 import org.mitre.oauth2.model.PKCEAlgorithm;
@@ -32,22 +34,29 @@ import org.mitre.openid.connect.config.ConfigurationPropertiesBean;
 import org.mitre.openid.connect.model.UserInfo;
 import org.mitre.openid.connect.service.UserInfoService;
 import org.mitre.openid.connect.view.HttpCodeView;
-import org.mitre.openid.connect.view.JsonEntityView;
 import org.mitre.openid.connect.web.DynamicClientRegistrationEndpoint;
 import org.mitre.openid.connect.web.JWKSetPublishingEndpoint;
 import org.mitre.openid.connect.web.UserInfoEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.Collections2;
@@ -55,6 +64,11 @@ import com.google.common.collect.Lists;
 import com.nimbusds.jose.Algorithm;
 import com.nimbusds.jose.JWSAlgorithm;
 
+import it.infn.mw.iam.config.web.WellKnownDocumentsProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.core.oauth.scope.SystemScopesChangedEvent;
+
 @Controller
 public class IamDiscoveryEndpoint {
 
@@ -80,6 +94,17 @@ public class IamDiscoveryEndpoint {
   @Autowired
   private UserInfoService userService;
 
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private WellKnownDocumentsProperties properties;
+
+  @Autowired
+  private CacheInvalidationBus invalidationBus;
+
+  private volatile PrecomputedJsonDocument providerConfiguration;
+
   // used to map JWA algorithms objects to strings
   private Function<Algorithm, String> toAlgorithmName = new Function<Algorithm, String>() {
     @Override
@@ -155,8 +180,63 @@ public class IamDiscoveryEndpoint {
     return "webfingerView";
   }
 
+  @PostConstruct
+  public void registerInvalidationListener() {
+    // System scopes changed on other replicas
+    invalidationBus.addListener(CacheInvalidationBus.SYSTEM_SCOPE_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            refreshProviderConfiguration();
+          }
+
+          @Override
+          public void invalidateAll() {
+            refreshProviderConfiguration();
+          }
+        });
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    refreshProviderConfiguration();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSystemScopesChanged(SystemScopesChangedEvent event) {
+    refreshProviderConfiguration();
+  }
+
+  /**
+   * Renders the provider configuration document again, e.g. after the set of supported scopes
+   * has changed.
+   *
+   * @return the rendered document
+   */
+  public PrecomputedJsonDocument refreshProviderConfiguration() {
+    try {
+      providerConfiguration =
+          PrecomputedJsonDocument.of(mapper.writeValueAsBytes(buildProviderConfiguration()));
+      return providerConfiguration;
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Error rendering provider configuration", e);
+    }
+  }
+
   @RequestMapping("/" + OPENID_CONFIGURATION_URL)
-  public String providerConfiguration(Model model) {
+  public ResponseEntity<byte[]> providerConfiguration(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+    PrecomputedJsonDocument document = providerConfiguration;
+
+    if (document == null) {
+      document = refreshProviderConfiguration();
+    }
+
+    return document.toResponse(ifNoneMatch, properties.getDiscoveryMaxAgeSecs());
+  }
+
+  private Map<String, Object> buildProviderConfiguration() {
     // @formatter:off
     /*
     issuer
@@ -394,8 +474,7 @@ public class IamDiscoveryEndpoint {
         Lists.newArrayList(PKCEAlgorithm.plain.getName(), PKCEAlgorithm.S256.getName()));
 
     m.put("device_authorization_endpoint", baseUrl + DeviceEndpoint.URL);
-    model.addAttribute(JsonEntityView.ENTITY, m);
 
-    return JsonEntityView.VIEWNAME;
+    return m;
   }
 }
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.web;
+
+import java.nio.charset.StandardCharsets;
+
+import org.mitre.jwt.signer.service.JWTSigningAndValidationService;
+import org.mitre.openid.connect.web.JWKSetPublishingEndpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import com.google.common.collect.Lists;
+import com.nimbusds.jose.jwk.JWKSet;
+
+import it.infn.mw.iam.config.web.WellKnownDocumentsProperties;
+
+/**
+ * Publishes the server public keys as a JWK set, rendered once at startup and whenever
+ * {@link #refreshKeys()} is called, e.g. after a key rotation.
+ */
+@Controller
+public class IamJWKSetPublishingEndpoint {
+
+  private final JWTSigningAndValidationService jwtService;
+  private final WellKnownDocumentsProperties properties;
+
+  private volatile PrecomputedJsonDocument jwkSet;
+
+  @Autowired
+  public IamJWKSetPublishingEndpoint(JWTSigningAndValidationService jwtService,
+      WellKnownDocumentsProperties properties) {
+    this.jwtService = jwtService;
+    this.properties = properties;
+    refreshKeys();
+  }
+
+  public final PrecomputedJsonDocument refreshKeys() {
+    JWKSet keys = new JWKSet(Lists.newArrayList(jwtService.getAllPublicKeys().values()));
+
+    jwkSet = PrecomputedJsonDocument
+      .of(keys.toJSONObject(true).toJSONString().getBytes(StandardCharsets.UTF_8));
+
+    return jwkSet;
+  }
+
+  @RequestMapping(value = "/" + JWKSetPublishingEndpoint.URL,
+      method = {RequestMethod.GET, RequestMethod.HEAD})
+  public ResponseEntity<byte[]> getJwk(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+    return jwkSet.toResponse(ifNoneMatch, properties.getJwksMaxAgeSecs());
+  }
+}
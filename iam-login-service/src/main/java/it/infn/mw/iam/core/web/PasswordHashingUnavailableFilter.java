@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.web;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import it.infn.mw.iam.core.password.PasswordHashingUnavailableException;
+
+/**
+ * Turns a {@link PasswordHashingUnavailableException} escaping the filter chain (e.g., from the
+ * login form processing) into a 503 response with a <code>Retry-After</code> header.
+ */
+public class PasswordHashingUnavailableFilter extends OncePerRequestFilter {
+
+  private void handleOrRethrow(HttpServletResponse response, Exception e)
+      throws IOException, ServletException {
+
+    Optional<PasswordHashingUnavailableException> unavailable =
+        PasswordHashingUnavailableException.findInCausalChain(e);
+
+    if (!unavailable.isPresent() || response.isCommitted()) {
+      if (e instanceof ServletException) {
+        throw (ServletException) e;
+      }
+      throw (RuntimeException) e;
+    }
+
+    response.setHeader(PasswordHashingUnavailableException.RETRY_AFTER_HEADER,
+        String.valueOf(unavailable.get().getRetryAfterSecs()));
+    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+        unavailable.get().getMessage());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+
+    try {
+      filterChain.doFilter(request, response);
+    } catch (ServletException | RuntimeException e) {
+      handleOrRethrow(response, e);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.core.web;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * An immutable, pre-rendered JSON document served with a strong ETag.
+ */
+public final class PrecomputedJsonDocument {
+
+  public static final String WEAK_ETAG_PREFIX = "W/";
+
+  private final byte[] content;
+  private final String etag;
+
+  private PrecomputedJsonDocument(byte[] content) {
+    this.content = content;
+    byte[] hash = Hashing.sha256().hashBytes(content).asBytes();
+    this.etag = String.format("\"%s\"", BaseEncoding.base64Url().omitPadding().encode(hash));
+  }
+
+  public static PrecomputedJsonDocument of(byte[] content) {
+    checkNotNull(content, "null content");
+    return new PrecomputedJsonDocument(content.clone());
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public int getContentLength() {
+    return content.length;
+  }
+
+  /**
+   * @param ifNoneMatch the value of the <code>If-None-Match</code> request header, may be
+   *        <code>null</code>
+   * @return <code>true</code> if the client already holds the current version of this document
+   */
+  public boolean matches(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (String tag : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+      if ("*".equals(tag) || etag.equals(tag)
+          || (tag.startsWith(WEAK_ETAG_PREFIX) && etag.equals(tag.substring(2)))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Builds the response for a GET request for this document, i.e. a 304 when the client holds
+   * the current version, or the document content otherwise.
+   *
+   * @param ifNoneMatch the value of the <code>If-None-Match</code> request header, may be
+   *        <code>null</code>
+   * @param maxAgeSecs how long clients may cache the document
+   * @return the response entity
+   */
+  public ResponseEntity<byte[]> toResponse(String ifNoneMatch, long maxAgeSecs) {
+    return toResponse(ifNoneMatch, CacheControl.maxAge(maxAgeSecs, TimeUnit.SECONDS).cachePublic());
+  }
+
+  /**
+   * Builds the response for a GET request for this document, with the given cache control
+   * directives.
+   *
+   * @param ifNoneMatch the value of the <code>If-None-Match</code> request header, may be
+   *        <code>null</code>
+   * @param cacheControl the cache control directives
+   * @return the response entity
+   */
+  public ResponseEntity<byte[]> toResponse(String ifNoneMatch, CacheControl cacheControl) {
+    if (matches(ifNoneMatch)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+        .eTag(etag)
+        .cacheControl(cacheControl)
+        .build();
+    }
+
+    return ResponseEntity.ok()
+      .eTag(etag)
+      .cacheControl(cacheControl)
+      .contentType(MediaType.APPLICATION_JSON_UTF8)
+      .contentLength(content.length)
+      .body(content);
+  }
+}
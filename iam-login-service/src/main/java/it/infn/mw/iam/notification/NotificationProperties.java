@@ -57,6 +57,9 @@ public class NotificationProperties {
   private GroupManagerNotificationPolicy groupManagerNotificationPolicy =
       NOTIFY_GMS_AND_ADMINS;
 
+  // A negative value disables the periodic reload of the notification templates
+  private long templateReloadPeriodMsec = -1;
+
   public Boolean getDisable() {
     return disable;
   }
@@ -121,4 +124,12 @@ public class NotificationProperties {
       GroupManagerNotificationPolicy groupManagerNotificationPolicy) {
     this.groupManagerNotificationPolicy = groupManagerNotificationPolicy;
   }
+
+  public long getTemplateReloadPeriodMsec() {
+    return templateReloadPeriodMsec;
+  }
+
+  public void setTemplateReloadPeriodMsec(long templateReloadPeriodMsec) {
+    this.templateReloadPeriodMsec = templateReloadPeriodMsec;
+  }
 }
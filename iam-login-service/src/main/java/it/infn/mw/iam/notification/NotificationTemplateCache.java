@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.notification;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the compiled form of the notification templates, so that each template is resolved and
+ * parsed by the Velocity engine only once. Compiled templates are immutable and can be merged
+ * concurrently.
+ *
+ * Templates changed on disk are picked up when the cache is reloaded, which happens periodically
+ * when <code>notification.template-reload-period-msec</code> is set to a positive value.
+ */
+@Component
+public class NotificationTemplateCache {
+
+  public static final Logger LOG = LoggerFactory.getLogger(NotificationTemplateCache.class);
+
+  public static final String TEMPLATE_ENCODING = "UTF-8";
+
+  private final VelocityEngine velocityEngine;
+  private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+  @Autowired
+  public NotificationTemplateCache(VelocityEngine velocityEngine) {
+    this.velocityEngine = velocityEngine;
+  }
+
+  public Template getTemplate(String name) {
+    checkNotNull(name, "null template name");
+    return templates.computeIfAbsent(name, n -> {
+      LOG.debug("Compiling notification template {}", n);
+      return velocityEngine.getTemplate(n, TEMPLATE_ENCODING);
+    });
+  }
+
+  public String render(String name, Map<String, Object> model) {
+    StringWriter writer = new StringWriter();
+    getTemplate(name).merge(new VelocityContext(model), writer);
+    return writer.toString();
+  }
+
+  /**
+   * Drops all compiled templates, so that they are resolved and parsed again on next use.
+   */
+  public void reload() {
+    LOG.info("Reloading notification templates");
+    templates.clear();
+  }
+
+  public int size() {
+    return templates.size();
+  }
+}
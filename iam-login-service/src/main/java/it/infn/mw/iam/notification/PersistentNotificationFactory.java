@@ -18,7 +18,6 @@ package it.infn.mw.iam.notification;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.velocity.app.VelocityEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -34,10 +33,10 @@ public class PersistentNotificationFactory extends TransientNotificationFactory
   final IamEmailNotificationRepository repo;
 
   @Autowired
-  public PersistentNotificationFactory(VelocityEngine ve, NotificationProperties np,
+  public PersistentNotificationFactory(NotificationTemplateCache tc, NotificationProperties np,
       IamEmailNotificationRepository repo, AdminNotificationDeliveryStrategy ands,
       GroupManagerNotificationDeliveryStrategy gmds) {
-    super(ve, np, ands, gmds);
+    super(tc, np, ands, gmds);
     this.repo = repo;
   }
 
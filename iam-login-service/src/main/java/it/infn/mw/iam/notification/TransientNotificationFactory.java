@@ -25,12 +25,10 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import org.apache.velocity.app.VelocityEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.ui.velocity.VelocityEngineUtils;
 
 import it.infn.mw.iam.api.account.password_reset.PasswordResetController;
 import it.infn.mw.iam.core.IamDeliveryStatus;
@@ -58,15 +56,15 @@ public class TransientNotificationFactory implements NotificationFactory {
   @Value("${iam.organisation.name}")
   private String organisationName;
 
-  private final VelocityEngine velocityEngine;
+  private final NotificationTemplateCache templateCache;
   private final NotificationProperties properties;
   private final AdminNotificationDeliveryStrategy adminNotificationDeliveryStrategy;
   private final GroupManagerNotificationDeliveryStrategy groupManagerDeliveryStrategy;
 
   @Autowired
-  public TransientNotificationFactory(VelocityEngine ve, NotificationProperties np,
+  public TransientNotificationFactory(NotificationTemplateCache tc, NotificationProperties np,
       AdminNotificationDeliveryStrategy ands, GroupManagerNotificationDeliveryStrategy gmds) {
-    this.velocityEngine = ve;
+    this.templateCache = tc;
     this.properties = np;
     this.adminNotificationDeliveryStrategy = ands;
     this.groupManagerDeliveryStrategy = gmds;
@@ -251,8 +249,7 @@ public class TransientNotificationFactory implements NotificationFactory {
   protected IamEmailNotification createMessage(String template, Map<String, Object> model,
       IamNotificationType messageType, String subject, List<String> receiverAddress) {
 
-    String body =
-        VelocityEngineUtils.mergeTemplateIntoString(velocityEngine, template, "UTF-8", model);
+    String body = templateCache.render(template, model);
 
     IamEmailNotification message = new IamEmailNotification();
 
@@ -263,6 +260,7 @@ public class TransientNotificationFactory implements NotificationFactory {
     message.setCreationTime(new Date());
     message.setDeliveryStatus(IamDeliveryStatus.PENDING);
     message.setReceivers(receiverAddress.stream()
+      .distinct()
       .map(a -> IamNotificationReceiver.forAddress(message, a))
       .collect(Collectors.toList()));
 
@@ -22,9 +22,6 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.google.common.collect.Lists;
-
-import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @Service
@@ -40,13 +37,6 @@ public class IamAccountByAuthorityAddressResolver implements ContextAwareAddress
   @Override
   public List<String> resolveEmailAddressForContext(String authority) {
     checkNotNull(authority);
-
-    List<String> results = Lists.newArrayList();
-
-    for (IamAccount a : repo.findByAuthority(authority)) {
-      results.add(a.getUserInfo().getEmail());
-    }
-    
-    return results;
+    return repo.findEmailByAuthority(authority);
   }
 }
@@ -29,7 +29,8 @@ import org.springframework.data.repository.query.Param;
 import com.nimbusds.jwt.JWT;
 
 public interface IamOAuthAccessTokenRepository
-  extends PagingAndSortingRepository<OAuth2AccessTokenEntity, Long> {
+  extends PagingAndSortingRepository<OAuth2AccessTokenEntity, Long>,
+  IamOAuthAccessTokenRepositoryCustom {
   
   @Query("select t from OAuth2AccessTokenEntity t where t.jwt = :tokenValue")
   Optional<OAuth2AccessTokenEntity> findByTokenValue(@Param("tokenValue") JWT tokenValue);
@@ -63,37 +64,14 @@ public interface IamOAuthAccessTokenRepository
 
     @Param("timestamp") Date timestamp, Pageable op);
 
-  @Query("select distinct t from OAuth2AccessTokenEntity t "
-    + "where (t.authenticationHolder.scope not in ('registration-token', 'resource-token')) "
-    + "and (t.expiration is NULL or t.expiration > :timestamp) order by t.expiration ")
-  Page<OAuth2AccessTokenEntity> findAllValidAccessTokens(
-    @Param("timestamp") Date timestamp, Pageable op);
-
-  @Query("select count(t) from OAuth2AccessTokenEntity t "
-    + "where (t.expiration is NULL or t.expiration > :timestamp)")
-  long countValidAccessTokens(@Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2AccessTokenEntity t "
-    + "where (t.expiration is NULL or t.expiration > :timestamp) "
-    + "and (t.authenticationHolder.userAuth.name = :userId)")
-  long countValidAccessTokensForUser(@Param("userId") String userId,
-    @Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2AccessTokenEntity t "
-    + "where (t.expiration is NULL or t.expiration > :timestamp) "
-    + "and (t.authenticationHolder.clientId = :clientId)")
-  long countValidAccessTokensForClient(@Param("clientId") String clientId,
-    @Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2AccessTokenEntity t "
-    + "where (t.expiration is NULL or t.expiration > :timestamp) "
-    + "and (t.authenticationHolder.userAuth.name = :userId) "
-    + "and (t.authenticationHolder.clientId = :clientId)")
-  long countValidAccessTokensForUserAndClient(@Param("userId") String userId,
-    @Param("clientId") String clientId, @Param("timestamp") Date timestamp);
-
   @Query("select t from OAuth2AccessTokenEntity t where t.authenticationHolder.id in ("
     + "select sua.id from SavedUserAuthentication sua where sua.name not in ("
     + "select a.username from IamAccount a))")
   List<OAuth2AccessTokenEntity> findOrphanedTokens();
+
+  @Query("select t from OAuth2AccessTokenEntity t where t.id > :lastId "
+    + "and t.authenticationHolder.userAuth.name not in (select a.username from IamAccount a) "
+    + "order by t.id")
+  List<OAuth2AccessTokenEntity> findOrphanedTokensWithIdGreaterThan(@Param("lastId") Long lastId,
+    Pageable op);
 }
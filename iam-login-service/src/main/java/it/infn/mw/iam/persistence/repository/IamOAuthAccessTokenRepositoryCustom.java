@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.List;
+
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+
+public interface IamOAuthAccessTokenRepositoryCustom {
+
+  /**
+   * @param query the query
+   * @param offset the number of matching tokens to skip (ignored for keyset queries)
+   * @param count the maximum number of tokens to be returned
+   * @return the page of access tokens selected by the query
+   */
+  List<OAuth2AccessTokenEntity> findValidTokens(ValidTokensQuery query, int offset, int count);
+
+  /**
+   * @param query the query
+   * @param limit the value at which counting stops, or 0 for an exact count
+   * @return the number of access tokens matching the query, up to <code>limit</code>
+   */
+  long countValidTokens(ValidTokensQuery query, long limit);
+
+  /**
+   * Records the token owner in the denormalized <code>user_name</code> column, which is not
+   * mapped by the token entity.
+   *
+   * @param token a token that has just been saved
+   */
+  void updateOwner(OAuth2AccessTokenEntity token);
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.mitre.oauth2.model.AuthenticationHolderEntity;
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+
+public class IamOAuthAccessTokenRepositoryImpl implements IamOAuthAccessTokenRepositoryCustom {
+
+  private static final String TABLE = "access_token";
+
+  private static final String FIND_BY_IDS_QUERY =
+      "select t from OAuth2AccessTokenEntity t where t.id in :ids";
+
+  private static final String UPDATE_OWNER_QUERY =
+      "update access_token set user_name = ?1 where id = ?2 and user_name is null";
+
+  @PersistenceContext
+  EntityManager em;
+
+  @Override
+  public List<OAuth2AccessTokenEntity> findValidTokens(ValidTokensQuery query, int offset,
+      int count) {
+    List<Long> ids = query.findIds(em, TABLE, offset, count);
+
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Map<Long, OAuth2AccessTokenEntity> tokens =
+        em.createQuery(FIND_BY_IDS_QUERY, OAuth2AccessTokenEntity.class)
+          .setParameter("ids", ids)
+          .getResultList()
+          .stream()
+          .collect(toMap(OAuth2AccessTokenEntity::getId, Function.identity()));
+
+    return ids.stream().map(tokens::get).filter(Objects::nonNull).collect(toList());
+  }
+
+  @Override
+  public long countValidTokens(ValidTokensQuery query, long limit) {
+    return query.count(em, TABLE, limit);
+  }
+
+  @Override
+  public void updateOwner(OAuth2AccessTokenEntity token) {
+    AuthenticationHolderEntity holder = token.getAuthenticationHolder();
+
+    if (holder == null || holder.getUserAuth() == null || holder.getUserAuth().getName() == null) {
+      return;
+    }
+
+    if (token.getId() == null) {
+      // the token id is assigned when the insert is flushed
+      em.flush();
+    }
+
+    em.createNativeQuery(UPDATE_OWNER_QUERY)
+      .setParameter(1, holder.getUserAuth().getName())
+      .setParameter(2, token.getId())
+      .executeUpdate();
+  }
+}
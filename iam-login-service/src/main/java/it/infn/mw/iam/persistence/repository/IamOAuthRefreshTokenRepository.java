@@ -26,7 +26,8 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
 public interface IamOAuthRefreshTokenRepository
-    extends PagingAndSortingRepository<OAuth2RefreshTokenEntity, Long> {
+    extends PagingAndSortingRepository<OAuth2RefreshTokenEntity, Long>,
+    IamOAuthRefreshTokenRepositoryCustom {
 
   @Query("select t from OAuth2RefreshTokenEntity t where t.authenticationHolder.userAuth.name = :userId "
       + "and (t.expiration is NULL or t.expiration > :timestamp)")
@@ -53,36 +54,14 @@ public interface IamOAuthRefreshTokenRepository
       @Param("userId") String userId, @Param("clientId") String clientId,
       @Param("timestamp") Date timestamp, Pageable op);
 
-  @Query("select t from OAuth2RefreshTokenEntity t "
-      + "where (t.expiration is NULL or t.expiration > :timestamp) order by t.expiration,t.id")
-  Page<OAuth2RefreshTokenEntity> findAllValidRefreshTokens(@Param("timestamp") Date timestamp,
-      Pageable op);
-
-  @Query("select count(t) from OAuth2RefreshTokenEntity t "
-      + "where (t.expiration is NULL or t.expiration > :timestamp)")
-  long countValidRefreshTokens(@Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2RefreshTokenEntity t "
-      + "where (t.expiration is NULL or t.expiration > :timestamp) "
-      + "and (t.authenticationHolder.userAuth.name = :userId)")
-  long countValidRefreshTokensForUser(@Param("userId") String userId,
-      @Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2RefreshTokenEntity t "
-      + "where (t.expiration is NULL or t.expiration > :timestamp) "
-      + "and (t.authenticationHolder.clientId = :clientId)")
-  long countValidRefreshTokensForClient(@Param("clientId") String clientId,
-      @Param("timestamp") Date timestamp);
-
-  @Query("select count(t) from OAuth2RefreshTokenEntity t "
-      + "where (t.expiration is NULL or t.expiration > :timestamp) "
-      + "and (t.authenticationHolder.userAuth.name = :userId) "
-      + "and (t.authenticationHolder.clientId = :clientId)")
-  long countValidRefreshTokensForUserAndClient(@Param("userId") String userId,
-      @Param("clientId") String clientId, @Param("timestamp") Date timestamp);
-
   @Query("select t from OAuth2RefreshTokenEntity t where t.authenticationHolder.id in ("
       + "select sua.id from SavedUserAuthentication sua where sua.name not in ("
       + "select a.username from IamAccount a))")
   List<OAuth2RefreshTokenEntity> findOrphanedTokens();
+
+  @Query("select t from OAuth2RefreshTokenEntity t where t.id > :lastId "
+      + "and t.authenticationHolder.userAuth.name not in (select a.username from IamAccount a) "
+      + "order by t.id")
+  List<OAuth2RefreshTokenEntity> findOrphanedTokensWithIdGreaterThan(@Param("lastId") Long lastId,
+      Pageable op);
 }
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.lang.String.format;
+import static org.mitre.oauth2.service.SystemScopeService.REGISTRATION_TOKEN_SCOPE;
+import static org.mitre.oauth2.service.SystemScopeService.RESOURCE_TOKEN_SCOPE;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Selects a page of valid (i.e. not expired) access or refresh tokens, optionally owned by a
+ * given user and/or issued to a given client, sorted by expiration and id.
+ *
+ * Pages can be selected by offset or, more efficiently, by keyset: given the expiration and id of
+ * the last token of the previous page, the next page starts right after it. Tokens that never
+ * expire (null expiration) come first.
+ *
+ * Owner and client filters rely on the denormalized <code>user_name</code> and
+ * <code>client_id</code> columns of the token tables, which are indexed together with the
+ * expiration.
+ */
+public class ValidTokensQuery {
+
+  private final Date now;
+  private final String userId;
+  private final String clientId;
+  private final boolean excludeServiceTokens;
+  private final boolean keyset;
+  private final Date lastExpiration;
+  private final long lastId;
+
+  private ValidTokensQuery(Date now, String userId, String clientId, boolean excludeServiceTokens,
+      boolean keyset, Date lastExpiration, long lastId) {
+    this.now = now;
+    this.userId = userId;
+    this.clientId = clientId;
+    this.excludeServiceTokens = excludeServiceTokens;
+    this.keyset = keyset;
+    this.lastExpiration = lastExpiration;
+    this.lastId = lastId;
+  }
+
+  /**
+   * @param now the current time
+   * @param userId the token owner username, or <code>null</code> for any owner
+   * @param clientId the client id, or <code>null</code> for any client
+   * @return a query selecting the first page of matching tokens
+   */
+  public static ValidTokensQuery of(Date now, String userId, String clientId) {
+    return new ValidTokensQuery(now, userId, clientId, false, false, null, 0L);
+  }
+
+  /**
+   * @return a copy of this query that skips tokens issued for dynamic client registration and
+   *         protected resource management (access tokens only)
+   */
+  public ValidTokensQuery excludingServiceTokens() {
+    return new ValidTokensQuery(now, userId, clientId, true, keyset, lastExpiration, lastId);
+  }
+
+  /**
+   * @param expiration the expiration of the last token of the previous page (may be null)
+   * @param id the id of the last token of the previous page
+   * @return a copy of this query that selects the tokens following the given one
+   */
+  public ValidTokensQuery after(Date expiration, long id) {
+    return new ValidTokensQuery(now, userId, clientId, excludeServiceTokens, true, expiration, id);
+  }
+
+  public boolean isKeyset() {
+    return keyset;
+  }
+
+  private String where(List<Object> params) {
+    params.add(new Timestamp(now.getTime()));
+    StringBuilder sql = new StringBuilder(" where (t.expiration is null or t.expiration > ?1)");
+
+    if (userId != null) {
+      params.add(userId);
+      sql.append(format(" and t.user_name = ?%d", params.size()));
+    }
+
+    if (clientId != null) {
+      params.add(clientId);
+      sql.append(format(
+          " and t.client_id in (select c.id from client_details c where c.client_id = ?%d)",
+          params.size()));
+    }
+
+    if (excludeServiceTokens) {
+      sql.append(format(
+          " and not exists (select 1 from token_scope s where s.owner_id = t.id "
+              + "and s.scope in ('%s', '%s'))",
+          REGISTRATION_TOKEN_SCOPE, RESOURCE_TOKEN_SCOPE));
+    }
+
+    if (keyset) {
+      params.add(lastId);
+      final int idParam = params.size();
+
+      if (lastExpiration == null) {
+        sql.append(format(
+            " and ((t.expiration is null and t.id > ?%d) or t.expiration is not null)", idParam));
+      } else {
+        params.add(new Timestamp(lastExpiration.getTime()));
+        final int expParam = params.size();
+        sql.append(format(" and t.expiration is not null and (t.expiration > ?%d "
+            + "or (t.expiration = ?%d and t.id > ?%d))", expParam, expParam, idParam));
+      }
+    }
+
+    return sql.toString();
+  }
+
+  private static Query withParams(Query q, List<Object> params) {
+    for (int i = 0; i < params.size(); i++) {
+      q.setParameter(i + 1, params.get(i));
+    }
+    return q;
+  }
+
+  /**
+   * @param em the entity manager
+   * @param table the token table
+   * @param offset the number of matching tokens to skip (ignored for keyset queries)
+   * @param count the maximum number of token ids to be returned
+   * @return the ids of the matching tokens, in page order
+   */
+  List<Long> findIds(EntityManager em, String table, int offset, int count) {
+    List<Object> params = Lists.newArrayList();
+    String sql = format("select t.id from %s t%s order by t.expiration, t.id", table,
+        where(params));
+
+    Query q = withParams(em.createNativeQuery(sql), params).setMaxResults(count);
+
+    if (!keyset) {
+      q.setFirstResult(offset);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Object> results = q.getResultList();
+
+    return results.stream()
+      .filter(Objects::nonNull)
+      .map(o -> ((Number) o).longValue())
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param em the entity manager
+   * @param table the token table
+   * @param limit the value at which counting stops, or 0 for an exact count
+   * @return the number of matching tokens, or <code>limit</code> if there are more
+   */
+  long count(EntityManager em, String table, long limit) {
+    List<Object> params = Lists.newArrayList();
+    String from = format("from %s t%s", table, where(params));
+
+    String sql = limit > 0 ? format("select count(*) from (select t.id %s limit %d) c", from, limit)
+        : "select count(*) " + from;
+
+    return ((Number) withParams(em.createNativeQuery(sql), params).getSingleResult())
+      .longValue();
+  }
+}
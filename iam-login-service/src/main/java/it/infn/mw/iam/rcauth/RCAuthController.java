@@ -31,15 +31,19 @@ import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 
 import eu.emi.security.authn.x509.proxy.ProxyCertificate;
 import it.infn.mw.iam.api.account_linking.DefaultAccountLinkingService;
 import it.infn.mw.iam.authn.x509.IamX509AuthenticationCredential;
+import it.infn.mw.iam.core.http.ExternalCallExecutor;
+import it.infn.mw.iam.core.http.ExternalCallTimeoutException;
 import it.infn.mw.iam.rcauth.x509.ProxyHelperService;
 
 @Controller
@@ -53,19 +57,23 @@ public class RCAuthController {
       "Invalid RCAuth authorization response: %s";
 
   public static final String RCAUTH_ERROR_TEMPLATE = "RCAuth error: %s";
+  public static final String DASHBOARD_REDIRECT = "redirect:/dashboard";
+
   public static final String RCAUTH_SUCCESS_TEMPLATE =
       "Proxy certificate with subject '%s' linked succesfully";
 
   final RCAuthRequestService requestService;
   final ProxyHelperService proxyHelper;
   final DefaultAccountLinkingService linkingService;
+  final ExternalCallExecutor executor;
 
   @Autowired
   public RCAuthController(RCAuthRequestService service, ProxyHelperService proxyHelper,
-      DefaultAccountLinkingService ls) {
+      DefaultAccountLinkingService ls, ExternalCallExecutor executor) {
     this.requestService = service;
     this.proxyHelper = proxyHelper;
     this.linkingService = ls;
+    this.executor = executor;
   }
 
   @RequestMapping(method = GET, value = GETCERT_PATH)
@@ -75,45 +83,48 @@ public class RCAuthController {
 
 
   @RequestMapping(method = GET, value = CALLBACK_PATH)
-  public String rcauthCallback(Principal authenticatedUser, HttpSession session,
+  public DeferredResult<String> rcauthCallback(Principal authenticatedUser, HttpSession session,
       RedirectAttributes attributes, @Valid RCAuthAuthorizationResponse response,
       final BindingResult validationResult) {
 
     if (validationResult.hasErrors()) {
       attributes.addFlashAttribute(ACCOUNT_LINKING_DASHBOARD_ERROR_KEY,
           format(VALIDATION_ERROR_TEMPLATE, stringifyValidationError(validationResult)));
-    } else {
+      return ExternalCallExecutor.completed(DASHBOARD_REDIRECT);
+    }
 
-      try {
+    return executor.call(() -> {
+      RCAuthExchangeContext ctx = requestService.handleAuthorizationCodeResponse(session, response);
 
-        RCAuthExchangeContext ctx =
-            requestService.handleAuthorizationCodeResponse(session, response);
+      ProxyCertificate proxy = proxyHelper.generateProxy(ctx.getCertificate(),
+          ctx.getCertificateRequest().getKeyPair().getPrivate());
 
-        ProxyCertificate proxy = proxyHelper.generateProxy(ctx.getCertificate(),
-            ctx.getCertificateRequest().getKeyPair().getPrivate());
+      String proxyPem = proxyHelper.proxyCertificateToPemString(proxy);
 
-        String proxyPem = proxyHelper.proxyCertificateToPemString(proxy);
+      final String certificateSubject =
+          getReadableForm(ctx.getCertificate().getSubjectX500Principal());
 
-        final String certificateSubject =
-            getReadableForm(ctx.getCertificate().getSubjectX500Principal());
+      IamX509AuthenticationCredential cred = IamX509AuthenticationCredential.builder()
+        .certificateChain(new X509Certificate[] {ctx.getCertificate()})
+        .subject(certificateSubject)
+        .issuer(getReadableForm(ctx.getCertificate().getIssuerX500Principal()))
+        .verificationResult(success())
+        .build();
 
-        IamX509AuthenticationCredential cred = IamX509AuthenticationCredential.builder()
-          .certificateChain(new X509Certificate[] {ctx.getCertificate()})
-          .subject(certificateSubject)
-          .issuer(getReadableForm(ctx.getCertificate().getIssuerX500Principal()))
-          .verificationResult(success())
-          .build();
+      linkingService.linkX509ProxyCertificate(authenticatedUser, cred, proxyPem);
+      attributes.addFlashAttribute(ACCOUNT_LINKING_DASHBOARD_MESSAGE_KEY,
+          format(RCAUTH_SUCCESS_TEMPLATE, certificateSubject));
 
-        linkingService.linkX509ProxyCertificate(authenticatedUser, cred, proxyPem);
-        attributes.addFlashAttribute(ACCOUNT_LINKING_DASHBOARD_MESSAGE_KEY,
-            format(RCAUTH_SUCCESS_TEMPLATE, certificateSubject));
-      } catch (RCAuthError e) {
+      return DASHBOARD_REDIRECT;
+    }, e -> {
+      if (e instanceof RCAuthError || e instanceof ExternalCallTimeoutException
+          || e instanceof TaskRejectedException) {
         attributes.addFlashAttribute(ACCOUNT_LINKING_DASHBOARD_ERROR_KEY,
             format(RCAUTH_ERROR_TEMPLATE, e.getMessage()));
+        return DASHBOARD_REDIRECT;
       }
-    }
-
-    return "redirect:/dashboard";
+      throw e;
+    });
   }
 
 }
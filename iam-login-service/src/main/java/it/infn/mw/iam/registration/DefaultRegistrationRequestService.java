@@ -69,6 +69,7 @@ import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 import it.infn.mw.iam.persistence.repository.IamAupRepository;
 import it.infn.mw.iam.persistence.repository.IamAupSignatureRepository;
 import it.infn.mw.iam.persistence.repository.IamRegistrationRequestRepository;
+import it.infn.mw.iam.registration.availability.AccountAvailabilityIndex;
 import it.infn.mw.iam.registration.validation.RegistrationRequestValidationResult;
 import it.infn.mw.iam.registration.validation.RegistrationRequestValidationService;
 import it.infn.mw.iam.registration.validation.RegistrationRequestValidatorError;
@@ -118,6 +119,9 @@ public class DefaultRegistrationRequestService
   @Autowired
   private Clock clock;
 
+  @Autowired
+  private AccountAvailabilityIndex availabilityIndex;
+
   private ApplicationEventPublisher eventPublisher;
 
   private IamRegistrationRequest findRequestById(String requestUuid) {
@@ -280,14 +284,18 @@ public class DefaultRegistrationRequestService
 
   @Override
   public Boolean usernameAvailable(String username) {
-
-    Optional<IamAccount> account = iamAccountRepo.findByUsername(username);
-    return !account.isPresent();
+    if (!availabilityIndex.mightContainUsername(username)) {
+      return true;
+    }
+    return iamAccountRepo.countByUsername(username) == 0;
   }
 
   @Override
   public Boolean emailAvailable(String emailAddress) {
-    return !iamAccountRepo.findByEmail(emailAddress).isPresent();
+    if (!availabilityIndex.mightContainEmail(emailAddress)) {
+      return true;
+    }
+    return iamAccountRepo.countByEmail(emailAddress) == 0;
   }
 
   private boolean checkStatusTransition(IamRegistrationRequestStatus currentStatus,
@@ -24,13 +24,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -41,6 +44,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.ModelAndView;
 
 import it.infn.mw.iam.api.common.ErrorDTO;
@@ -50,6 +54,8 @@ import it.infn.mw.iam.authn.ExternalAuthenticationRegistrationInfo;
 import it.infn.mw.iam.config.IamProperties;
 import it.infn.mw.iam.config.IamProperties.RegistrationProperties;
 import it.infn.mw.iam.core.IamRegistrationRequestStatus;
+import it.infn.mw.iam.core.http.ExternalCallExecutor;
+import it.infn.mw.iam.core.http.ExternalCallTimeoutException;
 import it.infn.mw.iam.registration.validation.RegistrationRequestValidatorError;
 
 @RestController
@@ -62,12 +68,17 @@ public class RegistrationApiController {
 
   private final RegistrationRequestService service;
   private final RegistrationProperties registrationProperties;
+  private final ExternalCallExecutor executor;
+  private final TransactionTemplate txTemplate;
 
   @Autowired
   public RegistrationApiController(RegistrationRequestService registrationService,
-      IamProperties properties) {
+      IamProperties properties, ExternalCallExecutor executor,
+      PlatformTransactionManager transactionManager) {
     service = registrationService;
     registrationProperties = properties.getRegistration();
+    this.executor = executor;
+    this.txTemplate = new TransactionTemplate(transactionManager);
   }
 
   private Optional<ExternalAuthenticationRegistrationInfo> getExternalAuthenticationInfo() {
@@ -108,11 +119,19 @@ public class RegistrationApiController {
 
   @RequestMapping(value = "/registration/create", method = RequestMethod.POST,
       consumes = "application/json")
-  public RegistrationRequestDto createRegistrationRequest(
+  public DeferredResult<RegistrationRequestDto> createRegistrationRequest(
       @RequestBody RegistrationRequestDto request) {
 
-    return service.createRequest(request, getExternalAuthenticationInfo());
+    // Request validation may query external services (e.g., the CERN HR DB), so the request is
+    // created on the external call executor; the authentication is resolved here, as the
+    // security context is bound to the request thread
+    final Optional<ExternalAuthenticationRegistrationInfo> extAuthnInfo =
+        getExternalAuthenticationInfo();
 
+    return executor.call(
+        () -> txTemplate.execute(status -> service.createRequest(request, extAuthnInfo)), e -> {
+          throw e;
+        });
   }
 
   @PreAuthorize("#oauth2.hasScope('registration:write') or hasRole('ADMIN')")
@@ -179,4 +198,11 @@ public class RegistrationApiController {
   public ErrorDTO handleValidationError(RegistrationRequestValidatorError e) {
     return ErrorDTO.fromString(e.getMessage());
   }
+
+  @ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+  @ExceptionHandler({ExternalCallTimeoutException.class, TaskRejectedException.class})
+  public ErrorDTO handleUnavailableError(RuntimeException e) {
+    LOG.warn("Registration request not processed: {}", e.getMessage());
+    return ErrorDTO.fromString("Registration service temporarily unavailable, retry later");
+  }
 }
@@ -15,33 +15,54 @@
  */
 package it.infn.mw.iam.registration;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import it.infn.mw.iam.api.common.ErrorDTO;
+import it.infn.mw.iam.registration.availability.AvailabilityCheckRateLimitedError;
+import it.infn.mw.iam.registration.availability.AvailabilityCheckRateLimiter;
+
 @RestController
-@Transactional
 public class RegistrationUtilsController {
 
   final RegistrationRequestService service;
+  final AvailabilityCheckRateLimiter rateLimiter;
 
   @Autowired
-  public RegistrationUtilsController(RegistrationRequestService service) {
+  public RegistrationUtilsController(RegistrationRequestService service,
+      AvailabilityCheckRateLimiter rateLimiter) {
     this.service = service;
+    this.rateLimiter = rateLimiter;
   }
 
   @RequestMapping(value = "/registration/username-available/{username:.+}",
       method = RequestMethod.GET)
-  public Boolean usernameAvailable(@PathVariable("username") String username) {
+  public Boolean usernameAvailable(@PathVariable("username") String username,
+      HttpServletRequest request) {
+    rateLimiter.checkAllowed(request.getRemoteAddr());
     return service.usernameAvailable(username);
   }
 
   @RequestMapping(value = "/registration/email-available/{email:.+}", method = RequestMethod.GET)
-  public Boolean emailAvailable(@PathVariable("email") String email) {
+  public Boolean emailAvailable(@PathVariable("email") String email, HttpServletRequest request) {
+    rateLimiter.checkAllowed(request.getRemoteAddr());
     return service.emailAvailable(email);
   }
-  
+
+  @ExceptionHandler(AvailabilityCheckRateLimitedError.class)
+  public ResponseEntity<ErrorDTO> handleRateLimited(AvailabilityCheckRateLimitedError e) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(AvailabilityCheckRateLimitedError.RETRY_AFTER_HEADER, String.valueOf(e.getRetryAfterSecs()));
+    return new ResponseEntity<>(ErrorDTO.fromString(e.getMessage()), headers,
+        HttpStatus.TOO_MANY_REQUESTS);
+  }
 }
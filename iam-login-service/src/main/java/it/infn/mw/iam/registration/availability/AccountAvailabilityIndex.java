@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.registration.availability;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import it.infn.mw.iam.audit.events.account.AccountEvent;
+import it.infn.mw.iam.config.registration.RegistrationAvailabilityProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+/**
+ * Keeps Bloom filters of the (case-normalized) usernames and email addresses of the accounts, so
+ * that username and email availability checks for values that are not in use can be answered
+ * without querying the database.
+ *
+ * The filters are only ever added to: a positive answer from the index ("might be taken") must be
+ * confirmed against the database, so stale values left by removed or renamed accounts only cost
+ * a database query. Accounts created by other IAM instances are picked up by
+ * {@link #catchUp()}, which is run periodically, while usernames and email addresses changed by
+ * other instances are received through the {@link CacheInvalidationBus}.
+ */
+@Component
+public class AccountAvailabilityIndex implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(AccountAvailabilityIndex.class);
+
+  public static final String METRIC_PREFIX = "iam.registration-availability.";
+
+  private static class Filters {
+    final BloomFilter<CharSequence> usernames;
+    final BloomFilter<CharSequence> emails;
+
+    Filters(long expectedInsertions, double fpp) {
+      usernames = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+          (int) Math.min(Integer.MAX_VALUE, expectedInsertions), fpp);
+      emails = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+          (int) Math.min(Integer.MAX_VALUE, expectedInsertions), fpp);
+    }
+
+    void put(String username, String email) {
+      if (username != null) {
+        usernames.put(normalize(username));
+      }
+      if (email != null) {
+        emails.put(normalize(email));
+      }
+    }
+  }
+
+  private final RegistrationAvailabilityProperties properties;
+  private final IamAccountRepository accountRepo;
+
+  // Guava Bloom filters do not support concurrent insertions
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private volatile Filters current;
+  private Filters building;
+  private long lastIndexedId = 0L;
+
+  private final AtomicLong indexHits = new AtomicLong();
+  private final AtomicLong indexMisses = new AtomicLong();
+
+  @Autowired
+  public AccountAvailabilityIndex(RegistrationAvailabilityProperties properties,
+      IamAccountRepository accountRepo, CacheInvalidationBus invalidationBus) {
+    this.properties = properties;
+    this.accountRepo = accountRepo;
+
+    invalidationBus.addListener(CacheInvalidationBus.ACCOUNT_REGION,
+        new CacheInvalidationListener() {
+          @Override
+          public void invalidate(String key) {
+            if (!isReady()) {
+              return;
+            }
+
+            Optional<AccountSummary> summary = accountRepo.findSummaryById(Long.valueOf(key));
+            if (summary.isPresent()) {
+              put(summary.get().getUsername(), summary.get().getEmail());
+            }
+          }
+
+          @Override
+          public void invalidateAll() {
+            if (isReady()) {
+              rebuild();
+            }
+          }
+        });
+  }
+
+  public static String normalize(String value) {
+    return value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  public boolean isReady() {
+    return current != null;
+  }
+
+  private boolean mightContain(String value, boolean username) {
+    Filters filters = current;
+
+    if (filters == null || value == null) {
+      return true;
+    }
+
+    boolean result;
+
+    lock.readLock().lock();
+    try {
+      result = username ? filters.usernames.mightContain(normalize(value))
+          : filters.emails.mightContain(normalize(value));
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    if (result) {
+      indexMisses.incrementAndGet();
+    } else {
+      indexHits.incrementAndGet();
+    }
+
+    return result;
+  }
+
+  /**
+   * @param username the username
+   * @return <code>false</code> if the username is certainly not in use, <code>true</code> if it
+   *         might be in use or the index is not ready
+   */
+  public boolean mightContainUsername(String username) {
+    return mightContain(username, true);
+  }
+
+  /**
+   * @param email the email address
+   * @return <code>false</code> if the email address is certainly not in use, <code>true</code> if
+   *         it might be in use or the index is not ready
+   */
+  public boolean mightContainEmail(String email) {
+    return mightContain(email, false);
+  }
+
+  public void put(String username, String email) {
+    lock.writeLock().lock();
+    try {
+      if (current != null) {
+        current.put(username, email);
+      }
+      if (building != null) {
+        building.put(username, email);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private long index(Filters filters, Long lastId) {
+    final PageRequest chunk = new PageRequest(0, properties.getRebuildChunkSize());
+    Long id = lastId;
+
+    List<AccountSummary> summaries = accountRepo.findSummariesWithIdGreaterThan(id, chunk);
+
+    while (!summaries.isEmpty()) {
+      lock.writeLock().lock();
+      try {
+        for (AccountSummary s : summaries) {
+          filters.put(s.getUsername(), s.getEmail());
+          id = s.getId();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+      summaries = accountRepo.findSummariesWithIdGreaterThan(id, chunk);
+    }
+
+    return id;
+  }
+
+  public synchronized void rebuild() {
+    final long startTime = System.currentTimeMillis();
+    final long expectedInsertions =
+        Math.max(properties.getExpectedAccounts(), 2 * accountRepo.count());
+
+    Filters filters = new Filters(expectedInsertions, properties.getFalsePositiveProbability());
+
+    lock.writeLock().lock();
+    try {
+      building = filters;
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      long lastId = index(filters, 0L);
+
+      lock.writeLock().lock();
+      try {
+        current = filters;
+        lastIndexedId = lastId;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } finally {
+      lock.writeLock().lock();
+      try {
+        building = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    LOG.info("Account availability index built for {} expected accounts in {} msec",
+        expectedInsertions, System.currentTimeMillis() - startTime);
+  }
+
+  /**
+   * Indexes the accounts created since the last rebuild or catch-up, including those created by
+   * other IAM instances sharing the same database.
+   */
+  public synchronized void catchUp() {
+    Filters filters = current;
+
+    if (filters == null) {
+      return;
+    }
+
+    lastIndexedId = index(filters, lastIndexedId);
+  }
+
+  @EventListener
+  public void onContextRefreshed(ContextRefreshedEvent event) {
+    if (!properties.isIndexEnabled()) {
+      LOG.info("Account availability index is disabled");
+      return;
+    }
+
+    if (!isReady()) {
+      rebuild();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onAccountEvent(AccountEvent event) {
+    if (!isReady() || event.getAccount() == null) {
+      return;
+    }
+
+    IamAccount account = event.getAccount();
+    put(account.getUsername(),
+        account.getUserInfo() == null ? null : account.getUserInfo().getEmail());
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+
+    result.add(new Metric<>(METRIC_PREFIX + "index-hits", indexHits.get()));
+    result.add(new Metric<>(METRIC_PREFIX + "index-misses", indexMisses.get()));
+
+    return result;
+  }
+}
@@ -13,21 +13,22 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package it.infn.mw.iam.rcauth;
+package it.infn.mw.iam.registration.availability;
 
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+public class AvailabilityCheckRateLimitedError extends RuntimeException {
 
-@Configuration
-@Profile("!canl")
-public class RCAuthX509Config {
+  private static final long serialVersionUID = 1L;
 
-  @Bean
-  public ClientHttpRequestFactory httpRequestFactory() {
-    return new HttpComponentsClientHttpRequestFactory();
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  private final int retryAfterSecs;
+
+  public AvailabilityCheckRateLimitedError(String message, int retryAfterSecs) {
+    super(message);
+    this.retryAfterSecs = retryAfterSecs;
+  }
+
+  public int getRetryAfterSecs() {
+    return retryAfterSecs;
   }
-  
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.registration.availability;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.config.registration.RegistrationAvailabilityProperties;
+
+/**
+ * Limits the number of username and email availability checks that a single client address can
+ * perform in a fixed time window.
+ *
+ * Client addresses are taken from {@link javax.servlet.ServletRequest#getRemoteAddr()}, which
+ * reports the real client address behind a reverse proxy only when forwarded headers are trusted
+ * (<code>server.use-forward-headers</code>).
+ */
+@Component
+public class AvailabilityCheckRateLimiter implements PublicMetrics {
+
+  public static final Logger LOG = LoggerFactory.getLogger(AvailabilityCheckRateLimiter.class);
+
+  private final RegistrationAvailabilityProperties properties;
+  private final Cache<String, AtomicInteger> requestCounts;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  @Autowired
+  public AvailabilityCheckRateLimiter(RegistrationAvailabilityProperties properties) {
+    this.properties = properties;
+    this.requestCounts = CacheBuilder.newBuilder()
+      .maximumSize(properties.getMaxTrackedClients())
+      .expireAfterWrite(properties.getRateLimitWindowSecs(), TimeUnit.SECONDS)
+      .build();
+  }
+
+  /**
+   * @param remoteAddress the client address, may be <code>null</code>
+   * @throws AvailabilityCheckRateLimitedError if the client has exceeded the allowed number of
+   *         requests in the current window
+   */
+  public void checkAllowed(String remoteAddress) {
+    if (!properties.isRateLimitEnabled() || remoteAddress == null) {
+      return;
+    }
+
+    int count;
+
+    try {
+      count = requestCounts.get(remoteAddress, AtomicInteger::new).incrementAndGet();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+
+    if (count > properties.getRateLimitRequests()) {
+      rejected.incrementAndGet();
+      LOG.debug("Availability check rate limit exceeded for {}", remoteAddress);
+      throw new AvailabilityCheckRateLimitedError("Too many requests, retry later",
+          properties.getRateLimitWindowSecs());
+    }
+  }
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    Collection<Metric<?>> result = Lists.newArrayList();
+    result.add(new Metric<>(AccountAvailabilityIndex.METRIC_PREFIX + "rate-limited",
+        rejected.get()));
+    return result;
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * A minimal, thread-safe circuit breaker guarding calls to a remote service.
+ *
+ * The breaker opens after a number of consecutive failures, and then rejects calls with a
+ * {@link CircuitBreakerOpenException} until the open time has elapsed. After that, calls are let
+ * through again (half-open state): the first successful call closes the breaker, while a failure
+ * opens it again.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final Duration openTime;
+  private final Clock clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures = 0;
+  private Instant openedAt;
+
+  public CircuitBreaker(String name, int failureThreshold, Duration openTime, Clock clock) {
+    checkArgument(failureThreshold > 0, "failureThreshold must be > 0");
+    checkNotNull(openTime, "null openTime");
+    checkNotNull(clock, "null clock");
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.openTime = openTime;
+    this.clock = clock;
+  }
+
+  public synchronized State getState() {
+    if (State.OPEN.equals(state) && !clock.instant().isBefore(openedAt.plus(openTime))) {
+      state = State.HALF_OPEN;
+    }
+    return state;
+  }
+
+  public synchronized boolean isOpen() {
+    return State.OPEN.equals(getState());
+  }
+
+  public synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+    state = State.CLOSED;
+  }
+
+  public synchronized void recordFailure() {
+    consecutiveFailures++;
+
+    if (State.HALF_OPEN.equals(state) || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = clock.instant();
+    }
+  }
+
+  public synchronized void reset() {
+    consecutiveFailures = 0;
+    state = State.CLOSED;
+    openedAt = null;
+  }
+
+  /**
+   * Invokes the supplier, unless the breaker is open.
+   *
+   * @param call the call to the remote service
+   * @return the value returned by the call
+   * @throws CircuitBreakerOpenException if the breaker is open
+   */
+  public <T> T call(Supplier<T> call) {
+    if (isOpen()) {
+      throw new CircuitBreakerOpenException(name);
+    }
+
+    try {
+      T result = call.get();
+      recordSuccess();
+      return result;
+    } catch (RuntimeException e) {
+      recordFailure();
+      throw e;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -16,12 +16,17 @@
 package it.infn.mw.iam.test;
 
 import static com.jayway.restassured.RestAssured.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import org.hamcrest.Matchers;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -40,6 +45,16 @@ public class RegistrationUtils {
     this.mapper = mapper;
   }
 
+  /**
+   * Performs a request served asynchronously (like the registration request creation) and
+   * returns the outcome of its async dispatch.
+   */
+  public static ResultActions performAsync(MockMvc mvc, RequestBuilder requestBuilder)
+      throws Exception {
+    MvcResult result = mvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+    return mvc.perform(asyncDispatch(result));
+  }
+
   public RegistrationRequestDto createRegistrationRequest(String username) throws Exception {
 
     String email = username + "@example.org";
@@ -51,8 +66,7 @@ public class RegistrationUtils {
     request.setNotes("Some short notes...");
 
     String responseJson =
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(mapper.writeValueAsString(request)))
       .andExpect(MockMvcResultMatchers.status().isOk())
       .andReturn().getResponse().getContentAsString();
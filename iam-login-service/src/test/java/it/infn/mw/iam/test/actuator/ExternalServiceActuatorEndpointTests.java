@@ -17,9 +17,11 @@ package it.infn.mw.iam.test.actuator;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.junit.Before;
@@ -79,7 +81,9 @@ public class ExternalServiceActuatorEndpointTests {
   @Test
   public void testExternalServicesHealthEndpoint() throws Exception {
     // @formatter:off
-    mvc.perform(get(externalHealthEndpoint))
+    mvc.perform(asyncDispatch(mvc.perform(get(externalHealthEndpoint))
+        .andExpect(request().asyncStarted())
+        .andReturn()))
       .andExpect(status().isOk())
       .andExpect(jsonPath("$.status", equalTo(STATUS_UP)))
       .andExpect(jsonPath("$.external").doesNotExist());
@@ -90,7 +94,9 @@ public class ExternalServiceActuatorEndpointTests {
   @WithMockUser(username = USER_USERNAME, roles = {USER_ROLE})
   public void testExternalServicesHealthEndpointAsUser() throws Exception {
     // @formatter:off
-    mvc.perform(get(externalHealthEndpoint))
+    mvc.perform(asyncDispatch(mvc.perform(get(externalHealthEndpoint))
+        .andExpect(request().asyncStarted())
+        .andReturn()))
       .andExpect(status().isOk())
       .andExpect(jsonPath("$.status", equalTo(STATUS_UP)))
       .andExpect(jsonPath("$.external").doesNotExist());
@@ -101,7 +107,9 @@ public class ExternalServiceActuatorEndpointTests {
   @WithMockUser(username = ADMIN_USERNAME, roles = {ADMIN_ROLE})
   public void testExternalServicesHealthEndpointAsAdmin() throws Exception {
     // @formatter:off
-    mvc.perform(get(externalHealthEndpoint))
+    mvc.perform(asyncDispatch(mvc.perform(get(externalHealthEndpoint))
+        .andExpect(request().asyncStarted())
+        .andReturn()))
       .andExpect(status().isOk())
       .andExpect(jsonPath("$.status", equalTo(STATUS_UP)))
       .andExpect(jsonPath("$.external.status", equalTo(STATUS_UP)))
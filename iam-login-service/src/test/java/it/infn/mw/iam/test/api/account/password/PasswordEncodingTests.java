@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.api.account.password;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static it.infn.mw.iam.test.util.AuthenticationUtils.adminAuthentication;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
@@ -33,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -55,6 +57,7 @@ import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
 @SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
 @Transactional
 @WebAppConfiguration
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class PasswordEncodingTests {
 
   @Autowired
@@ -106,8 +109,8 @@ public class PasswordEncodingTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    String rs = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String rs = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(mapper.writeValueAsString(request)))
       .andExpect(status().isOk())
       .andReturn()
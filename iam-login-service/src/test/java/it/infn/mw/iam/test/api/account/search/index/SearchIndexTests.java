@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.account.search.index;
+
+import static it.infn.mw.iam.api.account.search.AccountSearchController.getSortByEmail;
+import static it.infn.mw.iam.api.account.search.AccountSearchController.getSortByName;
+import static it.infn.mw.iam.api.account.search.AccountSearchController.getSortByRelevance;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+
+import it.infn.mw.iam.api.account.search.index.AccountSearchDocument;
+import it.infn.mw.iam.api.account.search.index.AccountSearchIndex;
+import it.infn.mw.iam.api.common.OffsetPageable;
+
+public class SearchIndexTests {
+
+  AccountSearchIndex index = new AccountSearchIndex();
+
+  private AccountSearchDocument account(long id, String username, String email, String givenName,
+      String familyName) {
+    return new AccountSearchDocument(id, "uuid-" + id, username, email, givenName, familyName,
+        new Date(id));
+  }
+
+  private List<Long> ids(List<AccountSearchDocument> docs) {
+    return docs.stream().map(AccountSearchDocument::getId).collect(Collectors.toList());
+  }
+
+  @Before
+  public void setup() {
+    index.put(account(1, "admin", "admin@example.org", "Admin", "User"));
+    index.put(account(2, "test", "test@example.org", "Test", "User"));
+    index.put(account(3, "radmin", "rose@cern.ch", "Rose", "Admin"));
+    index.put(account(4, "jdoe", "john.doe@cern.ch", "John", "Doe"));
+    index.setReady(true);
+  }
+
+  @Test
+  public void testShortQueriesAreNotSupported() {
+    assertThat(index.canSearch("ad"), is(false));
+    assertThat(index.canSearch(null), is(false));
+    assertThat(index.canSearch("adm"), is(true));
+  }
+
+  @Test
+  public void testIndexNotReady() {
+    index.setReady(false);
+    assertThat(index.canSearch("admin"), is(false));
+  }
+
+  @Test
+  public void testSubstringSearchIsCaseInsensitive() {
+    assertThat(ids(index.search("ADMIN", getSortByName(Sort.Direction.ASC))), contains(1L, 3L));
+    assertThat(ids(index.search("cern.ch", getSortByEmail(Sort.Direction.DESC))),
+        contains(3L, 4L));
+    assertThat(ids(index.search("Admin User", null)), contains(1L));
+  }
+
+  @Test
+  public void testTrigramFalsePositivesAreFiltered() {
+    // "ser" is indexed, but no term contains "sere"
+    assertThat(index.search("sere", null), empty());
+  }
+
+  @Test
+  public void testRelevanceRanking() {
+    index.put(account(5, "sysadmin", "ops@example.org", "Sys", "Ops"));
+    index.put(account(6, "admin.backup", "backup@example.org", "Backup", "Operator"));
+
+    assertThat(ids(index.search("admin", getSortByRelevance(Sort.Direction.ASC))),
+        contains(1L, 6L, 3L, 5L));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    index.put(account(4, "jdoe", "john.doe@example.org", "John", "Doe"));
+    assertThat(ids(index.search("cern.ch", null)), contains(3L));
+
+    index.remove(3L);
+    assertThat(index.search("cern.ch", null), empty());
+    assertThat(index.size(), equalTo(3));
+  }
+
+  @Test
+  public void testPagingAndCounts() {
+    Page<AccountSearchDocument> page =
+        index.searchPage("example.org", new OffsetPageable(1, 1, getSortByName(Sort.Direction.ASC)));
+
+    assertThat(page.getTotalElements(), equalTo(2L));
+    assertThat(ids(page.getContent()), contains(2L));
+
+    assertThat(index.count("example.org", Long.MAX_VALUE), equalTo(2L));
+    assertThat(index.count("nomatch", Long.MAX_VALUE), equalTo(0L));
+  }
+
+  @Test
+  public void testApproximateCount() {
+    // "ser" matches both "Admin User" and "Test User", but no account matches "serx"
+    assertThat(index.count("serx", Long.MAX_VALUE), equalTo(0L));
+    assertThat(index.count("user", 0), equalTo(2L));
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.group;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.group.IamGroupService;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.persistence.repository.IamGroupClosureRepository;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class})
+@Transactional
+public class GroupClosureTests {
+
+  @Autowired
+  private IamGroupService groupService;
+
+  @Autowired
+  private IamGroupClosureRepository closureRepo;
+
+  @Autowired
+  private IamAccountRepository accountRepo;
+
+  private IamGroup root;
+  private IamGroup child;
+  private IamGroup grandChild;
+
+  private IamGroup newGroup(String name, IamGroup parent) {
+    IamGroup g = new IamGroup();
+    g.setName(name);
+    g.setParentGroup(parent);
+    if (parent != null) {
+      parent.getChildrenGroups().add(g);
+    }
+    return groupService.createGroup(g);
+  }
+
+  @Before
+  public void setup() {
+    root = newGroup("closure-root", null);
+    child = newGroup("closure-root/child", root);
+    grandChild = newGroup("closure-root/child/grandchild", child);
+  }
+
+  @Test
+  public void testAncestors() {
+    assertThat(groupService.findAncestors(root), empty());
+    assertThat(groupService.findAncestors(child), contains(root));
+    assertThat(groupService.findAncestors(grandChild), contains(child, root));
+  }
+
+  @Test
+  public void testDescendants() {
+    assertThat(groupService.findDescendants(root), contains(child, grandChild));
+    assertThat(groupService.findDescendants(child), contains(grandChild));
+    assertThat(groupService.findDescendants(grandChild), empty());
+    assertThat(closureRepo.countDescendants(root), equalTo(2L));
+  }
+
+  @Test
+  public void testEffectiveGroups() {
+    IamAccount account = accountRepo.findByUsername("test")
+      .orElseThrow(() -> new AssertionError("Expected test user not found"));
+
+    account.linkMembers(Collections.singleton(grandChild));
+    grandChild.getAccounts().add(account);
+    accountRepo.save(account);
+
+    assertThat(groupService.findEffectiveGroupsForAccount(account),
+        containsInAnyOrder(grandChild, child, root, groupService.findByName("Production").get(),
+            groupService.findByName("Analysis").get()));
+
+    assertThat(closureRepo.countEffectiveMembers(root), equalTo(1L));
+    assertThat(closureRepo.countEffectiveMembers(grandChild), equalTo(1L));
+  }
+
+  @Test
+  public void testTestDataClosureIsBuilt() {
+    IamGroup production = groupService.findByName("Production").get();
+    assertThat(closureRepo.findAncestorLinks(production).size(), equalTo(1));
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.group;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.api.group.GroupMembersDTO;
+import it.infn.mw.iam.core.group.IamGroupMembershipService;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.persistence.repository.IamGroupRepository;
+import it.infn.mw.iam.test.core.CoreControllerTestSupport;
+import it.infn.mw.iam.test.util.WithAnonymousUser;
+import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
+@WebAppConfiguration
+@Transactional
+@WithAnonymousUser
+public class GroupMembersTests {
+
+  public static final String TEST_001_GROUP = "Test-001";
+  public static final String EXPECTED_GROUP_NOT_FOUND = "Expected group not found";
+
+  @Autowired
+  private IamGroupRepository groupRepo;
+
+  @Autowired
+  private IamAccountRepository accountRepo;
+
+  @Autowired
+  private IamGroupMembershipService membershipService;
+
+  @Autowired
+  private WebApplicationContext context;
+
+  @Autowired
+  private MockOAuth2Filter mockOAuth2Filter;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  private MockMvc mvc;
+
+  private IamGroup testGroup;
+
+  private List<AccountSummary> members;
+
+  private Supplier<AssertionError> assertionError(String message) {
+    return () -> new AssertionError(message);
+  }
+
+  @Before
+  public void setup() {
+    mockOAuth2Filter.cleanupSecurityContext();
+    mvc = MockMvcBuilders.webAppContextSetup(context)
+      .apply(springSecurity())
+      .alwaysDo(log())
+      .build();
+
+    testGroup =
+        groupRepo.findByName(TEST_001_GROUP).orElseThrow(assertionError(EXPECTED_GROUP_NOT_FOUND));
+
+    members = accountRepo.findSummariesWithIdGreaterThan(0L, new PageRequest(0, 5));
+    membershipService.removeAllMembers(testGroup);
+    membershipService.addMembers(testGroup, members);
+  }
+
+  @After
+  public void cleanupOAuthUser() {
+    mockOAuth2Filter.cleanupSecurityContext();
+  }
+
+  @Test
+  public void listingMembersRequiresAuthenticatedUser() throws Exception {
+    mvc.perform(get("/iam/group/{id}/members", testGroup.getUuid()))
+      .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  @WithMockUser(username = "test", roles = "USER")
+  public void listingMembersRequiresPrivilegedUser() throws Exception {
+    mvc.perform(get("/iam/group/{id}/members", testGroup.getUuid()))
+      .andExpect(status().isForbidden());
+  }
+
+  @Test
+  @WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+  public void listingMembersForUnknownGroupFails() throws Exception {
+    mvc.perform(get("/iam/group/{id}/members", "unknown-group"))
+      .andExpect(status().isNotFound());
+  }
+
+  @Test
+  @WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+  public void keysetPagination() throws Exception {
+
+    String response = mvc
+      .perform(get("/iam/group/{id}/members", testGroup.getUuid()).param("count", "3"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.totalResults", equalTo(5)))
+      .andExpect(jsonPath("$.itemsPerPage", equalTo(3)))
+      .andExpect(jsonPath("$.Resources", hasSize(3)))
+      .andExpect(jsonPath("$.Resources[0].id", equalTo(members.get(0).getUuid())))
+      .andExpect(jsonPath("$.Resources[0].username", equalTo(members.get(0).getUsername())))
+      .andReturn()
+      .getResponse()
+      .getContentAsString();
+
+    GroupMembersDTO firstPage = mapper.readValue(response, GroupMembersDTO.class);
+
+    mvc
+      .perform(get("/iam/group/{id}/members", testGroup.getUuid()).param("count", "3")
+        .param("after", firstPage.getNext().toString()))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.totalResults").doesNotExist())
+      .andExpect(jsonPath("$.itemsPerPage", equalTo(2)))
+      .andExpect(jsonPath("$.next").doesNotExist())
+      .andExpect(jsonPath("$.Resources", hasSize(2)))
+      .andExpect(jsonPath("$.Resources[0].id", equalTo(members.get(3).getUuid())));
+  }
+
+  @Test
+  @WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+  public void emptyGroup() throws Exception {
+    membershipService.removeAllMembers(testGroup);
+
+    mvc.perform(get("/iam/group/{id}/members", testGroup.getUuid()))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.totalResults", equalTo(0)))
+      .andExpect(jsonPath("$.Resources", equalTo(Collections.emptyList())));
+  }
+}
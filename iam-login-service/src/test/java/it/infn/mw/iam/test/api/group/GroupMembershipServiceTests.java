@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.group;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.group.IamGroupMembershipService;
+import it.infn.mw.iam.core.group.IamGroupService;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class})
+@Transactional
+public class GroupMembershipServiceTests {
+
+  @Autowired
+  private IamGroupService groupService;
+
+  @Autowired
+  private IamGroupMembershipService membershipService;
+
+  @Autowired
+  private IamAccountRepository accountRepo;
+
+  private IamGroup group;
+  private List<AccountSummary> accounts;
+
+  private List<Long> memberIds() {
+    return accountRepo.findMemberSummaries(group.getId())
+      .stream()
+      .map(AccountSummary::getId)
+      .collect(toList());
+  }
+
+  @Before
+  public void setup() {
+    IamGroup g = new IamGroup();
+    g.setName("bulk-membership-group");
+    group = groupService.createGroup(g);
+
+    accounts = accountRepo.findSummariesWithIdGreaterThan(0L, new PageRequest(0, 20));
+    assertThat(accounts.size(), greaterThan(10));
+  }
+
+  @Test
+  public void testAddAndRemoveMembers() {
+    assertThat(membershipService.addMembers(group, accounts), equalTo(accounts.size()));
+    assertThat(memberIds(), hasSize(accounts.size()));
+
+    // Adding existing members is a no-op
+    assertThat(membershipService.addMembers(group, accounts.subList(0, 5)), equalTo(0));
+
+    assertThat(membershipService.removeMembers(group, accounts.subList(0, 5)), equalTo(5));
+    assertThat(memberIds(), hasSize(accounts.size() - 5));
+
+    assertThat(membershipService.removeAllMembers(group), equalTo(accounts.size() - 5));
+    assertThat(memberIds(), hasSize(0));
+  }
+
+  @Test
+  public void testReplaceMembers() {
+    membershipService.addMembers(group, accounts.subList(0, 10));
+
+    assertThat(membershipService.replaceMembers(group, accounts.subList(5, 15)), equalTo(10));
+    assertThat(memberIds(),
+        equalTo(accounts.subList(5, 15).stream().map(AccountSummary::getId).collect(toList())));
+  }
+
+  @Test
+  public void testMembersAreTouched() {
+    IamAccount account = accountRepo.findOne(accounts.get(0).getId());
+    account.setLastUpdateTime(new Date(0));
+    accountRepo.save(account);
+
+    membershipService.addMembers(group, accounts.subList(0, 1));
+
+    account = accountRepo.findOne(accounts.get(0).getId());
+    assertThat(account.getLastUpdateTime().getTime(), greaterThan(0L));
+    assertThat(account.getGroups().stream().anyMatch(g -> g.getId().equals(group.getId())),
+        equalTo(true));
+  }
+}
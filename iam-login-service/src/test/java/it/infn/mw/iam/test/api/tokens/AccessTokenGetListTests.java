@@ -43,6 +43,7 @@ import it.infn.mw.iam.api.scim.converter.ScimResourceLocationProvider;
 import it.infn.mw.iam.api.tokens.model.AccessToken;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamOAuthAccessTokenRepository;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
 import it.infn.mw.iam.test.core.CoreControllerTestSupport;
 import it.infn.mw.iam.test.util.DateEqualModulo1Second;
 import it.infn.mw.iam.test.util.WithMockOAuthUser;
@@ -403,12 +404,12 @@ public class AccessTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(3L));
 
-    Page<OAuth2AccessTokenEntity> tokens =
-        tokenRepository.findAllValidAccessTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(2L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(
+        ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens(), 0),
+        equalTo(2L));
 
-    tokens = tokenRepository.findValidAccessTokensForUser(TESTUSER_USERNAME, new Date(),
+    Page<OAuth2AccessTokenEntity> tokens =
+        tokenRepository.findValidAccessTokensForUser(TESTUSER_USERNAME, new Date(),
         new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
@@ -434,12 +435,12 @@ public class AccessTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(3L));
 
-    Page<OAuth2AccessTokenEntity> tokens =
-        tokenRepository.findAllValidAccessTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(2L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(
+        ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens(), 0),
+        equalTo(2L));
 
-    tokens = tokenRepository.findValidAccessTokensForClient(TEST_CLIENT_ID, new Date(),
+    Page<OAuth2AccessTokenEntity> tokens =
+        tokenRepository.findValidAccessTokensForClient(TEST_CLIENT_ID, new Date(),
         new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
@@ -471,12 +472,12 @@ public class AccessTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(8L));
 
-    Page<OAuth2AccessTokenEntity> tokens =
-        tokenRepository.findAllValidAccessTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(4L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(
+        ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens(), 0),
+        equalTo(4L));
 
-    tokens = tokenRepository.findValidAccessTokensForUserAndClient(TESTUSER_USERNAME,
+    Page<OAuth2AccessTokenEntity> tokens =
+        tokenRepository.findValidAccessTokensForUserAndClient(TESTUSER_USERNAME,
         TEST_CLIENT_ID, new Date(), new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
@@ -519,8 +520,8 @@ public class AccessTokenGetListTests extends TestTokensUtils {
     assertThat(tokenRepository.count(), equalTo(2L));
     assertThat(atl.getTotalResults(), equalTo(1L));
   
-    Page<OAuth2AccessTokenEntity> tokens =
-        tokenRepository.findAllValidAccessTokens(new Date(), new OffsetPageable(0, 10));
+    List<OAuth2AccessTokenEntity> tokens = tokenRepository
+      .findValidTokens(ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens(), 0, 10);
     
     tokens.forEach(t -> assertThat(t.getScope(), not(hasItem("registration-token"))));
     
@@ -555,8 +556,8 @@ public class AccessTokenGetListTests extends TestTokensUtils {
     assertThat(tokenRepository.count(), equalTo(2L));
     assertThat(atl.getTotalResults(), equalTo(1L));
     
-    Page<OAuth2AccessTokenEntity> tokens =
-      tokenRepository.findAllValidAccessTokens(new Date(), new OffsetPageable(0, 10));
+    List<OAuth2AccessTokenEntity> tokens = tokenRepository
+      .findValidTokens(ValidTokensQuery.of(new Date(), null, null).excludingServiceTokens(), 0, 10);
   
     tokens.forEach(t -> assertThat(t.getScope(), not(hasItem("resource-token"))));
     
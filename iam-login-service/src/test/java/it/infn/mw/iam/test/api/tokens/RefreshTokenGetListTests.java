@@ -40,6 +40,7 @@ import it.infn.mw.iam.api.scim.converter.ScimResourceLocationProvider;
 import it.infn.mw.iam.api.tokens.model.RefreshToken;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamOAuthRefreshTokenRepository;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
 import it.infn.mw.iam.test.core.CoreControllerTestSupport;
 import it.infn.mw.iam.test.util.WithMockOAuthUser;
 import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
@@ -375,12 +376,11 @@ public class RefreshTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(3L));
 
-    Page<OAuth2RefreshTokenEntity> tokens =
-        tokenRepository.findAllValidRefreshTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(2L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(ValidTokensQuery.of(new Date(), null, null), 0),
+        equalTo(2L));
 
-    tokens = tokenRepository.findValidRefreshTokensForUser(TESTUSER_USERNAME, new Date(),
+    Page<OAuth2RefreshTokenEntity> tokens =
+        tokenRepository.findValidRefreshTokensForUser(TESTUSER_USERNAME, new Date(),
         new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
@@ -406,12 +406,11 @@ public class RefreshTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(3L));
 
-    Page<OAuth2RefreshTokenEntity> tokens =
-        tokenRepository.findAllValidRefreshTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(2L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(ValidTokensQuery.of(new Date(), null, null), 0),
+        equalTo(2L));
 
-    tokens = tokenRepository.findValidRefreshTokensForClient(TEST_CLIENT_ID, new Date(),
+    Page<OAuth2RefreshTokenEntity> tokens =
+        tokenRepository.findValidRefreshTokensForClient(TEST_CLIENT_ID, new Date(),
         new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
@@ -443,12 +442,11 @@ public class RefreshTokenGetListTests extends TestTokensUtils {
 
     assertThat(tokenRepository.count(), equalTo(8L));
 
-    Page<OAuth2RefreshTokenEntity> tokens =
-        tokenRepository.findAllValidRefreshTokens(new Date(), new OffsetPageable(0, 10));
-    assertThat(tokens.getTotalElements(), equalTo(4L));
-    tokens.forEach(t -> System.out.println(t.getExpiration()));
+    assertThat(tokenRepository.countValidTokens(ValidTokensQuery.of(new Date(), null, null), 0),
+        equalTo(4L));
 
-    tokens = tokenRepository.findValidRefreshTokensForUserAndClient(TESTUSER_USERNAME,
+    Page<OAuth2RefreshTokenEntity> tokens =
+        tokenRepository.findValidRefreshTokensForUserAndClient(TESTUSER_USERNAME,
         TEST_CLIENT_ID, new Date(), new OffsetPageable(0, 10));
     assertThat(tokens.getTotalElements(), equalTo(1L));
 
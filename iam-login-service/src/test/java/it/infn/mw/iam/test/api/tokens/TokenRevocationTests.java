@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.tokens;
+
+import static it.infn.mw.iam.api.tokens.Constants.TOKEN_REVOCATIONS_ENDPOINT;
+import static it.infn.mw.iam.api.tokens.TokensControllerSupport.APPLICATION_JSON_CONTENT_TYPE;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mitre.oauth2.model.ClientDetailsEntity;
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocation;
+import it.infn.mw.iam.core.oauth.revocation.TokenRevocationService;
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest;
+import it.infn.mw.iam.persistence.model.IamTokenRevocationRequest.Status;
+import it.infn.mw.iam.persistence.repository.IamTokenRevocationRequestRepository;
+import it.infn.mw.iam.test.core.CoreControllerTestSupport;
+import it.infn.mw.iam.test.util.WithMockOAuthUser;
+import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
+@WebAppConfiguration
+@WithMockOAuthUser(user = "admin", authorities = {"ROLE_ADMIN"})
+public class TokenRevocationTests extends TestTokensUtils {
+
+  public static final String[] SCOPES = {"openid", "profile"};
+
+  public static final String TEST_CLIENT_ID = "token-lookup-client";
+  public static final String TEST_CLIENT2_ID = "password-grant";
+  public static final String TESTUSER_USERNAME = "test_102";
+  public static final String TESTUSER2_USERNAME = "test_103";
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private MockOAuth2Filter mockOAuth2Filter;
+
+  @Autowired
+  private TokenRevocationService revocationService;
+
+  @Autowired
+  private IamTokenRevocationRequestRepository requestRepo;
+
+  @Before
+  public void setup() {
+    clearAllTokens();
+    initMvc();
+  }
+
+  @After
+  public void teardown() {
+    clearAllTokens();
+    requestRepo.deleteAll();
+    mockOAuth2Filter.cleanupSecurityContext();
+  }
+
+  private List<Long> accessTokenIds() {
+    return StreamSupport.stream(accessTokenRepository.findAll().spliterator(), false)
+      .map(OAuth2AccessTokenEntity::getId)
+      .collect(Collectors.toList());
+  }
+
+  private void waitForCompletion(String id) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+
+    while (!revocationService.findRevocation(id).map(TokenRevocation::isCompleted).orElse(false)) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Token revocation " + id + " not completed in time");
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  private IamTokenRevocationRequest saveRequest(String clientId, Status status) {
+    IamTokenRevocationRequest request = new IamTokenRevocationRequest(UUID.randomUUID().toString());
+    request.setClientId(clientId);
+    request.setSubmittedBy("admin");
+    request.setSubmissionTime(new Date());
+    request.setStatus(status);
+    return requestRepo.save(request);
+  }
+
+  private void revokeAndWait(Map<String, Object> request) throws Exception {
+    Map<String, Object> response = mapper.readValue(mvc
+      .perform(post(TOKEN_REVOCATIONS_ENDPOINT).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .content(mapper.writeValueAsString(request)))
+      .andExpect(status().isAccepted())
+      .andReturn()
+      .getResponse()
+      .getContentAsString(), new TypeReference<Map<String, Object>>() {});
+
+    String id = (String) response.get("id");
+    waitForCompletion(id);
+
+    mvc.perform(get(TOKEN_REVOCATIONS_ENDPOINT + "/" + id))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.submittedBy", equalTo("admin")))
+      .andExpect(jsonPath("$.accessTokensJob.status", equalTo("COMPLETED")))
+      .andExpect(jsonPath("$.refreshTokensJob.status", equalTo("COMPLETED")));
+  }
+
+  @Test
+  public void revokeTokensByUserAndClient() throws Exception {
+    ClientDetailsEntity client = loadTestClient(TEST_CLIENT_ID);
+    ClientDetailsEntity client2 = loadTestClient(TEST_CLIENT2_ID);
+
+    buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+    buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+    OAuth2AccessTokenEntity otherClientToken =
+        buildAccessToken(client2, TESTUSER_USERNAME, SCOPES);
+    OAuth2AccessTokenEntity otherUserToken = buildAccessToken(client, TESTUSER2_USERNAME, SCOPES);
+    OAuth2AccessTokenEntity clientToken = buildAccessToken(client, SCOPES);
+
+    revokeAndWait(ImmutableMap.of("userId", TESTUSER_USERNAME, "clientId", TEST_CLIENT_ID));
+
+    assertThat(accessTokenIds(), containsInAnyOrder(otherClientToken.getId(),
+        otherUserToken.getId(), clientToken.getId()));
+
+    revokeAndWait(ImmutableMap.of("clientId", TEST_CLIENT_ID));
+
+    assertThat(accessTokenIds(), containsInAnyOrder(otherClientToken.getId()));
+  }
+
+  @Test
+  public void revokeTokensIssuedBefore() throws Exception {
+    ClientDetailsEntity client = loadTestClient(TEST_CLIENT_ID);
+    OAuth2AccessTokenEntity token = buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+
+    revokeAndWait(ImmutableMap.of("issuedBefore", new Date().getTime() - 3600000L));
+    assertThat(accessTokenIds(), containsInAnyOrder(token.getId()));
+
+    revokeAndWait(ImmutableMap.of("issuedBefore", new Date().getTime() + 60000L));
+    assertThat(accessTokenIds().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void unfinishedRevocationsAreResumed() throws Exception {
+    ClientDetailsEntity client = loadTestClient(TEST_CLIENT_ID);
+    ClientDetailsEntity client2 = loadTestClient(TEST_CLIENT2_ID);
+
+    buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+    OAuth2AccessTokenEntity otherClientToken =
+        buildAccessToken(client2, TESTUSER_USERNAME, SCOPES);
+
+    // As left by an instance that stopped before running the revocation
+    String id = saveRequest(TEST_CLIENT_ID, Status.ACCESS_TOKENS).getId();
+
+    revocationService.resumeUnfinishedRevocations();
+    waitForCompletion(id);
+
+    assertThat(accessTokenIds(), containsInAnyOrder(otherClientToken.getId()));
+
+    mvc.perform(get(TOKEN_REVOCATIONS_ENDPOINT + "/" + id))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.clientId", equalTo(TEST_CLIENT_ID)))
+      .andExpect(jsonPath("$.status", equalTo("COMPLETED")));
+  }
+
+  @Test
+  public void completedRevocationsAreDeletedAfterRetention() throws Exception {
+    IamTokenRevocationRequest recent = saveRequest(TEST_CLIENT_ID, Status.COMPLETED);
+    recent.setCompletionTime(new Date());
+    requestRepo.save(recent);
+
+    IamTokenRevocationRequest old = saveRequest(TEST_CLIENT_ID, Status.COMPLETED);
+    old.setCompletionTime(new Date(0));
+    requestRepo.save(old);
+
+    IamTokenRevocationRequest unfinished = saveRequest(TEST_CLIENT_ID, Status.REFRESH_TOKENS);
+
+    revocationService.deleteCompletedRevocations();
+
+    assertThat(revocationService.findRevocation(recent.getId()).isPresent(), is(true));
+    assertThat(revocationService.findRevocation(old.getId()).isPresent(), is(false));
+    assertThat(revocationService.findRevocation(unfinished.getId()).isPresent(), is(true));
+
+    mvc.perform(get(TOKEN_REVOCATIONS_ENDPOINT + "/" + old.getId()))
+      .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void emptyFilterIsRejected() throws Exception {
+    mvc
+      .perform(post(TOKEN_REVOCATIONS_ENDPOINT).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .content("{}"))
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void unknownRevocationIsNotFound() throws Exception {
+    mvc.perform(get(TOKEN_REVOCATIONS_ENDPOINT + "/unknown")).andExpect(status().isNotFound());
+  }
+
+  @Test
+  @WithMockOAuthUser(user = "test", authorities = {"ROLE_USER"})
+  public void revocationRequiresAdminPrivileges() throws Exception {
+    mvc
+      .perform(post(TOKEN_REVOCATIONS_ENDPOINT).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .content(mapper.writeValueAsString(ImmutableMap.of("clientId", TEST_CLIENT_ID))))
+      .andExpect(status().isForbidden());
+  }
+}
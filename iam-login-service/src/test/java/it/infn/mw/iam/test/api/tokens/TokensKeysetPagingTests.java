@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.api.tokens;
+
+import static it.infn.mw.iam.api.tokens.TokensControllerSupport.APPLICATION_JSON_CONTENT_TYPE;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mitre.oauth2.model.ClientDetailsEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.persistence.repository.ValidTokensQuery;
+import it.infn.mw.iam.test.core.CoreControllerTestSupport;
+import it.infn.mw.iam.test.util.WithMockOAuthUser;
+import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
+@WebAppConfiguration
+@WithMockOAuthUser(user = "admin", authorities = {"ROLE_ADMIN"})
+public class TokensKeysetPagingTests extends TestTokensUtils {
+
+  public static final String[] SCOPES = {"openid", "profile"};
+
+  public static final String TEST_CLIENT_ID = "token-lookup-client";
+  public static final String TESTUSER_USERNAME = "test_102";
+  public static final String TESTUSER2_USERNAME = "test_103";
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private MockOAuth2Filter mockOAuth2Filter;
+
+  @Before
+  public void setup() {
+    clearAllTokens();
+    initMvc();
+  }
+
+  @After
+  public void teardown() {
+    clearAllTokens();
+    mockOAuth2Filter.cleanupSecurityContext();
+  }
+
+  private Map<String, Object> getPage(String after) throws Exception {
+    return mapper.readValue(mvc
+      .perform(get(ACCESS_TOKENS_BASE_PATH).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .param("userId", TESTUSER_USERNAME)
+        .param("count", "2")
+        .param("after", after))
+      .andExpect(status().isOk())
+      .andReturn()
+      .getResponse()
+      .getContentAsString(), new TypeReference<Map<String, Object>>() {});
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Long> ids(Map<String, Object> page) {
+    List<Long> result = Lists.newArrayList();
+    for (Map<String, Object> r : (List<Map<String, Object>>) page.get("Resources")) {
+      result.add(((Number) r.get("id")).longValue());
+    }
+    return result;
+  }
+
+  @Test
+  public void tokenOwnerIsRecordedAtIssuance() {
+    ClientDetailsEntity client = loadTestClient(TEST_CLIENT_ID);
+
+    buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+    buildAccessToken(client, TESTUSER_USERNAME, SCOPES);
+    buildAccessToken(client, TESTUSER2_USERNAME, SCOPES);
+
+    assertThat(accessTokenRepository.countValidTokens(
+        ValidTokensQuery.of(new Date(), TESTUSER_USERNAME, null), 0), equalTo(2L));
+    assertThat(accessTokenRepository.countValidTokens(
+        ValidTokensQuery.of(new Date(), TESTUSER2_USERNAME, TEST_CLIENT_ID), 0), equalTo(1L));
+  }
+
+  @Test
+  public void pageThroughAccessTokensByKeyset() throws Exception {
+    ClientDetailsEntity client = loadTestClient(TEST_CLIENT_ID);
+
+    List<Long> expectedIds = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      expectedIds.add(buildAccessToken(client, TESTUSER_USERNAME, SCOPES).getId());
+    }
+    buildAccessToken(client, TESTUSER2_USERNAME, SCOPES);
+
+    List<Long> pagedIds = Lists.newArrayList();
+    Map<String, Object> page = getPage("");
+
+    assertThat(page.get("totalResults"), equalTo(5));
+    pagedIds.addAll(ids(page));
+
+    int pages = 1;
+    while (page.get("next") != null) {
+      page = getPage((String) page.get("next"));
+      assertThat(page.get("totalResults"), nullValue());
+      pagedIds.addAll(ids(page));
+      pages++;
+    }
+
+    assertThat(pages, equalTo(3));
+    assertThat(pagedIds, containsInAnyOrder(expectedIds.toArray()));
+  }
+
+  @Test
+  public void invalidCursorIsRejected() throws Exception {
+    mvc
+      .perform(get(ACCESS_TOKENS_BASE_PATH).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .param("after", "not-a-cursor"))
+      .andExpect(status().isBadRequest());
+
+    mvc
+      .perform(get(REFRESH_TOKENS_BASE_PATH).contentType(APPLICATION_JSON_CONTENT_TYPE)
+        .param("after", "12345"))
+      .andExpect(status().isBadRequest());
+  }
+}
@@ -17,6 +17,7 @@ package it.infn.mw.iam.test.audit.event;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -29,6 +30,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import com.google.common.collect.Lists;
@@ -49,8 +51,6 @@ import it.infn.mw.iam.api.scim.provisioning.ScimGroupProvisioning;
 import it.infn.mw.iam.api.scim.provisioning.ScimUserProvisioning;
 import it.infn.mw.iam.audit.IamAuditEventLogger;
 import it.infn.mw.iam.audit.events.IamAuditApplicationEvent;
-import it.infn.mw.iam.audit.events.account.group.GroupMembershipAddedEvent;
-import it.infn.mw.iam.audit.events.account.group.GroupMembershipRemovedEvent;
 import it.infn.mw.iam.audit.events.account.oidc.OidcAccountAddedEvent;
 import it.infn.mw.iam.audit.events.account.oidc.OidcAccountRemovedEvent;
 import it.infn.mw.iam.audit.events.account.saml.SamlAccountAddedEvent;
@@ -59,6 +59,9 @@ import it.infn.mw.iam.audit.events.account.ssh.SshKeyAddedEvent;
 import it.infn.mw.iam.audit.events.account.ssh.SshKeyRemovedEvent;
 import it.infn.mw.iam.audit.events.account.x509.X509CertificateAddedEvent;
 import it.infn.mw.iam.audit.events.account.x509.X509CertificateRemovedEvent;
+import it.infn.mw.iam.audit.events.group.members.GroupMembersAddedEvent;
+import it.infn.mw.iam.audit.events.group.members.GroupMembersRemovedEvent;
+import it.infn.mw.iam.audit.events.group.members.GroupMembersUpdatedEvent;
 import it.infn.mw.iam.authn.saml.util.SamlAttributeNames;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
@@ -106,6 +109,7 @@ public class EventTests extends X509TestSupport {
 
   private IamAccount account;
   private ScimGroup group;
+  private ScimGroup secondGroup;
   private ScimMemberRef accountRef;
 
   @Before
@@ -146,8 +150,27 @@ public class EventTests extends X509TestSupport {
 
   @After
   public void teardown() {
+    if (!TestTransaction.isActive()) {
+      // The test has committed its changes, so they are deleted in a new committed transaction
+      TestTransaction.start();
+      TestTransaction.flagForCommit();
+    }
+
     userProvisioning.delete(account.getUuid());
     groupProvisioning.delete(group.getId());
+
+    if (secondGroup != null) {
+      groupProvisioning.delete(secondGroup.getId());
+    }
+  }
+
+  private IamAuditApplicationEvent commitAndGetLastEvent() {
+    assertThat(logger.getLastEvent(), not(instanceOf(GroupMembersUpdatedEvent.class)));
+
+    TestTransaction.flagForCommit();
+    TestTransaction.end();
+
+    return logger.getLastEvent();
   }
 
   @Test
@@ -329,19 +352,19 @@ public class EventTests extends X509TestSupport {
   @Test
   public void testAddGroupMembershipEvent() {
 
-    ScimGroup secondGroup = groupProvisioning.create(ScimGroup.builder("second_group").build());
+    secondGroup = groupProvisioning.create(ScimGroup.builder("second_group").build());
 
     ScimGroupPatchRequest req =
         ScimGroupPatchRequest.builder().add(Lists.newArrayList(accountRef)).build();
 
     groupProvisioning.update(secondGroup.getId(), req.getOperations());
 
-    IamAuditApplicationEvent event = logger.getLastEvent();
-    assertThat(event, instanceOf(GroupMembershipAddedEvent.class));
+    IamAuditApplicationEvent event = commitAndGetLastEvent();
+    assertThat(event, instanceOf(GroupMembersAddedEvent.class));
     assertNotNull(event.getMessage());
     assertThat(event.getMessage(), containsString("Add group to user"));
     assertThat(event.getMessage(), containsString(USERNAME_MESSAGE_CHECK));
-    assertThat(event.getMessage(), containsString("name=second_group"));
+    assertThat(event.getMessage(), containsString("group: 'second_group'"));
   }
 
   @Test
@@ -352,12 +375,12 @@ public class EventTests extends X509TestSupport {
 
     groupProvisioning.update(group.getId(), req.getOperations());
 
-    IamAuditApplicationEvent event = logger.getLastEvent();
-    assertThat(event, instanceOf(GroupMembershipRemovedEvent.class));
+    IamAuditApplicationEvent event = commitAndGetLastEvent();
+    assertThat(event, instanceOf(GroupMembersRemovedEvent.class));
     assertNotNull(event.getMessage());
     assertThat(event.getMessage(), containsString("Remove user from group"));
     assertThat(event.getMessage(), containsString(USERNAME_MESSAGE_CHECK));
-    assertThat(event.getMessage(), containsString("name=" + GROUPNAME));
+    assertThat(event.getMessage(), containsString("group: '" + GROUPNAME + "'"));
   }
 
 }
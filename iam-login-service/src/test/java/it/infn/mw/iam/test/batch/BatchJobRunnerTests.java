@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.batch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.batch.BatchJob;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
+import it.infn.mw.iam.core.batch.BatchJobStatus;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint;
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint.Status;
+import it.infn.mw.iam.persistence.repository.IamBatchJobCheckpointRepository;
+import it.infn.mw.iam.test.core.CoreControllerTestSupport;
+import it.infn.mw.iam.test.util.WithAnonymousUser;
+import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
+@WebAppConfiguration
+@WithAnonymousUser
+public class BatchJobRunnerTests {
+
+  public static final String TEST_JOB_NAME = "test-job";
+
+  @Autowired
+  private BatchJobRunner runner;
+
+  @Autowired
+  private IamBatchJobCheckpointRepository checkpointRepo;
+
+  @Autowired
+  private WebApplicationContext context;
+
+  @Autowired
+  private MockOAuth2Filter mockOAuth2Filter;
+
+  private MockMvc mvc;
+
+  static class TestJob implements BatchJob<Long> {
+
+    final List<Long> items;
+    final List<Long> processed = Lists.newArrayList();
+    long failOnKey = -1;
+
+    TestJob(long itemCount) {
+      items = LongStream.rangeClosed(1, itemCount).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    public String getName() {
+      return TEST_JOB_NAME;
+    }
+
+    @Override
+    public List<Long> readChunk(long lastKey, int chunkSize) {
+      return items.stream().filter(i -> i > lastKey).limit(chunkSize).collect(Collectors.toList());
+    }
+
+    @Override
+    public long getKey(Long item) {
+      return item;
+    }
+
+    @Override
+    public void processChunk(List<Long> chunk) {
+      if (chunk.contains(failOnKey)) {
+        throw new IllegalStateException("Failure on key " + failOnKey);
+      }
+      processed.addAll(chunk);
+    }
+  }
+
+  @Before
+  public void setup() {
+    mockOAuth2Filter.cleanupSecurityContext();
+    mvc = MockMvcBuilders.webAppContextSetup(context)
+      .apply(springSecurity())
+      .alwaysDo(log())
+      .build();
+  }
+
+  @After
+  public void cleanup() {
+    if (checkpointRepo.exists(TEST_JOB_NAME)) {
+      checkpointRepo.delete(TEST_JOB_NAME);
+    }
+    mockOAuth2Filter.cleanupSecurityContext();
+  }
+
+  @Test
+  public void testJobIsProcessedInChunks() {
+    TestJob job = new TestJob(25);
+
+    BatchJobStatus status = runner.run(job, 10);
+
+    assertThat(job.processed, equalTo(job.items));
+    assertThat(status.getStatus(), is(Status.COMPLETED));
+    assertThat(status.getItemsProcessed(), is(25L));
+    assertThat(status.getChunksProcessed(), is(3L));
+    assertThat(status.getLastKey(), is(25L));
+    assertThat(status.isResumed(), is(false));
+
+    assertThat(checkpointRepo.findOne(TEST_JOB_NAME).getStatus(), is(Status.COMPLETED));
+  }
+
+  @Test
+  public void testCompletedJobStartsFromScratch() {
+    runner.run(new TestJob(5), 10);
+
+    TestJob job = new TestJob(5);
+    BatchJobStatus status = runner.run(job, 10);
+
+    assertThat(job.processed, equalTo(job.items));
+    assertThat(status.getItemsProcessed(), is(5L));
+    assertThat(status.isResumed(), is(false));
+  }
+
+  @Test
+  public void testFailedJobIsResumedAfterLastCommittedChunk() {
+    TestJob job = new TestJob(25);
+    job.failOnKey = 15;
+
+    BatchJobStatus status = runner.run(job, 10);
+
+    assertThat(status.getStatus(), is(Status.FAILED));
+    assertThat(status.getLastKey(), is(10L));
+    assertThat(status.getItemsProcessed(), is(10L));
+    assertThat(status.getLastError(), equalTo("Failure on key 15"));
+
+    TestJob resumedJob = new TestJob(25);
+    status = runner.run(resumedJob, 10);
+
+    assertThat(resumedJob.processed.get(0), is(11L));
+    assertThat(resumedJob.processed.size(), is(15));
+    assertThat(status.getStatus(), is(Status.COMPLETED));
+    assertThat(status.getItemsProcessed(), is(25L));
+    assertThat(status.isResumed(), is(true));
+  }
+
+  private void saveCheckpointLeasedBy(String owner, Date heartbeatTime) {
+    IamBatchJobCheckpoint checkpoint = new IamBatchJobCheckpoint(TEST_JOB_NAME);
+    checkpoint.setStatus(Status.RUNNING);
+    checkpoint.setLastKey(10L);
+    checkpoint.setItemsProcessed(10L);
+    checkpoint.setChunksProcessed(1L);
+    checkpoint.setStartTime(heartbeatTime);
+    checkpoint.setLastUpdateTime(heartbeatTime);
+    checkpoint.setOwner(owner);
+    checkpoint.setHeartbeatTime(heartbeatTime);
+    checkpointRepo.save(checkpoint);
+  }
+
+  @Test
+  public void testJobLeasedByAnotherInstanceIsSkipped() {
+    saveCheckpointLeasedBy("another-instance", new Date());
+
+    TestJob job = new TestJob(25);
+    BatchJobStatus status = runner.run(job, 10);
+
+    assertThat(job.processed.isEmpty(), is(true));
+    assertThat(status.getStatus(), is(Status.RUNNING));
+    assertThat(status.getLastKey(), is(10L));
+    assertThat(checkpointRepo.findOne(TEST_JOB_NAME).getOwner(), equalTo("another-instance"));
+  }
+
+  @Test
+  public void testStaleLeaseIsTakenOver() {
+    saveCheckpointLeasedBy("dead-instance", new Date(System.currentTimeMillis() - 3600000L));
+
+    TestJob job = new TestJob(25);
+    BatchJobStatus status = runner.run(job, 10);
+
+    assertThat(job.processed.get(0), is(11L));
+    assertThat(status.getStatus(), is(Status.COMPLETED));
+    assertThat(status.getItemsProcessed(), is(25L));
+    assertThat(status.isResumed(), is(true));
+    assertThat(checkpointRepo.findOne(TEST_JOB_NAME).getOwner(), nullValue());
+  }
+
+  @Test
+  public void testStatusEndpointRequiresAdmin() throws Exception {
+    mvc.perform(get("/iam/batch-jobs")).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  @WithMockUser(username = "test", roles = "USER")
+  public void testStatusEndpointForbiddenToUsers() throws Exception {
+    mvc.perform(get("/iam/batch-jobs")).andExpect(status().isForbidden());
+  }
+
+  @Test
+  @WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+  public void testStatusEndpoint() throws Exception {
+    runner.run(new TestJob(3), 2);
+
+    mvc.perform(get("/iam/batch-jobs/{name}", TEST_JOB_NAME))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.name", equalTo(TEST_JOB_NAME)))
+      .andExpect(jsonPath("$.status", equalTo("COMPLETED")))
+      .andExpect(jsonPath("$.itemsProcessed", equalTo(3)))
+      .andExpect(jsonPath("$.chunksProcessed", equalTo(2)));
+
+    mvc.perform(get("/iam/batch-jobs"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$[*].name", hasItem(TEST_JOB_NAME)));
+
+    mvc.perform(get("/iam/batch-jobs/{name}", "unknown-job")).andExpect(status().isNotFound());
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.cache;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mitre.oauth2.model.SystemScope;
+import org.mitre.oauth2.repository.SystemScopeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.config.cache.CacheInvalidationProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.core.user.IamAccountService;
+import it.infn.mw.iam.core.web.IamDiscoveryEndpoint;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamLabel;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = IamLoginService.class)
+@WebAppConfiguration
+@TestPropertySource(properties = {"cache-invalidation.enabled=true"})
+public class CacheInvalidationBusTests {
+
+  public static final String TEST_REGION = "test";
+
+  @Autowired
+  CacheInvalidationProperties properties;
+
+  @Autowired
+  DataSource dataSource;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  Clock clock;
+
+  @Autowired
+  CacheInvalidationBus bus;
+
+  @Autowired
+  IamAccountService accountService;
+
+  @Autowired
+  IamAccountRepository accountRepo;
+
+  @Autowired
+  SystemScopeRepository scopeRepo;
+
+  @Autowired
+  IamDiscoveryEndpoint discoveryEndpoint;
+
+  CacheInvalidationBus publisher;
+  CacheInvalidationBus subscriber;
+
+  List<String> invalidatedKeys = Lists.newArrayList();
+  boolean regionInvalidated = false;
+
+  @Before
+  public void setup() {
+    publisher = new CacheInvalidationBus(properties, dataSource, transactionManager, clock);
+    subscriber = new CacheInvalidationBus(properties, dataSource, transactionManager, clock);
+
+    subscriber.addListener(TEST_REGION, new CacheInvalidationListener() {
+      @Override
+      public void invalidate(String key) {
+        invalidatedKeys.add(key);
+      }
+
+      @Override
+      public void invalidateAll() {
+        regionInvalidated = true;
+      }
+    });
+
+    // Initializes the subscriber cursor
+    subscriber.poll();
+  }
+
+  @Test
+  public void testInvalidationsArePropagated() {
+    publisher.publish(TEST_REGION, "1");
+    publisher.publish("other", "2");
+
+    subscriber.poll();
+    assertThat(invalidatedKeys, contains("1"));
+    assertThat(regionInvalidated, is(false));
+
+    publisher.publish(TEST_REGION, null);
+    subscriber.poll();
+    assertThat(regionInvalidated, is(true));
+  }
+
+  @Test
+  public void testOwnInvalidationsAreSkipped() {
+    subscriber.publish(TEST_REGION, "1");
+    subscriber.poll();
+
+    assertThat(invalidatedKeys, empty());
+  }
+
+  @Test
+  public void testLateInvalidationsAreNotLost() {
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    long lastId = jdbc.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM iam_cache_invalidation",
+        Long.class);
+
+    String insert = "INSERT INTO iam_cache_invalidation (ID, REGION, CACHE_KEY, ORIGIN, "
+        + "CREATION_TIME) VALUES (?, ?, ?, ?, ?)";
+
+    jdbc.update(insert, lastId + 2, TEST_REGION, "2", publisher.getOrigin(), clock.millis());
+    subscriber.poll();
+    assertThat(invalidatedKeys, contains("2"));
+
+    // Simulates a transaction committing after a later one
+    jdbc.update(insert, lastId + 1, TEST_REGION, "1", publisher.getOrigin(), clock.millis());
+    subscriber.poll();
+    assertThat(invalidatedKeys, contains("2", "1"));
+
+    jdbc.update("DELETE FROM iam_cache_invalidation WHERE ID > ?", lastId);
+  }
+
+  @Test
+  public void testAccountChangesArePublishedAfterCommit() {
+    IamAccount account = accountRepo.findByUsername("test").orElseThrow(AssertionError::new);
+    IamLabel label = IamLabel.builder().name("cache-invalidation-test").value("test").build();
+
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    String count = "SELECT COUNT(*) FROM iam_cache_invalidation "
+        + "WHERE REGION = ? AND CACHE_KEY = ? AND ORIGIN = ?";
+    Object[] args = {CacheInvalidationBus.ACCOUNT_REGION, account.getId().toString(),
+        bus.getOrigin()};
+
+    long invalidations = jdbc.queryForObject(count, Long.class, args);
+
+    try {
+      accountService.setLabel(account, label);
+      assertThat(jdbc.queryForObject(count, Long.class, args), is(invalidations + 1));
+    } finally {
+      accountService.deleteLabel(
+          accountRepo.findByUsername("test").orElseThrow(AssertionError::new), label);
+    }
+  }
+
+  private String discoveryDocument() {
+    return new String(discoveryEndpoint.providerConfiguration(null).getBody(),
+        StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRemoteSystemScopeChangesRefreshTheDiscoveryDocument() {
+    final String scopeName = "cache-invalidation-test";
+
+    // Initializes the application bus cursor
+    bus.poll();
+
+    // Scopes saved through the repository do not trigger a local refresh, as if they had been
+    // changed on another replica
+    SystemScope scope = scopeRepo.save(new SystemScope(scopeName));
+
+    try {
+      assertThat(discoveryDocument(), not(containsString(scopeName)));
+
+      publisher.publish(CacheInvalidationBus.SYSTEM_SCOPE_REGION, null);
+      bus.poll();
+
+      assertThat(discoveryDocument(), containsString(scopeName));
+    } finally {
+      scopeRepo.remove(scope);
+      discoveryEndpoint.refreshProviderConfiguration();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.ext_authn.oidc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mitre.openid.connect.config.ServerConfiguration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics;
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics.Stage;
+import it.infn.mw.iam.authn.oidc.OidcProviderMetrics.StageKey;
+import it.infn.mw.iam.authn.oidc.service.CachingServerConfigurationService;
+import it.infn.mw.iam.config.oidc.OidcProviderMetadataProperties;
+import it.infn.mw.iam.test.util.oidc.MockRestTemplateFactory;
+
+public class CachingServerConfigurationServiceTests {
+
+  static final Instant NOW = Instant.parse("2020-01-01T00:00:00.00Z");
+  static final String ISSUER = "https://op.example.org";
+  static final String DISCOVERY_URL = ISSUER + "/.well-known/openid-configuration";
+
+  static final String DISCOVERY_DOCUMENT = "{\"issuer\": \"" + ISSUER + "\", "
+      + "\"authorization_endpoint\": \"" + ISSUER + "/authorize\", "
+      + "\"token_endpoint\": \"" + ISSUER + "/token\", "
+      + "\"jwks_uri\": \"" + ISSUER + "/jwk\", "
+      + "\"scopes_supported\": [\"openid\", \"profile\"]}";
+
+  MockRestTemplateFactory rtf = new MockRestTemplateFactory();
+  OidcProviderMetrics metrics = new OidcProviderMetrics(new OidcProviderMetadataProperties());
+  Clock clock = mock(Clock.class);
+
+  CachingServerConfigurationService service;
+  MockRestServiceServer server;
+
+  @Before
+  public void setup() {
+    when(clock.instant()).thenReturn(NOW);
+    server = rtf.resetTemplate();
+    service = new CachingServerConfigurationService(rtf, new ObjectMapper(), metrics, null,
+        Runnable::run, clock, Duration.ofHours(1), Duration.ofDays(1));
+  }
+
+  private void expectDiscoveryDocument(String document) {
+    server.expect(requestTo(DISCOVERY_URL))
+      .andExpect(method(HttpMethod.GET))
+      .andRespond(withSuccess(document, MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void testConfigurationIsFetchedOnceAndCached() {
+    expectDiscoveryDocument(DISCOVERY_DOCUMENT);
+
+    ServerConfiguration conf = service.getServerConfiguration(ISSUER);
+    assertThat(conf.getTokenEndpointUri(), is(ISSUER + "/token"));
+    assertThat(conf.getJwksUri(), is(ISSUER + "/jwk"));
+    assertThat(conf.getScopesSupported().size(), is(2));
+
+    assertThat(service.getServerConfiguration(ISSUER), is(conf));
+    server.verify();
+
+    StageKey key = metrics.getStats().keySet().iterator().next();
+    assertThat(key.getStage(), is(Stage.DISCOVERY));
+    assertThat(metrics.getStats().get(key).getCount(), is(1L));
+  }
+
+  @Test
+  public void testIssuerMismatchIsRejected() {
+    expectDiscoveryDocument(DISCOVERY_DOCUMENT.replace(ISSUER + "\",", "https://evil.org\","));
+
+    assertThat(service.getServerConfiguration(ISSUER), nullValue());
+    server.verify();
+  }
+
+  @Test
+  public void testStaleConfigurationIsServedOnRefreshError() {
+    expectDiscoveryDocument(DISCOVERY_DOCUMENT);
+    server.expect(requestTo(DISCOVERY_URL)).andRespond(withServerError());
+
+    ServerConfiguration conf = service.getServerConfiguration(ISSUER);
+
+    when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(2)));
+    assertThat(service.getServerConfiguration(ISSUER), is(conf));
+    server.verify();
+  }
+
+  @Test
+  public void testTooStaleConfigurationIsNotServed() {
+    expectDiscoveryDocument(DISCOVERY_DOCUMENT);
+    server.expect(requestTo(DISCOVERY_URL)).andRespond(withServerError());
+
+    assertThat(service.getServerConfiguration(ISSUER), notNullValue());
+
+    when(clock.instant()).thenReturn(NOW.plus(Duration.ofDays(2)));
+    assertThat(service.getServerConfiguration(ISSUER), nullValue());
+    server.verify();
+  }
+}
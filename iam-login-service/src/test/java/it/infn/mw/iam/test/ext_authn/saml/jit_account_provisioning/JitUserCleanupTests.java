@@ -19,7 +19,10 @@ package it.infn.mw.iam.test.ext_authn.saml.jit_account_provisioning;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
@@ -34,13 +37,15 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
 
 import it.infn.mw.iam.authn.saml.CleanInactiveProvisionedAccounts;
+import it.infn.mw.iam.core.batch.BatchJobRunner;
 import it.infn.mw.iam.core.time.TimeProvider;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 
 @RunWith(MockitoJUnitRunner.class)
 public class JitUserCleanupTests {
@@ -50,6 +55,12 @@ public class JitUserCleanupTests {
   @Mock
   private IamAccountService accountService;
 
+  @Mock
+  private IamAccountRepository accountRepo;
+
+  @Mock
+  private BatchJobRunner runner;
+
   @Mock
   private TimeProvider timeProvider;
 
@@ -64,7 +75,8 @@ public class JitUserCleanupTests {
   @Before
   public void setup() {
     when(timeProvider.currentTimeMillis()).thenReturn(System.currentTimeMillis());
-    cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, accountService, NUM_DAYS);
+    cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, accountService, accountRepo,
+        runner, NUM_DAYS);
 
   }
 
@@ -72,7 +84,8 @@ public class JitUserCleanupTests {
   @Test(expected = IllegalArgumentException.class)
   public void testLifetimeInDaysSanityChecks() {
     try {
-      cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, accountService, 0);
+      cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, accountService, accountRepo,
+          runner, 0);
     } catch (IllegalArgumentException e) {
       assertThat(e.getMessage(), Matchers.equalTo("inactiveUserLifetimeInDays must be > 0"));
       throw e;
@@ -82,7 +95,7 @@ public class JitUserCleanupTests {
   @Test(expected= NullPointerException.class)
   public void testNullTimeProviderSanityChecks() {
     try {
-      cleanupTask = new CleanInactiveProvisionedAccounts(null, accountService, 1);
+      cleanupTask = new CleanInactiveProvisionedAccounts(null, accountService, accountRepo, runner, 1);
     } catch (NullPointerException e) {
       assertThat(e.getMessage(), Matchers.equalTo("null timeProvider"));
       throw e;
@@ -92,13 +105,30 @@ public class JitUserCleanupTests {
   @Test(expected= NullPointerException.class)
   public void testAccountServiceSanityChecks() {
     try {
-      cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, null, 1);
+      cleanupTask = new CleanInactiveProvisionedAccounts(timeProvider, null, accountRepo, runner, 1);
     } catch (NullPointerException e) {
       assertThat(e.getMessage(), Matchers.equalTo("null accountService"));
       throw e;
     }
   }
 
+  @Test(expected = NullPointerException.class)
+  public void testRunnerSanityChecks() {
+    try {
+      cleanupTask =
+          new CleanInactiveProvisionedAccounts(timeProvider, accountService, accountRepo, null, 1);
+    } catch (NullPointerException e) {
+      assertThat(e.getMessage(), Matchers.equalTo("null runner"));
+      throw e;
+    }
+  }
+
+  @Test
+  public void testTaskIsRunByBatchJobRunner() {
+    cleanupTask.run();
+    verify(runner).run(cleanupTask);
+  }
+
   @Test
   public void testExpirationDateComputation() {
 
@@ -109,12 +139,13 @@ public class JitUserCleanupTests {
 
     when(timeProvider.currentTimeMillis()).thenReturn(now);
 
-    cleanupTask.run();
+    cleanupTask.start();
+    cleanupTask.readChunk(0L, 10);
 
     LocalDateTime numDaysAgo = currentDateTime.minusDays(NUM_DAYS);
 
-    Mockito.verify(accountService)
-      .deleteInactiveProvisionedUsersSinceTime(dateArgumentCaptor.capture());
+    verify(accountRepo).findProvisionedAccountsWithLastLoginTimeBeforeTimestampAndIdGreaterThan(
+        dateArgumentCaptor.capture(), eq(0L), any(Pageable.class));
 
     Instant computedDateInstant = dateArgumentCaptor.getValue().toInstant();
 
@@ -131,11 +162,14 @@ public class JitUserCleanupTests {
 
     IamAccount anAccount = IamAccount.newAccount();
 
-    when(accountService.deleteInactiveProvisionedUsersSinceTime(anyObject()))
-      .thenReturn(asList(anAccount));
-    
-    cleanupTask.run();
+    when(accountRepo.findProvisionedAccountsWithLastLoginTimeBeforeTimestampAndIdGreaterThan(
+        anyObject(), anyObject(), anyObject())).thenReturn(asList(anAccount));
+
+    cleanupTask.start();
+    cleanupTask.processChunk(cleanupTask.readChunk(0L, 10));
 
+    verify(accountService).deleteAccount(iamAccountArgumentCaptor.capture());
+    assertThat(iamAccountArgumentCaptor.getValue(), Matchers.is(anAccount));
   }
 
 
@@ -60,6 +60,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 import it.infn.mw.iam.IamLoginService;
 import it.infn.mw.iam.authn.x509.IamX509AuthenticationCredential;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 import junit.framework.AssertionFailedError;
@@ -77,6 +78,9 @@ public class X509AuthenticationIntegrationTests extends X509TestSupport {
   @Autowired
   private WebApplicationContext context;
 
+  @Autowired
+  private LastLoginTimeUpdater lastLoginTimeUpdater;
+
   private MockMvc mvc;
 
   @Before
@@ -123,6 +127,8 @@ public class X509AuthenticationIntegrationTests extends X509TestSupport {
     .andExpect(status().isFound())
     .andExpect(redirectedUrl("/dashboard"))
     .andExpect(authenticated().withUsername("test"));
+
+    lastLoginTimeUpdater.flush();
     
     resolvedAccount =
         iamAccountRepo.findByCertificateSubject(TEST_0_SUBJECT).orElseThrow(
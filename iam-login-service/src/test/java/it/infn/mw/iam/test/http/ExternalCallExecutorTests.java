@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.http;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import it.infn.mw.iam.config.http.OutboundHttpProperties;
+import it.infn.mw.iam.core.http.ExternalCallExecutor;
+
+public class ExternalCallExecutorTests {
+
+  ExternalCallExecutor executor;
+
+  private ExternalCallExecutor executor(boolean async, int maxThreads, int queueCapacity) {
+    OutboundHttpProperties properties = new OutboundHttpProperties();
+    properties.setAsyncRequestsEnabled(async);
+    properties.setAsyncMaxThreads(maxThreads);
+    properties.setAsyncQueueCapacity(queueCapacity);
+    executor = new ExternalCallExecutor(properties);
+    return executor;
+  }
+
+  @After
+  public void teardown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void testSynchronousCall() {
+    DeferredResult<String> result = executor(false, 1, 0).call(() -> "ok", e -> "error");
+    assertThat(result.hasResult(), is(true));
+    assertThat(result.getResult(), equalTo("ok"));
+
+    result = executor.call(() -> {
+      throw new IllegalStateException("failure");
+    }, RuntimeException::getMessage);
+    assertThat(result.getResult(), equalTo("failure"));
+  }
+
+  @Test
+  public void testErrorHandlerExceptionsArePropagated() {
+    IllegalStateException error = new IllegalStateException("failure");
+
+    DeferredResult<String> result = executor(false, 1, 0).call(() -> {
+      throw error;
+    }, e -> {
+      throw e;
+    });
+
+    assertThat(result.getResult(), is(error));
+  }
+
+  @Test
+  public void testAsynchronousCall() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+
+    DeferredResult<String> result = executor(true, 1, 0).call(() -> "ok", e -> "error");
+    result.setResultHandler(r -> done.countDown());
+
+    assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    assertThat(result.getResult(), equalTo("ok"));
+  }
+
+  @Test
+  public void testSaturatedPoolRejectsCalls() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    executor(true, 1, 0).call(() -> {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "ok";
+    }, e -> "error");
+
+    assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+    DeferredResult<String> result = executor.call(() -> "ok",
+        e -> e instanceof TaskRejectedException ? "rejected" : "error");
+
+    assertThat(result.getResult(), equalTo("rejected"));
+    release.countDown();
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.http;
+
+import static it.infn.mw.iam.core.http.OutboundHttpMetrics.METRIC_PREFIX;
+import static it.infn.mw.iam.core.http.OutboundHttpMetrics.OTHER_DESTINATIONS;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.core.http.OutboundHttpMetrics;
+import it.infn.mw.iam.core.http.OutboundHttpMetrics.DestinationStats;
+
+public class OutboundHttpMetricsTests {
+
+  PoolingHttpClientConnectionManager connectionManager;
+  OutboundHttpMetrics metrics;
+
+  @Before
+  public void setup() {
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(50);
+    metrics = new OutboundHttpMetrics(connectionManager, 2);
+  }
+
+  @After
+  public void teardown() {
+    connectionManager.shutdown();
+  }
+
+  private List<String> metricNames() {
+    return metrics.metrics().stream().map(Metric::getName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testRequestsAreAccountedPerDestination() {
+    metrics.record("idp.example.org:443", 10, false);
+    metrics.record("idp.example.org:443", 30, true);
+    metrics.record("rcauth.example.org:443", 5, false);
+
+    DestinationStats stats = metrics.getStats().get("idp.example.org:443");
+    assertThat(stats.getRequests(), is(2L));
+    assertThat(stats.getErrors(), is(1L));
+    assertThat(stats.getTotalMsec(), is(40L));
+    assertThat(stats.getMaxMsec(), is(30L));
+
+    assertThat(metrics.getStats().get("rcauth.example.org:443").getRequests(), is(1L));
+    assertThat(metricNames(), hasItem(METRIC_PREFIX + "idp.example.org:443.avg-msec"));
+  }
+
+  @Test
+  public void testUntrackedDestinationsAreAggregated() {
+    metrics.record("one.example.org:443", 1, false);
+    metrics.record("two.example.org:443", 1, false);
+    metrics.record("three.example.org:443", 1, false);
+    metrics.record("four.example.org:443", 1, true);
+
+    assertThat(metrics.getStats().size(), is(3));
+    assertThat(metrics.getStats().get(OTHER_DESTINATIONS).getRequests(), is(2L));
+    assertThat(metrics.getStats().get(OTHER_DESTINATIONS).getErrors(), is(1L));
+  }
+
+  @Test
+  public void testPoolMetricsAreReported() {
+    List<Metric<?>> result = Lists.newArrayList(metrics.metrics());
+
+    Metric<?> max = result.stream()
+      .filter(m -> m.getName().equals(METRIC_PREFIX + "pool.max"))
+      .findFirst()
+      .orElseThrow(() -> new AssertionError("pool.max metric not found"));
+
+    assertThat(max.getValue().intValue(), equalTo(50));
+    assertThat(metricNames(), hasItem(METRIC_PREFIX + "pool.pending"));
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.jdbc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import it.infn.mw.iam.core.jdbc.ReplicaLagMonitor;
+import it.infn.mw.iam.core.jdbc.ReplicaRoutingDataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaRoutingDataSourceTests {
+
+  public static final long MAX_LAG_MSEC = 5000;
+  public static final long READ_YOUR_WRITES_WINDOW_MSEC = 1000;
+
+  @Mock
+  Clock clock;
+
+  DataSource primary;
+  DataSource replica;
+
+  ReplicaLagMonitor lagMonitor;
+  ReplicaRoutingDataSource routingDataSource;
+
+  ExecutorService writer = Executors.newSingleThreadExecutor();
+  ExecutorService reader = Executors.newSingleThreadExecutor();
+
+  private DataSource h2DataSource(String name) {
+    DataSource ds = new DriverManagerDataSource(
+        String.format("jdbc:h2:mem:%s-%s;DB_CLOSE_DELAY=-1", name, UUID.randomUUID()), "sa", "");
+
+    JdbcTemplate jdbc = new JdbcTemplate(ds);
+    jdbc.execute("CREATE TABLE iam_replica_heartbeat "
+        + "(ID INTEGER NOT NULL, HEARTBEAT_TIME BIGINT NOT NULL, PRIMARY KEY (ID))");
+    jdbc.update("INSERT INTO iam_replica_heartbeat (ID, HEARTBEAT_TIME) VALUES (1, 0)");
+    return ds;
+  }
+
+  // Simulates replication of the heartbeat row
+  private void replicateHeartbeat() {
+    long heartbeat = new JdbcTemplate(primary)
+      .queryForObject("SELECT HEARTBEAT_TIME FROM iam_replica_heartbeat WHERE ID = 1", Long.class);
+    new JdbcTemplate(replica).update("UPDATE iam_replica_heartbeat SET HEARTBEAT_TIME = ?",
+        heartbeat);
+  }
+
+  private String route(boolean transactional, boolean readOnly) throws SQLException {
+    TransactionSynchronizationManager.setActualTransactionActive(transactional);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+
+    try (Connection c = routingDataSource.getConnection()) {
+      return c.getMetaData().getURL();
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+  }
+
+  // Routes a connection on the executor thread, as requested by the given principal
+  private String routeAs(ExecutorService executor, String principal, boolean readOnly)
+      throws InterruptedException, ExecutionException {
+    Callable<String> task = () -> {
+      SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken(principal, "", "ROLE_USER"));
+      try {
+        return route(true, readOnly);
+      } finally {
+        SecurityContextHolder.clearContext();
+      }
+    };
+
+    return executor.submit(task).get();
+  }
+
+  @Before
+  public void setup() {
+    ReplicaRoutingDataSource.clearLastWriteTime();
+    when(clock.millis()).thenReturn(100000L);
+
+    primary = h2DataSource("primary");
+    replica = h2DataSource("replica");
+
+    lagMonitor = new ReplicaLagMonitor(primary, replica, clock, MAX_LAG_MSEC);
+    routingDataSource = new ReplicaRoutingDataSource(primary, replica, lagMonitor, clock,
+        READ_YOUR_WRITES_WINDOW_MSEC);
+    routingDataSource.afterPropertiesSet();
+
+    lagMonitor.check();
+    replicateHeartbeat();
+    lagMonitor.check();
+  }
+
+  @After
+  public void teardown() {
+    ReplicaRoutingDataSource.clearLastWriteTime();
+    writer.shutdownNow();
+    reader.shutdownNow();
+  }
+
+  @Test
+  public void testReadOnlyTransactionsAreRoutedToReplica() throws SQLException {
+    assertThat(lagMonitor.isReplicaAvailable(), is(true));
+    assertThat(route(true, true), containsString("replica"));
+    assertThat(route(true, false), containsString("primary"));
+    assertThat(route(false, false), containsString("primary"));
+  }
+
+  @Test
+  public void testReadsFollowingWritesAreRoutedToPrimary() throws SQLException {
+    when(clock.millis()).thenReturn(110000L);
+    assertThat(route(true, false), containsString("primary"));
+    assertThat(route(true, true), containsString("primary"));
+
+    when(clock.millis()).thenReturn(110000L + READ_YOUR_WRITES_WINDOW_MSEC);
+    assertThat(route(true, true), containsString("replica"));
+  }
+
+  @Test
+  public void testReadsFollowingWritesOnOtherThreadsAreRoutedToPrimary() throws Exception {
+    when(clock.millis()).thenReturn(110000L);
+    assertThat(routeAs(writer, "test", false), containsString("primary"));
+    assertThat(routeAs(reader, "test", true), containsString("primary"));
+
+    // Other principals are not affected
+    assertThat(routeAs(reader, "test_347", true), containsString("replica"));
+
+    when(clock.millis()).thenReturn(110000L + READ_YOUR_WRITES_WINDOW_MSEC);
+    assertThat(routeAs(reader, "test", true), containsString("replica"));
+  }
+
+  @Test
+  public void testLaggingReplicaIsNotUsed() throws SQLException {
+    when(clock.millis()).thenReturn(100000L + MAX_LAG_MSEC + 1);
+    lagMonitor.check();
+
+    assertThat(lagMonitor.isReplicaAvailable(), is(false));
+    assertThat(lagMonitor.getLagMsec(), equalTo(MAX_LAG_MSEC + 1));
+    assertThat(route(true, true), containsString("primary"));
+
+    replicateHeartbeat();
+    lagMonitor.check();
+
+    assertThat(lagMonitor.isReplicaAvailable(), is(true));
+    assertThat(route(true, true), containsString("replica"));
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.jdbc;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.jdbc.ReplicaLagMonitor;
+import it.infn.mw.iam.core.jdbc.ReplicaRoutingDataSource;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+// The replica is the primary in-memory database, reached through its own connection pool
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = IamLoginService.class)
+@WebAppConfiguration
+@TestPropertySource(properties = {"read-replica.enabled=true",
+    "read-replica.datasource.url=jdbc:h2:mem:iam;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "read-replica.datasource.username=sa", "read-replica.read-your-writes-window-msec=0"})
+public class ReplicaRoutingIntegrationTests {
+
+  @Autowired
+  ReplicaRoutingDataSource routingDataSource;
+
+  @Autowired
+  ReplicaLagMonitor lagMonitor;
+
+  @Autowired
+  IamAccountRepository accountRepo;
+
+  @Autowired
+  @Qualifier("iamUserDetailsService")
+  UserDetailsService userDetailsService;
+
+  private long routes(String name) {
+    for (Metric<?> m : routingDataSource.metrics()) {
+      if (m.getName().equals(ReplicaRoutingDataSource.METRIC_PREFIX + name)) {
+        return m.getValue().longValue();
+      }
+    }
+    throw new AssertionError("Metric not found: " + name);
+  }
+
+  @Before
+  public void setup() {
+    ReplicaRoutingDataSource.clearLastWriteTime();
+    lagMonitor.check();
+    assertThat(lagMonitor.isReplicaAvailable(), is(true));
+  }
+
+  @Test
+  public void testRepositoryReadsAreRoutedToReplica() {
+    long replicaRoutes = routes("replica");
+
+    assertThat(accountRepo.findByUsername("test").isPresent(), is(true));
+    assertThat(routes("replica"), greaterThan(replicaRoutes));
+  }
+
+  @Test
+  public void testAuthenticationLookupsAreRoutedToPrimary() {
+    long replicaRoutes = routes("replica");
+    long primaryRoutes = routes("primary");
+
+    assertThat(userDetailsService.loadUserByUsername("test").getUsername(), equalTo("test"));
+
+    assertThat(routes("replica"), equalTo(replicaRoutes));
+    assertThat(routes("primary"), greaterThan(primaryRoutes));
+  }
+}
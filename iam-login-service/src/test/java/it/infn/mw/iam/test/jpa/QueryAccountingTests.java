@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.jpa;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import it.infn.mw.iam.config.metrics.QueryAccountingProperties;
+import it.infn.mw.iam.core.jpa.QueryAccounting;
+import it.infn.mw.iam.core.jpa.QueryAccounting.ScopeStats;
+import it.infn.mw.iam.core.jpa.QueryAccountingProfiler;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryAccountingTests {
+
+  @Mock
+  EntityManagerFactory emf;
+
+  @Mock
+  DatabaseQuery query;
+
+  QueryAccountingProperties properties = new QueryAccountingProperties();
+
+  QueryAccounting accounting;
+  QueryAccountingProfiler profiler;
+
+  @Before
+  public void setup() {
+    accounting = new QueryAccounting(properties, emf);
+    profiler = new QueryAccountingProfiler(accounting);
+    when(query.getSQLString()).thenReturn("SELECT ID FROM iam_group WHERE (ID = ?)");
+  }
+
+  private void executeStatement(int rows) {
+    profiler.startOperationProfile(SessionProfiler.StatementExecute, query, SessionProfiler.ALL);
+    profiler.endOperationProfile(SessionProfiler.StatementExecute, query, SessionProfiler.ALL);
+    for (int i = 0; i < rows; i++) {
+      profiler.occurred(SessionProfiler.RowFetch, query, null);
+    }
+  }
+
+  @Test
+  public void testStatementsOutsideScopeAreNotAccounted() {
+    executeStatement(1);
+    accounting.end("GET /test");
+
+    assertThat(accounting.getStats().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testStatementsAndRowsAreAccountedPerScope() {
+    accounting.account("GET /test", () -> {
+      executeStatement(2);
+      executeStatement(3);
+    });
+
+    accounting.account("GET /test", () -> executeStatement(1));
+
+    ScopeStats stats = accounting.getStats().get("GET /test");
+
+    assertThat(stats.getCount(), is(2L));
+    assertThat(stats.getStatements(), is(3L));
+    assertThat(stats.getRows(), is(6L));
+    assertThat(stats.getMaxStatements(), is(2L));
+    assertThat(stats.getExpensive(), is(0L));
+  }
+
+  @Test
+  public void testNestedScopesAreAccountedToTheOuterScope() {
+    accounting.account("task outer", () -> accounting.account("task inner", () -> {
+      executeStatement(1);
+    }));
+
+    assertThat(accounting.getStats().get("task outer").getStatements(), is(1L));
+    assertThat(accounting.getStats().containsKey("task inner"), is(false));
+  }
+
+  @Test
+  public void testExpensiveScopesAreCounted() {
+    properties.setStatementsThreshold(3);
+
+    accounting.account("GET /groups", () -> {
+      for (int i = 0; i < 3; i++) {
+        executeStatement(1);
+      }
+    });
+
+    assertThat(accounting.getStats().get("GET /groups").getExpensive(), is(1L));
+
+    List<String> names =
+        accounting.metrics().stream().map(Metric::getName).collect(Collectors.toList());
+    assertThat(names, hasItem("iam.query-accounting.get.groups.expensive"));
+  }
+
+  @Test
+  public void testTrackedScopesAreBounded() {
+    properties.setMaxTrackedScopes(1);
+
+    accounting.account("GET /first", () -> executeStatement(1));
+    accounting.account("GET /second", () -> executeStatement(1));
+
+    assertThat(accounting.getStats().get("GET /first").getCount(), is(1L));
+    assertThat(accounting.getStats().get(QueryAccounting.OTHER_SCOPES).getCount(), is(1L));
+  }
+
+  @Test
+  public void testScopeNamesAreSanitizedInMetricNames() {
+    assertThat(QueryAccounting.metricName("GET /scim/Users/{id}"), is("get.scim.users.id"));
+    assertThat(QueryAccounting.metricName("POST /token"), is("post.token"));
+    assertThat(QueryAccounting.metricName("task token-cleanup"), is("task.token-cleanup"));
+    assertThat(QueryAccounting.metricName("/"), is(QueryAccounting.OTHER_SCOPES));
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.lifecycle;
+
+import static it.infn.mw.iam.core.lifecycle.ExpiredTokensCleanupTask.ACCESS_TOKENS;
+import static it.infn.mw.iam.core.lifecycle.ExpiredTokensCleanupTask.AUTHENTICATION_HOLDERS;
+import static it.infn.mw.iam.core.lifecycle.ExpiredTokensCleanupTask.REFRESH_TOKENS;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import it.infn.mw.iam.config.lifecycle.TokenCleanupProperties;
+import it.infn.mw.iam.core.lifecycle.ExpiredTokensCleanupTask;
+import it.infn.mw.iam.persistence.repository.IamTokenCleanupRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExpiredTokensCleanupTaskTests {
+
+  public static final Instant NOW = Instant.parse("2019-01-01T00:00:00.00Z");
+  public static final int CHUNK_SIZE = 2;
+
+  @Mock
+  IamTokenCleanupRepository repo;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @Mock
+  Clock clock;
+
+  TokenCleanupProperties properties = new TokenCleanupProperties();
+
+  ExpiredTokensCleanupTask task;
+
+  private static List<Long> ids(long from, long to) {
+    return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+  }
+
+  @Before
+  public void setup() {
+    properties.setChunkSize(CHUNK_SIZE);
+    properties.setMaxRunTimeSecs(60);
+    when(clock.instant()).thenReturn(NOW);
+    when(clock.millis()).thenReturn(NOW.toEpochMilli());
+
+    when(repo.deleteExpiredAccessTokens(any(Date.class), anyInt()))
+      .thenReturn(Collections.emptyList());
+    when(repo.deleteExpiredRefreshTokens(any(Date.class), anyInt()))
+      .thenReturn(Collections.emptyList());
+    when(repo.deleteOrphanedAuthenticationHolders(anyLong(), anyInt()))
+      .thenReturn(Collections.emptyList());
+    when(repo.deleteOrphanedSavedUserAuthentications(anyLong(), anyInt()))
+      .thenReturn(Collections.emptyList());
+
+    task = new ExpiredTokensCleanupTask(properties, repo, transactionManager, clock);
+  }
+
+  @Test
+  public void testChunksAreDeletedUntilExhausted() {
+    when(repo.deleteExpiredAccessTokens(any(Date.class), eq(CHUNK_SIZE))).thenReturn(ids(1, 2),
+        ids(3, 4), ids(5, 5));
+    when(repo.countExpiredAccessTokens(any(Date.class))).thenReturn(0L);
+
+    task.cleanupExpiredTokens();
+
+    verify(repo, times(3)).deleteExpiredAccessTokens(Date.from(NOW), CHUNK_SIZE);
+    verify(repo).deleteExpiredRefreshTokens(Date.from(NOW), CHUNK_SIZE);
+    assertThat(task.getDeletedRows(ACCESS_TOKENS), equalTo(5L));
+    assertThat(task.getDeletedRows(REFRESH_TOKENS), equalTo(0L));
+    assertThat(task.getBacklog(ACCESS_TOKENS), equalTo(0L));
+  }
+
+  @Test
+  public void testOrphanScansUseKeysetPaging() {
+    when(repo.deleteOrphanedAuthenticationHolders(anyLong(), eq(CHUNK_SIZE)))
+      .thenReturn(ids(10, 11), ids(15, 15));
+
+    task.cleanupExpiredTokens();
+
+    verify(repo).deleteOrphanedAuthenticationHolders(0L, CHUNK_SIZE);
+    verify(repo).deleteOrphanedAuthenticationHolders(11L, CHUNK_SIZE);
+    verify(repo).deleteOrphanedSavedUserAuthentications(0L, CHUNK_SIZE);
+    assertThat(task.getDeletedRows(AUTHENTICATION_HOLDERS), equalTo(3L));
+  }
+
+  @Test
+  public void testRunStopsWhenTimeBudgetIsExhausted() {
+    when(clock.instant()).thenReturn(NOW, NOW, NOW.plusSeconds(61));
+    when(repo.deleteExpiredAccessTokens(any(Date.class), eq(CHUNK_SIZE))).thenReturn(ids(1, 2));
+    when(repo.countExpiredAccessTokens(any(Date.class))).thenReturn(10L);
+
+    task.cleanupExpiredTokens();
+
+    verify(repo, times(1)).deleteExpiredAccessTokens(Date.from(NOW), CHUNK_SIZE);
+    verify(repo, never()).deleteExpiredRefreshTokens(any(Date.class), anyInt());
+    verify(repo, never()).deleteOrphanedAuthenticationHolders(anyLong(), anyInt());
+    assertThat(task.getDeletedRows(ACCESS_TOKENS), equalTo(2L));
+    assertThat(task.getBacklog(ACCESS_TOKENS), equalTo(10L));
+  }
+}
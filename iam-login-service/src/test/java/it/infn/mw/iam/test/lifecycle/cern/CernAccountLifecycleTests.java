@@ -59,6 +59,7 @@ import it.infn.mw.iam.api.registration.cern.CernHrDBApiService;
 import it.infn.mw.iam.api.registration.cern.CernHrDbApiError;
 import it.infn.mw.iam.api.registration.cern.dto.VOPersonDTO;
 import it.infn.mw.iam.core.lifecycle.cern.CernHrLifecycleHandler;
+import it.infn.mw.iam.core.lifecycle.cern.CernHrSyncStatistics;
 import it.infn.mw.iam.core.user.IamAccountService;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamLabel;
@@ -425,4 +426,47 @@ public class CernAccountLifecycleTests extends TestSupport implements LifecycleT
     }
   }
 
+  @Test
+  public void testRunStatisticsAreCollected() {
+    when(hrDb.hasValidExperimentParticipation(anyString())).thenReturn(false);
+
+    Pageable pageRequest = new PageRequest(0, 10, Direction.ASC, "username");
+    Page<IamAccount> accountPage = repo.findAll(pageRequest);
+
+    for (IamAccount account : accountPage.getContent()) {
+      service.setLabel(account, cernPersonIdLabel(UUID.randomUUID().toString()));
+    }
+
+    handler.run();
+
+    CernHrSyncStatistics stats = handler.getLastRunStatistics()
+      .orElseThrow(assertionError("Expected run statistics not found"));
+
+    assertThat(stats.getAccounts(), is(10L));
+    assertThat(stats.getErrors(), is(0L));
+    assertThat(stats.getDisabled() + stats.getUnchanged(), is(10L));
+  }
+
+  @Test
+  public void testCircuitBreakerInterruptsRun() {
+    when(hrDb.hasValidExperimentParticipation(anyString()))
+      .thenThrow(new CernHrDbApiError("API is unreachable"));
+
+    // The circuit breaker opens after 10 consecutive failures, i.e. after two chunks
+    Pageable pageRequest = new PageRequest(0, 15, Direction.ASC, "username");
+    Page<IamAccount> accountPage = repo.findAll(pageRequest);
+
+    for (IamAccount account : accountPage.getContent()) {
+      service.setLabel(account, cernPersonIdLabel(UUID.randomUUID().toString()));
+    }
+
+    handler.run();
+
+    CernHrSyncStatistics stats = handler.getLastRunStatistics()
+      .orElseThrow(assertionError("Expected run statistics not found"));
+
+    assertThat(stats.getAccounts(), is(10L));
+    assertThat(stats.getHrDbErrors(), is(10L));
+  }
+
 }
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.login;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import it.infn.mw.iam.config.login.LastLoginTimeUpdaterProperties;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LastLoginTimeUpdaterTests {
+
+  public static final Instant NOW = Instant.parse("2019-01-01T00:00:00.00Z");
+  public static final Date NOW_DATE = Date.from(NOW);
+
+  @Mock
+  IamAccountRepository repo;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  Clock clock = Clock.fixed(NOW, ZoneId.systemDefault());
+
+  LastLoginTimeUpdater updater;
+
+  private LastLoginTimeUpdater buildUpdater(boolean async, int maxPendingUpdates) {
+    LastLoginTimeUpdaterProperties properties = new LastLoginTimeUpdaterProperties();
+    properties.setAsync(async);
+    // Long enough that the background flush never runs during a test
+    properties.setFlushPeriodMsec(3600000);
+    properties.setMaxPendingUpdates(maxPendingUpdates);
+
+    updater = new LastLoginTimeUpdater(properties, repo, transactionManager, clock);
+    return updater;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<Map<String, Date>> flushedBatches(int times) {
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    verify(repo, times(times)).updateLastLoginTimes(captor.capture());
+    return (List) captor.getAllValues();
+  }
+
+  @After
+  public void teardown() {
+    if (updater != null) {
+      updater.shutdown();
+    }
+  }
+
+  @Test
+  public void testSynchronousUpdate() {
+    buildUpdater(false, 10);
+
+    updater.touchLastLoginTime("test");
+
+    Map<String, Date> batch = flushedBatches(1).get(0);
+    assertThat(batch.size(), equalTo(1));
+    assertThat(batch, hasEntry("test", NOW_DATE));
+    assertThat(updater.getPendingUpdatesCount(), equalTo(0));
+  }
+
+  @Test
+  public void testUpdatesAreQueuedAndCoalesced() {
+    buildUpdater(true, 10);
+
+    updater.touchLastLoginTime("test");
+    updater.touchLastLoginTime("admin");
+    updater.touchLastLoginTime("test");
+
+    verify(repo, never()).updateLastLoginTimes(anyMapOf(String.class, Date.class));
+    assertThat(updater.getPendingUpdatesCount(), equalTo(2));
+
+    when(repo.updateLastLoginTimes(anyMapOf(String.class, Date.class))).thenReturn(2);
+    assertThat(updater.flush(), equalTo(2));
+    assertThat(updater.getPendingUpdatesCount(), equalTo(0));
+
+    Map<String, Date> batch = flushedBatches(1).get(0);
+    assertThat(batch.size(), equalTo(2));
+    assertThat(batch, hasEntry("test", NOW_DATE));
+    assertThat(batch, hasEntry("admin", NOW_DATE));
+
+    assertThat(updater.flush(), equalTo(0));
+    flushedBatches(1);
+  }
+
+  @Test
+  public void testUpdateIsSynchronousWhenQueueIsFull() {
+    buildUpdater(true, 1);
+
+    updater.touchLastLoginTime("test");
+    updater.touchLastLoginTime("test");
+    updater.touchLastLoginTime("admin");
+
+    assertThat(updater.getPendingUpdatesCount(), equalTo(1));
+
+    Map<String, Date> batch = flushedBatches(1).get(0);
+    assertThat(batch.size(), equalTo(1));
+    assertThat(batch, hasEntry("admin", NOW_DATE));
+  }
+
+  @Test
+  public void testFailedUpdatesAreRequeued() {
+    buildUpdater(true, 10);
+
+    updater.touchLastLoginTime("test");
+
+    when(repo.updateLastLoginTimes(anyMapOf(String.class, Date.class)))
+      .thenThrow(new IllegalStateException("Database unavailable"))
+      .thenReturn(1);
+
+    assertThat(updater.flush(), equalTo(0));
+    assertThat(updater.getPendingUpdatesCount(), equalTo(1));
+
+    assertThat(updater.flush(), equalTo(1));
+    assertThat(updater.getPendingUpdatesCount(), equalTo(0));
+  }
+}
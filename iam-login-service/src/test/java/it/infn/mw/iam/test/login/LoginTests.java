@@ -44,6 +44,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
 import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.user.LastLoginTimeUpdater;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamAup;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
@@ -64,6 +65,9 @@ public class LoginTests implements LoginTestSupport {
   @Autowired
   private IamAupRepository aupRepo;
 
+  @Autowired
+  private LastLoginTimeUpdater lastLoginTimeUpdater;
+
   private MockMvc mvc;
 
   @Before
@@ -96,6 +100,8 @@ public class LoginTests implements LoginTestSupport {
       .andExpect(view().name("iam/dashboard"))
       .andReturn();
 
+    lastLoginTimeUpdater.flush();
+
     IamAccount adminAccount = accountRepo.findByUsername(ADMIN_USERNAME)
       .orElseThrow(() -> new AssertionError("Admin user not found!"));
 
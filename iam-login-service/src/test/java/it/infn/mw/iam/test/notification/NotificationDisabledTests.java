@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.notification;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
@@ -54,7 +55,8 @@ import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
 @SpringApplicationConfiguration(classes = {IamLoginService.class, NotificationTestConfig.class, CoreControllerTestSupport.class})
 @WebAppConfiguration
 @Transactional
-@TestPropertySource(properties = {"notification.disable=true"})
+@TestPropertySource(properties = {"notification.disable=true",
+    "outbound-http.async-requests-enabled=false"})
 public class NotificationDisabledTests {
 
   public static final String REGISTRATION_CREATE_ENDPOINT = "/registration/create";
@@ -112,8 +114,7 @@ public class NotificationDisabledTests {
 
     String jsonReq = mapper.writeValueAsString(req);
 
-    String response = mvc
-      .perform(post(REGISTRATION_CREATE_ENDPOINT).content(jsonReq)
+    String response = performAsync(mvc, post(REGISTRATION_CREATE_ENDPOINT).content(jsonReq)
         .contentType(MediaType.APPLICATION_JSON))
       .andExpect(status().isOk())
       .andReturn()
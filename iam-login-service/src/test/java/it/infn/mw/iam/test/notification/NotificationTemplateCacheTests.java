@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.notification;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import it.infn.mw.iam.notification.NotificationTemplateCache;
+
+public class NotificationTemplateCacheTests {
+
+  private static final String TEMPLATE = "templates/resetPassword.vm";
+
+  NotificationTemplateCache cache;
+
+  @Before
+  public void setup() {
+    VelocityEngine engine = new VelocityEngine();
+    engine.setProperty("resource.loader", "class");
+    engine.setProperty("class.resource.loader.class", ClasspathResourceLoader.class.getName());
+    engine.init();
+    cache = new NotificationTemplateCache(engine);
+  }
+
+  @Test
+  public void testTemplatesAreCompiledOnce() {
+    Template t = cache.getTemplate(TEMPLATE);
+    assertThat(cache.getTemplate(TEMPLATE), sameInstance(t));
+    assertThat(cache.size(), equalTo(1));
+  }
+
+  @Test
+  public void testTemplatesAreRecompiledAfterReload() {
+    Template t = cache.getTemplate(TEMPLATE);
+    cache.reload();
+    assertThat(cache.size(), equalTo(0));
+    assertThat(cache.getTemplate(TEMPLATE), not(sameInstance(t)));
+  }
+
+  @Test
+  public void testRenderingUsesModel() {
+    Map<String, Object> model = Maps.newHashMap();
+    model.put("recipient", "Test User");
+    model.put("username", "test");
+
+    assertThat(cache.render(TEMPLATE, model), containsString("Test User"));
+
+    model.put("recipient", "Another User");
+    assertThat(cache.render(TEMPLATE, model), containsString("Another User"));
+  }
+}
@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.notification;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static it.infn.mw.iam.test.util.AuthenticationUtils.adminAuthentication;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.containsString;
@@ -64,7 +65,8 @@ import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
 @WebAppConfiguration
 @Transactional
 @WithAnonymousUser
-@TestPropertySource(properties = {"notification.disable=false"})
+@TestPropertySource(properties = {"notification.disable=false",
+    "outbound-http.async-requests-enabled=false"})
 public class RegistrationFlowNotificationTests {
 
   @Autowired
@@ -130,8 +132,8 @@ public class RegistrationFlowNotificationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    String responseJson = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String responseJson = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(mapper.writeValueAsString(request)))
       .andExpect(MockMvcResultMatchers.status().isOk())
       .andReturn()
@@ -197,8 +199,8 @@ public class RegistrationFlowNotificationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    String responseJson = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String responseJson = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(mapper.writeValueAsString(request)))
       .andExpect(MockMvcResultMatchers.status().isOk())
       .andReturn()
@@ -265,8 +267,8 @@ public class RegistrationFlowNotificationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    String responseJson = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String responseJson = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(mapper.writeValueAsString(request)))
       .andExpect(MockMvcResultMatchers.status().isOk())
       .andReturn()
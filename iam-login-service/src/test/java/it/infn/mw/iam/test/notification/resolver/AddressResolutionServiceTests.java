@@ -53,7 +53,7 @@ public class AddressResolutionServiceTests extends AddressResolutionServiceTestS
 
   @Before
   public void setup() {
-    when(repo.findByAuthority(ROLE_ADMIN)).thenReturn(emptyList());
+    when(repo.findEmailByAuthority(ROLE_ADMIN)).thenReturn(emptyList());
   }
 
   @Test
@@ -75,8 +75,8 @@ public class AddressResolutionServiceTests extends AddressResolutionServiceTestS
 
   @Test
   public void testVoAdminsEmailResolution() {
-    when(repo.findByAuthority(ROLE_ADMIN)).thenReturn(
-        asList(createAccount(ADMIN_1, ADMIN_1_EMAIL), createAccount(ADMIN_2, ADMIN_2_EMAIL)));
+    when(repo.findEmailByAuthority(ROLE_ADMIN)).thenReturn(
+        asList(ADMIN_1_EMAIL, ADMIN_2_EMAIL));
     
     assertThat(service.resolveAddressesForAudience(VO_ADMINS),
         hasSize(2));
@@ -90,7 +90,7 @@ public class AddressResolutionServiceTests extends AddressResolutionServiceTestS
 
   @Test
   public void testNoGroupManagerResolution() {
-    when(repo.findByAuthority(GROUP_ADMIN_001)).thenReturn(emptyList());
+    when(repo.findEmailByAuthority(GROUP_ADMIN_001)).thenReturn(emptyList());
     
     assertThat(service.resolveAddressesForAudience("gm:001"),
         empty());
@@ -17,10 +17,13 @@ package it.infn.mw.iam.test.oauth;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +35,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -99,6 +103,36 @@ public class DiscoveryEndpointTests {
     // @formatter:on
   }
 
+  private void testConditionalGet(String url) throws Exception {
+    String etag = mvc.perform(get(url))
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=300")))
+      .andReturn()
+      .getResponse()
+      .getHeader(HttpHeaders.ETAG);
+
+    mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+    mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+      .andExpect(status().isOk());
+  }
+
+  @Test
+  public void testProviderConfigurationConditionalGet() throws Exception {
+    testConditionalGet(endpoint);
+  }
+
+  @Test
+  public void testJwkSetConditionalGet() throws Exception {
+    mvc.perform(get("/jwk"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.keys").isArray());
+
+    testConditionalGet("/jwk");
+  }
+
   @Test
   public void testDeviceCodeEndpoint() throws Exception {
     // @formatter:off
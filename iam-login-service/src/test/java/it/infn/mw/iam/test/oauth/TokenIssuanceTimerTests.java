@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.oauth;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import it.infn.mw.iam.config.metrics.TokenIssuanceMetricsProperties;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceStage;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer.StageKey;
+import it.infn.mw.iam.core.oauth.metrics.TokenIssuanceTimer.StageStats;
+
+public class TokenIssuanceTimerTests {
+
+  TokenIssuanceMetricsProperties properties = new TokenIssuanceMetricsProperties();
+  TokenIssuanceTimer timer;
+
+  @Before
+  public void setup() {
+    timer = new TokenIssuanceTimer(properties);
+  }
+
+  private StageStats stats(TokenIssuanceStage stage, String grantType, String clientId,
+      String profile) {
+    for (Map.Entry<StageKey, StageStats> e : timer.getStats().entrySet()) {
+      StageKey k = e.getKey();
+      if (k.getStage() == stage && k.getGrantType().equals(grantType)
+          && k.getClientId().equals(clientId) && k.getProfile().equals(profile)) {
+        return e.getValue();
+      }
+    }
+    return null;
+  }
+
+  private void issueToken(String clientId) {
+    timer.begin();
+    try {
+      timer.tagRequest("password", clientId);
+      timer.tagProfile("wlcg");
+      timer.time(TokenIssuanceStage.USER_INFO, () -> "userinfo");
+      timer.time(TokenIssuanceStage.SIGNING, () -> {
+      });
+    } finally {
+      timer.end();
+    }
+  }
+
+  @Test
+  public void testStagesOutsideTraceAreNotMeasured() {
+    assertThat(timer.time(TokenIssuanceStage.SIGNING, () -> "jwt"), is("jwt"));
+    timer.end();
+
+    assertThat(timer.getStats().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testStagesAreAggregatedByTags() {
+    issueToken("client");
+    issueToken("client");
+
+    StageStats userinfo = stats(TokenIssuanceStage.USER_INFO, "password", "client", "wlcg");
+    assertThat(userinfo, notNullValue());
+    assertThat(userinfo.getCount(), is(2L));
+
+    assertThat(stats(TokenIssuanceStage.SIGNING, "password", "client", "wlcg").getCount(), is(2L));
+    assertThat(stats(TokenIssuanceStage.TOTAL, "password", "client", "wlcg").getCount(), is(2L));
+    assertThat(stats(TokenIssuanceStage.ID_TOKEN, "password", "client", "wlcg"), nullValue());
+  }
+
+  @Test
+  public void testUntaggedTraceIsRecordedAsUnknown() {
+    timer.begin();
+    timer.end();
+
+    assertThat(stats(TokenIssuanceStage.TOTAL, TokenIssuanceTimer.UNKNOWN,
+        TokenIssuanceTimer.UNKNOWN, TokenIssuanceTimer.UNKNOWN).getCount(), is(1L));
+  }
+
+  @Test
+  public void testTrackedClientsAreBounded() {
+    properties.setMaxTrackedClients(1);
+
+    issueToken("first");
+    issueToken("second");
+
+    assertThat(stats(TokenIssuanceStage.TOTAL, "password", "first", "wlcg").getCount(), is(1L));
+    assertThat(stats(TokenIssuanceStage.TOTAL, "password", TokenIssuanceTimer.OTHER_CLIENTS,
+        "wlcg").getCount(), is(1L));
+  }
+
+  @Test
+  public void testDisabledTimerDoesNotTrace() {
+    properties.setEnabled(false);
+
+    issueToken("client");
+
+    assertThat(timer.getStats().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSlowRequestsAreCounted() {
+    properties.setSlowRequestThresholdMsec(0);
+
+    issueToken("client");
+
+    assertThat(timer.getSlowRequests(), is(1L));
+
+    List<String> names =
+        timer.metrics().stream().map(Metric::getName).collect(Collectors.toList());
+
+    assertThat(names, hasItem("iam.token-issuance.signing.password.wlcg.count"));
+    assertThat(names, hasItem("iam.token-issuance.slow-requests"));
+  }
+}
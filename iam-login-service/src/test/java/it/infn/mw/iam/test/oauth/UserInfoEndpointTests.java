@@ -16,18 +16,23 @@
 package it.infn.mw.iam.test.oauth;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Date;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -37,6 +42,8 @@ import org.springframework.web.context.WebApplicationContext;
 
 import it.infn.mw.iam.IamLoginService;
 import it.infn.mw.iam.authn.ExternalAuthenticationRegistrationInfo.ExternalAuthenticationType;
+import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
 import it.infn.mw.iam.test.core.CoreControllerTestSupport;
 import it.infn.mw.iam.test.util.WithMockOAuthUser;
 import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
@@ -55,6 +62,9 @@ public class UserInfoEndpointTests {
   @Autowired
   private MockOAuth2Filter mockOAuth2Filter;
 
+  @Autowired
+  private IamAccountRepository accountRepo;
+
 
   @Before
   public void setup() throws Exception {
@@ -121,4 +131,47 @@ public class UserInfoEndpointTests {
       .andExpect(status().isOk())
       .andExpect(jsonPath("$.updated_at").isNumber());
   }
+
+  @Test
+  @WithMockOAuthUser(clientId = "password-grant", user = "test", authorities = {"ROLE_USER"},
+      scopes = {"openid", "profile"})
+  public void userinfoEndpointSupportsConditionalRequests() throws Exception {
+
+    String etag = mvc.perform(get("/userinfo"))
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, notNullValue()))
+      .andReturn()
+      .getResponse()
+      .getHeader(HttpHeaders.ETAG);
+
+    mvc.perform(get("/userinfo").header(HttpHeaders.IF_NONE_MATCH, etag))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+    mvc.perform(get("/userinfo").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.organisation_name", is("indigo-dc")));
+  }
+
+  @Test
+  @WithMockOAuthUser(clientId = "password-grant", user = "test", authorities = {"ROLE_USER"},
+      scopes = {"openid", "profile"})
+  public void userinfoCacheIsInvalidatedOnAccountUpdate() throws Exception {
+
+    String etag = mvc.perform(get("/userinfo"))
+      .andExpect(status().isOk())
+      .andReturn()
+      .getResponse()
+      .getHeader(HttpHeaders.ETAG);
+
+    IamAccount account = accountRepo.findByUsername("test")
+      .orElseThrow(() -> new AssertionError("Expected test account not found"));
+    account.getUserInfo().setGivenName("Updated");
+    account.setLastUpdateTime(new Date(account.getLastUpdateTime().getTime() + 1000));
+    accountRepo.save(account);
+
+    mvc.perform(get("/userinfo").header(HttpHeaders.IF_NONE_MATCH, etag))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.given_name", is("Updated")));
+  }
 }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.password;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+import it.infn.mw.iam.config.password.PasswordHashingProperties;
+import it.infn.mw.iam.core.oauth.IamWebResponseExceptionTranslator;
+import it.infn.mw.iam.core.password.BoundedPasswordEncoder;
+import it.infn.mw.iam.core.password.PasswordAuthenticationAdmissionControl;
+import it.infn.mw.iam.core.password.PasswordHashingUnavailableException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PasswordHashingTests {
+
+  @Mock
+  PasswordEncoder delegate;
+
+  PasswordHashingProperties properties = new PasswordHashingProperties();
+
+  BoundedPasswordEncoder encoder;
+
+  @Before
+  public void setup() {
+    properties.setThreads(1);
+    properties.setQueueSize(1);
+    properties.setRetryAfterSecs(7);
+    properties.setMaxConcurrentPerUsername(2);
+    properties.setMaxConcurrentPerAddress(3);
+
+    encoder = new BoundedPasswordEncoder(delegate, properties);
+  }
+
+  @After
+  public void teardown() {
+    encoder.destroy();
+  }
+
+  private long metricValue(String name) {
+    for (Metric<?> m : encoder.metrics()) {
+      if (m.getName().equals(BoundedPasswordEncoder.METRIC_PREFIX + name)) {
+        return m.getValue().longValue();
+      }
+    }
+    throw new AssertionError("Metric not found: " + name);
+  }
+
+  @Test
+  public void testEncodingIsDelegated() {
+    when(delegate.encode("password")).thenReturn("encoded");
+    when(delegate.matches("password", "encoded")).thenReturn(true);
+
+    assertThat(encoder.encode("password"), equalTo("encoded"));
+    assertThat(encoder.matches("password", "encoded"), is(true));
+  }
+
+  @Test
+  public void testNoLocalPasswordNeverMatches() {
+    assertThat(encoder.matches("password", BoundedPasswordEncoder.NO_LOCAL_PASSWORD), is(false));
+    assertThat(encoder.matches("password", null), is(false));
+    verify(delegate, never()).matches(anyObject(), anyString());
+  }
+
+  @Test
+  public void testSaturatedExecutorFailsFast() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    when(delegate.encode("password")).thenAnswer(invocation -> {
+      started.countDown();
+      release.await(10, TimeUnit.SECONDS);
+      return "encoded";
+    });
+
+    Thread running = new Thread(() -> encoder.encode("password"));
+    Thread queued = new Thread(() -> encoder.encode("password"));
+
+    running.start();
+    assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+
+    queued.start();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (metricValue("queued") < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    try {
+      encoder.encode("password");
+      fail("Expected password hashing to be rejected");
+    } catch (PasswordHashingUnavailableException e) {
+      assertThat(e.getRetryAfterSecs(), equalTo(7));
+    } finally {
+      release.countDown();
+      running.join();
+      queued.join();
+    }
+
+    assertThat(metricValue("rejected"), equalTo(1L));
+  }
+
+  @Test
+  public void testAdmissionControl() {
+    PasswordAuthenticationAdmissionControl admissionControl =
+        new PasswordAuthenticationAdmissionControl(properties);
+
+    List<String> p1 = admissionControl.admit("test", "192.168.1.1");
+    List<String> p2 = admissionControl.admit("test", "192.168.1.1");
+    assertThat(p1, hasSize(2));
+
+    try {
+      admissionControl.admit("test", "192.168.1.2");
+      fail("Expected authentication to be rejected");
+    } catch (PasswordHashingUnavailableException e) {
+      assertThat(e.getRetryAfterSecs(), equalTo(7));
+    }
+
+    List<String> p3 = admissionControl.admit("admin", "192.168.1.1");
+
+    try {
+      admissionControl.admit("other", "192.168.1.1");
+      fail("Expected authentication to be rejected");
+    } catch (PasswordHashingUnavailableException e) {
+      // The username permit acquired before the address check failed has been released
+      assertThat(admissionControl.getInFlightCount(
+          PasswordAuthenticationAdmissionControl.USERNAME_KEY_PREFIX + "other"), equalTo(0));
+    }
+
+    admissionControl.release(p1);
+    admissionControl.release(p2);
+    admissionControl.release(p3);
+
+    assertThat(admissionControl.getInFlightCount(
+        PasswordAuthenticationAdmissionControl.ADDRESS_KEY_PREFIX + "192.168.1.1"), equalTo(0));
+    assertThat(admissionControl.admit("test", null), hasSize(1));
+  }
+
+  @Test
+  public void testAddressLimitIsDisabledByDefault() {
+    PasswordHashingProperties defaults = new PasswordHashingProperties();
+    assertThat(defaults.getMaxConcurrentPerAddress(), equalTo(0));
+
+    PasswordAuthenticationAdmissionControl admissionControl =
+        new PasswordAuthenticationAdmissionControl(defaults);
+
+    // Only the username permit is acquired
+    for (int i = 0; i < 10; i++) {
+      assertThat(admissionControl.admit("user" + i, "192.168.1.1"), hasSize(1));
+    }
+
+    assertThat(admissionControl.getInFlightCount(
+        PasswordAuthenticationAdmissionControl.ADDRESS_KEY_PREFIX + "192.168.1.1"), equalTo(0));
+  }
+
+  @Test
+  public void testTokenEndpointErrorTranslation() throws Exception {
+    IamWebResponseExceptionTranslator translator = new IamWebResponseExceptionTranslator();
+
+    ResponseEntity<OAuth2Exception> response =
+        translator.translate(new InternalAuthenticationServiceException("error",
+            new PasswordHashingUnavailableException("unavailable", 7)));
+
+    assertThat(response.getStatusCode(), equalTo(HttpStatus.SERVICE_UNAVAILABLE));
+    assertThat(response.getHeaders().getFirst("Retry-After"), equalTo("7"));
+    assertThat(response.getBody().getOAuth2ErrorCode(),
+        equalTo(IamWebResponseExceptionTranslator.TEMPORARILY_UNAVAILABLE));
+  }
+}
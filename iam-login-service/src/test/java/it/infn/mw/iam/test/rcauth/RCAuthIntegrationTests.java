@@ -32,6 +32,7 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
@@ -56,6 +57,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
@@ -83,7 +86,8 @@ import it.infn.mw.iam.test.util.oidc.TokenResponse;
 @TestPropertySource(
     properties = {"rcauth.enabled=true", "rcauth.client-id=" + RCAuthTestSupport.CLIENT_ID,
         "rcauth.client-secret=" + RCAuthTestSupport.CLIENT_SECRET,
-        "rcauth.issuer=" + RCAuthTestSupport.ISSUER})
+        "rcauth.issuer=" + RCAuthTestSupport.ISSUER,
+        "outbound-http.async-requests-enabled=false"})
 public class RCAuthIntegrationTests extends RCAuthTestSupport {
 
   @Bean
@@ -115,6 +119,13 @@ public class RCAuthIntegrationTests extends RCAuthTestSupport {
     mockRtf.resetTemplate();
   }
 
+  private ResultActions performCallback(MockHttpServletRequestBuilder requestBuilder)
+      throws Exception {
+    MvcResult result =
+        mvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+    return mvc.perform(asyncDispatch(result));
+  }
+
   @Test
   @WithAnonymousUser
   public void rcAuthRequiresAuthenticatedUser() throws Exception {
@@ -142,19 +153,19 @@ public class RCAuthIntegrationTests extends RCAuthTestSupport {
   @WithMockUser(username = "test")
   public void rcAuthAuthorizationResponseValidation() throws Exception {
 
-    mvc.perform(get(CALLBACK_PATH).with(csrf().asHeader()))
+    performCallback(get(CALLBACK_PATH).with(csrf().asHeader()))
       .andExpect(status().isFound())
       .andExpect(redirectedUrl("/dashboard"))
       .andExpect(flash().attribute(ACCOUNT_LINKING_DASHBOARD_ERROR_KEY,
           startsWith("Invalid RCAuth authorization response")));
 
-    mvc.perform(get(CALLBACK_PATH).param("code", "a-code").with(csrf().asHeader()))
+    performCallback(get(CALLBACK_PATH).param("code", "a-code").with(csrf().asHeader()))
       .andExpect(status().isFound())
       .andExpect(redirectedUrl("/dashboard"))
       .andExpect(flash().attribute(ACCOUNT_LINKING_DASHBOARD_ERROR_KEY,
           startsWith("Invalid RCAuth authorization response")));
 
-    mvc.perform(get(CALLBACK_PATH).param("state", "a-state").with(csrf().asHeader()))
+    performCallback(get(CALLBACK_PATH).param("state", "a-state").with(csrf().asHeader()))
       .andExpect(status().isFound())
       .andExpect(redirectedUrl("/dashboard"))
       .andExpect(flash().attribute(ACCOUNT_LINKING_DASHBOARD_ERROR_KEY,
@@ -165,8 +176,7 @@ public class RCAuthIntegrationTests extends RCAuthTestSupport {
   @WithMockUser(username = "test")
   public void rcAuthAuthorizationResponseInvalidContext() throws Exception {
 
-    mvc
-      .perform(get(CALLBACK_PATH).param("code", "a-code")
+    performCallback(get(CALLBACK_PATH).param("code", "a-code")
         .param("state", "a-state")
         .with(csrf().asHeader()))
       .andExpect(status().isFound())
@@ -192,8 +202,7 @@ public class RCAuthIntegrationTests extends RCAuthTestSupport {
     prepareTokenResponse(NONCE);
     prepareCertificateResponse();
     
-    mvc
-      .perform(get(CALLBACK_PATH).session(session)
+    performCallback(get(CALLBACK_PATH).session(session)
         .param("code", CODE_VALUE)
         .param("state", context.getState())
         .with(csrf().asHeader()))
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.registration;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
+
+import it.infn.mw.iam.config.registration.RegistrationAvailabilityProperties;
+import it.infn.mw.iam.core.cache.CacheInvalidationBus;
+import it.infn.mw.iam.core.cache.CacheInvalidationListener;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.repository.IamAccountRepository;
+import it.infn.mw.iam.registration.availability.AccountAvailabilityIndex;
+import it.infn.mw.iam.registration.availability.AvailabilityCheckRateLimitedError;
+import it.infn.mw.iam.registration.availability.AvailabilityCheckRateLimiter;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccountAvailabilityIndexTests {
+
+  @Mock
+  IamAccountRepository repo;
+
+  @Mock
+  CacheInvalidationBus invalidationBus;
+
+  RegistrationAvailabilityProperties properties = new RegistrationAvailabilityProperties();
+
+  AccountAvailabilityIndex index;
+
+  private AccountSummary account(long id, String username, String email) {
+    return new AccountSummary(id, "uuid-" + id, username, email, "Test", "User", new Date());
+  }
+
+  @Before
+  public void setup() {
+    properties.setIndexEnabled(true);
+    properties.setExpectedAccounts(1000);
+
+    when(repo.count()).thenReturn(2L);
+    when(repo.findSummariesWithIdGreaterThan(eq(0L), any(Pageable.class)))
+      .thenReturn(asList(account(1, "admin", "admin@example.org"), account(2, "Test", null)));
+    when(repo.findSummariesWithIdGreaterThan(eq(2L), any(Pageable.class)))
+      .thenReturn(emptyList());
+
+    index = new AccountAvailabilityIndex(properties, repo, invalidationBus);
+  }
+
+  @Test
+  public void testIndexNotReadyAnswersMaybe() {
+    assertThat(index.isReady(), is(false));
+    assertThat(index.mightContainUsername("unknown"), is(true));
+    assertThat(index.mightContainEmail("unknown@example.org"), is(true));
+  }
+
+  @Test
+  public void testIndexLookupsAreCaseInsensitive() {
+    index.rebuild();
+
+    assertThat(index.isReady(), is(true));
+    assertThat(index.mightContainUsername("ADMIN"), is(true));
+    assertThat(index.mightContainUsername("test"), is(true));
+    assertThat(index.mightContainEmail("Admin@Example.org"), is(true));
+    assertThat(index.mightContainUsername("unknown"), is(false));
+    assertThat(index.mightContainEmail("unknown@example.org"), is(false));
+  }
+
+  @Test
+  public void testCatchUpIndexesNewAccounts() {
+    index.rebuild();
+    assertThat(index.mightContainUsername("newuser"), is(false));
+
+    when(repo.findSummariesWithIdGreaterThan(eq(2L), any(Pageable.class)))
+      .thenReturn(asList(account(3, "newuser", "newuser@example.org")));
+    when(repo.findSummariesWithIdGreaterThan(eq(3L), any(Pageable.class)))
+      .thenReturn(emptyList());
+
+    index.catchUp();
+    assertThat(index.mightContainUsername("newuser"), is(true));
+    assertThat(index.mightContainEmail("newuser@example.org"), is(true));
+  }
+
+  @Test
+  public void testAccountChangesFromOtherInstancesAreIndexed() {
+    ArgumentCaptor<CacheInvalidationListener> listener =
+        ArgumentCaptor.forClass(CacheInvalidationListener.class);
+    verify(invalidationBus).addListener(eq(CacheInvalidationBus.ACCOUNT_REGION),
+        listener.capture());
+
+    index.rebuild();
+    assertThat(index.mightContainUsername("renamed"), is(false));
+
+    // Account 2 has been renamed by another instance
+    when(repo.findSummaryById(2L))
+      .thenReturn(Optional.of(account(2, "renamed", "renamed@example.org")));
+
+    listener.getValue().invalidate("2");
+    assertThat(index.mightContainUsername("renamed"), is(true));
+    assertThat(index.mightContainEmail("renamed@example.org"), is(true));
+
+    // Account 3 has been created by another instance
+    when(repo.findSummariesWithIdGreaterThan(eq(2L), any(Pageable.class)))
+      .thenReturn(asList(account(3, "newuser", "newuser@example.org")));
+    when(repo.findSummariesWithIdGreaterThan(eq(3L), any(Pageable.class)))
+      .thenReturn(emptyList());
+
+    listener.getValue().invalidateAll();
+    assertThat(index.mightContainUsername("newuser"), is(true));
+  }
+
+  @Test
+  public void testRateLimiter() {
+    properties.setRateLimitEnabled(true);
+    properties.setRateLimitRequests(2);
+    AvailabilityCheckRateLimiter limiter = new AvailabilityCheckRateLimiter(properties);
+
+    limiter.checkAllowed("192.168.0.1");
+    limiter.checkAllowed("192.168.0.1");
+    limiter.checkAllowed("192.168.0.2");
+
+    try {
+      limiter.checkAllowed("192.168.0.1");
+    } catch (AvailabilityCheckRateLimitedError e) {
+      assertThat(e.getRetryAfterSecs(), is(properties.getRateLimitWindowSecs()));
+      return;
+    }
+
+    throw new AssertionError("Expected rate limit error");
+  }
+
+  @Test
+  public void testRateLimiterIsDisabledByDefault() {
+    properties.setRateLimitRequests(1);
+    AvailabilityCheckRateLimiter limiter = new AvailabilityCheckRateLimiter(properties);
+
+    limiter.checkAllowed("192.168.0.1");
+    limiter.checkAllowed("192.168.0.1");
+  }
+}
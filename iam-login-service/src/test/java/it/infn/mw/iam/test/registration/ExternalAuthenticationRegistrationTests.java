@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.registration;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static it.infn.mw.iam.test.ext_authn.saml.SamlAuthenticationTestSupport.DEFAULT_IDP_ID;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.Matchers.equalTo;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +56,7 @@ import it.infn.mw.iam.test.util.WithMockSAMLUser;
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(classes = IamLoginService.class)
 @WebAppConfiguration
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class ExternalAuthenticationRegistrationTests {
 
   @Autowired
@@ -89,8 +92,8 @@ public class ExternalAuthenticationRegistrationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    byte[] requestBytes = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
+    byte[] requestBytes = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
         .content(objectMapper.writeValueAsBytes(request)))
       .andExpect(status().isOk())
       .andReturn()
@@ -134,8 +137,8 @@ public class ExternalAuthenticationRegistrationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    byte[] requestBytes = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
+    byte[] requestBytes = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
         .content(objectMapper.writeValueAsBytes(request)))
       .andExpect(status().isOk())
       .andReturn()
@@ -16,6 +16,7 @@
 package it.infn.mw.iam.test.registration;
 
 import static it.infn.mw.iam.authn.ExternalAuthenticationHandlerSupport.EXT_AUTH_ERROR_KEY;
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static it.infn.mw.iam.test.ext_authn.oidc.OidcTestConfig.TEST_OIDC_CLIENT_ID;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
@@ -41,6 +42,7 @@ import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -65,6 +67,7 @@ import it.infn.mw.iam.test.util.oidc.MockOIDCProvider;
     FullyMockedOidcClientConfiguration.class})
 @WebAppConfiguration
 @Transactional
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class OidcExtAuthRegistrationTests {
 
   @Autowired
@@ -114,8 +117,8 @@ public class OidcExtAuthRegistrationTests {
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    byte[] requestBytes = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
+    byte[] requestBytes = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
         .content(objectMapper.writeValueAsBytes(request)))
       .andExpect(status().isOk())
       .andReturn()
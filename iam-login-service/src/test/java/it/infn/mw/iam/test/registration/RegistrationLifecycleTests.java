@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.registration;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static java.util.Date.from;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -65,7 +66,8 @@ import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
 @Transactional
 @TestPropertySource(properties = {
     // @formatter:off
-    "lifecycle.account.accountLifetimeDays=7"
+    "lifecycle.account.accountLifetimeDays=7",
+    "outbound-http.async-requests-enabled=false"
     // @formatter:on
 })
 public class RegistrationLifecycleTests extends EndpointsTestUtils {
@@ -121,8 +123,8 @@ public class RegistrationLifecycleTests extends EndpointsTestUtils {
     request.setPassword("password");
 
     // @formatter:off
-    String response = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String response = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(request)))
       .andExpect(status().isOk())
       .andReturn()
@@ -20,6 +20,7 @@ import static it.infn.mw.iam.core.IamRegistrationRequestStatus.APPROVED;
 import static it.infn.mw.iam.core.IamRegistrationRequestStatus.CONFIRMED;
 import static it.infn.mw.iam.core.IamRegistrationRequestStatus.NEW;
 import static it.infn.mw.iam.core.IamRegistrationRequestStatus.REJECTED;
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
@@ -42,6 +43,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -66,6 +68,7 @@ import it.infn.mw.iam.test.util.oauth.MockOAuth2Filter;
 @SpringApplicationConfiguration(classes = {IamLoginService.class, CoreControllerTestSupport.class})
 @WebAppConfiguration
 @Transactional
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class RegistrationPrivilegedTests {
 
   @Autowired
@@ -104,8 +107,8 @@ public class RegistrationPrivilegedTests {
     request.setPassword("password");
 
     // @formatter:off
-    String response = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String response = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(request)))
       .andExpect(status().isOk())
       .andReturn()
@@ -17,6 +17,7 @@ package it.infn.mw.iam.test.registration;
 
 import static it.infn.mw.iam.core.IamRegistrationRequestStatus.APPROVED;
 import static it.infn.mw.iam.core.IamRegistrationRequestStatus.CONFIRMED;
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -38,6 +39,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -63,6 +65,7 @@ import it.infn.mw.iam.test.util.WithAnonymousUser;
 @WebAppConfiguration
 @WithAnonymousUser
 @Transactional
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class RegistrationUnprivilegedTests extends AupTestSupport {
 
   @Autowired
@@ -211,7 +214,7 @@ public class RegistrationUnprivilegedTests extends AupTestSupport {
     request.setPassword("password");
 
     // @formatter:off
-    mvc.perform(post("/registration/create")
+    performAsync(mvc, post("/registration/create")
         .contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(request)))
       .andExpect(status().isBadRequest());
@@ -233,7 +236,7 @@ public class RegistrationUnprivilegedTests extends AupTestSupport {
     request.setNotes(" ");
 
     // @formatter:off
-    mvc.perform(post("/registration/create")
+    performAsync(mvc, post("/registration/create")
         .contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(request)))
       .andExpect(status().isBadRequest());
@@ -267,8 +270,8 @@ public class RegistrationUnprivilegedTests extends AupTestSupport {
     request.setPassword("password");
 
     // @formatter:off
-    String response = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String response = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(request)))
       .andExpect(status().isOk())
       .andReturn()
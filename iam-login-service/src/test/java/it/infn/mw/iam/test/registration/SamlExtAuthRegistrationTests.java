@@ -16,6 +16,7 @@
 package it.infn.mw.iam.test.registration;
 
 import static it.infn.mw.iam.authn.ExternalAuthenticationHandlerSupport.EXT_AUTH_ERROR_KEY;
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.startsWith;
@@ -37,6 +38,7 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.authentication.DisabledException;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
@@ -56,6 +58,7 @@ import it.infn.mw.iam.test.util.saml.SamlUtils;
 @SpringApplicationConfiguration(classes = {IamLoginService.class, SamlTestConfig.class})
 @WebAppConfiguration
 @Transactional
+@TestPropertySource(properties = {"outbound-http.async-requests-enabled=false"})
 public class SamlExtAuthRegistrationTests extends SamlAuthenticationTestSupport {
 
   @Autowired
@@ -78,8 +81,8 @@ public class SamlExtAuthRegistrationTests extends SamlAuthenticationTestSupport
     request.setUsername(username);
     request.setNotes("Some short notes...");
 
-    byte[] requestBytes = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
+    byte[] requestBytes = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON_UTF8)
         .content(objectMapper.writeValueAsBytes(request)))
       .andExpect(status().isOk())
       .andReturn()
@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.test.registration.cern;
 
+import static it.infn.mw.iam.test.RegistrationUtils.performAsync;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.containsString;
@@ -63,6 +64,7 @@ import it.infn.mw.iam.api.registration.cern.CernHrDbApiError;
 import it.infn.mw.iam.api.registration.cern.dto.InstituteDTO;
 import it.infn.mw.iam.api.registration.cern.dto.ParticipationDTO;
 import it.infn.mw.iam.api.registration.cern.dto.VOPersonDTO;
+import it.infn.mw.iam.core.http.ExternalCallTimeoutException;
 import it.infn.mw.iam.persistence.model.IamAccount;
 import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.repository.IamAccountRepository;
@@ -78,7 +80,8 @@ import it.infn.mw.iam.test.util.WithMockOIDCUser;
 @WebAppConfiguration
 @Transactional
 @ActiveProfiles({"h2-test", "cern"})
-@TestPropertySource(properties = {"cern.task.enabled=false"})
+@TestPropertySource(properties = {"cern.task.enabled=false",
+    "outbound-http.async-requests-enabled=false"})
 public class CernRegistrationValidationServiceTests {
 
   @Configuration
@@ -159,8 +162,7 @@ public class CernRegistrationValidationServiceTests {
   @WithAnonymousUser
   public void testAuthenticationIsRequired() throws Exception {
 
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isBadRequest())
       .andExpect(jsonPath("error").value("User is not authenticated"));
@@ -171,8 +173,7 @@ public class CernRegistrationValidationServiceTests {
   @WithMockOIDCUser
   public void testCernSSOAuthIsRequired() throws Exception {
 
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isBadRequest())
       .andExpect(jsonPath("error", containsString("not authenticated by CERN SSO issuer")));
@@ -183,8 +184,7 @@ public class CernRegistrationValidationServiceTests {
   @WithMockOIDCUser(issuer = "https://auth.cern.ch/auth/realms/cern")
   public void testPersonIdIsRequired() throws Exception {
 
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isBadRequest())
       .andExpect(jsonPath("error", containsString("person id claim")));
@@ -198,22 +198,33 @@ public class CernRegistrationValidationServiceTests {
     when(hrDbApi.hasValidExperimentParticipation(anyString()))
       .thenThrow(new CernHrDbApiError("error"));
 
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isBadRequest())
       .andExpect(jsonPath("error", containsString("HR Db API error")));
 
   }
 
+  @Test
+  @WithMockOIDCUser(issuer = "https://auth.cern.ch/auth/realms/cern",
+      claims = {"cern_person_id", "988211"})
+  public void testHrDbApiUnavailabilityIsReported() throws Exception {
+    when(hrDbApi.hasValidExperimentParticipation(anyString()))
+      .thenThrow(new ExternalCallTimeoutException("timeout"));
+
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(createDto("test_reg"))))
+      .andExpect(status().isServiceUnavailable())
+      .andExpect(jsonPath("error", containsString("temporarily unavailable")));
+  }
+
   @Test
   @WithMockOIDCUser(issuer = "https://auth.cern.ch/auth/realms/cern", givenName = "Test",
       familyName = "User", claims = {"cern_person_id", "988211"})
   public void testInvalidRequestIsReported() throws Exception {
     when(hrDbApi.hasValidExperimentParticipation(anyString())).thenReturn(false);
 
-    mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    performAsync(mvc, post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isBadRequest())
       .andExpect(jsonPath("error", containsString("No valid experiment participation found")));
@@ -226,8 +237,8 @@ public class CernRegistrationValidationServiceTests {
     when(hrDbApi.hasValidExperimentParticipation(anyString())).thenReturn(true);
     when(hrDbApi.getHrDbPersonRecord(anyString())).thenReturn(mockVoPerson());
 
-    String response = mvc
-      .perform(post("/registration/create").contentType(MediaType.APPLICATION_JSON)
+    String response = performAsync(mvc,
+        post("/registration/create").contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(createDto("test_reg"))))
       .andExpect(status().isOk())
       .andReturn()
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.repository;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mitre.oauth2.model.ClientDetailsEntity;
+import org.mitre.oauth2.model.OAuth2AccessTokenEntity;
+import org.mitre.oauth2.service.ClientDetailsEntityService;
+import org.mitre.oauth2.service.impl.DefaultOAuth2ProviderTokenService;
+import org.mitre.openid.connect.model.ApprovedSite;
+import org.mitre.openid.connect.service.ApprovedSiteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Sets;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.persistence.repository.IamOAuthAccessTokenRepository;
+import it.infn.mw.iam.persistence.repository.IamOAuthRefreshTokenRepository;
+import it.infn.mw.iam.persistence.repository.IamTokenCleanupRepository;
+import it.infn.mw.iam.test.util.oauth.MockOAuth2Request;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {IamLoginService.class})
+@Transactional
+public class IamTokenCleanupRepositoryTests {
+
+  public static final String TEST_USER = "test_347";
+  public static final String TEST_CLIENT_ID = "token-lookup-client";
+  public static final String[] SCOPES = {"openid", "profile", "offline_access"};
+
+  public static final String[] ORPHAN_QUERIES = {
+      "select count(*) from token_scope s where not exists "
+          + "(select 1 from access_token t where t.id = s.owner_id)",
+      "select count(*) from access_token_permissions p where not exists "
+          + "(select 1 from access_token t where t.id = p.access_token_id)",
+      "select count(*) from access_token t where t.refresh_token_id is not null and not exists "
+          + "(select 1 from refresh_token r where r.id = t.refresh_token_id)",
+      "select count(*) from access_token t where t.approved_site_id is not null and not exists "
+          + "(select 1 from approved_site a where a.id = t.approved_site_id)",
+      "select count(*) from access_token t where not exists "
+          + "(select 1 from authentication_holder h where h.id = t.auth_holder_id)",
+      "select count(*) from refresh_token t where not exists "
+          + "(select 1 from authentication_holder h where h.id = t.auth_holder_id)",
+      "select count(*) from approved_site_scope s where not exists "
+          + "(select 1 from approved_site a where a.id = s.owner_id)",
+      "select count(*) from authentication_holder_authority x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder_resource_id x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder_response_type x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder_extension x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder_scope x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder_request_parameter x where not exists "
+          + "(select 1 from authentication_holder h where h.id = x.owner_id)",
+      "select count(*) from authentication_holder h where h.user_auth_id is not null "
+          + "and not exists (select 1 from saved_user_auth s where s.id = h.user_auth_id)",
+      "select count(*) from saved_user_auth_authority x where not exists "
+          + "(select 1 from saved_user_auth s where s.id = x.owner_id)",
+      "select count(*) from saved_user_auth_info x where not exists "
+          + "(select 1 from saved_user_auth s where s.id = x.owner_id)"};
+
+  @Autowired
+  IamTokenCleanupRepository cleanupRepo;
+
+  @Autowired
+  IamOAuthAccessTokenRepository accessTokenRepo;
+
+  @Autowired
+  IamOAuthRefreshTokenRepository refreshTokenRepo;
+
+  @Autowired
+  ClientDetailsEntityService clientDetailsService;
+
+  @Autowired
+  DefaultOAuth2ProviderTokenService tokenService;
+
+  @Autowired
+  ApprovedSiteService approvedSiteService;
+
+  @Autowired
+  EntityManager em;
+
+  private OAuth2AccessTokenEntity buildAccessToken() {
+    ClientDetailsEntity client = clientDetailsService.loadClientByClientId(TEST_CLIENT_ID);
+    MockOAuth2Request req = new MockOAuth2Request(client.getClientId(), SCOPES);
+
+    return tokenService.createAccessToken(
+        new OAuth2Authentication(req, new UsernamePasswordAuthenticationToken(TEST_USER, "")));
+  }
+
+  private void assertNoOrphans() {
+    em.flush();
+
+    for (String q : ORPHAN_QUERIES) {
+      long count = ((Number) em.createNativeQuery(q).getSingleResult()).longValue();
+      assertThat(q, count, equalTo(0L));
+    }
+  }
+
+  @Test
+  public void testExpiredTokensAndOrphansAreDeletedWithDependentRows() {
+    final Date now = new Date();
+    final Date yesterday = DateUtils.addDays(now, -1);
+
+    OAuth2AccessTokenEntity expiredAccessToken = buildAccessToken();
+    expiredAccessToken.setExpiration(yesterday);
+    tokenService.saveAccessToken(expiredAccessToken);
+
+    OAuth2AccessTokenEntity expiredTokens = buildAccessToken();
+    expiredTokens.setExpiration(yesterday);
+    expiredTokens.getRefreshToken().setExpiration(yesterday);
+    tokenService.saveAccessToken(expiredTokens);
+    tokenService.saveRefreshToken(expiredTokens.getRefreshToken());
+
+    OAuth2AccessTokenEntity validToken = buildAccessToken();
+
+    final Long validRefreshTokenId = expiredAccessToken.getRefreshToken().getId();
+    final Long expiredRefreshTokenId = expiredTokens.getRefreshToken().getId();
+    final Long expiredHolderId = expiredTokens.getAuthenticationHolder().getId();
+
+    assertNoOrphans();
+
+    assertThat(cleanupRepo.deleteExpiredAccessTokens(now, 100),
+        containsInAnyOrder(expiredAccessToken.getId(), expiredTokens.getId()));
+    assertNoOrphans();
+
+    assertThat(cleanupRepo.deleteExpiredRefreshTokens(now, 100), contains(expiredRefreshTokenId));
+    assertNoOrphans();
+
+    assertThat(cleanupRepo.deleteOrphanedAuthenticationHolders(0L, 100),
+        hasItem(expiredHolderId));
+    assertNoOrphans();
+
+    cleanupRepo.deleteOrphanedSavedUserAuthentications(0L, 100);
+    assertNoOrphans();
+
+    assertThat(accessTokenRepo.findOne(expiredAccessToken.getId()), nullValue());
+    assertThat(accessTokenRepo.findOne(expiredTokens.getId()), nullValue());
+    assertThat(refreshTokenRepo.findOne(expiredRefreshTokenId), nullValue());
+
+    OAuth2AccessTokenEntity token = accessTokenRepo.findOne(validToken.getId());
+    assertThat(token, notNullValue());
+    assertThat(token.getAuthenticationHolder().getUserAuth().getName(), equalTo(TEST_USER));
+    assertThat(refreshTokenRepo.findOne(validRefreshTokenId), notNullValue());
+  }
+
+  @Test
+  public void testExpiredApprovedSitesAreDeletedWithTheirTokens() {
+    final Date now = new Date();
+
+    ApprovedSite site = approvedSiteService.createApprovedSite(TEST_CLIENT_ID, TEST_USER,
+        DateUtils.addDays(now, -1), Sets.newHashSet("openid", "profile"));
+
+    OAuth2AccessTokenEntity siteToken = buildAccessToken();
+    siteToken.setApprovedSite(site);
+    tokenService.saveAccessToken(siteToken);
+
+    final Long siteRefreshTokenId = siteToken.getRefreshToken().getId();
+
+    OAuth2AccessTokenEntity otherToken = buildAccessToken();
+
+    assertNoOrphans();
+
+    assertThat(cleanupRepo.deleteExpiredApprovedSites(now, 100), contains(site.getId()));
+    assertNoOrphans();
+
+    assertThat(accessTokenRepo.findOne(siteToken.getId()), nullValue());
+    assertThat(refreshTokenRepo.findOne(siteRefreshTokenId), nullValue());
+    assertThat(accessTokenRepo.findOne(otherToken.getId()), notNullValue());
+
+    cleanupRepo.deleteOrphanedAuthenticationHolders(0L, 100);
+    cleanupRepo.deleteOrphanedSavedUserAuthentications(0L, 100);
+    assertNoOrphans();
+
+    assertThat(accessTokenRepo.findOne(otherToken.getId()).getAuthenticationHolder(),
+        notNullValue());
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.saml;
+
+import static it.infn.mw.iam.authn.saml.util.SessionSamlMessageStorageFactory.MAX_MESSAGES;
+import static it.infn.mw.iam.authn.saml.util.SessionSamlMessageStorageFactory.SESSION_ATTRIBUTE;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opensaml.DefaultBootstrap;
+import org.opensaml.saml2.core.AuthnRequest;
+import org.opensaml.saml2.core.impl.AuthnRequestBuilder;
+import org.opensaml.xml.ConfigurationException;
+import org.opensaml.xml.XMLObject;
+import org.opensaml.xml.parse.StaticBasicParserPool;
+import org.opensaml.xml.parse.XMLParserException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.saml.storage.SAMLMessageStorage;
+
+import it.infn.mw.iam.authn.saml.util.SessionSamlMessageStorageFactory;
+import it.infn.mw.iam.core.session.SessionAttributeCodec;
+
+public class SessionSamlMessageStorageTests {
+
+  public static final String ACS_URL = "https://iam.example/saml/SSO";
+
+  SessionSamlMessageStorageFactory factory;
+
+  SessionAttributeCodec codec = new SessionAttributeCodec(512, getClass().getClassLoader());
+
+  @BeforeClass
+  public static void bootstrap() throws ConfigurationException {
+    DefaultBootstrap.bootstrap();
+  }
+
+  @Before
+  public void setup() throws XMLParserException {
+    StaticBasicParserPool parserPool = new StaticBasicParserPool();
+    parserPool.initialize();
+    factory = new SessionSamlMessageStorageFactory(parserPool);
+  }
+
+  private AuthnRequest authnRequest(String id) {
+    AuthnRequest request = new AuthnRequestBuilder().buildObject();
+    request.setID(id);
+    request.setIssueInstant(new DateTime());
+    request.setAssertionConsumerServiceURL(ACS_URL);
+    return request;
+  }
+
+  private MockHttpServletRequest requestWithSession(MockHttpSession session) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(session);
+    return request;
+  }
+
+  @Test
+  public void testStoredMessagesSurviveSessionSerialization() throws Exception {
+    MockHttpSession session = new MockHttpSession();
+    factory.getMessageStorage(requestWithSession(session))
+      .storeMessage("request-1", authnRequest("request-1"));
+
+    // The session is written to and read back from the session store
+    MockHttpSession restoredSession = new MockHttpSession();
+    restoredSession.setAttribute(SESSION_ATTRIBUTE,
+        codec.decode(codec.encode(session.getAttribute(SESSION_ATTRIBUTE))));
+
+    XMLObject message = factory.getMessageStorage(requestWithSession(restoredSession))
+      .retrieveMessage("request-1");
+
+    assertThat(message, instanceOf(AuthnRequest.class));
+    assertThat(((AuthnRequest) message).getID(), equalTo("request-1"));
+    assertThat(((AuthnRequest) message).getAssertionConsumerServiceURL(), equalTo(ACS_URL));
+  }
+
+  @Test
+  public void testUnknownMessageIsNotFound() {
+    SAMLMessageStorage storage =
+        factory.getMessageStorage(requestWithSession(new MockHttpSession()));
+
+    assertThat(storage.retrieveMessage("unknown"), nullValue());
+
+    storage.storeMessage("request-1", authnRequest("request-1"));
+    assertThat(storage.retrieveMessage("unknown"), nullValue());
+  }
+
+  @Test
+  public void testOnlyMostRecentMessagesAreKept() {
+    SAMLMessageStorage storage =
+        factory.getMessageStorage(requestWithSession(new MockHttpSession()));
+
+    for (int i = 0; i <= MAX_MESSAGES; i++) {
+      storage.storeMessage("request-" + i, authnRequest("request-" + i));
+    }
+
+    assertThat(storage.getAllMessages(), hasSize(MAX_MESSAGES));
+    assertThat(storage.getAllMessages(), not(hasItem("request-0")));
+    assertThat(storage.retrieveMessage("request-0"), nullValue());
+    assertThat(storage.retrieveMessage("request-" + MAX_MESSAGES), instanceOf(AuthnRequest.class));
+  }
+}
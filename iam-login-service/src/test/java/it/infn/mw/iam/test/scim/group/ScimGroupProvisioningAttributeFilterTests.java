@@ -18,6 +18,8 @@ package it.infn.mw.iam.test.scim.group;
 import static it.infn.mw.iam.api.scim.model.ScimConstants.SCIM_CONTENT_TYPE;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -66,6 +68,9 @@ public class ScimGroupProvisioningAttributeFilterTests {
 
   private final static String GROUPS_URI = ScimUtils.getGroupsLocation();
 
+  private final static String PRODUCTION_GROUP_URI =
+      ScimUtils.getGroupLocation("c617d586-54e6-411d-8e38-64967798fa8a");
+
   @Before
   public void setup() {
     mvc = MockMvcBuilders.webAppContextSetup(context)
@@ -117,4 +122,40 @@ public class ScimGroupProvisioningAttributeFilterTests {
     //@formatter:on
   }
 
+  @Test
+  public void testExcludedMembersAttribute() throws Exception {
+    //@formatter:off
+    mvc.perform(get(PRODUCTION_GROUP_URI)
+        .contentType(SCIM_CONTENT_TYPE))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.members", hasSize(greaterThan(0))));
+
+    mvc.perform(get(PRODUCTION_GROUP_URI)
+        .contentType(SCIM_CONTENT_TYPE)
+        .param("excludedAttributes", "members"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.id", is(not(nullValue()))))
+      .andExpect(jsonPath("$.displayName", equalTo("Production")))
+      .andExpect(jsonPath("$.members").doesNotExist());
+    //@formatter:on
+  }
+
+  @Test
+  public void testMembersAreReturnedOnlyWhenRequested() throws Exception {
+    //@formatter:off
+    mvc.perform(get(PRODUCTION_GROUP_URI)
+        .contentType(SCIM_CONTENT_TYPE)
+        .param("attributes", "displayName"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.displayName", equalTo("Production")))
+      .andExpect(jsonPath("$.members").doesNotExist());
+
+    mvc.perform(get(PRODUCTION_GROUP_URI)
+        .contentType(SCIM_CONTENT_TYPE)
+        .param("attributes", "members"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.displayName").doesNotExist())
+      .andExpect(jsonPath("$.members[*].display", hasItem("Test User")));
+    //@formatter:on
+  }
 }
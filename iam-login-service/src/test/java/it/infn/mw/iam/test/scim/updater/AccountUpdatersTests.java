@@ -38,7 +38,6 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
 import it.infn.mw.iam.api.scim.exception.ScimResourceExistsException;
 import it.infn.mw.iam.api.scim.updater.Updater;
@@ -50,7 +49,6 @@ import it.infn.mw.iam.api.scim.updater.builders.Replacers;
 import it.infn.mw.iam.api.scim.updater.util.CollectionHelpers;
 import it.infn.mw.iam.authn.saml.util.Saml2Attribute;
 import it.infn.mw.iam.persistence.model.IamAccount;
-import it.infn.mw.iam.persistence.model.IamGroup;
 import it.infn.mw.iam.persistence.model.IamOidcId;
 import it.infn.mw.iam.persistence.model.IamSamlId;
 import it.infn.mw.iam.persistence.model.IamSshKey;
@@ -84,7 +82,6 @@ public class AccountUpdatersTests extends X509TestSupport {
 
   IamAccount account;
   IamAccount other;
-  IamGroup group;
 
   private IamAccount newAccount(String username) {
     IamAccount result = new IamAccount();
@@ -95,13 +92,6 @@ public class AccountUpdatersTests extends X509TestSupport {
     return result;
   }
 
-  private IamGroup newGroup(String name) {
-    IamGroup result = new IamGroup();
-    result.setUuid(UUID.randomUUID().toString());
-    result.setName(name);
-    return result;
-  }
-
   private Adders adder() {
     return AccountUpdaters.adders(repo, encoder, account);
   }
@@ -118,7 +108,6 @@ public class AccountUpdatersTests extends X509TestSupport {
   public void before() {
     account = newAccount("account");
     other = newAccount("other");
-    group = newGroup("group");
 
     Mockito.when(repo.findByOidcId(anyString(), anyString())).thenReturn(Optional.empty());
 
@@ -835,30 +824,6 @@ public class AccountUpdatersTests extends X509TestSupport {
 
   }
 
-  @Test
-  public void testGroupMembershipAdderWorks() {
-
-    Updater u = adder().group(Lists.newArrayList(group));
-
-    assertThat(u.update(), is(true));
-    assertThat(u.update(), is(false));
-
-    assertThat(account.getGroups(), hasSize(1));
-    assertThat(account.getGroups(), hasItems(group));
-  }
-
-  @Test
-  public void testGroupMembershipRemoverWorks() {
-
-    account.setGroups(Sets.newHashSet(group));
-    Updater u = removers().group(Lists.newArrayList(group));
-
-    assertThat(u.update(), is(true));
-    assertThat(u.update(), is(false));
-
-    assertThat(account.getGroups(), hasSize(0));
-  }
-
   @Test
   public void testPictureRemoverWorks() {
     account.getUserInfo().setPicture(OLD);
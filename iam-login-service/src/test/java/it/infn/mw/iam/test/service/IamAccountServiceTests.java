@@ -57,6 +57,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import com.google.common.collect.Sets;
 
 import it.infn.mw.iam.audit.events.account.AccountEndTimeUpdatedEvent;
+import it.infn.mw.iam.core.password.BoundedPasswordEncoder;
 import it.infn.mw.iam.core.time.TimeProvider;
 import it.infn.mw.iam.core.user.DefaultIamAccountService;
 import it.infn.mw.iam.core.user.exception.CredentialAlreadyBoundException;
@@ -282,6 +283,17 @@ public class IamAccountServiceTests extends IamAccountServiceTestSupport {
     assertThat(account.getPassword(), equalTo(PASSWORD));
   }
 
+  @Test
+  public void testNoPasswordIsEncodedIfNotProvided() {
+    IamAccount account = cloneAccount(CICCIO_ACCOUNT);
+
+    accountService.createAccount(account);
+    verify(accountRepo, Mockito.times(1)).save(account);
+    verify(passwordEncoder, Mockito.never()).encode(anyObject());
+
+    assertThat(account.getPassword(), equalTo(BoundedPasswordEncoder.NO_LOCAL_PASSWORD));
+  }
+
   @Test(expected = NullPointerException.class)
   public void testNullSamlIdIsNotAccepted() {
     IamAccount account = cloneAccount(CICCIO_ACCOUNT);
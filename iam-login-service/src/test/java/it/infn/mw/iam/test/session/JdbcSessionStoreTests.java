@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.session;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import it.infn.mw.iam.IamLoginService;
+import it.infn.mw.iam.core.session.JdbcHttpSession;
+import it.infn.mw.iam.core.session.JdbcSessionRepository;
+import it.infn.mw.iam.core.session.SessionAttributeCodec;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = IamLoginService.class)
+@WebAppConfiguration
+@TestPropertySource(properties = {"session-store.type=jdbc"})
+public class JdbcSessionStoreTests {
+
+  public static final String COOKIE_NAME = "IAMSESSION";
+
+  @Autowired
+  @Qualifier("jdbcSessionRepositoryFilter")
+  FilterRegistrationBean filterRegistration;
+
+  @Autowired
+  JdbcSessionRepository repository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  SessionAttributeCodec codec;
+
+  Filter filter;
+
+  @Before
+  public void setup() {
+    filter = filterRegistration.getFilter();
+  }
+
+  private MockHttpServletResponse perform(Cookie sessionCookie, FilterChain chain)
+      throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    if (sessionCookie != null) {
+      request.setCookies(sessionCookie);
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, chain);
+    return response;
+  }
+
+  private Cookie createSessionWithAttribute(String name, String value) throws Exception {
+    MockHttpServletResponse response = perform(null,
+        (req, res) -> ((HttpServletRequest) req).getSession().setAttribute(name, value));
+
+    Cookie cookie = response.getCookie(COOKIE_NAME);
+    assertThat(cookie, notNullValue());
+    assertThat(cookie.isHttpOnly(), is(true));
+    return cookie;
+  }
+
+  @Test
+  public void testSessionAttributesAreStored() throws Exception {
+    Cookie cookie = createSessionWithAttribute("test", "value");
+
+    AtomicReference<Object> value = new AtomicReference<>();
+    perform(cookie, (req, res) -> {
+      HttpSession session = ((HttpServletRequest) req).getSession(false);
+      assertThat(session, notNullValue());
+      assertThat(session.isNew(), is(false));
+      value.set(session.getAttribute("test"));
+    });
+
+    assertThat(value.get(), equalTo("value"));
+  }
+
+  @Test
+  public void testUnknownSessionIdIsIgnored() throws Exception {
+    AtomicReference<HttpSession> session = new AtomicReference<>();
+    MockHttpServletResponse response = perform(new Cookie(COOKIE_NAME, "unknown"),
+        (req, res) -> session.set(((HttpServletRequest) req).getSession(false)));
+
+    assertThat(session.get(), nullValue());
+    assertThat(response.getCookie(COOKIE_NAME), nullValue());
+  }
+
+  @Test
+  public void testInvalidatedSessionIsDeleted() throws Exception {
+    Cookie cookie = createSessionWithAttribute("test", "value");
+
+    MockHttpServletResponse response =
+        perform(cookie, (req, res) -> ((HttpServletRequest) req).getSession().invalidate());
+
+    assertThat(response.getCookie(COOKIE_NAME).getMaxAge(), is(0));
+    assertThat(repository.findById(cookie.getValue(), null), nullValue());
+  }
+
+  @Test
+  public void testChangeSessionIdPreservesAttributes() throws Exception {
+    Cookie cookie = createSessionWithAttribute("test", "value");
+
+    MockHttpServletResponse response =
+        perform(cookie, (req, res) -> ((HttpServletRequest) req).changeSessionId());
+
+    Cookie newCookie = response.getCookie(COOKIE_NAME);
+    assertThat(newCookie.getValue(), not(equalTo(cookie.getValue())));
+    assertThat(repository.findById(cookie.getValue(), null), nullValue());
+    assertThat(repository.findById(newCookie.getValue(), null).getAttribute("test"),
+        equalTo("value"));
+  }
+
+  @Test
+  public void testSessionIsStoredBeforeLoginRedirectIsSent() throws Exception {
+    // Another IAM instance, sharing only the database with this one
+    JdbcSessionRepository otherInstance =
+        new JdbcSessionRepository(jdbcTemplate, codec, Clock.systemDefaultZone(), 1800, 0);
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    AtomicReference<Object> value = new AtomicReference<>();
+
+    filter.doFilter(request, response, (req, res) -> {
+      ((HttpServletRequest) req).getSession().setAttribute("login", "test_user");
+      ((HttpServletResponse) res).sendRedirect("/dashboard");
+
+      // The client follows the redirect as soon as it is sent, i.e. before this request completes
+      JdbcHttpSession session =
+          otherInstance.findById(response.getCookie(COOKIE_NAME).getValue(), null);
+      value.set(session == null ? null : session.getAttribute("login"));
+    });
+
+    assertThat(response.getRedirectedUrl(), equalTo("/dashboard"));
+    assertThat(value.get(), equalTo("test_user"));
+  }
+}
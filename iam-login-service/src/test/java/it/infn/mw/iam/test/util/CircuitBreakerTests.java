@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.test.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.infn.mw.iam.util.CircuitBreaker;
+import it.infn.mw.iam.util.CircuitBreaker.State;
+import it.infn.mw.iam.util.CircuitBreakerOpenException;
+
+public class CircuitBreakerTests {
+
+  static final Instant NOW = Instant.parse("2020-01-01T00:00:00.00Z");
+
+  CircuitBreaker breaker;
+  AtomicInteger calls = new AtomicInteger();
+
+  private CircuitBreaker breakerAt(Instant time) {
+    return new CircuitBreaker("test", 3, Duration.ofSeconds(60),
+        Clock.fixed(time, ZoneId.systemDefault()));
+  }
+
+  private void failingCall(CircuitBreaker cb) {
+    try {
+      cb.call(() -> {
+        calls.incrementAndGet();
+        throw new IllegalStateException("failure");
+      });
+      fail("Expected exception not thrown");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Before
+  public void setup() {
+    breaker = breakerAt(NOW);
+  }
+
+  @Test
+  public void testBreakerOpensAfterConsecutiveFailures() {
+    failingCall(breaker);
+    failingCall(breaker);
+    assertThat(breaker.getState(), is(State.CLOSED));
+
+    failingCall(breaker);
+    assertThat(breaker.getState(), is(State.OPEN));
+    assertThat(calls.get(), is(3));
+
+    try {
+      breaker.call(() -> calls.incrementAndGet());
+      fail("Expected exception not thrown");
+    } catch (CircuitBreakerOpenException e) {
+      assertThat(e.getMessage(), is("Circuit breaker 'test' is open"));
+    }
+
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void testSuccessResetsFailureCount() {
+    failingCall(breaker);
+    failingCall(breaker);
+    assertThat(breaker.call(() -> "ok"), is("ok"));
+    failingCall(breaker);
+    failingCall(breaker);
+
+    assertThat(breaker.getState(), is(State.CLOSED));
+  }
+
+  @Test
+  public void testBreakerIsHalfOpenAfterOpenTime() {
+    CircuitBreaker cb = new CircuitBreaker("test", 1, Duration.ofSeconds(60), new Clock() {
+      Instant now = NOW;
+
+      @Override
+      public ZoneId getZone() {
+        return ZoneId.systemDefault();
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        Instant result = now;
+        now = now.plusSeconds(30);
+        return result;
+      }
+    });
+
+    failingCall(cb);
+    // 30 seconds later
+    assertThat(cb.getState(), is(State.OPEN));
+    // 60 seconds later
+    assertThat(cb.getState(), is(State.HALF_OPEN));
+
+    assertThat(cb.call(() -> "ok"), is("ok"));
+    assertThat(cb.getState(), is(State.CLOSED));
+  }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.migration.test;
+
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import it.infn.mw.iam.persistence.migrations.BuildGroupClosure;
+
+public class V100000_7___BuildGroupClosure implements SpringJdbcMigration {
+
+  @Override
+  public void migrate(JdbcTemplate jdbcTemplate) throws Exception {
+    BuildGroupClosure task = new BuildGroupClosure();
+    task.migrate(jdbcTemplate);
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.migrations;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * (Re)builds the iam_group_closure table from the parent_group_id column of the iam_group table.
+ */
+public class BuildGroupClosure implements SpringJdbcMigration {
+
+  public static final Logger LOG = LoggerFactory.getLogger(BuildGroupClosure.class);
+
+  public static final String INSERT_CLOSURE_ROW =
+      "INSERT INTO iam_group_closure(ancestor_id, descendant_id, depth) VALUES (?,?,?)";
+
+  @Override
+  public void migrate(JdbcTemplate jdbcTemplate) throws Exception {
+
+    jdbcTemplate.update("DELETE FROM iam_group_closure");
+
+    Map<Long, Long> parents = Maps.newHashMap();
+    SqlRowSet rowSet = jdbcTemplate.queryForRowSet("SELECT id, parent_group_id FROM iam_group");
+
+    while (rowSet.next()) {
+      long parentId = rowSet.getLong("parent_group_id");
+      parents.put(rowSet.getLong("id"), rowSet.wasNull() ? null : parentId);
+    }
+
+    List<Object[]> rows = Lists.newArrayList();
+
+    for (Long groupId : parents.keySet()) {
+      Set<Long> visited = new HashSet<>();
+      Long ancestorId = groupId;
+      int depth = 0;
+
+      while (ancestorId != null && visited.add(ancestorId)) {
+        rows.add(new Object[] {ancestorId, groupId, depth});
+        ancestorId = parents.get(ancestorId);
+        depth++;
+      }
+
+      if (ancestorId != null) {
+        LOG.warn("Cycle detected in the hierarchy of group with id {}", groupId);
+      }
+    }
+
+    jdbcTemplate.batchUpdate(INSERT_CLOSURE_ROW, rows);
+    LOG.debug("Inserted {} group closure rows for {} groups", rows.size(), parents.size());
+  }
+
+}
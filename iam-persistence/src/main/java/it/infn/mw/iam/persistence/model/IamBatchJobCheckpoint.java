@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * The persisted progress of a chunked batch job. The checkpoint is updated in the same transaction
+ * that processes a chunk, so that a job interrupted while {@link Status#RUNNING} can be resumed
+ * after the last committed chunk.
+ *
+ * The instance running a job holds a lease on its checkpoint, identified by the owner and renewed
+ * at each chunk by updating the heartbeat time, so that a job is never run by two instances at the
+ * same time.
+ */
+@Entity
+@Table(name = "iam_batch_job_checkpoint")
+public class IamBatchJobCheckpoint implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Status {
+    RUNNING, COMPLETED, FAILED
+  }
+
+  @Id
+  @Column(name = "name", length = 128, nullable = false)
+  private String name;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", length = 32, nullable = false)
+  private Status status;
+
+  @Column(name = "last_key", nullable = false)
+  private long lastKey;
+
+  @Column(name = "items_processed", nullable = false)
+  private long itemsProcessed;
+
+  @Column(name = "chunks_processed", nullable = false)
+  private long chunksProcessed;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "start_time", nullable = false)
+  private Date startTime;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "last_update_time", nullable = false)
+  private Date lastUpdateTime;
+
+  @Column(name = "owner", length = 64)
+  private String owner;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "heartbeat_time")
+  private Date heartbeatTime;
+
+  public IamBatchJobCheckpoint() {
+    // empty constructor
+  }
+
+  public IamBatchJobCheckpoint(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public long getLastKey() {
+    return lastKey;
+  }
+
+  public void setLastKey(long lastKey) {
+    this.lastKey = lastKey;
+  }
+
+  public long getItemsProcessed() {
+    return itemsProcessed;
+  }
+
+  public void setItemsProcessed(long itemsProcessed) {
+    this.itemsProcessed = itemsProcessed;
+  }
+
+  public long getChunksProcessed() {
+    return chunksProcessed;
+  }
+
+  public void setChunksProcessed(long chunksProcessed) {
+    this.chunksProcessed = chunksProcessed;
+  }
+
+  public Date getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime(Date startTime) {
+    this.startTime = startTime;
+  }
+
+  public Date getLastUpdateTime() {
+    return lastUpdateTime;
+  }
+
+  public void setLastUpdateTime(Date lastUpdateTime) {
+    this.lastUpdateTime = lastUpdateTime;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public void setOwner(String owner) {
+    this.owner = owner;
+  }
+
+  public Date getHeartbeatTime() {
+    return heartbeatTime;
+  }
+
+  public void setHeartbeatTime(Date heartbeatTime) {
+    this.heartbeatTime = heartbeatTime;
+  }
+
+  @Override
+  public String toString() {
+    return "IamBatchJobCheckpoint [name=" + name + ", status=" + status + ", lastKey=" + lastKey
+        + ", itemsProcessed=" + itemsProcessed + ", owner=" + owner + "]";
+  }
+}
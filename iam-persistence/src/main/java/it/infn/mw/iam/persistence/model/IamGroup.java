@@ -83,6 +83,9 @@ public class IamGroup implements Serializable {
 
   @OneToMany(mappedBy = "group", cascade = CascadeType.REMOVE)
   private Set<IamGroupRequest> groupRequests = new HashSet<>();
+
+  @OneToMany(mappedBy = "descendant", cascade = CascadeType.REMOVE)
+  private Set<IamGroupClosure> ancestorLinks = new HashSet<>();
   
   @ElementCollection
   @CollectionTable(
@@ -200,6 +203,14 @@ public class IamGroup implements Serializable {
     this.defaultGroup = defaultGroup;
   }
 
+  public Set<IamGroupClosure> getAncestorLinks() {
+    return ancestorLinks;
+  }
+
+  public void setAncestorLinks(Set<IamGroupClosure> ancestorLinks) {
+    this.ancestorLinks = ancestorLinks;
+  }
+
   public Set<IamAttribute> getAttributes() {
     return attributes;
   }
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.model;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A row of the group hierarchy closure table. For each group, the table holds one row linking the
+ * group to itself (with depth 0) and one row for each of its ancestors, with depth equal to the
+ * distance between the ancestor and the group.
+ */
+@Entity
+@Table(name = "iam_group_closure",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"ancestor_id", "descendant_id"}))
+public class IamGroupClosure implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "ancestor_id", nullable = false)
+  private IamGroup ancestor;
+
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "descendant_id", nullable = false)
+  private IamGroup descendant;
+
+  @Column(name = "depth", nullable = false)
+  private int depth;
+
+  public IamGroupClosure() {
+    // empty constructor
+  }
+
+  public IamGroupClosure(IamGroup ancestor, IamGroup descendant, int depth) {
+    this.ancestor = ancestor;
+    this.descendant = descendant;
+    this.depth = depth;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public IamGroup getAncestor() {
+    return ancestor;
+  }
+
+  public void setAncestor(IamGroup ancestor) {
+    this.ancestor = ancestor;
+  }
+
+  public IamGroup getDescendant() {
+    return descendant;
+  }
+
+  public void setDescendant(IamGroup descendant) {
+    this.descendant = descendant;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  @Override
+  public String toString() {
+    return "IamGroupClosure [id=" + id + ", depth=" + depth + "]";
+  }
+}
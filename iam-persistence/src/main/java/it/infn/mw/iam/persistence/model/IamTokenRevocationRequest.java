@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * A bulk token revocation request, persisted so that any IAM instance can report its progress and
+ * resume it if the instance that accepted it goes away.
+ *
+ * The status tracks the revocation stage: access tokens are revoked first, then refresh tokens.
+ */
+@Entity
+@Table(name = "iam_token_revocation_request")
+public class IamTokenRevocationRequest implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Status {
+    ACCESS_TOKENS, REFRESH_TOKENS, COMPLETED
+  }
+
+  @Id
+  @Column(name = "id", length = 36, nullable = false)
+  private String id;
+
+  @Column(name = "client_id", length = 256)
+  private String clientId;
+
+  @Column(name = "username", length = 128)
+  private String username;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "issued_before")
+  private Date issuedBefore;
+
+  @Column(name = "submitted_by", length = 128, nullable = false)
+  private String submittedBy;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "submission_time", nullable = false)
+  private Date submissionTime;
+
+  @Column(name = "matching_access_tokens", nullable = false)
+  private long matchingAccessTokens;
+
+  @Column(name = "matching_refresh_tokens", nullable = false)
+  private long matchingRefreshTokens;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", length = 32, nullable = false)
+  private Status status;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "completion_time")
+  private Date completionTime;
+
+  public IamTokenRevocationRequest() {
+    // empty constructor
+  }
+
+  public IamTokenRevocationRequest(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getClientId() {
+    return clientId;
+  }
+
+  public void setClientId(String clientId) {
+    this.clientId = clientId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public Date getIssuedBefore() {
+    return issuedBefore;
+  }
+
+  public void setIssuedBefore(Date issuedBefore) {
+    this.issuedBefore = issuedBefore;
+  }
+
+  public String getSubmittedBy() {
+    return submittedBy;
+  }
+
+  public void setSubmittedBy(String submittedBy) {
+    this.submittedBy = submittedBy;
+  }
+
+  public Date getSubmissionTime() {
+    return submissionTime;
+  }
+
+  public void setSubmissionTime(Date submissionTime) {
+    this.submissionTime = submissionTime;
+  }
+
+  public long getMatchingAccessTokens() {
+    return matchingAccessTokens;
+  }
+
+  public void setMatchingAccessTokens(long matchingAccessTokens) {
+    this.matchingAccessTokens = matchingAccessTokens;
+  }
+
+  public long getMatchingRefreshTokens() {
+    return matchingRefreshTokens;
+  }
+
+  public void setMatchingRefreshTokens(long matchingRefreshTokens) {
+    this.matchingRefreshTokens = matchingRefreshTokens;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public Date getCompletionTime() {
+    return completionTime;
+  }
+
+  public void setCompletionTime(Date completionTime) {
+    this.completionTime = completionTime;
+  }
+
+  @Override
+  public String toString() {
+    return "IamTokenRevocationRequest [id=" + id + ", status=" + status + ", submittedBy="
+        + submittedBy + "]";
+  }
+}
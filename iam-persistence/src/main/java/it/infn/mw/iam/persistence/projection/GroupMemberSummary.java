@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.projection;
+
+import static it.infn.mw.iam.core.NameUtils.getFormatted;
+
+import java.io.Serializable;
+
+/**
+ * A lightweight, read-only view of a group member, meant for enumerating the members of large
+ * groups without loading the member accounts.
+ */
+public class GroupMemberSummary implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Long id;
+  private final String uuid;
+  private final String username;
+  private final String name;
+
+  public GroupMemberSummary(Long id, String uuid, String username, String givenName,
+      String middleName, String familyName) {
+    this.id = id;
+    this.uuid = uuid;
+    this.username = username;
+    this.name = getFormatted(givenName, middleName, familyName);
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return "GroupMemberSummary [id=" + id + ", uuid=" + uuid + ", username=" + username + "]";
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.projection;
+
+import java.util.Date;
+
+/**
+ * A lightweight, read-only view of a group, which does not load members, children or labels.
+ */
+public class GroupSummary {
+
+  private final Long id;
+  private final String uuid;
+  private final String name;
+  private final Date creationTime;
+
+  public GroupSummary(Long id, String uuid, String name, Date creationTime) {
+    this.id = id;
+    this.uuid = uuid;
+    this.name = name;
+    this.creationTime = creationTime;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Date getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public String toString() {
+    return "GroupSummary [id=" + id + ", uuid=" + uuid + ", name=" + name + "]";
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.lang.String.format;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class DefaultIamTokenCleanupRepository extends TokenDeletionSupport
+    implements IamTokenCleanupRepository {
+
+  private static final List<String> AUTHENTICATION_HOLDER_TABLES =
+      Arrays.asList("authentication_holder_authority", "authentication_holder_resource_id",
+          "authentication_holder_response_type", "authentication_holder_extension",
+          "authentication_holder_scope", "authentication_holder_request_parameter");
+
+  private static final String EXPIRED_ACCESS_TOKENS_QUERY =
+      "select id from access_token where expiration < ?1";
+
+  private static final String EXPIRED_REFRESH_TOKENS_QUERY =
+      "select id from refresh_token where expiration < ?1";
+
+  private static final String EXPIRED_APPROVED_SITES_QUERY =
+      "select id from approved_site where timeout_date < ?1";
+
+  private static final String ORPHANED_AUTHENTICATION_HOLDERS_QUERY =
+      "select h.id from authentication_holder h where h.id > ?1 "
+          + "and not exists (select 1 from access_token a where a.auth_holder_id = h.id) "
+          + "and not exists (select 1 from refresh_token r where r.auth_holder_id = h.id) "
+          + "and not exists (select 1 from authorization_code c where c.auth_holder_id = h.id) "
+          + "and not exists (select 1 from device_code d where d.auth_holder_id = h.id) "
+          + "order by h.id";
+
+  private static final String ORPHANED_SAVED_USER_AUTHS_QUERY =
+      "select s.id from saved_user_auth s where s.id > ?1 "
+          + "and not exists (select 1 from authentication_holder h where h.user_auth_id = s.id) "
+          + "order by s.id";
+
+  private long count(String sql, Date now) {
+    return ((Number) em.createNativeQuery(sql)
+      .setParameter(1, new Timestamp(now.getTime()))
+      .getSingleResult()).longValue();
+  }
+
+  private void deleteSavedUserAuthentications(List<Long> ids) {
+    deleteWhereIn("saved_user_auth_authority", "owner_id", ids);
+    deleteWhereIn("saved_user_auth_info", "owner_id", ids);
+    deleteWhereIn("saved_user_auth", "id", ids);
+  }
+
+  @Override
+  public List<Long> deleteExpiredAccessTokens(Date now, int maxResults) {
+    em.flush();
+
+    List<Long> ids =
+        selectIds(EXPIRED_ACCESS_TOKENS_QUERY, new Timestamp(now.getTime()), maxResults);
+
+    return cleanup(ids, () -> deleteAccessTokens(ids));
+  }
+
+  @Override
+  public List<Long> deleteExpiredRefreshTokens(Date now, int maxResults) {
+    em.flush();
+
+    List<Long> ids =
+        selectIds(EXPIRED_REFRESH_TOKENS_QUERY, new Timestamp(now.getTime()), maxResults);
+
+    return cleanup(ids, () -> deleteRefreshTokens(ids));
+  }
+
+  @Override
+  public List<Long> deleteExpiredApprovedSites(Date now, int maxResults) {
+    em.flush();
+
+    List<Long> ids =
+        selectIds(EXPIRED_APPROVED_SITES_QUERY, new Timestamp(now.getTime()), maxResults);
+
+    return cleanup(ids, () -> {
+      String siteIds = idList(ids);
+
+      List<Long> refreshTokenIds =
+          selectIds(format("select refresh_token_id from access_token where approved_site_id in %s",
+              siteIds));
+      List<Long> accessTokenIds =
+          selectIds(format("select id from access_token where approved_site_id in %s", siteIds));
+
+      deleteAccessTokens(accessTokenIds);
+      deleteRefreshTokens(refreshTokenIds);
+
+      deleteWhereIn("approved_site_scope", "owner_id", ids);
+      deleteWhereIn("approved_site", "id", ids);
+    });
+  }
+
+  @Override
+  public List<Long> deleteOrphanedAuthenticationHolders(long lastId, int maxResults) {
+    em.flush();
+
+    List<Long> ids = selectIds(ORPHANED_AUTHENTICATION_HOLDERS_QUERY, lastId, maxResults);
+
+    return cleanup(ids, () -> {
+      List<Long> userAuthIds = selectIds(format(
+          "select user_auth_id from authentication_holder where id in %s", idList(ids)));
+
+      AUTHENTICATION_HOLDER_TABLES.forEach(t -> deleteWhereIn(t, "owner_id", ids));
+      deleteWhereIn("authentication_holder", "id", ids);
+
+      if (!userAuthIds.isEmpty()) {
+        deleteSavedUserAuthentications(selectIds(format(
+            "select s.id from saved_user_auth s where s.id in %s and not exists "
+                + "(select 1 from authentication_holder h where h.user_auth_id = s.id)",
+            idList(userAuthIds))));
+      }
+    });
+  }
+
+  @Override
+  public List<Long> deleteOrphanedSavedUserAuthentications(long lastId, int maxResults) {
+    em.flush();
+
+    List<Long> ids = selectIds(ORPHANED_SAVED_USER_AUTHS_QUERY, lastId, maxResults);
+
+    return cleanup(ids, () -> deleteSavedUserAuthentications(ids));
+  }
+
+  @Override
+  public long countExpiredAccessTokens(Date now) {
+    return count("select count(*) from access_token where expiration < ?1", now);
+  }
+
+  @Override
+  public long countExpiredRefreshTokens(Date now) {
+    return count("select count(*) from refresh_token where expiration < ?1", now);
+  }
+
+  @Override
+  public long countExpiredApprovedSites(Date now) {
+    return count("select count(*) from approved_site where timeout_date < ?1", now);
+  }
+}
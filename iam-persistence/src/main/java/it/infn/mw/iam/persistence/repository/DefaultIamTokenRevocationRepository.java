@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import javax.persistence.Query;
+
+import org.springframework.stereotype.Repository;
+
+import com.google.common.collect.Lists;
+
+@Repository
+public class DefaultIamTokenRevocationRepository extends TokenDeletionSupport
+    implements IamTokenRevocationRepository {
+
+  private static final String ACCESS_TOKEN_TABLE = "access_token";
+  private static final String REFRESH_TOKEN_TABLE = "refresh_token";
+
+  private Query filterQuery(String projection, String table, TokenRevocationFilter filter,
+      long lastId, String orderBy) {
+    checkNotNull(filter, "null filter");
+    checkArgument(!filter.isEmpty(), "empty revocation filter");
+
+    List<Object> params = Lists.newArrayList();
+    params.add(lastId);
+
+    StringBuilder sql = new StringBuilder(format("select %s from %s t", projection, table));
+
+    if (filter.getUsername() != null) {
+      sql.append(" join authentication_holder h on h.id = t.auth_holder_id");
+      sql.append(" join saved_user_auth u on u.id = h.user_auth_id");
+    }
+
+    sql.append(" where t.id > ?1");
+
+    if (filter.getClientId() != null) {
+      params.add(filter.getClientId());
+      sql.append(format(
+          " and t.client_id in (select c.id from client_details c where c.client_id = ?%d)",
+          params.size()));
+    }
+
+    if (filter.getUsername() != null) {
+      params.add(filter.getUsername());
+      sql.append(format(" and u.name = ?%d", params.size()));
+    }
+
+    if (filter.getIssuedBefore() != null) {
+      params.add(new Timestamp(filter.getIssuedBefore().getTime()));
+      sql.append(format(" and (t.issued_at is null or t.issued_at < ?%d)", params.size()));
+    }
+
+    sql.append(orderBy);
+
+    Query q = em.createNativeQuery(sql.toString());
+
+    for (int i = 0; i < params.size(); i++) {
+      q.setParameter(i + 1, params.get(i));
+    }
+
+    return q;
+  }
+
+  private List<Long> findIds(String table, TokenRevocationFilter filter, long lastId,
+      int maxResults) {
+    return ids(filterQuery("t.id", table, filter, lastId, " order by t.id")
+      .setMaxResults(maxResults));
+  }
+
+  private long count(String table, TokenRevocationFilter filter) {
+    return ((Number) filterQuery("count(*)", table, filter, 0L, "").getSingleResult())
+      .longValue();
+  }
+
+  @Override
+  public List<Long> findAccessTokenIds(TokenRevocationFilter filter, long lastId,
+      int maxResults) {
+    return findIds(ACCESS_TOKEN_TABLE, filter, lastId, maxResults);
+  }
+
+  @Override
+  public List<Long> findRefreshTokenIds(TokenRevocationFilter filter, long lastId,
+      int maxResults) {
+    return findIds(REFRESH_TOKEN_TABLE, filter, lastId, maxResults);
+  }
+
+  @Override
+  public long countAccessTokens(TokenRevocationFilter filter) {
+    return count(ACCESS_TOKEN_TABLE, filter);
+  }
+
+  @Override
+  public long countRefreshTokens(TokenRevocationFilter filter) {
+    return count(REFRESH_TOKEN_TABLE, filter);
+  }
+
+  @Override
+  public void revokeAccessTokens(List<Long> ids) {
+    em.flush();
+    cleanup(ids, () -> deleteAccessTokens(ids));
+  }
+
+  @Override
+  public void revokeRefreshTokens(List<Long> ids) {
+    em.flush();
+    cleanup(ids, () -> {
+      deleteAccessTokens(selectIds(
+          format("select id from access_token where refresh_token_id in %s", idList(ids))));
+      deleteRefreshTokens(ids);
+    });
+  }
+}
@@ -15,6 +15,7 @@
  */
 package it.infn.mw.iam.persistence.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +27,8 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
 import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.projection.AccountSummary;
+import it.infn.mw.iam.persistence.projection.GroupMemberSummary;
 
 
 public interface IamAccountRepository
@@ -56,6 +59,12 @@ public interface IamAccountRepository
   @Query("select a from IamAccount a join a.userInfo ui where ui.email = :emailAddress")
   Optional<IamAccount> findByEmail(@Param("emailAddress") String emailAddress);
 
+  @Query("select count(a) from IamAccount a where a.username = :username")
+  long countByUsername(@Param("username") String username);
+
+  @Query("select count(a) from IamAccount a join a.userInfo ui where ui.email = :emailAddress")
+  long countByEmail(@Param("emailAddress") String emailAddress);
+
   @Query("select a from IamAccount a where a.username = :username and a.uuid != :uuid")
   Optional<IamAccount> findByUsernameWithDifferentUUID(@Param("username") String username,
       @Param("uuid") String uuid);
@@ -70,8 +79,14 @@ public interface IamAccountRepository
   @Query("select a from IamAccount a join a.x509Certificates c where c.certificate = :certificate")
   Optional<IamAccount> findByCertificate(@Param("certificate") String certificate);
 
-  @Query("select a from IamAccount a join a.groups ag where ag.id = :groupId")
-  List<IamAccount> findByGroupId(@Param("groupId") Long groupId);
+  @Query("select new it.infn.mw.iam.persistence.projection.GroupMemberSummary(a.id, a.uuid, "
+      + "a.username, ui.givenName, ui.middleName, ui.familyName) from IamAccount a "
+      + "join a.userInfo ui join a.groups g where g.id = :groupId and a.id > :lastId order by a.id")
+  List<GroupMemberSummary> findMemberSummariesWithIdGreaterThan(@Param("groupId") Long groupId,
+      @Param("lastId") Long lastId, Pageable op);
+
+  @Query("select count(a) from IamAccount a join a.groups g where g.id = :groupId")
+  long countByGroupId(@Param("groupId") Long groupId);
 
   Optional<IamAccount> findByConfirmationKey(@Param("confirmationKey") String confirmationKey);
 
@@ -80,10 +95,19 @@ public interface IamAccountRepository
   @Query("select a from IamAccount a join a.authorities auth where auth.authority = :authority")
   List<IamAccount> findByAuthority(@Param("authority") String authority);
 
+  @Query("select ui.email from IamAccount a join a.userInfo ui join a.authorities auth "
+      + "where auth.authority = :authority")
+  List<String> findEmailByAuthority(@Param("authority") String authority);
+
   @Query("select a from IamAccount a where a.provisioned = true and a.lastLoginTime < :timestamp")
   List<IamAccount> findProvisionedAccountsWithLastLoginTimeBeforeTimestamp(
       @Param("timestamp") Date timestamp);
 
+  @Query("select a from IamAccount a where a.provisioned = true and a.lastLoginTime < :timestamp "
+      + "and a.id > :lastId order by a.id")
+  List<IamAccount> findProvisionedAccountsWithLastLoginTimeBeforeTimestampAndIdGreaterThan(
+      @Param("timestamp") Date timestamp, @Param("lastId") Long lastId, Pageable op);
+
   @Query("select a from IamAccount a join a.userInfo ui where lower(ui.email) LIKE lower(concat('%', :filter, '%')) or lower(a.username) LIKE lower(concat('%', :filter, '%')) or lower(a.uuid) LIKE lower(concat('%', :filter, '%')) or lower(concat(ui.givenName, ' ', ui.familyName)) LIKE lower(concat('%', :filter, '%'))")
   Page<IamAccount> findByFilter(@Param("filter") String filter, Pageable op);
 
@@ -93,10 +117,19 @@ public interface IamAccountRepository
   @Query("select a from IamAccount a where a.endTime < :timestamp")
   Page<IamAccount> findExpiredAccountsAtTimestamp(@Param("timestamp") Date timestamp, Pageable op);
 
+  @Query("select a from IamAccount a where a.endTime < :timestamp and a.id > :lastId order by a.id")
+  List<IamAccount> findExpiredAccountsAtTimestampWithIdGreaterThan(
+      @Param("timestamp") Date timestamp, @Param("lastId") Long lastId, Pageable op);
+
   @Query("select a from IamAccount a join a.labels label where label.prefix = :prefix and label.name = :name")
   Page<IamAccount> findByLabelPrefixAndName(@Param("prefix") String prefix,
       @Param("name") String name, Pageable op);
 
+  @Query("select a from IamAccount a join a.labels label where label.prefix = :prefix "
+      + "and label.name = :name and a.id > :lastId order by a.id")
+  List<IamAccount> findByLabelPrefixAndNameWithIdGreaterThan(@Param("prefix") String prefix,
+      @Param("name") String name, @Param("lastId") Long lastId, Pageable op);
+
   @Query("select a from IamAccount a join a.labels label where label.prefix = :prefix and label.name = :name and label.value = :value")
   Page<IamAccount> findByLabelPrefixAndNameAndValue(@Param("prefix") String prefix,
       @Param("name") String name, @Param("value") String value, Pageable op);
@@ -108,4 +141,27 @@ public interface IamAccountRepository
   Page<IamAccount> findByLabelNameAndValue(@Param("name") String name, @Param("value") String value,
       Pageable op);
 
+  @Query("select a.lastUpdateTime from IamAccount a where a.username = :username")
+  Date findLastUpdateTimeByUsername(@Param("username") String username);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.AccountSummary(a.id, a.uuid, a.username, "
+      + "ui.email, ui.givenName, ui.familyName, a.creationTime) from IamAccount a join a.userInfo ui "
+      + "where a.id > :lastId order by a.id")
+  List<AccountSummary> findSummariesWithIdGreaterThan(@Param("lastId") Long lastId, Pageable op);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.AccountSummary(a.id, a.uuid, a.username, "
+      + "ui.email, ui.givenName, ui.familyName, a.creationTime) from IamAccount a join a.userInfo ui "
+      + "where a.uuid in :uuids")
+  List<AccountSummary> findSummariesByUuid(@Param("uuids") Collection<String> uuids);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.AccountSummary(a.id, a.uuid, a.username, "
+      + "ui.email, ui.givenName, ui.familyName, a.creationTime) from IamAccount a join a.userInfo ui "
+      + "where a.id = :id")
+  Optional<AccountSummary> findSummaryById(@Param("id") Long id);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.AccountSummary(a.id, a.uuid, a.username, "
+      + "ui.email, ui.givenName, ui.familyName, a.creationTime) from IamAccount a join a.userInfo ui "
+      + "join a.groups g where g.id = :groupId order by a.id")
+  List<AccountSummary> findMemberSummaries(@Param("groupId") Long groupId);
+
 }
@@ -15,14 +15,42 @@
  */
 package it.infn.mw.iam.persistence.repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 
 import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.model.IamSamlId;
 
 public interface IamAccountRepositoryCustom {
   
   Optional<IamAccount> findBySamlId(IamSamlId samlId);  
-  void touchLastLoginTimeForUserWithUsername(String username);
+
+  /**
+   * Updates the last login time of a set of accounts, without loading them, with one
+   * single-column update statement per account.
+   *
+   * The persistence context is cleared afterwards, so account entities loaded before this call
+   * should be considered stale.
+   *
+   * @param lastLoginTimes the last login time to be set, indexed by account username
+   * @return the number of accounts updated
+   */
+  int updateLastLoginTimes(Map<String, Date> lastLoginTimes);
+
+  /**
+   * Sets a label on a set of accounts with two bulk statements, replacing any label with the same
+   * prefix and name already linked to those accounts.
+   *
+   * The persistence context is cleared afterwards, so account entities loaded before this call
+   * should be considered stale.
+   *
+   * @param accountIds the ids of the accounts to be labeled
+   * @param label the label
+   * @return the number of labels inserted
+   */
+  int setLabelForAccounts(Collection<Long> accountIds, IamLabel label);
   
 }
@@ -16,21 +16,38 @@
 package it.infn.mw.iam.persistence.repository;
 
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.Lists;
+
 import it.infn.mw.iam.persistence.model.IamAccount;
+import it.infn.mw.iam.persistence.model.IamLabel;
 import it.infn.mw.iam.persistence.model.IamSamlId;
 
 @Component
 public class IamAccountRepositoryImpl implements IamAccountRepositoryCustom {
 
+  private static final String UPDATE_LAST_LOGIN_TIME_QUERY =
+      "update IamAccount a set a.lastLoginTime = :lastLoginTime where a.username = :username";
+
   @Autowired
   IamAccountRepository repo;
 
+  @PersistenceContext
+  EntityManager em;
+
   @Override
   public Optional<IamAccount> findBySamlId(IamSamlId samlId) {
     return repo.findBySamlId(samlId.getIdpId(), samlId.getAttributeId(), 
@@ -39,11 +56,76 @@ public class IamAccountRepositoryImpl implements IamAccountRepositoryCustom {
 
 
   @Override
-  public void touchLastLoginTimeForUserWithUsername(String username) {
-    repo.findByUsername(username).ifPresent( a -> {
-      a.setLastLoginTime(new Date());
-      repo.save(a);
-    });
+  public int updateLastLoginTimes(Map<String, Date> lastLoginTimes) {
+    if (lastLoginTimes.isEmpty()) {
+      return 0;
+    }
+
+    em.flush();
+
+    Query q = em.createQuery(UPDATE_LAST_LOGIN_TIME_QUERY);
+    int result = 0;
+
+    for (Map.Entry<String, Date> e : lastLoginTimes.entrySet()) {
+      result += q.setParameter("lastLoginTime", e.getValue())
+        .setParameter("username", e.getKey())
+        .executeUpdate();
+    }
+
+    em.clear();
+    return result;
+  }
+
+  private Query nativeQuery(String sql, List<Object> params) {
+    Query q = em.createNativeQuery(sql);
+    for (int i = 0; i < params.size(); i++) {
+      q.setParameter(i + 1, params.get(i));
+    }
+    return q;
+  }
+
+  private static String param(List<Object> params, Object value) {
+    // Null values are inlined, since binding untyped nulls in native queries is not portable
+    if (value == null) {
+      return "NULL";
+    }
+    params.add(value);
+    return "?" + params.size();
+  }
+
+  @Override
+  public int setLabelForAccounts(Collection<Long> accountIds, IamLabel label) {
+    List<Long> ids = accountIds.stream().distinct().collect(Collectors.toList());
+
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    em.flush();
+
+    List<Object> deleteParams = Lists.newArrayList();
+    StringBuilder delete = new StringBuilder("DELETE FROM iam_account_labels WHERE name = ")
+      .append(param(deleteParams, label.getName()))
+      .append(label.getPrefix() == null ? " AND prefix IS NULL"
+          : " AND prefix = " + param(deleteParams, label.getPrefix()))
+      .append(" AND account_id IN (")
+      .append(ids.stream().map(id -> param(deleteParams, id)).collect(Collectors.joining(", ")))
+      .append(")");
+
+    List<Object> insertParams = Lists.newArrayList();
+    StringBuilder insert =
+        new StringBuilder("INSERT INTO iam_account_labels (account_id, prefix, name, val) VALUES ")
+          .append(ids.stream()
+            .map(id -> String.format("(%s, %s, %s, %s)", param(insertParams, id),
+                param(insertParams, label.getPrefix()), param(insertParams, label.getName()),
+                param(insertParams, label.getValue())))
+            .collect(Collectors.joining(", ")));
+
+    nativeQuery(delete.toString(), deleteParams).executeUpdate();
+    int result = nativeQuery(insert.toString(), insertParams).executeUpdate();
+
+    em.clear();
+    return result;
   }
 
 }
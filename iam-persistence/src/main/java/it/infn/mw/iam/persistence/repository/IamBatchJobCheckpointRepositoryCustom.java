@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.Date;
+
+/**
+ * Lease management for batch job checkpoints, used to make sure that a job is processed by a
+ * single IAM instance at a time.
+ *
+ * Leases are taken and renewed with conditional updates of the checkpoint row, which keep the row
+ * locked until the enclosing transaction completes.
+ */
+public interface IamBatchJobCheckpointRepositoryCustom {
+
+  /**
+   * Takes the lease on the checkpoint of a job, unless the job is running and the lease is held
+   * by another owner that has renewed it after the given time.
+   *
+   * @param name the job name
+   * @param owner the lease owner
+   * @param now the current time
+   * @param staleBefore leases renewed before this time are considered abandoned
+   * @return <code>true</code> if the lease has been taken
+   */
+  boolean claimLease(String name, String owner, Date now, Date staleBefore);
+
+  /**
+   * Renews the lease on the checkpoint of a job.
+   *
+   * @param name the job name
+   * @param owner the lease owner
+   * @param now the current time
+   * @return <code>false</code> if the lease is no longer held by the given owner
+   */
+  boolean renewLease(String name, String owner, Date now);
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import it.infn.mw.iam.persistence.model.IamBatchJobCheckpoint.Status;
+
+public class IamBatchJobCheckpointRepositoryImpl implements IamBatchJobCheckpointRepositoryCustom {
+
+  private static final String CLAIM_LEASE_QUERY = "update IamBatchJobCheckpoint c "
+      + "set c.owner = :owner, c.heartbeatTime = :now where c.name = :name "
+      + "and (c.status <> :running or c.owner is null or c.owner = :owner "
+      + "or c.heartbeatTime is null or c.heartbeatTime < :staleBefore)";
+
+  private static final String RENEW_LEASE_QUERY = "update IamBatchJobCheckpoint c "
+      + "set c.heartbeatTime = :now where c.name = :name and c.owner = :owner";
+
+  @PersistenceContext
+  EntityManager em;
+
+  @Override
+  public boolean claimLease(String name, String owner, Date now, Date staleBefore) {
+    return em.createQuery(CLAIM_LEASE_QUERY)
+      .setParameter("owner", owner)
+      .setParameter("now", now)
+      .setParameter("name", name)
+      .setParameter("running", Status.RUNNING)
+      .setParameter("staleBefore", staleBefore)
+      .executeUpdate() > 0;
+  }
+
+  @Override
+  public boolean renewLease(String name, String owner, Date now) {
+    return em.createQuery(RENEW_LEASE_QUERY)
+      .setParameter("now", now)
+      .setParameter("name", name)
+      .setParameter("owner", owner)
+      .executeUpdate() > 0;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.model.IamGroupClosure;
+
+public interface IamGroupClosureRepository
+    extends PagingAndSortingRepository<IamGroupClosure, Long> {
+
+  @Query("select c from IamGroupClosure c where c.descendant = :group order by c.depth")
+  List<IamGroupClosure> findAncestorLinks(@Param("group") IamGroup group);
+
+  @Query("select c.ancestor from IamGroupClosure c where c.descendant = :group and c.depth > 0 "
+      + "order by c.depth")
+  List<IamGroup> findAncestors(@Param("group") IamGroup group);
+
+  @Query("select c.descendant from IamGroupClosure c where c.ancestor = :group and c.depth > 0 "
+      + "order by c.depth, c.descendant.name")
+  List<IamGroup> findDescendants(@Param("group") IamGroup group);
+
+  @Query(
+      value = "select c.descendant from IamGroupClosure c where c.ancestor = :group and c.depth > 0",
+      countQuery = "select count(c) from IamGroupClosure c where c.ancestor = :group and c.depth > 0")
+  Page<IamGroup> findDescendants(@Param("group") IamGroup group, Pageable op);
+
+  @Query("select count(c) from IamGroupClosure c where c.ancestor = :group and c.depth > 0")
+  long countDescendants(@Param("group") IamGroup group);
+
+  @Query("select distinct c.ancestor from IamGroupClosure c, IamAccount a join a.groups g "
+      + "where a.uuid = :accountUuid and c.descendant = g")
+  List<IamGroup> findEffectiveGroupsForAccount(@Param("accountUuid") String accountUuid);
+
+  @Query("select count(distinct a) from IamAccount a join a.groups g, IamGroupClosure c "
+      + "where c.ancestor = :group and c.descendant = g")
+  long countEffectiveMembers(@Param("group") IamGroup group);
+}
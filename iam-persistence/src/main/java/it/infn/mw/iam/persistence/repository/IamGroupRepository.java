@@ -24,8 +24,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import it.infn.mw.iam.persistence.model.IamGroup;
+import it.infn.mw.iam.persistence.projection.GroupSummary;
 
-public interface IamGroupRepository extends PagingAndSortingRepository<IamGroup, Long> {
+public interface IamGroupRepository
+    extends PagingAndSortingRepository<IamGroup, Long>, IamGroupRepositoryCustom {
 
   Optional<IamGroup> findByUuid(@Param("uuid") String uuid);
 
@@ -50,4 +52,12 @@ public interface IamGroupRepository extends PagingAndSortingRepository<IamGroup,
 
   long countByNameIgnoreCaseContainingOrUuidIgnoreCaseContaining(@Param("name") String name,
       @Param("uuid") String uuid);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.GroupSummary(g.id, g.uuid, g.name, "
+      + "g.creationTime) from IamGroup g where g.id > :lastId order by g.id")
+  List<GroupSummary> findSummariesWithIdGreaterThan(@Param("lastId") Long lastId, Pageable op);
+
+  @Query("select new it.infn.mw.iam.persistence.projection.GroupSummary(g.id, g.uuid, g.name, "
+      + "g.creationTime) from IamGroup g where g.id = :id")
+  Optional<GroupSummary> findSummaryById(@Param("id") Long id);
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import it.infn.mw.iam.persistence.model.IamGroup;
+
+/**
+ * Set-based group membership updates, executed directly on the iam_account_group join table
+ * without loading the involved accounts.
+ *
+ * All these methods flush pending changes before running and clear the persistence context
+ * afterwards, so that no stale membership information is left in managed entities.
+ */
+public interface IamGroupRepositoryCustom {
+
+  /**
+   * Adds the given accounts to a group, skipping those that are already members.
+   *
+   * @return the ids of the accounts that have actually been added
+   */
+  List<Long> addMembers(IamGroup group, Collection<Long> accountIds);
+
+  /**
+   * Removes the given accounts from a group, skipping those that are not members.
+   *
+   * @return the ids of the accounts that have actually been removed
+   */
+  List<Long> removeMembers(IamGroup group, Collection<Long> accountIds);
+
+  /**
+   * Sets the last update time of the given accounts.
+   *
+   * @return the number of updated accounts
+   */
+  int touchAccounts(Collection<Long> accountIds, Date lastUpdateTime);
+
+}
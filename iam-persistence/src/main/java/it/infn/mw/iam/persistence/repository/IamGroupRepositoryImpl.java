@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.iam.persistence.model.IamGroup;
+
+public class IamGroupRepositoryImpl implements IamGroupRepositoryCustom {
+
+  private static final String FIND_MEMBER_IDS_QUERY = "select a.id from IamAccount a "
+      + "join a.groups g where g.id = :groupId and a.id in :accountIds";
+
+  private static final String TOUCH_ACCOUNTS_QUERY =
+      "update IamAccount a set a.lastUpdateTime = :lastUpdateTime where a.id in :accountIds";
+
+  @PersistenceContext
+  EntityManager em;
+
+  private List<Long> findMemberIds(IamGroup group, Collection<Long> accountIds) {
+    return em.createQuery(FIND_MEMBER_IDS_QUERY, Long.class)
+      .setParameter("groupId", group.getId())
+      .setParameter("accountIds", accountIds)
+      .getResultList();
+  }
+
+  private static String placeholders(int first, int count, String template) {
+    List<String> result = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      result.add(String.format(template, first + i));
+    }
+    return String.join(", ", result);
+  }
+
+  @Override
+  public List<Long> addMembers(IamGroup group, Collection<Long> accountIds) {
+    if (accountIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    em.flush();
+
+    List<Long> memberIds = findMemberIds(group, accountIds);
+    List<Long> newMemberIds =
+        accountIds.stream().distinct().filter(id -> !memberIds.contains(id)).collect(toList());
+
+    if (!newMemberIds.isEmpty()) {
+      // ?1 is the group id, account ids start from ?2
+      String sql = "INSERT INTO iam_account_group (account_id, group_id) VALUES "
+          + placeholders(2, newMemberIds.size(), "(?%d, ?1)");
+
+      Query q = em.createNativeQuery(sql);
+      q.setParameter(1, group.getId());
+      for (int i = 0; i < newMemberIds.size(); i++) {
+        q.setParameter(i + 2, newMemberIds.get(i));
+      }
+      q.executeUpdate();
+    }
+
+    em.clear();
+    return newMemberIds;
+  }
+
+  @Override
+  public List<Long> removeMembers(IamGroup group, Collection<Long> accountIds) {
+    if (accountIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    em.flush();
+
+    List<Long> memberIds = findMemberIds(group, accountIds);
+
+    if (!memberIds.isEmpty()) {
+      String sql = "DELETE FROM iam_account_group WHERE group_id = ?1 AND account_id IN ("
+          + placeholders(2, memberIds.size(), "?%d") + ")";
+
+      Query q = em.createNativeQuery(sql);
+      q.setParameter(1, group.getId());
+      for (int i = 0; i < memberIds.size(); i++) {
+        q.setParameter(i + 2, memberIds.get(i));
+      }
+      q.executeUpdate();
+    }
+
+    em.clear();
+    return memberIds;
+  }
+
+  @Override
+  public int touchAccounts(Collection<Long> accountIds, Date lastUpdateTime) {
+    if (accountIds.isEmpty()) {
+      return 0;
+    }
+
+    em.flush();
+
+    int result = em.createQuery(TOUCH_ACCOUNTS_QUERY)
+      .setParameter("lastUpdateTime", lastUpdateTime)
+      .setParameter("accountIds", accountIds)
+      .executeUpdate();
+
+    em.clear();
+    return result;
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Set-based cleanup of expired OAuth tokens, expired approved sites and orphaned authentication
+ * information.
+ *
+ * Each delete method removes at most <code>maxResults</code> rows (and their dependent rows) with
+ * a fixed number of bulk statements, and returns the sorted ids of the removed rows, so that it
+ * can be invoked repeatedly, each time in its own transaction, to drain a backlog in chunks.
+ *
+ * The persistence context is cleared after each delete, so entities loaded before the call should
+ * be considered stale.
+ */
+public interface IamTokenCleanupRepository {
+
+  List<Long> deleteExpiredAccessTokens(Date now, int maxResults);
+
+  List<Long> deleteExpiredRefreshTokens(Date now, int maxResults);
+
+  /**
+   * Deletes expired approved sites, together with the access and refresh tokens issued for them.
+   *
+   * @param now the current time
+   * @param maxResults the maximum number of approved sites to delete
+   * @return the ids of the deleted approved sites
+   */
+  List<Long> deleteExpiredApprovedSites(Date now, int maxResults);
+
+  /**
+   * Deletes authentication holders not referenced by any access token, refresh token,
+   * authorization code or device code, together with their saved user authentication.
+   *
+   * @param lastId only holders with an id greater than this one are considered
+   * @param maxResults the maximum number of authentication holders to delete
+   * @return the ids of the deleted authentication holders
+   */
+  List<Long> deleteOrphanedAuthenticationHolders(long lastId, int maxResults);
+
+  /**
+   * Deletes saved user authentications not referenced by any authentication holder.
+   *
+   * @param lastId only saved user authentications with an id greater than this one are considered
+   * @param maxResults the maximum number of saved user authentications to delete
+   * @return the ids of the deleted saved user authentications
+   */
+  List<Long> deleteOrphanedSavedUserAuthentications(long lastId, int maxResults);
+
+  long countExpiredAccessTokens(Date now);
+
+  long countExpiredRefreshTokens(Date now);
+
+  long countExpiredApprovedSites(Date now);
+}
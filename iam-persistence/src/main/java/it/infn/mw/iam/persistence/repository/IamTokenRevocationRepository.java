@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import java.util.List;
+
+/**
+ * Set-based revocation of the access and refresh tokens matching a {@link TokenRevocationFilter}.
+ *
+ * Matching token ids are read in chunks following the id order, so that a revocation can be split
+ * in several transactions and resumed after the last revoked id. Each revoke method removes the
+ * given tokens (and their dependent rows) with a fixed number of bulk statements.
+ *
+ * The persistence context is cleared after each revocation, so entities loaded before the call
+ * should be considered stale.
+ */
+public interface IamTokenRevocationRepository {
+
+  /**
+   * @param filter the revocation filter
+   * @param lastId only tokens with an id greater than this one are considered
+   * @param maxResults the maximum number of ids to be returned
+   * @return the sorted ids of the access tokens matching the filter
+   */
+  List<Long> findAccessTokenIds(TokenRevocationFilter filter, long lastId, int maxResults);
+
+  /**
+   * @param filter the revocation filter
+   * @param lastId only tokens with an id greater than this one are considered
+   * @param maxResults the maximum number of ids to be returned
+   * @return the sorted ids of the refresh tokens matching the filter
+   */
+  List<Long> findRefreshTokenIds(TokenRevocationFilter filter, long lastId, int maxResults);
+
+  long countAccessTokens(TokenRevocationFilter filter);
+
+  long countRefreshTokens(TokenRevocationFilter filter);
+
+  void revokeAccessTokens(List<Long> ids);
+
+  /**
+   * Revokes the given refresh tokens, together with the access tokens obtained with them.
+   *
+   * @param ids the ids of the refresh tokens to be revoked
+   */
+  void revokeRefreshTokens(List<Long> ids);
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+/**
+ * Native, set-based deletion of OAuth tokens and of their dependent rows, shared by the token
+ * cleanup and token revocation repositories.
+ */
+abstract class TokenDeletionSupport {
+
+  @PersistenceContext
+  EntityManager em;
+
+  static String idList(Collection<Long> ids) {
+    // Ids are numbers read from the database, so they can be safely inlined
+    return ids.stream().map(String::valueOf).collect(joining(",", "(", ")"));
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<Long> ids(Query q) {
+    return ((List<Object>) q.getResultList()).stream()
+      .filter(Objects::nonNull)
+      .map(o -> ((Number) o).longValue())
+      .distinct()
+      .sorted()
+      .collect(toList());
+  }
+
+  List<Long> selectIds(String sql, Object param, int maxResults) {
+    return ids(em.createNativeQuery(sql).setParameter(1, param).setMaxResults(maxResults));
+  }
+
+  List<Long> selectIds(String sql) {
+    return ids(em.createNativeQuery(sql));
+  }
+
+  int deleteWhereIn(String table, String column, Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+
+    return em.createNativeQuery(format("delete from %s where %s in %s", table, column, idList(ids)))
+      .executeUpdate();
+  }
+
+  void deleteAccessTokens(List<Long> ids) {
+    deleteWhereIn("token_scope", "owner_id", ids);
+    deleteWhereIn("access_token_permissions", "access_token_id", ids);
+    deleteWhereIn("access_token", "id", ids);
+  }
+
+  void deleteRefreshTokens(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    em.createNativeQuery(
+        format("update access_token set refresh_token_id = NULL where refresh_token_id in %s",
+            idList(ids)))
+      .executeUpdate();
+
+    deleteWhereIn("refresh_token", "id", ids);
+  }
+
+  List<Long> cleanup(List<Long> ids, Runnable deleter) {
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    deleter.run();
+    em.clear();
+
+    return ids;
+  }
+}
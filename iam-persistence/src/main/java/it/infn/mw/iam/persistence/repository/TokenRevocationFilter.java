@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Istituto Nazionale di Fisica Nucleare (INFN). 2016-2019
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.infn.mw.iam.persistence.repository;
+
+import static java.lang.String.format;
+
+import java.util.Date;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * Selects the access and refresh tokens to be revoked by the {@link IamTokenRevocationRepository}.
+ *
+ * All the given criteria must match; a token with an unknown issue time (i.e. issued before the
+ * issue time was recorded) is considered issued before any given timestamp.
+ */
+public class TokenRevocationFilter {
+
+  private final String clientId;
+  private final String username;
+  private final Date issuedBefore;
+
+  public TokenRevocationFilter(String clientId, String username, Date issuedBefore) {
+    this.clientId = clientId;
+    this.username = username;
+    this.issuedBefore = issuedBefore;
+  }
+
+  public String getClientId() {
+    return clientId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public Date getIssuedBefore() {
+    return issuedBefore;
+  }
+
+  public boolean isEmpty() {
+    return clientId == null && username == null && issuedBefore == null;
+  }
+
+  @Override
+  public String toString() {
+    List<String> criteria = Lists.newArrayList();
+
+    if (clientId != null) {
+      criteria.add(format("client: '%s'", clientId));
+    }
+
+    if (username != null) {
+      criteria.add(format("user: '%s'", username));
+    }
+
+    if (issuedBefore != null) {
+      criteria.add(format("issued before: '%tFT%<tT%<tz'", issuedBefore));
+    }
+
+    return Joiner.on(", ").join(criteria);
+  }
+}
@@ -0,0 +1,8 @@
+CREATE INDEX rt_exp_idx ON refresh_token(expiration);
+CREATE INDEX at_rti_idx ON access_token(refresh_token_id);
+CREATE INDEX at_asi_idx ON access_token(approved_site_id);
+CREATE INDEX atp_ati_idx ON access_token_permissions(access_token_id);
+CREATE INDEX as_td_idx ON approved_site(timeout_date);
+CREATE INDEX ass_oi_idx ON approved_site_scope(owner_id);
+CREATE INDEX ah_uai_idx ON authentication_holder(user_auth_id);
+CREATE INDEX dc_ahi_idx ON device_code(auth_holder_id);
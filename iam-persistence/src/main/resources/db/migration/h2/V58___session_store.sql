@@ -0,0 +1,25 @@
+CREATE TABLE iam_session
+(
+    PRIMARY_ID CHAR(36) NOT NULL,
+    SESSION_ID VARCHAR(64) NOT NULL,
+    CREATION_TIME BIGINT NOT NULL,
+    LAST_ACCESS_TIME BIGINT NOT NULL,
+    MAX_INACTIVE_INTERVAL INTEGER NOT NULL,
+    EXPIRY_TIME BIGINT NOT NULL,
+    PRIMARY KEY (PRIMARY_ID),
+    UNIQUE (SESSION_ID)
+);
+
+CREATE INDEX is_et_idx ON iam_session(EXPIRY_TIME);
+
+CREATE TABLE iam_session_attribute
+(
+    SESSION_PRIMARY_ID CHAR(36) NOT NULL,
+    ATTRIBUTE_NAME VARCHAR(200) NOT NULL,
+    ATTRIBUTE_BYTES BLOB NOT NULL,
+    PRIMARY KEY (SESSION_PRIMARY_ID, ATTRIBUTE_NAME)
+);
+
+ALTER TABLE iam_session_attribute
+    ADD CONSTRAINT FK_iam_session_attribute_session_primary_id
+    FOREIGN KEY (SESSION_PRIMARY_ID) REFERENCES iam_session (PRIMARY_ID) ON DELETE CASCADE;
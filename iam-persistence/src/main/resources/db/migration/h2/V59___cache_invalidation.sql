@@ -0,0 +1,11 @@
+CREATE TABLE iam_cache_invalidation
+    (
+        ID BIGINT IDENTITY NOT NULL,
+        REGION VARCHAR(64) NOT NULL,
+        CACHE_KEY VARCHAR(255),
+        ORIGIN VARCHAR(36) NOT NULL,
+        CREATION_TIME BIGINT NOT NULL,
+        PRIMARY KEY (ID)
+    );
+
+CREATE INDEX ici_ct_idx ON iam_cache_invalidation(CREATION_TIME);
@@ -0,0 +1,20 @@
+-- Denormalized token owner, set by IAM when tokens are saved
+ALTER TABLE access_token ADD COLUMN user_name VARCHAR(128);
+ALTER TABLE refresh_token ADD COLUMN user_name VARCHAR(128);
+
+-- Backfill existing tokens
+UPDATE access_token SET user_name = (SELECT u.name FROM authentication_holder h
+  JOIN saved_user_auth u ON u.id = h.user_auth_id WHERE h.id = access_token.auth_holder_id);
+
+UPDATE refresh_token SET user_name = (SELECT u.name FROM authentication_holder h
+  JOIN saved_user_auth u ON u.id = h.user_auth_id WHERE h.id = refresh_token.auth_holder_id);
+
+-- Keyset pagination on (expiration, id) filtered by owner or client
+CREATE INDEX at_un_exp_idx ON access_token(user_name, expiration, id);
+CREATE INDEX rt_un_exp_idx ON refresh_token(user_name, expiration, id);
+
+CREATE INDEX at_ci_exp_idx ON access_token(client_id, expiration, id);
+CREATE INDEX rt_ci_exp_idx ON refresh_token(client_id, expiration, id);
+
+DROP INDEX at_ci_idx;
+DROP INDEX rt_ci_idx;
@@ -0,0 +1,20 @@
+CREATE TABLE iam_group_closure
+(
+    ID BIGINT AUTO_INCREMENT NOT NULL,
+    ancestor_id BIGINT NOT NULL,
+    descendant_id BIGINT NOT NULL,
+    depth INTEGER NOT NULL,
+    PRIMARY KEY (ID),
+    UNIQUE (ancestor_id, descendant_id)
+);
+
+ALTER TABLE iam_group_closure
+    ADD CONSTRAINT FK_iam_group_closure_ancestor_id
+    FOREIGN KEY (ancestor_id) REFERENCES iam_group (ID);
+
+ALTER TABLE iam_group_closure
+    ADD CONSTRAINT FK_iam_group_closure_descendant_id
+    FOREIGN KEY (descendant_id) REFERENCES iam_group (ID);
+
+CREATE INDEX igc_a_d_idx ON iam_group_closure(ancestor_id, depth);
+CREATE INDEX igc_de_d_idx ON iam_group_closure(descendant_id, depth);
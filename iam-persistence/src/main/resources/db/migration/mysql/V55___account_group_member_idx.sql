@@ -0,0 +1 @@
+CREATE INDEX iag_g_a_idx ON iam_account_group(group_id, account_id);
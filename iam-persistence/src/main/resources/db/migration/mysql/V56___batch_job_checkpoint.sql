@@ -0,0 +1,11 @@
+CREATE TABLE iam_batch_job_checkpoint
+(
+    NAME VARCHAR(128) NOT NULL,
+    STATUS VARCHAR(32) NOT NULL,
+    LAST_KEY BIGINT NOT NULL,
+    ITEMS_PROCESSED BIGINT NOT NULL,
+    CHUNKS_PROCESSED BIGINT NOT NULL,
+    START_TIME TIMESTAMP NOT NULL,
+    LAST_UPDATE_TIME TIMESTAMP NOT NULL,
+    PRIMARY KEY (NAME)
+);
@@ -0,0 +1,8 @@
+CREATE TABLE iam_replica_heartbeat
+(
+    ID INTEGER NOT NULL,
+    HEARTBEAT_TIME BIGINT NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+INSERT INTO iam_replica_heartbeat (ID, HEARTBEAT_TIME) VALUES (1, 0);
@@ -0,0 +1,12 @@
+-- Existing tokens keep a NULL issue time, new tokens get the insertion time
+ALTER TABLE access_token ADD COLUMN issued_at TIMESTAMP NULL DEFAULT NULL;
+ALTER TABLE access_token MODIFY COLUMN issued_at TIMESTAMP NULL DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE refresh_token ADD COLUMN issued_at TIMESTAMP NULL DEFAULT NULL;
+ALTER TABLE refresh_token MODIFY COLUMN issued_at TIMESTAMP NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX at_ia_idx ON access_token(issued_at);
+CREATE INDEX rt_ia_idx ON refresh_token(issued_at);
+
+CREATE INDEX at_ci_idx ON access_token(client_id);
+CREATE INDEX rt_ci_idx ON refresh_token(client_id);
@@ -0,0 +1,2 @@
+ALTER TABLE iam_batch_job_checkpoint ADD COLUMN owner VARCHAR(64) NULL;
+ALTER TABLE iam_batch_job_checkpoint ADD COLUMN heartbeat_time TIMESTAMP NULL;
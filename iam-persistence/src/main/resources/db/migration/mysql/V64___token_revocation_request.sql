@@ -0,0 +1,16 @@
+CREATE TABLE iam_token_revocation_request
+(
+    ID VARCHAR(36) NOT NULL,
+    CLIENT_ID VARCHAR(256) NULL,
+    USERNAME VARCHAR(128) NULL,
+    ISSUED_BEFORE DATETIME NULL,
+    SUBMITTED_BY VARCHAR(128) NOT NULL,
+    SUBMISSION_TIME DATETIME NOT NULL,
+    MATCHING_ACCESS_TOKENS BIGINT NOT NULL,
+    MATCHING_REFRESH_TOKENS BIGINT NOT NULL,
+    STATUS VARCHAR(32) NOT NULL,
+    COMPLETION_TIME DATETIME NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE INDEX itrr_s_idx ON iam_token_revocation_request (STATUS);
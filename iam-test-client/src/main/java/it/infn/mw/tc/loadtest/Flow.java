@@ -0,0 +1,33 @@
+package it.infn.mw.tc.loadtest;
+
+import java.util.Locale;
+
+/**
+ * The request flows driven by the load test.
+ */
+public enum Flow {
+
+  CLIENT_CREDENTIALS("/token"),
+  REFRESH("/token"),
+  TOKEN_EXCHANGE("/token"),
+  INTROSPECTION("/introspect"),
+  USERINFO("/userinfo");
+
+  private final String endpoint;
+
+  Flow(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public String label() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  public static Flow fromLabel(String label) {
+    return valueOf(label.trim().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,135 @@
+package it.infn.mw.tc.loadtest;
+
+import static it.infn.mw.tc.loadtest.PopulationGenerator.CLIENT_SECRET;
+import static it.infn.mw.tc.loadtest.PopulationGenerator.PASSWORD;
+import static it.infn.mw.tc.loadtest.PopulationGenerator.clientId;
+import static it.infn.mw.tc.loadtest.PopulationGenerator.username;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Executes the load test flows against IAM.
+ */
+public class FlowExecutor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(FlowExecutor.class);
+
+  public static final String USER_SCOPES = "openid profile email offline_access";
+  public static final String EXCHANGE_SCOPES = "openid profile";
+  public static final String EXCHANGE_AUDIENCE = "load-test";
+  public static final String TOKEN_EXCHANGE_GRANT_TYPE =
+      "urn:ietf:params:oauth:grant-type:token-exchange";
+  public static final String ACCESS_TOKEN_TYPE = "urn:ietf:params:oauth:token-type:access_token";
+
+  /**
+   * The tokens obtained by a user through a client with the password grant.
+   */
+  public static class Session {
+    final int user;
+    final int client;
+    volatile String accessToken;
+    volatile String refreshToken;
+
+    Session(int user, int client) {
+      this.user = user;
+      this.client = client;
+    }
+  }
+
+  private final IamHttpClient client;
+  private final LoadTestOptions options;
+
+  public FlowExecutor(IamHttpClient client, LoadTestOptions options) {
+    this.client = client;
+    this.options = options;
+  }
+
+  private static Map<String, String> params(String... keysAndValues) {
+    Map<String, String> result = Maps.newLinkedHashMap();
+    for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+      result.put(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return result;
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value == null ? null : value.asText();
+  }
+
+  private void update(Session session, JsonNode response) {
+    session.accessToken = text(response, "access_token");
+    String refreshToken = text(response, "refresh_token");
+    if (refreshToken != null) {
+      session.refreshToken = refreshToken;
+    }
+  }
+
+  /**
+   * Opens the configured number of user sessions, spread across users and clients. Sessions are
+   * opened before the measurement starts, and are not part of the results.
+   */
+  public List<Session> openSessions() throws IOException {
+    List<Session> sessions = Lists.newArrayList();
+    final int userStride = Math.max(1, options.users / options.sessions);
+
+    for (int i = 0; i < options.sessions; i++) {
+      Session s = new Session((i * userStride) % options.users, i % options.clients);
+
+      update(s, client.token(clientId(s.client), CLIENT_SECRET, params("grant_type", "password",
+          "username", username(s.user), "password", PASSWORD, "scope", USER_SCOPES)));
+
+      sessions.add(s);
+    }
+
+    LOG.info("{} user sessions opened", sessions.size());
+    return sessions;
+  }
+
+  public void execute(Flow flow, Session session) throws IOException {
+    final String sessionClientId = clientId(session.client);
+
+    switch (flow) {
+      case CLIENT_CREDENTIALS:
+        client.token(sessionClientId, CLIENT_SECRET, params("grant_type", "client_credentials"));
+        break;
+
+      case REFRESH:
+        update(session, client.token(sessionClientId, CLIENT_SECRET,
+            params("grant_type", "refresh_token", "refresh_token", session.refreshToken)));
+        break;
+
+      case TOKEN_EXCHANGE:
+        // The next client acts on behalf of the session user
+        client.token(clientId((session.client + 1) % options.clients), CLIENT_SECRET,
+            params("grant_type", TOKEN_EXCHANGE_GRANT_TYPE, "subject_token", session.accessToken,
+                "subject_token_type", ACCESS_TOKEN_TYPE, "audience", EXCHANGE_AUDIENCE, "scope",
+                EXCHANGE_SCOPES));
+        break;
+
+      case INTROSPECTION:
+        JsonNode result = client.introspect(sessionClientId, CLIENT_SECRET,
+            params("token", session.accessToken));
+        if (!result.path("active").asBoolean()) {
+          throw new IOException("Introspection returned an inactive token");
+        }
+        break;
+
+      case USERINFO:
+        client.userinfo(session.accessToken);
+        break;
+
+      default:
+        throw new IllegalArgumentException("Unsupported flow: " + flow);
+    }
+  }
+}
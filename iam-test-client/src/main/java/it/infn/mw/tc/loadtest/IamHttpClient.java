@@ -0,0 +1,114 @@
+package it.infn.mw.tc.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+/**
+ * A minimal, thread-safe client for the IAM token, introspection and userinfo endpoints.
+ */
+public class IamHttpClient implements Closeable {
+
+  public static class RequestFailedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RequestFailedException(String uri, int status, String body) {
+      super(String.format("%s returned %d: %s", uri, status, body));
+    }
+  }
+
+  private final String baseUrl;
+  private final CloseableHttpClient httpClient;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public IamHttpClient(String baseUrl, int maxConnections) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    this.httpClient = HttpClients.custom()
+      .setMaxConnTotal(maxConnections)
+      .setMaxConnPerRoute(maxConnections)
+      .build();
+  }
+
+  private static String basicAuth(String clientId, String clientSecret) {
+    String credentials = clientId + ":" + clientSecret;
+    return "Basic "
+        + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static UrlEncodedFormEntity form(Map<String, String> params) {
+    List<NameValuePair> pairs = Lists.newArrayList();
+    params.forEach((k, v) -> pairs.add(new BasicNameValuePair(k, v)));
+    return new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8);
+  }
+
+  private JsonNode execute(HttpUriRequest request) throws IOException {
+    try (CloseableHttpResponse response = httpClient.execute(request)) {
+      final int status = response.getStatusLine().getStatusCode();
+      final String body = response.getEntity() == null ? ""
+          : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+
+      if (status != 200) {
+        throw new RequestFailedException(request.getURI().toString(), status, body);
+      }
+
+      return mapper.readTree(body);
+    }
+  }
+
+  private JsonNode post(String path, String clientId, String clientSecret,
+      Map<String, String> params) throws IOException {
+    HttpPost post = new HttpPost(baseUrl + path);
+    post.setHeader("Authorization", basicAuth(clientId, clientSecret));
+    post.setEntity(form(params));
+    return execute(post);
+  }
+
+  public JsonNode token(String clientId, String clientSecret, Map<String, String> params)
+      throws IOException {
+    return post(Flow.CLIENT_CREDENTIALS.getEndpoint(), clientId, clientSecret, params);
+  }
+
+  public JsonNode introspect(String clientId, String clientSecret, Map<String, String> params)
+      throws IOException {
+    return post(Flow.INTROSPECTION.getEndpoint(), clientId, clientSecret, params);
+  }
+
+  public JsonNode userinfo(String accessToken) throws IOException {
+    HttpGet get = new HttpGet(baseUrl + Flow.USERINFO.getEndpoint());
+    get.setHeader("Authorization", "Bearer " + accessToken);
+    return execute(get);
+  }
+
+  public boolean isReady() {
+    try {
+      execute(new HttpGet(baseUrl + "/.well-known/openid-configuration"));
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+}
@@ -0,0 +1,121 @@
+package it.infn.mw.tc.loadtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+/**
+ * Launches the IAM login service in a separate JVM, on the H2 test profile, with the load test
+ * population and a file-based H2 database that can be inspected while IAM is running.
+ */
+public class IamProcess implements Closeable {
+
+  public static final Logger LOG = LoggerFactory.getLogger(IamProcess.class);
+
+  public static final String PROFILES = "h2-test";
+  public static final String DB_USERNAME = "sa";
+  public static final String DB_PASSWORD = "";
+
+  private final Process process;
+  private final String jdbcUrl;
+
+  private IamProcess(Process process, String jdbcUrl) {
+    this.process = process;
+    this.jdbcUrl = jdbcUrl;
+  }
+
+  /**
+   * The database is opened in auto-server mode, so that it can be reached from the load test
+   * JVM, with query statistics enabled.
+   */
+  static String jdbcUrl(Path dbDir) {
+    return String.format("jdbc:h2:file:%s;AUTO_SERVER=TRUE;QUERY_STATISTICS=TRUE",
+        dbDir.resolve("iam").toAbsolutePath());
+  }
+
+  public static IamProcess start(LoadTestOptions options, Path populationDir) throws IOException {
+    final Path workDir = Paths.get(options.workDir);
+    final Path dbDir = workDir.resolve("db");
+    final Path logFile = workDir.resolve("iam.log");
+    final String baseUrl = options.getBaseUrl();
+    final String jdbcUrl = jdbcUrl(dbDir);
+
+    if (!Files.isReadable(Paths.get(options.iamWar))) {
+      throw new IllegalArgumentException("IAM war not found: " + options.iamWar);
+    }
+
+    // Start from an empty database, so that the population migration is always applied
+    if (Files.exists(dbDir)) {
+      try (Stream<Path> files = Files.walk(dbDir)) {
+        files.sorted((p1, p2) -> p2.compareTo(p1)).map(Path::toFile).forEach(File::delete);
+      }
+    }
+    Files.createDirectories(dbDir);
+
+    List<String> command = Lists.newArrayList();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    Splitter.on(' ').omitEmptyStrings().split(options.iamJavaOpts).forEach(command::add);
+    command.add("-jar");
+    command.add(options.iamWar);
+    command.add("--spring.profiles.active=" + PROFILES);
+    command.add("--server.port=" + options.iamPort);
+    command.add("--iam.baseUrl=" + baseUrl);
+    command.add("--iam.issuer=" + baseUrl);
+    command.add("--spring.datasource.url=" + jdbcUrl);
+    command.add("--flyway.locations=classpath:db/migration/h2,classpath:db/migration/test,"
+        + "filesystem:" + populationDir.toAbsolutePath());
+
+    LOG.info("Launching IAM on {}, log: {}", baseUrl, logFile);
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true)
+      .redirectOutput(logFile.toFile())
+      .start();
+
+    return new IamProcess(process, jdbcUrl);
+  }
+
+  public void waitUntilReady(IamHttpClient client, long timeoutSecs)
+      throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSecs);
+
+    while (!client.isReady()) {
+      if (!process.isAlive()) {
+        throw new IllegalStateException(
+            "IAM exited with status " + process.exitValue() + ", check the IAM log");
+      }
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("IAM not ready after " + timeoutSecs + " seconds");
+      }
+      TimeUnit.SECONDS.sleep(2);
+    }
+  }
+
+  public String getJdbcUrl() {
+    return jdbcUrl;
+  }
+
+  @Override
+  public void close() {
+    process.destroy();
+    try {
+      if (!process.waitFor(30, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
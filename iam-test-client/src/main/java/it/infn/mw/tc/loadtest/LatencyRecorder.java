@@ -0,0 +1,79 @@
+package it.infn.mw.tc.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Records request latencies and errors per flow. Instances are not thread-safe: each load test
+ * thread uses its own recorder, and recorders are merged at the end of the run.
+ */
+public class LatencyRecorder {
+
+  private static class Samples {
+    long[] latencies = new long[1024];
+    int count = 0;
+    long errors = 0;
+
+    void add(long latencyNanos) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = latencyNanos;
+    }
+  }
+
+  private final Map<Flow, Samples> samples = new EnumMap<>(Flow.class);
+
+  private Samples samples(Flow flow) {
+    return samples.computeIfAbsent(flow, f -> new Samples());
+  }
+
+  public void success(Flow flow, long latencyNanos) {
+    samples(flow).add(latencyNanos);
+  }
+
+  public void error(Flow flow) {
+    samples(flow).errors++;
+  }
+
+  public void merge(LatencyRecorder other) {
+    other.samples.forEach((flow, s) -> {
+      Samples target = samples(flow);
+      for (int i = 0; i < s.count; i++) {
+        target.add(s.latencies[i]);
+      }
+      target.errors += s.errors;
+    });
+  }
+
+  public Iterable<Flow> flows() {
+    return samples.keySet();
+  }
+
+  public int count(Flow flow) {
+    return samples(flow).count;
+  }
+
+  public long errors(Flow flow) {
+    return samples(flow).errors;
+  }
+
+  /**
+   * @param flow the flow
+   * @param quantile the quantile, between 0 and 1
+   * @return the latency at the given quantile, in milliseconds
+   */
+  public double percentileMillis(Flow flow, double quantile) {
+    Samples s = samples(flow);
+    if (s.count == 0) {
+      return 0;
+    }
+
+    long[] sorted = Arrays.copyOf(s.latencies, s.count);
+    Arrays.sort(sorted);
+
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
@@ -0,0 +1,256 @@
+package it.infn.mw.tc.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import it.infn.mw.tc.loadtest.FlowExecutor.Session;
+
+/**
+ * End-to-end load test for the IAM token, introspection and userinfo endpoints.
+ *
+ * Unless the URL of a running IAM is given, the load test generates a population, launches IAM
+ * on the H2 profile, drives the configured mix of flows from concurrent threads and reports
+ * throughput, latency percentiles and database query counts per flow.
+ *
+ * Build the login service and the test client, then run from the repository root:
+ *
+ * <pre>
+ * java -cp iam-test-client/target/iam-test-client.jar \
+ *   -Dloader.main=it.infn.mw.tc.loadtest.LoadTest \
+ *   org.springframework.boot.loader.PropertiesLauncher --users=10000 --threads=32
+ * </pre>
+ *
+ * Run with <code>--help</code> to print the available options. When a running
+ * IAM is targeted with <code>--iam-url</code>, it must have been started with the population
+ * migration written in the work directory.
+ */
+public class LoadTest {
+
+  public static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+  public static final int TOP_STATEMENTS = 20;
+
+  private final LoadTestOptions options;
+  private final Flow[] mixTable;
+
+  public LoadTest(LoadTestOptions options) {
+    this.options = options;
+
+    List<Flow> table = Lists.newArrayList();
+    options.mix.forEach((flow, weight) -> {
+      for (int i = 0; i < weight; i++) {
+        table.add(flow);
+      }
+    });
+    this.mixTable = table.toArray(new Flow[table.size()]);
+  }
+
+  private LatencyRecorder runWorker(FlowExecutor executor, List<Session> sessions, int worker,
+      long deadline) {
+    final LatencyRecorder recorder = new LatencyRecorder();
+    final Random random = new Random(worker);
+    int next = worker;
+
+    while (System.nanoTime() < deadline) {
+      final Flow flow = mixTable[random.nextInt(mixTable.length)];
+      final Session session = sessions.get(next % sessions.size());
+      next += options.threads;
+
+      final long startTime = System.nanoTime();
+      try {
+        executor.execute(flow, session);
+        recorder.success(flow, System.nanoTime() - startTime);
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("{} failed: {}", flow.label(), e.getMessage());
+        recorder.error(flow);
+      }
+    }
+
+    return recorder;
+  }
+
+  private LatencyRecorder runPhase(FlowExecutor executor, List<Session> sessions,
+      long durationSecs) throws InterruptedException, ExecutionException {
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSecs);
+    final ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+
+    try {
+      List<Future<LatencyRecorder>> results = Lists.newArrayList();
+      for (int i = 0; i < options.threads; i++) {
+        final int worker = i;
+        results.add(pool.submit(() -> runWorker(executor, sessions, worker, deadline)));
+      }
+
+      LatencyRecorder recorder = new LatencyRecorder();
+      for (Future<LatencyRecorder> r : results) {
+        recorder.merge(r.get());
+      }
+      return recorder;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs each flow sequentially and counts the database statements it executes.
+   */
+  private Map<Flow, Double> probeQueries(FlowExecutor executor, Session session,
+      QueryStatistics stats) throws SQLException {
+
+    Map<Flow, Double> result = new EnumMap<>(Flow.class);
+
+    for (Flow flow : options.mix.keySet()) {
+      QueryStatistics.Snapshot before = stats.snapshot();
+      int executed = 0;
+
+      for (int i = 0; i < options.dbProbeRequests; i++) {
+        try {
+          executor.execute(flow, session);
+          executed++;
+        } catch (IOException e) {
+          LOG.warn("{} failed during the DB probe: {}", flow.label(), e.getMessage());
+        }
+      }
+
+      if (executed > 0) {
+        result.put(flow, (double) stats.snapshot().since(before).total() / executed);
+      }
+    }
+
+    return result;
+  }
+
+  private void writeTopStatements(QueryStatistics.Snapshot snapshot, Path file)
+      throws IOException {
+    List<String> lines = Lists.newArrayList();
+    snapshot.top(TOP_STATEMENTS).forEach(e -> lines.add(String.format("%10d  %s", e.getValue(),
+        e.getKey().replaceAll("\\s+", " "))));
+    Files.write(file, lines, StandardCharsets.UTF_8);
+  }
+
+  private void report(PrintStream out, LatencyRecorder recorder, double elapsedSecs,
+      Map<Flow, Double> queriesPerRequest, Long totalQueries) {
+
+    out.printf("%nIAM load test: %d threads, %d sessions, %.1f s%n%n", options.threads,
+        options.sessions, elapsedSecs);
+    out.printf("%-20s %-12s %10s %8s %10s %9s %9s %9s %9s%n", "flow", "endpoint", "requests",
+        "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "db q/req");
+
+    long totalRequests = 0;
+
+    for (Flow flow : recorder.flows()) {
+      final int count = recorder.count(flow);
+      totalRequests += count;
+
+      out.printf("%-20s %-12s %10d %8d %10.1f %9.2f %9.2f %9.2f %9s%n", flow.label(),
+          flow.getEndpoint(), count, recorder.errors(flow), count / elapsedSecs,
+          recorder.percentileMillis(flow, 0.50), recorder.percentileMillis(flow, 0.95),
+          recorder.percentileMillis(flow, 0.99),
+          queriesPerRequest.containsKey(flow) ? String.format("%.1f", queriesPerRequest.get(flow))
+              : "-");
+    }
+
+    out.printf("%nTotal: %d requests, %.1f req/s%n", totalRequests, totalRequests / elapsedSecs);
+
+    if (totalQueries != null) {
+      out.printf("DB statements executed during the run: %d (%.1f per request)%n", totalQueries,
+          totalRequests == 0 ? 0.0 : (double) totalQueries / totalRequests);
+    }
+  }
+
+  public void run() throws Exception {
+    final Path workDir = Paths.get(options.workDir);
+    final Path populationDir = workDir.resolve("population");
+
+    Path migration = new PopulationGenerator(options).writeMigration(populationDir);
+    LOG.info("Population written to {}", migration);
+
+    try (IamHttpClient client = new IamHttpClient(options.getBaseUrl(), options.threads * 2)) {
+      IamProcess iam = null;
+
+      try {
+        if (options.launchesIam()) {
+          iam = IamProcess.start(options, populationDir);
+          iam.waitUntilReady(client, options.startupTimeoutSecs);
+        }
+
+        QueryStatistics stats = iam == null ? null : new QueryStatistics(iam.getJdbcUrl());
+
+        FlowExecutor executor = new FlowExecutor(client, options);
+        List<Session> sessions = executor.openSessions();
+
+        if (options.warmupSecs > 0) {
+          LOG.info("Warming up for {} seconds", options.warmupSecs);
+          runPhase(executor, sessions, options.warmupSecs);
+        }
+
+        LOG.info("Running for {} seconds", options.durationSecs);
+
+        QueryStatistics.Snapshot before = stats == null ? null : stats.snapshot();
+        final long startTime = System.nanoTime();
+        LatencyRecorder recorder = runPhase(executor, sessions, options.durationSecs);
+        final double elapsedSecs = (System.nanoTime() - startTime) / 1e9;
+
+        Long totalQueries = null;
+        Map<Flow, Double> queriesPerRequest = new EnumMap<>(Flow.class);
+
+        if (stats != null) {
+          QueryStatistics.Snapshot runStatements = stats.snapshot().since(before);
+          totalQueries = runStatements.total();
+          writeTopStatements(runStatements, workDir.resolve("top-statements.txt"));
+
+          if (options.dbProbeRequests > 0) {
+            queriesPerRequest = probeQueries(executor, sessions.get(0), stats);
+          }
+        }
+
+        report(System.out, recorder, elapsedSecs, queriesPerRequest, totalQueries);
+      } finally {
+        if (iam != null) {
+          iam.close();
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options;
+
+    if (Arrays.asList(args).contains("--help")) {
+      System.out.println(LoadTestOptions.USAGE);
+      return;
+    }
+
+    try {
+      options = LoadTestOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(LoadTestOptions.USAGE);
+      System.exit(1);
+      return;
+    }
+
+    new LoadTest(options).run();
+  }
+}
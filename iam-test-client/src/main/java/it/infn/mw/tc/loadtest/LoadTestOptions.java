@@ -0,0 +1,165 @@
+package it.infn.mw.tc.loadtest;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Load test options, parsed from <code>--name=value</code> command line arguments.
+ */
+public class LoadTestOptions {
+
+  public static final String USAGE = String.join("\n",
+      "Usage: LoadTest [--name=value ...]", "",
+      "Population (only used when IAM is launched by the load test):",
+      "  --users=1000                number of generated users",
+      "  --groups=100                number of generated groups",
+      "  --groups-per-user=5         group memberships per user (at most groups)",
+      "  --clients=10                number of generated clients (at least 2)",
+      "  --policies-per-group=1      scope policies linked to each group", "",
+      "IAM:",
+      "  --iam-url=                  URL of a running IAM; when empty, IAM is launched",
+      "                              on the H2 profile with the generated population",
+      "  --iam-war=iam-login-service/target/iam-login-service.war",
+      "  --iam-port=18080", "  --iam-java-opts=-Xmx2g", "  --startup-timeout-secs=300",
+      "  --work-dir=target/loadtest  population, database and IAM log directory", "",
+      "Load:", "  --threads=16                concurrent clients",
+      "  --sessions=100              user sessions (password grant) shared by the threads",
+      "  --warmup-secs=10", "  --duration-secs=60",
+      "  --mix=client_credentials=40,refresh=20,token_exchange=10,introspection=20,userinfo=10",
+      "  --db-probe-requests=20      sequential requests per flow used to count DB queries,",
+      "                              0 to disable");
+
+  int users = 1000;
+  int groups = 100;
+  int groupsPerUser = 5;
+  int clients = 10;
+  int policiesPerGroup = 1;
+
+  String iamUrl;
+  String iamWar = "iam-login-service/target/iam-login-service.war";
+  int iamPort = 18080;
+  String iamJavaOpts = "-Xmx2g";
+  long startupTimeoutSecs = 300;
+  String workDir = "target/loadtest";
+
+  int threads = 16;
+  int sessions = 100;
+  long warmupSecs = 10;
+  long durationSecs = 60;
+  Map<Flow, Integer> mix = parseMix(
+      "client_credentials=40,refresh=20,token_exchange=10,introspection=20,userinfo=10");
+  int dbProbeRequests = 20;
+
+  static Map<Flow, Integer> parseMix(String value) {
+    Map<Flow, Integer> result = new EnumMap<>(Flow.class);
+    Splitter.on(',')
+      .trimResults()
+      .omitEmptyStrings()
+      .withKeyValueSeparator('=')
+      .split(value)
+      .forEach((k, v) -> result.put(Flow.fromLabel(k), Integer.parseInt(v.trim())));
+
+    if (result.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+      throw new IllegalArgumentException("Invalid mix: " + value);
+    }
+    return result;
+  }
+
+  public static LoadTestOptions parse(String[] args) {
+    LoadTestOptions o = new LoadTestOptions();
+
+    for (String arg : args) {
+      int sep = arg.indexOf('=');
+      if (!arg.startsWith("--") || sep < 0) {
+        throw new IllegalArgumentException("Invalid argument: " + arg);
+      }
+
+      final String name = arg.substring(2, sep);
+      final String value = arg.substring(sep + 1);
+
+      switch (name) {
+        case "users":
+          o.users = Integer.parseInt(value);
+          break;
+        case "groups":
+          o.groups = Integer.parseInt(value);
+          break;
+        case "groups-per-user":
+          o.groupsPerUser = Integer.parseInt(value);
+          break;
+        case "clients":
+          o.clients = Integer.parseInt(value);
+          break;
+        case "policies-per-group":
+          o.policiesPerGroup = Integer.parseInt(value);
+          break;
+        case "iam-url":
+          o.iamUrl = value;
+          break;
+        case "iam-war":
+          o.iamWar = value;
+          break;
+        case "iam-port":
+          o.iamPort = Integer.parseInt(value);
+          break;
+        case "iam-java-opts":
+          o.iamJavaOpts = value;
+          break;
+        case "startup-timeout-secs":
+          o.startupTimeoutSecs = Long.parseLong(value);
+          break;
+        case "work-dir":
+          o.workDir = value;
+          break;
+        case "threads":
+          o.threads = Integer.parseInt(value);
+          break;
+        case "sessions":
+          o.sessions = Integer.parseInt(value);
+          break;
+        case "warmup-secs":
+          o.warmupSecs = Long.parseLong(value);
+          break;
+        case "duration-secs":
+          o.durationSecs = Long.parseLong(value);
+          break;
+        case "mix":
+          o.mix = parseMix(value);
+          break;
+        case "db-probe-requests":
+          o.dbProbeRequests = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+
+    if (o.clients < 2) {
+      throw new IllegalArgumentException("At least 2 clients are needed for token exchange");
+    }
+
+    if (o.users < 1 || o.groups < 1 || o.threads < 1 || o.sessions < 1) {
+      throw new IllegalArgumentException("users, groups, threads and sessions must be positive");
+    }
+
+    if (o.groupsPerUser < 0 || o.groupsPerUser > o.groups) {
+      throw new IllegalArgumentException(
+          "groups-per-user must be between 0 and the number of groups");
+    }
+
+    o.sessions = Math.min(o.sessions, o.users);
+    return o;
+  }
+
+  public boolean launchesIam() {
+    return isNullOrEmpty(iamUrl);
+  }
+
+  public String getBaseUrl() {
+    return launchesIam() ? String.format("http://localhost:%d", iamPort) : iamUrl;
+  }
+}
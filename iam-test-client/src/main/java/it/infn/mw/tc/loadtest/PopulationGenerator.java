@@ -0,0 +1,177 @@
+package it.infn.mw.tc.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Generates the load test population (users, groups, memberships, scope policies and clients) as
+ * a Flyway migration, applied on top of the H2 test data when IAM starts.
+ */
+public class PopulationGenerator {
+
+  public static final String MIGRATION_FILE_NAME = "V200000___load_test_population.sql";
+
+  public static final String PASSWORD = "password";
+  // bcrypt hash of PASSWORD, as used by the test data
+  public static final String PASSWORD_HASH =
+      "$2a$10$UZeOZKD1.dj5oiTsZKD03OETA9FXCKGqBuuijhsxYygZpOPtWMUni";
+  public static final String CLIENT_SECRET = "secret";
+
+  public static final String[] CLIENT_SCOPES = {"openid", "profile", "email", "offline_access"};
+  public static final String[] CLIENT_GRANT_TYPES = {"client_credentials", "password",
+      "refresh_token", "urn:ietf:params:oauth:grant-type:token-exchange"};
+
+  // Keeps generated ids clear of the ones used by the test data
+  public static final long ID_OFFSET = 1000000;
+  public static final int ROWS_PER_INSERT = 500;
+
+  private static final long USER_AUTHORITY_ID = 2;
+
+  private final LoadTestOptions options;
+
+  public PopulationGenerator(LoadTestOptions options) {
+    this.options = options;
+  }
+
+  public static String username(int index) {
+    return String.format("lt-user-%06d", index);
+  }
+
+  public static String clientId(int index) {
+    return String.format("lt-client-%03d", index);
+  }
+
+  public static String groupName(int index) {
+    return String.format("lt-group-%04d", index);
+  }
+
+  private static String uuid(String name) {
+    return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private static void insert(BufferedWriter w, String table, String columns, int count,
+      IntFunction<String> row) throws IOException {
+
+    List<String> rows = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(row.apply(i));
+    }
+
+    for (List<String> chunk : Lists.partition(rows, ROWS_PER_INSERT)) {
+      w.write(String.format("INSERT INTO %s(%s) VALUES%n", table, columns));
+      w.write(String.join(String.format(",%n"), chunk));
+      w.write(String.format(";%n%n"));
+    }
+  }
+
+  private void writeUsers(BufferedWriter w) throws IOException {
+    insert(w, "iam_user_info", "id, givenname, familyname, email, emailverified", options.users,
+        i -> String.format("(%d, 'Load', 'User %d', '%s@example.org', true)", ID_OFFSET + i, i,
+            username(i)));
+
+    insert(w, "iam_account",
+        "id, uuid, username, password, user_info_id, creationtime, lastupdatetime, active",
+        options.users,
+        i -> String.format(
+            "(%d, '%s', '%s', '%s', %d, CURRENT_TIMESTAMP(), CURRENT_TIMESTAMP(), true)",
+            ID_OFFSET + i, uuid(username(i)), username(i), PASSWORD_HASH, ID_OFFSET + i));
+
+    insert(w, "iam_account_authority", "account_id, authority_id", options.users,
+        i -> String.format("(%d, %d)", ID_OFFSET + i, USER_AUTHORITY_ID));
+  }
+
+  private void writeGroups(BufferedWriter w) throws IOException {
+    insert(w, "iam_group", "id, name, uuid, description, creationtime, lastupdatetime",
+        options.groups,
+        i -> String.format(
+            "(%d, '%s', '%s', 'Load test group %d', CURRENT_TIMESTAMP(), CURRENT_TIMESTAMP())",
+            ID_OFFSET + i, groupName(i), uuid(groupName(i)), i));
+
+    // Generated groups are all root groups, so the closure only holds their self-links
+    insert(w, "iam_group_closure", "ancestor_id, descendant_id, depth", options.groups,
+        i -> String.format("(%d, %d, 0)", ID_OFFSET + i, ID_OFFSET + i));
+
+    if (options.groupsPerUser == 0) {
+      return;
+    }
+
+    // Memberships are spread evenly across groups; since groupsPerUser <= groups, the
+    // k * stride offsets are all below groups and each user gets distinct groups
+    final int stride = Math.max(1, options.groups / options.groupsPerUser);
+
+    insert(w, "iam_account_group", "account_id, group_id", options.users * options.groupsPerUser,
+        i -> {
+          int user = i / options.groupsPerUser;
+          int k = i % options.groupsPerUser;
+          return String.format("(%d, %d)", ID_OFFSET + user,
+              ID_OFFSET + (user + k * stride) % options.groups);
+        });
+  }
+
+  private void writeScopePolicies(BufferedWriter w) throws IOException {
+    final int count = options.groups * options.policiesPerGroup;
+
+    insert(w, "iam_scope_policy",
+        "id, creation_time, description, last_update_time, rule, group_id, matching_policy",
+        count,
+        i -> String.format(
+            "(%d, CURRENT_TIMESTAMP(), 'Load test policy %d', CURRENT_TIMESTAMP(), 'PERMIT', %d, "
+                + "'EQ')",
+            ID_OFFSET + i, i, ID_OFFSET + i / options.policiesPerGroup));
+
+    insert(w, "iam_scope_policy_scope", "policy_id, scope", count * CLIENT_SCOPES.length,
+        i -> String.format("(%d, '%s')", ID_OFFSET + i / CLIENT_SCOPES.length,
+            CLIENT_SCOPES[i % CLIENT_SCOPES.length]));
+  }
+
+  private void writeClients(BufferedWriter w) throws IOException {
+    insert(w, "client_details",
+        "id, client_id, client_secret, client_name, dynamically_registered, "
+            + "refresh_token_validity_seconds, access_token_validity_seconds, "
+            + "id_token_validity_seconds, allow_introspection, token_endpoint_auth_method, "
+            + "require_auth_time",
+        options.clients,
+        i -> String.format(
+            "(%d, '%s', '%s', 'Load test client %d', false, null, 3600, 600, true, "
+                + "'SECRET_BASIC', false)",
+            ID_OFFSET + i, clientId(i), CLIENT_SECRET, i));
+
+    insert(w, "client_scope", "owner_id, scope", options.clients * CLIENT_SCOPES.length,
+        i -> String.format("(%d, '%s')", ID_OFFSET + i / CLIENT_SCOPES.length,
+            CLIENT_SCOPES[i % CLIENT_SCOPES.length]));
+
+    insert(w, "client_grant_type", "owner_id, grant_type",
+        options.clients * CLIENT_GRANT_TYPES.length,
+        i -> String.format("(%d, '%s')", ID_OFFSET + i / CLIENT_GRANT_TYPES.length,
+            CLIENT_GRANT_TYPES[i % CLIENT_GRANT_TYPES.length]));
+  }
+
+  /**
+   * Writes the population migration in the given directory.
+   *
+   * @param directory the target directory
+   * @return the path of the migration file
+   * @throws IOException if the file cannot be written
+   */
+  public Path writeMigration(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Path migration = directory.resolve(MIGRATION_FILE_NAME);
+
+    try (BufferedWriter w = Files.newBufferedWriter(migration, StandardCharsets.UTF_8)) {
+      writeUsers(w);
+      writeGroups(w);
+      writeScopePolicies(w);
+      writeClients(w);
+    }
+
+    return migration;
+  }
+}
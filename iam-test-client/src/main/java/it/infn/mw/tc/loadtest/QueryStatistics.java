@@ -0,0 +1,86 @@
+package it.infn.mw.tc.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Reads the per-statement execution counts collected by H2 when query statistics are enabled.
+ *
+ * H2 keeps statistics for a bounded number of distinct statements, so counts are approximate
+ * when IAM issues more distinct statements than that.
+ */
+public class QueryStatistics {
+
+  private static final String QUERY =
+      "SELECT SQL_STATEMENT, EXECUTION_COUNT FROM INFORMATION_SCHEMA.QUERY_STATISTICS";
+
+  public static class Snapshot {
+
+    private final Map<String, Long> executionCounts;
+
+    Snapshot(Map<String, Long> executionCounts) {
+      this.executionCounts = executionCounts;
+    }
+
+    public long total() {
+      return executionCounts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @param before an earlier snapshot
+     * @return the statements executed since the earlier snapshot
+     */
+    public Snapshot since(Snapshot before) {
+      Map<String, Long> delta = Maps.newHashMap();
+      executionCounts.forEach((sql, count) -> {
+        long d = count - before.executionCounts.getOrDefault(sql, 0L);
+        if (d > 0) {
+          delta.put(sql, d);
+        }
+      });
+      return new Snapshot(delta);
+    }
+
+    public List<Map.Entry<String, Long>> top(int n) {
+      return executionCounts.entrySet()
+        .stream()
+        .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
+        .limit(n)
+        .collect(Collectors.toList());
+    }
+  }
+
+  private final String jdbcUrl;
+
+  public QueryStatistics(String jdbcUrl) {
+    this.jdbcUrl = jdbcUrl;
+  }
+
+  public Snapshot snapshot() throws SQLException {
+    Map<String, Long> counts = Maps.newHashMap();
+
+    try (Connection c =
+        DriverManager.getConnection(jdbcUrl, IamProcess.DB_USERNAME, IamProcess.DB_PASSWORD);
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery(QUERY)) {
+
+      while (rs.next()) {
+        final String sql = rs.getString(1);
+        if (!sql.contains("INFORMATION_SCHEMA.QUERY_STATISTICS")) {
+          counts.put(sql, rs.getLong(2));
+        }
+      }
+    }
+
+    return new Snapshot(counts);
+  }
+}